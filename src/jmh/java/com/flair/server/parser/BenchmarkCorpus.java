@@ -0,0 +1,96 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.flair.server.grammar.DefaultVocabularyList;
+import com.flair.shared.grammar.Language;
+
+/**
+ * Fixed per-language corpora used by the benchmarks, loaded from the test resources
+ *
+ * @author shadeMe
+ */
+final class BenchmarkCorpus
+{
+	private BenchmarkCorpus() {}
+
+	private static String[] getFileNames(Language lang)
+	{
+		switch (lang)
+		{
+		case ENGLISH:
+			return new String[] { "english/GettysburgAddress.txt", "english/enLevel_B.txt", "english/enLevel_C.txt" };
+		case GERMAN:
+			return new String[] { "german/deLevel_B.txt", "german/deLevel_C.txt" };
+		case RUSSIAN:
+			return new String[] { "russian/ruLevel_B.txt", "russian/ruLevel_C.txt" };
+		case PERSIAN:
+			return new String[] { "persian/faLevel_A.txt", "persian/faLevel_B.txt" };
+		default:
+			throw new IllegalArgumentException("No benchmark corpus for language " + lang);
+		}
+	}
+
+	/**
+	 * Reads a file in the test resources
+	 */
+	static String readResource(String resource) throws IOException
+	{
+		InputStream stream = BenchmarkCorpus.class.getClassLoader().getResourceAsStream(resource);
+		if (stream == null)
+			throw new IOException("Missing benchmark resource " + resource);
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			return reader.lines().collect(Collectors.joining("\n"));
+		}
+	}
+
+	static List<String> getTexts(Language lang) throws IOException
+	{
+		List<String> out = new ArrayList<>();
+		for (String itr : getFileNames(lang))
+			out.add(readResource("testFiles/" + itr));
+
+		return out;
+	}
+
+	/**
+	 * Returns the default keywords of the language, falling back to the copy of the English academic word list in the test resources
+	 */
+	static List<String> getKeywords(Language lang) throws IOException
+	{
+		List<String> out = DefaultVocabularyList.get(lang);
+		if (out.isEmpty() && lang == Language.ENGLISH)
+		{
+			out = new ArrayList<>();
+			for (String itr : readResource("awl-english.txt").split("\n"))
+			{
+				if (itr.trim().isEmpty() == false)
+					out.add(itr.trim());
+			}
+		}
+
+		return out;
+	}
+
+	static List<AbstractDocumentSource> getSources(Language lang) throws IOException
+	{
+		List<AbstractDocumentSource> out = new ArrayList<>();
+		for (String itr : getTexts(lang))
+			out.add(new SimpleDocumentSource(itr, lang));
+
+		return out;
+	}
+}
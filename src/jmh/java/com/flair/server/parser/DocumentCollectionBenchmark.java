@@ -0,0 +1,101 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flair.shared.grammar.GrammaticalConstruction;
+import com.flair.shared.grammar.Language;
+import com.flair.shared.parser.DocumentReadabilityLevel;
+
+/**
+ * Measures the time taken to build a document collection of the given size, one document at a time
+ * The documents are synthetic, with a random number of occurrences of every English construction
+ *
+ * @author shadeMe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentCollectionBenchmark
+{
+	private static final int		MAX_OCCURRENCES = 20;
+
+	@Param({ "50", "200", "1000" })
+	public int						size;
+
+	private List<AbstractDocument>	documents;
+
+	@Setup
+	public void setUp()
+	{
+		Random random = new Random(42);
+		DocumentReadabilityLevel[] levels = DocumentReadabilityLevel.values();
+		documents = new ArrayList<>();
+
+		for (int i = 0; i < size; i++)
+		{
+			AbstractDocumentSource source = new SimpleDocumentSource("Document " + i, Language.ENGLISH);
+			Document doc = new Document(source, random.nextDouble() * 100, levels[random.nextInt(levels.length)]);
+			for (GrammaticalConstruction itr : GrammaticalConstruction.getForLanguage(Language.ENGLISH))
+			{
+				DocumentConstructionData data = doc.getConstructionData(itr);
+				int occurrences = random.nextInt(MAX_OCCURRENCES);
+				for (int j = 0; j < occurrences; j++)
+					data.addOccurrence(j * 10, j * 10 + 5);
+			}
+
+			doc.setNumWords(100 + random.nextInt(1000));
+			doc.flagAsParsed();
+			documents.add(doc);
+		}
+	}
+
+	/**
+	 * Appends every document, updating the construction data after each one
+	 */
+	@Benchmark
+	public DocumentCollection add()
+	{
+		DocumentCollection collection = new DocumentCollection(Language.ENGLISH);
+		for (AbstractDocument itr : documents)
+			collection.add(itr, true);
+
+		return collection;
+	}
+
+	/**
+	 * Inserts every document at its sorted position, updating the construction data after each one
+	 */
+	@Benchmark
+	public DocumentCollection addSorted()
+	{
+		DocumentCollection collection = new DocumentCollection(Language.ENGLISH);
+		collection.sort();
+		for (AbstractDocument itr : documents)
+			collection.add(itr, true);
+
+		return collection;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flair.shared.grammar.Language;
+
+/**
+ * Measures the throughput of the keyword searchers in documents/sec, using the English academic word list
+ *
+ * @author shadeMe
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KeywordSearchBenchmark
+{
+	@Param({ "NAIVE_SUBSTRING", "AHO_CORASICK" })
+	public KeywordSearcherType				searcherType;
+
+	private List<AbstractDocument>			corpus;
+	private int								next;
+	private AbstractDocumentKeywordSearcher	searcher;
+	private KeywordSearcherInput			keywords;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		corpus = new ArrayList<>();
+		for (AbstractDocumentSource itr : BenchmarkCorpus.getSources(Language.ENGLISH))
+			corpus.add(new Document(itr));
+
+		next = 0;
+		searcher = MasterParsingFactoryGenerator.createKeywordSearcher(searcherType).create();
+		keywords = new KeywordSearcherInput(BenchmarkCorpus.getKeywords(Language.ENGLISH));
+	}
+
+	@Benchmark
+	public KeywordSearcherOutput search()
+	{
+		AbstractDocument doc = corpus.get(next);
+		next = (next + 1) % corpus.size();
+		return searcher.search(doc, keywords);
+	}
+}
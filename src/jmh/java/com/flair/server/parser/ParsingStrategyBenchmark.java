@@ -0,0 +1,204 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.parser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flair.server.stanza.StanzaPipeline;
+import com.flair.server.stanza.StanzaToken;
+import com.flair.shared.grammar.Language;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Measures the throughput of the per-language parsing strategies in documents/sec
+ * Each invocation processes the next document of the language's corpus. The time spent in a full parse is split into
+ * the time taken by the NLP pipeline (annotate) and the time taken by the strategy's construction detection,
+ * which runs against the recorded output of the pipeline
+ *
+ * The Persian strategy requires the Stanza service, the Russian strategy requires vislcg3 and the HFST analyser
+ *
+ * @author shadeMe
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx4g" })
+public class ParsingStrategyBenchmark
+{
+	/**
+	 * Returns the recorded annotation of a document instead of running the annotators
+	 */
+	private static final class ReplayingStanfordPipeline extends StanfordCoreNLP
+	{
+		private final Map<String, Annotation>	recorded;
+
+		ReplayingStanfordPipeline(Map<String, Annotation> recorded)
+		{
+			super(getReplayProperties());
+			this.recorded = recorded;
+		}
+
+		private static Properties getReplayProperties()
+		{
+			Properties props = new Properties();
+			props.put("annotators", "tokenize, ssplit");
+			return props;
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void annotate(Annotation annotation)
+		{
+			Annotation source = recorded.get(annotation.get(CoreAnnotations.TextAnnotation.class));
+			if (source == null)
+				throw new IllegalStateException("No recorded annotation for document");
+
+			for (Class key : source.keySet())
+				annotation.set(key, source.get(key));
+		}
+	}
+
+	/**
+	 * Returns the recorded tokens of a document instead of querying the Stanza service
+	 */
+	private static final class ReplayingStanzaPipeline extends StanzaPipeline
+	{
+		private final Map<String, List<List<StanzaToken>>>	recorded;
+
+		ReplayingStanzaPipeline(Map<String, List<List<StanzaToken>>> recorded) {
+			this.recorded = recorded;
+		}
+
+		@Override
+		public List<List<StanzaToken>> process(AbstractDocument doc, String stanzaLang)
+		{
+			List<List<StanzaToken>> out = recorded.get(doc.getText());
+			if (out == null)
+				throw new IllegalStateException("No recorded tokens for document");
+
+			return out;
+		}
+	}
+
+	@Param({ "ENGLISH", "GERMAN", "RUSSIAN", "PERSIAN" })
+	public Language								language;
+
+	private List<AbstractDocumentSource>		corpus;
+	private int									next;
+	private AbstractDocumentParser				parser;
+	private AbstractParsingStrategy				strategy;
+	private StanfordCoreNLP						stanfordPipeline;		// null for Stanza
+	private StanzaPipeline						stanzaPipeline;			// null for CoreNLP
+	private ReplayingStanfordPipeline			stanfordReplay;
+	private ReplayingStanzaPipeline				stanzaReplay;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		corpus = BenchmarkCorpus.getSources(language);
+		next = 0;
+
+		if (language == Language.PERSIAN)
+		{
+			stanzaPipeline = new StanzaPipeline();
+			parser = MasterParsingFactoryGenerator.createParser(ParserType.STANZA, language).create();
+			strategy = MasterParsingFactoryGenerator.createParsingStrategy(ParserType.STANZA, language).create();
+
+			Map<String, List<List<StanzaToken>>> recorded = new HashMap<>();
+			for (AbstractDocumentSource itr : corpus)
+			{
+				Document doc = new Document(itr);
+				recorded.put(doc.getText(), stanzaPipeline.process(doc, "fa"));
+			}
+			stanzaReplay = new ReplayingStanzaPipeline(recorded);
+		}
+		else
+		{
+			stanfordPipeline = StanfordDocumentParser.createPipeline(language);
+			parser = new StanfordDocumentParser(new DocumentFactory(), language, stanfordPipeline);
+			strategy = MasterParsingFactoryGenerator.createParsingStrategy(ParserType.STANFORD_CORENLP, language).create();
+
+			Map<String, Annotation> recorded = new HashMap<>();
+			for (AbstractDocumentSource itr : corpus)
+			{
+				Annotation annotation = new Annotation(new Document(itr).getText());
+				stanfordPipeline.annotate(annotation);
+				recorded.put(annotation.get(CoreAnnotations.TextAnnotation.class), annotation);
+			}
+			stanfordReplay = new ReplayingStanfordPipeline(recorded);
+		}
+	}
+
+	private AbstractDocumentSource nextSource()
+	{
+		AbstractDocumentSource out = corpus.get(next);
+		next = (next + 1) % corpus.size();
+		return out;
+	}
+
+	/**
+	 * Complete parse, i.e., annotation followed by construction detection
+	 */
+	@Benchmark
+	public AbstractDocument parse() {
+		return parser.parse(nextSource(), strategy);
+	}
+
+	/**
+	 * NLP pipeline only
+	 */
+	@Benchmark
+	public Object annotate()
+	{
+		Document doc = new Document(nextSource());
+		if (stanzaPipeline != null)
+			return stanzaPipeline.process(doc, "fa");
+
+		Annotation annotation = new Annotation(doc.getText());
+		stanfordPipeline.annotate(annotation);
+		return annotation;
+	}
+
+	/**
+	 * Construction detection only
+	 */
+	@Benchmark
+	public AbstractDocument detectConstructions()
+	{
+		Document doc = new Document(nextSource());
+
+		// the pipeline is reset after every document
+		if (stanzaReplay != null)
+			((BasicStanzaDocumentParserStrategy) strategy).setPipeline(stanzaReplay);
+		else
+			((BasicStanfordDocumentParserStrategy) strategy).setPipeline(stanfordReplay);
+
+		strategy.apply(doc);
+		return doc;
+	}
+}
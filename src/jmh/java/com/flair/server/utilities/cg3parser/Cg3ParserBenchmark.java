@@ -0,0 +1,66 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.utilities.cg3parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.flair.server.utilities.cg3parser.model.WordWithReadings;
+
+/**
+ * Measures the time taken to parse the VISL CG3 output of a few Russian sentences
+ *
+ * @author shadeMe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class Cg3ParserBenchmark
+{
+	private static final String		SAMPLE = "testFiles/russian/ruSentences.cg3";
+
+	private String					readings;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		InputStream stream = Cg3ParserBenchmark.class.getClassLoader().getResourceAsStream(SAMPLE);
+		if (stream == null)
+			throw new IOException("Missing benchmark resource " + SAMPLE);
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+			readings = reader.lines().collect(Collectors.joining("\n", "", "\n"));
+		}
+
+		if (new Cg3Parser(readings).parse() == null)
+			throw new IllegalStateException("Couldn't parse " + SAMPLE);
+	}
+
+	@Benchmark
+	public List<WordWithReadings> parse() {
+		return new Cg3Parser(readings).parse();
+	}
+}
@@ -95,6 +95,8 @@ public class WebRankerCore implements AbstractWebRankerCore, Window.ClosingHandl
 		MISSING_DOCS,
 		MISSING_SEARCH_RESULTS,
 		SERVER_PING_TIMEOUT,
+		SERVER_BUSY,
+		JOB_QUEUED,
 	}
 	
 	@Override
@@ -178,11 +180,13 @@ public class WebRankerCore implements AbstractWebRankerCore, Window.ClosingHandl
 	private final class CorpusUploadProcessData extends ProcessData
 	{
 		final List<UploadedDocument>	uploadedDocs;
+		int								failedDocs;		// files whose text couldn't be extracted
 		
 		CorpusUploadProcessData(Language l)
 		{
 			super(OperationType.CUSTOM_CORPUS, l);
 			uploadedDocs = new ArrayList<>();
+			failedDocs = 0;
 		}
 
 		@Override
@@ -1059,7 +1063,7 @@ public class WebRankerCore implements AbstractWebRankerCore, Window.ClosingHandl
 						expectedResults = ((WebSearchProcessData)data).numResults;
 						break;
 					case CUSTOM_CORPUS:
-						expectedResults = ((CorpusUploadProcessData)data).uploadedDocs.size();
+						expectedResults = ((CorpusUploadProcessData)data).uploadedDocs.size() + ((CorpusUploadProcessData)data).failedDocs;
 						break;
 					}
 				
@@ -1073,6 +1077,34 @@ public class WebRankerCore implements AbstractWebRankerCore, Window.ClosingHandl
 			@Override
 			public void handle(ServerMessage msg)
 			{
+				switch (msg.getType())
+				{
+				case QUEUED:
+					notification.notify(getLocalizedString(LocalizationTags.JOB_QUEUED.toString()) + " " + msg.getQueued().getPosition());
+					if (data.type == OperationType.WEB_SEARCH)
+					{
+						// the timeout only starts once the server begins processing the request
+						timeout.cancel();
+						timeout.schedule(TIMEOUT_MS);
+					}
+					return;
+				case ERROR:
+					ClientLogger.get().error("Server error: " + msg.getError().getMessage());
+					if (msg.getError().getCode() == ServerMessage.Error.Code.SERVER_BUSY)
+					{
+						notification.notify(getLocalizedString(LocalizationTags.SERVER_BUSY.toString()));
+						reset(false);
+					}
+					else if (msg.getError().getCode() == ServerMessage.Error.Code.SOURCE_FAILED && data.type == OperationType.CUSTOM_CORPUS)
+					{
+						// reported as missing once the job completes
+						((CorpusUploadProcessData)data).failedDocs++;
+					}
+					return;
+				default:
+					break;
+				}
+				
 				if (data.type == OperationType.WEB_SEARCH && msg.getType() != ServerMessage.Type.SEARCH_CRAWL_PARSE)
 					throw new RuntimeException("Invalid message type for web search operation: " + msg.getType());
 				else if (data.type == OperationType.CUSTOM_CORPUS && msg.getType() != ServerMessage.Type.CUSTOM_CORPUS)
@@ -5,6 +5,7 @@ import java.util.List;
 import com.flair.server.crawler.impl.AbstractSearchAgentImplResult;
 import com.flair.server.crawler.impl.azure.AzureWebSearch;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.grammar.Language;
 
 /**
@@ -143,6 +144,7 @@ class BingSearchAgent extends CachingSearchAgent
 			} catch (Throwable e)
 			{
 				ServerLogger.get().error("Bing search API encountered a fatal error. Exception: " + e.getMessage());
+				ServerMetrics.get().recordError(ServerMetrics.Stage.WEB_SEARCH);
 				noMoreResults = true;
 			}
 		}
@@ -9,6 +9,7 @@ import java.util.List;
 import com.flair.server.crawler.impl.AbstractSearchAgentImplResult;
 import com.flair.server.crawler.impl.faroo.FarooSearch;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.grammar.Language;
 
 /**
@@ -92,6 +93,7 @@ public class FarooSearchAgent extends CachingSearchAgent
 			} catch (Throwable e)
 			{
 				ServerLogger.get().error("Faroo search API encountered a fatal error. Exception: " + e.getMessage());
+				ServerMetrics.get().recordError(ServerMetrics.Stage.WEB_SEARCH);
 				noMoreResults = true;
 			}
 		}
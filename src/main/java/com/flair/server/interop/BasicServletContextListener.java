@@ -7,7 +7,10 @@ package com.flair.server.interop;
 
 import com.flair.server.interop.session.SessionManager;
 import com.flair.server.taskmanager.MasterJobPipeline;
+import com.flair.server.utilities.CgConv;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
+import com.flair.server.utilities.VislCg3;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
@@ -26,6 +29,7 @@ public class BasicServletContextListener implements ServletContextListener
 
 		MasterJobPipeline.get();
 		SessionManager.get();
+		ServerMetrics.registerMBean();
 
 		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
 			@Override
@@ -45,10 +49,14 @@ public class BasicServletContextListener implements ServletContextListener
 		ServerLogger.get().info("FLAIR Context deinitializing...");
 		ServerLogger.get().indent();
 
+		ServerMetrics.unregisterMBean();
 		MasterJobPipeline.dispose();
 		SessionManager.dispose();
+		CgConv.shutdown();
+		VislCg3.shutdown();
 
 		ServerLogger.get().exdent();
 		ServerLogger.get().info("FLAIR Context deinitialized!");
+		ServerLogger.get().shutdown();
 	}
 }
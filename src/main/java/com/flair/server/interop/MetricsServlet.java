@@ -0,0 +1,37 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.interop;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.flair.server.utilities.ServerMetrics;
+
+/**
+ * Exposes the server metrics in the Prometheus text format
+ *
+ * @author shadeMe
+ */
+public class MetricsServlet extends HttpServlet
+{
+	private static final long serialVersionUID = -3720416573062351784L;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException
+	{
+		byte[] body = ServerMetrics.get().toPrometheusText().getBytes(StandardCharsets.UTF_8);
+
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+		response.setHeader("Cache-Control", "no-cache");
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+}
@@ -7,6 +7,9 @@ package com.flair.server.interop.session;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -21,6 +24,7 @@ import com.flair.server.interop.AuthTokenGenerator;
 import com.flair.server.raft.Raft;
 import com.flair.server.raft.Weka;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.interop.AuthToken;
 import com.flair.shared.interop.InvalidAuthTokenException;
 import com.flair.shared.interop.ServerAuthenticationToken;
@@ -92,6 +96,7 @@ public class SessionManager
 	private SessionManager()
 	{
 		activeSessions = new HashMap<>();
+		ServerMetrics.get().registerGauge("flair_sessions_active", "Number of active sessions", this::getActiveSessionCount);
 	}
 
 	private synchronized void releaseSessions()
@@ -134,6 +139,10 @@ public class SessionManager
 		ServerLogger.get().info("Session token " + data.getToken().getUuid() + " released");
 	}
 	
+	public synchronized int getActiveSessionCount() {
+		return activeSessions.size();
+	}
+
 	public synchronized ServerAuthenticationToken addSession(HttpSession httpSession)
 	{
 		ServerAuthenticationToken newTok = AuthTokenGenerator.create();
@@ -214,7 +223,16 @@ public class SessionManager
 		return "";
 	}
 
-	public synchronized void handleCorpusUpload(HttpServletRequest request) throws ServletException, IOException
+	private synchronized BasicSessionData getUploadSessionData(String clientUuid)
+	{
+		BasicSessionData data = getSessionData(clientUuid);
+		if (data == null)
+			throw new IllegalStateException("Invalid client identifier for corpus upload request");
+
+		return data;
+	}
+
+	public void handleCorpusUpload(HttpServletRequest request) throws ServletException, IOException
 	{
 		HttpSession parentHttpSession = request.getSession();
 		if (parentHttpSession == null)
@@ -224,23 +242,31 @@ public class SessionManager
 		if (clientUuid == null)
 			throw new IllegalArgumentException("Request doesn't specify client identifier");
 			
-		BasicSessionData data = getSessionData(clientUuid);
-		if (data == null)
-			throw new IllegalStateException("Invalid client identifier for corpus upload request");
+		BasicSessionData data = getUploadSessionData(clientUuid);
 
+		// the files are spooled to disk without holding any locks, their text is extracted once the upload ends
 		List<CustomCorpusFile> files = new ArrayList<>();
-		for (Part part : request.getParts())
+		try
 		{
-			String orgName = getUploadFileName(part);
-			if (orgName.isEmpty())
-				continue;
+			for (Part part : request.getParts())
+			{
+				String orgName = getUploadFileName(part);
+				if (orgName.isEmpty())
+					continue;
 
-			int extIdx = orgName.lastIndexOf(".");
-			if (extIdx != -1)
-				orgName = orgName.substring(0, extIdx); // strip extension
+				int extIdx = orgName.lastIndexOf(".");
+				if (extIdx != -1)
+					orgName = orgName.substring(0, extIdx); // strip extension
 
-			files.add(new CustomCorpusFile(part.getInputStream(), orgName));
-			ServerLogger.get().info("Uploaded custom corpus file " + orgName);
+				files.add(CustomCorpusFile.spool(part, orgName));
+				ServerLogger.get().info("Uploaded custom corpus file " + orgName);
+			}
+		} catch (IOException | ServletException ex)
+		{
+			for (CustomCorpusFile itr : files)
+				itr.delete();
+
+			throw ex;
 		}
 		
 		data.getState().handleCorpusUpload(files);
@@ -249,20 +275,47 @@ public class SessionManager
 
 final class CustomCorpusFile
 {
-	private final InputStream	stream;
+	private final Path			spooled;
 	private final String		fileName;
 
-	public CustomCorpusFile(InputStream input, String fileName)
+	private CustomCorpusFile(Path spooled, String fileName)
 	{
-		this.stream = input;
+		this.spooled = spooled;
 		this.fileName = fileName;
 	}
+
+	public static CustomCorpusFile spool(Part part, String fileName) throws IOException
+	{
+		Path spooled = Files.createTempFile("flair-upload-", ".tmp");
+		try (InputStream input = part.getInputStream()) {
+			Files.copy(input, spooled, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException ex)
+		{
+			Files.deleteIfExists(spooled);
+			throw ex;
+		}
+
+		try {
+			part.delete();		// the container's copy is no longer needed
+		} catch (IOException ex) {}
+
+		return new CustomCorpusFile(spooled, fileName);
+	}
 	
-	public InputStream getStream() {
-		return stream;
+	public InputStream getStream() throws IOException {
+		return Files.newInputStream(spooled);
 	}
 	
 	public String getFilename() {
 		return fileName;
 	}
+
+	public void delete()
+	{
+		try {
+			Files.deleteIfExists(spooled);
+		} catch (IOException ex) {
+			ServerLogger.get().warn("Couldn't delete spooled upload " + spooled + ". Exception: " + ex.toString());
+		}
+	}
 }
@@ -8,6 +8,7 @@ package com.flair.server.interop.session;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.flair.server.crawler.SearchResult;
@@ -16,6 +17,7 @@ import com.flair.server.grammar.DefaultVocabularyList;
 import com.flair.server.interop.MessagePipeline;
 import com.flair.server.parser.AbstractDocument;
 import com.flair.server.parser.AbstractDocumentSource;
+import com.flair.server.parser.DeferredDocumentSource;
 import com.flair.server.parser.DocumentCollection;
 import com.flair.server.parser.DocumentConstructionData;
 import com.flair.server.parser.KeywordSearcherInput;
@@ -25,6 +27,7 @@ import com.flair.server.parser.StreamDocumentSource;
 import com.flair.server.parser.TextSegment;
 import com.flair.server.taskmanager.*;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.grammar.GrammaticalConstruction;
 import com.flair.shared.grammar.Language;
 import com.flair.shared.interop.AbstractMesageSender;
@@ -51,19 +54,29 @@ public class SessionState
 		public final PipelineOperationType			type;
 		public final SearchCrawlParseOperation		searchCrawlParse;
 		public final CustomParseOperation			customParse;
+		private final List<CustomCorpusFile>		uploads;		// spooled files of a custom parse
 
 		OperationState(SearchCrawlParseOperation op)
 		{
 			type = op.getType();
 			searchCrawlParse = op;
 			customParse = null;
+			uploads = Collections.emptyList();
 		}
 
-		OperationState(CustomParseOperation op)
+		OperationState(CustomParseOperation op, List<CustomCorpusFile> uploads)
 		{
 			type = op.getType();
 			searchCrawlParse = null;
 			customParse = op;
+			this.uploads = uploads;
+		}
+
+		// the files are usually deleted as soon as their text has been extracted
+		void discardUploads()
+		{
+			for (CustomCorpusFile itr : uploads)
+				itr.delete();
 		}
 		/**
 		 * Returns the type of pipeline operation to be executed
@@ -106,9 +119,25 @@ public class SessionState
 
 				uploaded = new ArrayList<>();
 			}
+
+			void discardUploads()
+			{
+				for (CustomCorpusFile itr : uploaded)
+					itr.delete();
+
+				uploaded.clear();
+			}
 		}
 
 		CustomCorpus			corpusData;
+
+		void reset()
+		{
+			if (corpusData != null)
+				corpusData.discardUploads();
+
+			corpusData = null;
+		}
 	}
 	/**
 	 * Represents an uploaded File Document
@@ -127,6 +156,40 @@ public class SessionState
 			return id;
 		}
 	}
+	/**
+	 * Represents an uploaded file whose text is yet to be extracted
+	 */
+	static final class DeferredUploadedFileSource implements DeferredDocumentSource
+	{
+		private final CustomCorpusFile	file;
+		private final Language			lang;
+		private final int				id;
+
+		public DeferredUploadedFileSource(CustomCorpusFile file, Language lang, int id)
+		{
+			this.file = file;
+			this.lang = lang;
+			this.id = id;
+		}
+
+		@Override
+		public AbstractDocumentSource load() throws Exception
+		{
+			try (InputStream input = file.getStream()) {
+				return new UploadedFileDocumentSource(input, file.getFilename(), lang, id);
+			}
+		}
+
+		@Override
+		public void discard() {
+			file.delete();
+		}
+
+		@Override
+		public String getDescription() {
+			return "Upload: " + file.getFilename();
+		}
+	}
 
 	private final ServerAuthenticationToken		token;
 	private final AbstractMesageSender			messagePipeline;
@@ -160,9 +223,15 @@ public class SessionState
 		currentOperation = state;
 		// clear the message queue just in case any old messages ended up there
 		messagePipeline.clearPendingMessages();
+		currentOperation.get().setQueuePositionHandler(p -> handleJobQueued(state, p));
 		
 		// has to be the tail call as the begin operation can trigger the completion event if there are no queued tasks
-		currentOperation.get().begin();
+		try
+		{
+			currentOperation.get().begin();
+		} catch (JobRejectedException ex) {
+			handleJobRejected(ex);
+		}
 	}
 
 	private void beginMoreResultsOperation(OperationState state, SearchCrawlParseJob lastJob){
@@ -175,9 +244,16 @@ public class SessionState
 		// clear the message queue just in case any old messages ended up there
 		messagePipeline.clearPendingMessages();
 
+		currentOperation.get().setQueuePositionHandler(p -> handleJobQueued(state, p));
+
 		// has to be the tail call as the begin operation can trigger the completion event if there are no queued tasks
 		SearchCrawlParseOperation op = (SearchCrawlParseOperation) currentOperation.get();
-		op.beginFromPreviousSCPJob(lastJob);
+		try
+		{
+			op.beginFromPreviousSCPJob(lastJob);
+		} catch (JobRejectedException ex) {
+			handleJobRejected(ex);
+		}
 	}
 	
 	/**
@@ -194,6 +270,7 @@ public class SessionState
 
 		ServerLogger.get().info("Pipeline operation " + currentOperation.type + " has ended | Cancelled = " + cancel);
 		//cleanRaft();
+		currentOperation.discardUploads();
 		currentOperation = null;
 	}
 
@@ -242,6 +319,7 @@ public class SessionState
 	 */
 	private RankableDocumentImpl generateRankableDocument(AbstractDocument source)		//creates a document that the client can rank
 	{
+		long startTime = System.nanoTime();
 		RankableDocumentImpl out = new RankableDocumentImpl();
 		final int snippetMaxLen = 100;
 
@@ -288,9 +366,9 @@ public class SessionState
 				out.getRelFrequencies().put(itr, data.getRelativeFrequency());
 				out.getFrequencies().put(itr, data.getFrequency());
 
-				ArrayList<RankableDocumentImpl.ConstructionOccurrence> highlights = new ArrayList<>();
-				for (com.flair.server.parser.ConstructionOccurrence occr : data.getOccurrences())
-					highlights.add(new RankableDocumentImpl.ConstructionOccurrence(occr.getStart(), occr.getEnd(), itr));
+				ArrayList<RankableDocumentImpl.ConstructionOccurrence> highlights = new ArrayList<>(data.getFrequency());
+				for (int i = 0; i < data.getFrequency(); i++)
+					highlights.add(new RankableDocumentImpl.ConstructionOccurrence(data.getStart(i), data.getEnd(i), itr));
 
 				out.getConstOccurrences().put(itr, highlights);
 			}
@@ -327,6 +405,7 @@ public class SessionState
 		}
 		out.setReadabilityScore(source.getReadabilityScore());
 
+		ServerMetrics.get().recordSince(ServerMetrics.Stage.RANKABLE_DOCUMENT, startTime);
 		return out;
 	}
 
@@ -384,22 +463,33 @@ public class SessionState
 		messagePipeline.send(msg);
 	}
 	
-	private synchronized void handleCorpusJobBegin(Iterable<AbstractDocumentSource> source)
+	private synchronized void handleCorpusSourceReady(AbstractDocumentSource source)
 	{
 		if (hasOperation() == false)
 		{
-			ServerLogger.get().error("Invalid corpus job begin event");
+			ServerLogger.get().error("Invalid corpus source ready event");
 			return;
 		}
 
 		ServerMessage msg = new ServerMessage(token);
-		ServerMessage.CustomCorpus d = new ServerMessage.CustomCorpus(generateUploadedDocs(source));
+		ServerMessage.CustomCorpus d = new ServerMessage.CustomCorpus(generateUploadedDocs(Collections.singletonList(source)));
 		msg.setCustomCorpus(d);
 		msg.setType(ServerMessage.Type.CUSTOM_CORPUS);
 
 		sendMessageToClient(msg);
 	}
 
+	private synchronized void handleCorpusSourceFailed(DeferredDocumentSource source)
+	{
+		if (hasOperation() == false)
+		{
+			ServerLogger.get().error("Invalid corpus source failed event");
+			return;
+		}
+
+		sendErrorResponse(ServerMessage.Error.Code.SOURCE_FAILED, "Couldn't extract the text of " + source.getDescription());
+	}
+
 	private synchronized void handleCrawlComplete(SearchResult sr)
 	{
 		if (hasOperation() == false)
@@ -465,12 +555,41 @@ public class SessionState
 		endOperation(false);
 	}
 
-	private void sendErrorResponse(String err)
+	private synchronized void handleJobQueued(OperationState state, int position)
+	{
+		if (currentOperation != state)
+		{
+			// the operation has since been cancelled
+			return;
+		}
+
+		ServerMessage msg = new ServerMessage(token);
+		msg.setQueued(new ServerMessage.Queued(position));
+		msg.setType(ServerMessage.Type.QUEUED);
+
+		sendMessageToClient(msg);
+	}
+
+	private void handleJobRejected(JobRejectedException ex)
+	{
+		ServerLogger.get().info("Pipeline operation " + currentOperation.type + " was rejected | " + ex.getMessage());
+
+		// nothing was started, so there's nothing to cancel
+		currentOperation.discardUploads();
+		currentOperation = null;
+		sendErrorResponse(ServerMessage.Error.Code.SERVER_BUSY, "Server busy, please try again later. " + ex.getMessage());
+	}
+
+	private void sendErrorResponse(String err) {
+		sendErrorResponse(ServerMessage.Error.Code.GENERIC, err);
+	}
+
+	private void sendErrorResponse(ServerMessage.Error.Code code, String err)
 	{
 		ServerLogger.get().error(err);
 
 		ServerMessage msg = new ServerMessage(token);
-		ServerMessage.Error d = new ServerMessage.Error(err);
+		ServerMessage.Error d = new ServerMessage.Error(code, err);
 		msg.setError(d);
 		msg.setType(Type.ERROR);
 
@@ -481,14 +600,12 @@ public class SessionState
 	{
 		ServerLogger.get().info("Received custom corpus from client");
 
-		if (hasOperation())
-		{
-			sendErrorResponse("Another operation still running");
-			return;
-		}
-		else if (cache.corpusData == null)
+		if (hasOperation() || cache.corpusData == null)
 		{
-			sendErrorResponse("Invalid params for custom corpus");
+			for (CustomCorpusFile itr : corpus)
+				itr.delete();
+
+			sendErrorResponse(hasOperation() ? "Another operation still running" : "Invalid params for custom corpus");
 			return;
 		}
 
@@ -517,7 +634,7 @@ public class SessionState
 			k = new KeywordSearcherInput(keywords);
 
 		ServerLogger.get().info("Creating search crawl parse operation");
-		SearchCrawlParseOperation op = MasterJobPipeline.get().doSearchCrawlParse(lang, query, useRestrictedDomains, numResults, k);
+		SearchCrawlParseOperation op = MasterJobPipeline.get().doSearchCrawlParse(token, lang, query, useRestrictedDomains, numResults, k);
 		lastSearchOperation = op;
 		//do we ever get past here?
 		ServerLogger.get().info("finished creating search crawl parse operation");
@@ -550,7 +667,7 @@ public class SessionState
 		else
 			k = new KeywordSearcherInput(lastKeywords);
 
-		SearchCrawlParseOperation op = MasterJobPipeline.get().doSearchCrawlParse(agent.getLanguage(), agent.getQuery(), agent.getUseRestrictedDomains(), lastNumResults, k);
+		SearchCrawlParseOperation op = MasterJobPipeline.get().doSearchCrawlParse(token, agent.getLanguage(), agent.getQuery(), agent.getUseRestrictedDomains(), lastNumResults, k);
 		lastSearchOperation = op;
 		//do we ever get past here?
 		ServerLogger.get().info("finished creating search crawl parse operation");
@@ -579,6 +696,7 @@ public class SessionState
 		
 		// cache params and await the upload servlet
 		// discard the previous cache, if any
+		cache.reset();
 		cache.corpusData = new TemporaryCache.CustomCorpus(lang, keywords);
 		ServerLogger.get().info("Cached corpus parse parameters");
 	}
@@ -593,38 +711,33 @@ public class SessionState
 			return;
 		}
 
-		if (success == false)
+		if (success == false || cache.corpusData == null)
 		{
 			// don't begin the parse op
-			cache.corpusData = null;
+			cache.reset();
 			return;
 		}
 		
 		// begin parsing operation
-		List<AbstractDocumentSource> sources = new ArrayList<>();
-		try
+		// the files' text is extracted in parallel on the extractor pool, each is parsed as soon as it's ready
+		List<DeferredDocumentSource> sources = new ArrayList<>();
+		int i = 1;		// assign identifiers to the files for later use
+		for (CustomCorpusFile itr : cache.corpusData.uploaded)
 		{
-			int i = 1;		// assign identifiers to the files for later use
-			for (CustomCorpusFile itr : cache.corpusData.uploaded)
-			{
-				sources.add(new UploadedFileDocumentSource(itr.getStream(),
-									itr.getFilename(),
-									cache.corpusData.lang,
-									i));
-				i++;
-			}
-		} catch (Throwable ex)
-		{
-			sendErrorResponse("Couldn't read custom corpus files. Exception: " + ex.getMessage());
+			sources.add(new DeferredUploadedFileSource(itr, cache.corpusData.lang, i));
+			i++;
 		}
 
-
-		CustomParseOperation op = MasterJobPipeline.get().doDocumentParsing(cache.corpusData.lang,
+		CustomParseOperation op = MasterJobPipeline.get().doDocumentParsing(token, cache.corpusData.lang,
+																		Collections.emptyList(),
 																		sources,
 																		cache.corpusData.keywords);
 		// register event handlers and start the op
-		op.setJobBeginHandler(e -> {
-			handleCorpusJobBegin(e);
+		op.setSourceReadyHandler(e -> {
+			handleCorpusSourceReady(e);
+		});
+		op.setSourceFailedHandler(e -> {
+			handleCorpusSourceFailed(e);
 		});
 		op.setParseCompleteHandler(e -> {
 			handleParseComplete(ServerMessage.Type.CUSTOM_CORPUS, e);
@@ -633,9 +746,9 @@ public class SessionState
 			handleJobComplete(ServerMessage.Type.CUSTOM_CORPUS, e);
 		});
 
-		beginOperation(new OperationState(op));
+		beginOperation(new OperationState(op, new ArrayList<>(cache.corpusData.uploaded)));
 		
-		// reset cache
+		// reset cache, the files now belong to the operation
 		cache.corpusData = null;
 	}
 
@@ -649,6 +762,7 @@ public class SessionState
 			endOperation(true);
 		}
 
+		cache.reset();
 		if (messagePipeline.isOpen())
 			messagePipeline.close();
 	}
@@ -12,4 +12,12 @@ package com.flair.server.parser;
 public interface AbstractDocumentParserFactory
 {
     public AbstractDocumentParser		    create();
+    
+    /**
+     * Returns true if the parsers created by the factory share their language models with each other,
+     * i.e., if additional parsers are cheap to create
+     */
+    public default boolean			    sharesModels() {
+	return false;
+    }
 }
@@ -15,4 +15,12 @@ public interface AbstractParsingStrategy
 {
     boolean	isLanguageSupported(Language lang);
     boolean	apply(AbstractDocument docToParse);	    // returns true if successful, false otherwise
+
+    /**
+     * Returns the revision of the strategy's logic. Must be incremented whenever a change affects its results,
+     * so that parse results cached by earlier revisions are ignored
+     */
+    default int	getVersion() {
+	return 1;
+    }
 }
\ No newline at end of file
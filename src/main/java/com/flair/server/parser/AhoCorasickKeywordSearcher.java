@@ -0,0 +1,95 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.flair.server.utilities.ServerLogger;
+
+/**
+ * Keyword searcher that finds all keywords in a single pass with an Aho-Corasick automaton
+ * Produces the same hits as the NaiveSubstringKeywordSearcher
+ * @author shadeMe
+ */
+public class AhoCorasickKeywordSearcher implements AbstractDocumentKeywordSearcher
+{
+	private static boolean isBoundary(String text, int idx)
+	{
+		if (idx < 0 || idx >= text.length())
+			return true;
+
+		char c = text.charAt(idx);
+		return c == '.' || c == '-' || c == '\n' || Character.isWhitespace(c);
+	}
+
+	@Override
+	public KeywordSearcherOutput search(AbstractDocument source, KeywordSearcherInput input)
+	{
+		if (input == null)
+			throw new IllegalArgumentException("No keyword search input");
+		else if (source == null)
+			throw new IllegalArgumentException("No source document to read");
+
+		KeywordSearcherOutput output = new KeywordSearcherOutput(input);
+		// force to lowercase
+		String sourceText = source.getText().toLowerCase();
+
+		long startTime = System.currentTimeMillis();
+		KeywordAutomaton automaton = input.getAutomaton();
+		List<String> keywords = automaton.getKeywords();
+		int numKeywords = keywords.size();
+
+		// occurrences of the same keyword don't overlap, the search resumes at the end of the previous occurrence
+		int[] resumeAt = new int[numKeywords];
+		int[][] hitStarts = new int[numKeywords][];
+		int[] hitCounts = new int[numKeywords];
+
+		automaton.search(sourceText, (keyword, start, end) -> {
+			if (start < resumeAt[keyword])
+				return;
+
+			resumeAt[keyword] = end;
+			if (isBoundary(sourceText, start - 1) && isBoundary(sourceText, end))
+			{
+				int[] starts = hitStarts[keyword];
+				if (starts == null)
+					starts = hitStarts[keyword] = new int[4];
+				else if (hitCounts[keyword] == starts.length)
+					starts = hitStarts[keyword] = Arrays.copyOf(starts, starts.length * 2);
+
+				starts[hitCounts[keyword]++] = start;
+			}
+		});
+
+		// add the hits keyword by keyword to match the order of the naive searcher
+		for (int i = 0; i < numKeywords; i++)
+		{
+			int length = keywords.get(i).length();
+			for (int j = 0; j < hitCounts[i]; j++)
+				output.addHit(keywords.get(i), hitStarts[i][j], hitStarts[i][j] + length);
+		}
+
+		long endTime = System.currentTimeMillis();
+		if (input.isDebuggable())
+		{
+			ServerLogger.get().trace("Aho-Corasick keyword search for document {} completed in {} ms: Total hits={}", source.getDescription(), endTime - startTime, output.getTotalHitCount());
+		}
+
+		return output;
+	}
+}
+
+
+/**
+ * Factory class for the above class
+ * @author shadeMe
+ */
+class AhoCorasickKeywordSearcherFactory implements AbstractDocumentKeywordSearcherFactory
+{
+	@Override
+	public AbstractDocumentKeywordSearcher create() {
+		return new AhoCorasickKeywordSearcher();
+	}
+}
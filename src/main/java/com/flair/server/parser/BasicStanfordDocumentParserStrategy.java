@@ -5,9 +5,12 @@
  */
 package com.flair.server.parser;
 
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.grammar.Language;
 
+import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
 
 
 /**
@@ -17,10 +20,12 @@ import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 abstract class BasicStanfordDocumentParserStrategy implements AbstractParsingStrategy
 {
     protected StanfordCoreNLP		    pipeline;
+    protected ShardedAnnotator		    shardedAnnotator;	// null if documents are always annotated serially
     
     public BasicStanfordDocumentParserStrategy()
     {
 	pipeline = null;
+	shardedAnnotator = null;
     }
     
     public void setPipeline(StanfordCoreNLP pipeline)
@@ -28,6 +33,33 @@ abstract class BasicStanfordDocumentParserStrategy implements AbstractParsingStr
 	assert pipeline != null;
 	this.pipeline = pipeline;
     }
+    
+    public void setShardedAnnotator(ShardedAnnotator shardedAnnotator) {
+	this.shardedAnnotator = shardedAnnotator;
+    }
+    
+    /**
+     * Runs the pipeline on the document, splitting it into chunks that are annotated in parallel if it's long enough
+     */
+    protected void annotate(Annotation docAnnotation)
+    {
+	long startTime = System.nanoTime();
+	if (shardedAnnotator != null)
+	    shardedAnnotator.annotate(docAnnotation);
+	else
+	    pipeline.annotate(docAnnotation);
+
+	ServerMetrics.get().recordSince(ServerMetrics.Stage.ANNOTATE, startTime);
+    }
+    
+    /**
+     * Aborts the parse if the calling thread was interrupted, i.e., if the parse timed-out or was cancelled
+     * Called between sentences, just like CoreNLP's annotators do
+     */
+    protected static void checkInterrupted() {
+	if (Thread.interrupted())
+	    throw new RuntimeInterruptedException();
+    }
 }
 
 class StanfordDocumentParserStrategyFactory implements AbstractParsingStrategyFactory
@@ -13,19 +13,21 @@ import com.flair.shared.grammar.GrammaticalConstruction;
  */
 public class ConstructionOccurrence extends AbstractConstructionData
 {
-    private final TextSegment			segment;
+    private final int			start;
+    private final int			end;
     
     public ConstructionOccurrence(GrammaticalConstruction type, int start, int end)
     {
 	super(type);
-	this.segment = new TextSegment(start, end);
+	this.start = start;
+	this.end = end;
     }
     
     public int getStart() {
-	return segment.getStart();
+	return start;
     }
     
     public int getEnd() {
-	return segment.getEnd();
+	return end;
     }
 }
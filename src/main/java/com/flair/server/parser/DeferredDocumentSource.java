@@ -0,0 +1,23 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+/**
+ * A document source whose text is extracted on demand, e.g., an uploaded file that's still spooled on disk
+ *
+ * @author shadeMe
+ */
+public interface DeferredDocumentSource
+{
+	/**
+	 * Extracts the text and creates the actual source. Called at most once, usually on a worker thread
+	 */
+	public AbstractDocumentSource	load() throws Exception;
+	/**
+	 * Releases the resources held by the source. Called once it has been loaded or if it never will be. Can be called more than once
+	 */
+	public void						discard();
+	public String					getDescription();
+}
@@ -24,35 +24,58 @@ public class DocumentCollection implements Iterable<AbstractDocument>
 	private final Language						language;		// only documents of this language are accepted
 	private final List<AbstractDocument>		dataStore;
 	private final ConstructionDataCollection	constructionData;
+	private boolean								sorted;			// once sorted, documents are inserted in order
+	// running totals of the documents in the collection, indexed by construction ordinal
+	private final int[]							totalCounts;
+	private final int[]							docFrequencies;
 
 	public DocumentCollection(Language lang)
 	{
 		language = lang;
 		dataStore = new ArrayList<>();
 		constructionData = new ConstructionDataCollection(lang, new DocumentCollectionConstructionDataFactory(this));
+		sorted = false;
+		totalCounts = new int[GrammaticalConstruction.values().length];
+		docFrequencies = new int[GrammaticalConstruction.values().length];
 	}
 
 	private void refreshConstructionData()
 	{
+		// the totals are kept up-to-date as documents are added/removed, so this doesn't depend on the size of the collection
 		for (GrammaticalConstruction itr : GrammaticalConstruction.getForLanguage(language))
-		{
-			DocumentCollectionConstructionData data = (DocumentCollectionConstructionData) constructionData
-					.getData(itr);
-			int occurrences = 0, docFreq = 0;
+			getConstructionData(itr).calculateData(dataStore.size(), totalCounts[itr.ordinal()], docFrequencies[itr.ordinal()]);
+	}
 
-			for (AbstractDocument doc : dataStore)
+	private void accountForDocument(AbstractDocument doc, boolean added)
+	{
+		int delta = added ? 1 : -1;
+		for (GrammaticalConstruction itr : GrammaticalConstruction.getForLanguage(language))
+		{
+			DocumentConstructionData docData = doc.getConstructionData(itr);
+			if (docData.hasConstruction())
 			{
-				DocumentConstructionData docData = doc.getConstructionData(itr);
-				if (docData.hasConstruction())
-				{
-					occurrences += docData.getFrequency();
-					docFreq++;
-				}
+				totalCounts[itr.ordinal()] += delta * docData.getFrequency();
+				docFrequencies[itr.ordinal()] += delta;
 			}
-			data.calculateData(dataStore.size(), occurrences, docFreq);
 		}
 	}
 
+	private int getInsertionIndex(AbstractDocument doc)
+	{
+		// after all equal elements, to match the order of a stable sort
+		int low = 0, high = dataStore.size();
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (dataStore.get(mid).compareTo(doc) <= 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
 	public DocumentCollectionConstructionData getConstructionData(GrammaticalConstruction construction) 
 	{
 		return (DocumentCollectionConstructionData) constructionData.getData(construction);
@@ -69,17 +92,45 @@ public class DocumentCollection implements Iterable<AbstractDocument>
 			throw new IllegalArgumentException("Invalid language for collection. Expected " + language + ", received " + doc.getLanguage());
 			
 		ServerLogger.get().info("recalculateConstructionData is " + recalculateConstructionData);
-		dataStore.add(doc);
+		if (sorted)
+			dataStore.add(getInsertionIndex(doc), doc);
+		else
+			dataStore.add(doc);
+
+		accountForDocument(doc, true);
 		if(recalculateConstructionData)
 			refreshConstructionData();
 	}
+
+	public synchronized boolean remove(AbstractDocument doc, boolean recalculateConstructionData)
+	{
+		if (dataStore.remove(doc) == false)
+			return false;
+
+		accountForDocument(doc, false);
+		if (recalculateConstructionData)
+			refreshConstructionData();
+
+		return true;
+	}
 	
 	public synchronized void addAll(DocumentCollection other, boolean recalculateConstructionData) {
 		if (other.getLanguage() != language)
 			throw new IllegalArgumentException("Invalid language for collection. Expected " + language + ", received " + other.getLanguage());
 
 		ServerLogger.get().info("recalculateConstructionData is " + recalculateConstructionData);
-		dataStore.addAll(other.dataStore);
+		List<AbstractDocument> added = new ArrayList<>(other.getDataStore());
+		dataStore.addAll(added);
+		for (AbstractDocument itr : added)
+			accountForDocument(itr, true);
+
+		if (sorted)
+		{
+			// (close to) linear time if the other collection is sorted as well
+			sorted = false;
+			sort();
+		}
+
 		if(recalculateConstructionData)
 			refreshConstructionData();
 	}
@@ -87,12 +138,17 @@ public class DocumentCollection implements Iterable<AbstractDocument>
 	@Override
 	public Iterator<AbstractDocument> iterator() 
 	{
-		return dataStore.iterator();
+		// read-only, the running totals are only updated by add() and remove()
+		return getDataStore().iterator();
 	}
 
 	public synchronized void sort() 
 	{
+		if (sorted)
+			return;
+
 		Collections.sort(dataStore);
+		sorted = true;
 	}
 
 	public synchronized AbstractDocument get(int i)
@@ -110,7 +166,7 @@ public class DocumentCollection implements Iterable<AbstractDocument>
 
 	protected List<AbstractDocument> getDataStore() 
 	{
-		return dataStore;
+		return Collections.unmodifiableList(dataStore);
 	}
 
 	protected ConstructionDataCollection getConstructionData() 
@@ -6,6 +6,7 @@
 package com.flair.server.parser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.flair.shared.grammar.GrammaticalConstruction;
@@ -17,18 +18,60 @@ import com.flair.shared.grammar.GrammaticalConstruction;
  */
 public class DocumentConstructionData extends AbstractConstructionData
 {
-	private final AbstractDocument					parentDocument;
-	private final ArrayList<ConstructionOccurrence>	occurrences;
+	private static final int		INITIAL_CAPACITY = 4;
+	private static final int		MAX_LINEAR_SEARCH = 8;		// small sets are cheaper to scan than to hash
+
+	private final AbstractDocument	parentDocument;
+	// occurrences are stored as parallel arrays in the order they were added
+	private int[]					starts;
+	private int[]					ends;
+	private int						count;
+	// open-addressing table of (occurrence index + 1), zero denotes an empty slot. only built for larger sets
+	private int[]					lookup;
+
+	private static int hash(int start, int end)
+	{
+		int h = start * 0x9E3779B1 + end;
+		return h ^ (h >>> 16);
+	}
+
+	private int findSlot(int[] table, int start, int end)
+	{
+		int mask = table.length - 1;
+		int slot = hash(start, end) & mask;
+		while (table[slot] != 0)
+		{
+			int index = table[slot] - 1;
+			if (starts[index] == start && ends[index] == end)
+				break;
+
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void rebuildLookup(int capacity)
+	{
+		lookup = new int[capacity];
+		for (int i = 0; i < count; i++)
+			lookup[findSlot(lookup, starts[i], ends[i])] = i + 1;
+	}
 
 	private boolean hasOccurence(int start, int end)
 	{
-		for (ConstructionOccurrence itr : occurrences)
+		if (lookup == null)
 		{
-			if (itr.getStart() == start && itr.getEnd() == end)
-				return true;
+			for (int i = 0; i < count; i++)
+			{
+				if (starts[i] == start && ends[i] == end)
+					return true;
+			}
+
+			return false;
 		}
 
-		return false;
+		return lookup[findSlot(lookup, start, end)] != 0;
 	}
 
 	public DocumentConstructionData(GrammaticalConstruction type, AbstractDocument parent)
@@ -37,7 +80,10 @@ public class DocumentConstructionData extends AbstractConstructionData
 		
 		assert parent != null;
 		parentDocument = parent;
-		occurrences = new ArrayList<>();
+		starts = new int[INITIAL_CAPACITY];
+		ends = new int[INITIAL_CAPACITY];
+		count = 0;
+		lookup = null;
 	}
 
 	public boolean hasConstruction() {
@@ -45,7 +91,7 @@ public class DocumentConstructionData extends AbstractConstructionData
 	}
 
 	public int getFrequency() {
-		return occurrences.size();
+		return count;
 	}
 
 	public double getWeightedFrequency() {
@@ -75,14 +121,55 @@ public class DocumentConstructionData extends AbstractConstructionData
 		if (hasOccurence(start, end) == true)
 			return false;
 
-		ConstructionOccurrence newOcc = new ConstructionOccurrence(getParentConstruction(), start, end);
+		if (count == starts.length)
+		{
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+
+		// keep the table at most half full
+		if (lookup != null && count * 2 > lookup.length)
+			rebuildLookup(lookup.length * 2);
+		else if (lookup == null && count > MAX_LINEAR_SEARCH)
+			rebuildLookup(Integer.highestOneBit(count) * 4);
+		else if (lookup != null)
+			lookup[findSlot(lookup, start, end)] = count;
 
-		occurrences.add(newOcc);
 		return true;
 	}
 
-	public List<ConstructionOccurrence> getOccurrences() {
-		return occurrences;
+	// start offset of the occurrence at the given index, in the order of addition
+	public int getStart(int occurrence)
+	{
+		if (occurrence < 0 || occurrence >= count)
+			throw new IndexOutOfBoundsException("Invalid occurrence index " + occurrence);
+
+		return starts[occurrence];
+	}
+
+	// end offset of the occurrence at the given index, in the order of addition
+	public int getEnd(int occurrence)
+	{
+		if (occurrence < 0 || occurrence >= count)
+			throw new IndexOutOfBoundsException("Invalid occurrence index " + occurrence);
+
+		return ends[occurrence];
+	}
+
+	/**
+	 * Creates a new list of occurrence objects on every call, prefer getStart()/getEnd() when iterating
+	 */
+	public List<ConstructionOccurrence> getOccurrences()
+	{
+		List<ConstructionOccurrence> out = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			out.add(new ConstructionOccurrence(getParentConstruction(), starts[i], ends[i]));
+
+		return out;
 	}
 }
 
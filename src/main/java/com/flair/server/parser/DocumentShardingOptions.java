@@ -0,0 +1,72 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parameters for the parallel annotation of long documents
+ * Documents are split into chunks at sentence boundaries, which are then annotated concurrently
+ *
+ * @author shadeMe
+ */
+public final class DocumentShardingOptions
+{
+	private final ExecutorService	executor;
+	private final int				minDocumentLength;		// in characters
+	private final int				shardLength;			// in characters
+	private final int				maxShards;
+
+	/**
+	 * @param executor Executes the annotation of the chunks. Must not be the executor that runs the parsers themselves
+	 * @param minDocumentLength Documents shorter than this are annotated serially
+	 * @param shardLength Preferred length of a chunk
+	 * @param maxShards Upper bound on the number of chunks per document, the chunk length is increased as necessary
+	 */
+	public DocumentShardingOptions(ExecutorService executor, int minDocumentLength, int shardLength, int maxShards)
+	{
+		if (executor == null)
+			throw new IllegalArgumentException("Invalid executor");
+		else if (shardLength < 1 || maxShards < 1)
+			throw new IllegalArgumentException("Invalid shard length " + shardLength + " or count " + maxShards);
+
+		this.executor = executor;
+		this.minDocumentLength = minDocumentLength;
+		this.shardLength = shardLength;
+		this.maxShards = maxShards;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public int getMinDocumentLength() {
+		return minDocumentLength;
+	}
+
+	public int getShardLength() {
+		return shardLength;
+	}
+
+	public int getMaxShards() {
+		return maxShards;
+	}
+
+	/**
+	 * Returns the length of the chunks that a document of the given length is split into
+	 */
+	public int getShardLength(int documentLength) {
+		return Math.max(shardLength, (documentLength + maxShards - 1) / maxShards);
+	}
+
+	public boolean isApplicable(int documentLength) {
+		return documentLength >= minDocumentLength && documentLength > getShardLength(documentLength);
+	}
+
+	@Override
+	public String toString() {
+		return "DocumentShardingOptions[minDocumentLength=" + minDocumentLength + ", shardLength=" + shardLength
+				+ ", maxShards=" + maxShards + "]";
+	}
+}
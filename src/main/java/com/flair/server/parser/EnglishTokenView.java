@@ -0,0 +1,277 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.flair.server.grammar.EnglishGrammaticalConstants;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+/**
+ * Precomputed view of a sentence's tokens for the English parsing strategy
+ * Lowercase forms, POS tags and word features are looked up once per distinct word/tag and shared between sentences and documents.
+ * A view is reset for every sentence and reuses its buffers, so classifying the tokens doesn't allocate in the common case
+ *
+ * @author shadeMe
+ */
+final class EnglishTokenView
+{
+	/*
+	 * Penn Treebank POS tags used by the detectors
+	 */
+	enum Tag
+	{
+		CC, CD, DT, EX, FW, IN, JJ, JJR, JJS, LS, MD, NN, NNS, NNP, NNPS, PDT, POS, PRP, PRP_POSSESSIVE("prp$"),
+		RB, RBR, RBS, RP, SYM, TO, UH, VB, VBD, VBG, VBN, VBP, VBZ, WDT, WP, WP_POSSESSIVE("wp$"), WRB,
+		PERIOD("."), COMMA(","), COLON(":"),
+		OTHER(null);
+
+		private static final Map<String, Tag> LOOKUP = new HashMap<>();
+		static
+		{
+			for (Tag itr : values())
+			{
+				if (itr.lowercase != null)
+					LOOKUP.put(itr.lowercase, itr);
+			}
+		}
+
+		private final String lowercase;
+
+		Tag() {
+			this.lowercase = name().toLowerCase();
+		}
+
+		Tag(String lowercase) {
+			this.lowercase = lowercase;
+		}
+
+		static Tag fromLowercase(String tag)
+		{
+			Tag out = tag != null ? LOOKUP.get(tag) : null;
+			return out != null ? out : OTHER;
+		}
+	}
+
+	// word features
+	static final int	NEGATION						= 1 << 0;
+	static final int	PARTIAL_NEGATION				= 1 << 1;
+	static final int	POSSESSIVE_ABSOLUTE_PRONOUN		= 1 << 2;
+	static final int	POSSESSIVE_PRONOUN				= 1 << 3;
+	static final int	REFLEXIVE_PRONOUN				= 1 << 4;
+	static final int	OBJECTIVE_PRONOUN				= 1 << 5;
+	static final int	SUBJECTIVE_PRONOUN				= 1 << 6;
+	static final int	ADVANCED_CONJUNCTION			= 1 << 7;
+	static final int	SIMPLE_CONJUNCTION				= 1 << 8;
+	static final int	ING_NOUN						= 1 << 9;
+	static final int	ALPHABETIC_WORD					= 1 << 10;		// [a-z]*
+	static final int	CONTAINS_DIGIT					= 1 << 11;
+
+	// tag features
+	static final int	ALPHABETIC_TAG					= 1 << 16;		// [a-z]*, i.e., not punctuation
+	static final int	VERB_TAG						= 1 << 17;		// v*
+	static final int	VB_TAG							= 1 << 18;		// vb*
+	static final int	WH_TAG							= 1 << 19;		// w*
+	static final int	ADJECTIVE_TAG					= 1 << 20;		// jj*
+	static final int	NOUN_TAG						= 1 << 21;		// nn*
+	static final int	PERSONAL_PRONOUN_TAG			= 1 << 22;		// prp*
+
+	private static final class WordInfo
+	{
+		final String	lowercase;
+		final int		features;
+
+		WordInfo(String lowercase, int features)
+		{
+			this.lowercase = lowercase;
+			this.features = features;
+		}
+	}
+
+	private static final class TagInfo
+	{
+		final String	lowercase;
+		final Tag		tag;
+		final int		features;
+
+		TagInfo(String lowercase, Tag tag, int features)
+		{
+			this.lowercase = lowercase;
+			this.tag = tag;
+			this.features = features;
+		}
+	}
+
+	private static final int		MAX_CACHED_WORDS = 100000;
+	private static final WordInfo	NULL_WORD = new WordInfo(null, 0);
+	private static final TagInfo	NULL_TAG = new TagInfo(null, Tag.OTHER, 0);
+
+	// keyed by the original form
+	private static final ConcurrentHashMap<String, WordInfo>	WORDS = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, TagInfo>		TAGS = new ConcurrentHashMap<>();
+
+	private static int getFeature(List<String> words, String word, int feature) {
+		return words.contains(word) ? feature : 0;
+	}
+
+	private static WordInfo classifyWord(String word)
+	{
+		String lowercase = word.toLowerCase();
+		if (lowercase.equals(word) == false)
+			return lookupWord(lowercase);		// share the lowercase form's instance and features
+
+		int features = 0;
+		features |= getFeature(EnglishGrammaticalConstants.NEGATION, lowercase, NEGATION);
+		features |= getFeature(EnglishGrammaticalConstants.PARTIAL_NEGATION, lowercase, PARTIAL_NEGATION);
+		features |= getFeature(EnglishGrammaticalConstants.POSSESSIVE_ABSOLUTE_PRONOUNS, lowercase, POSSESSIVE_ABSOLUTE_PRONOUN);
+		features |= getFeature(EnglishGrammaticalConstants.POSSESSIVE_PRONOUNS, lowercase, POSSESSIVE_PRONOUN);
+		features |= getFeature(EnglishGrammaticalConstants.REFLEXIVE_PRONOUNS, lowercase, REFLEXIVE_PRONOUN);
+		features |= getFeature(EnglishGrammaticalConstants.OBJECTIVE_PRONOUNS, lowercase, OBJECTIVE_PRONOUN);
+		features |= getFeature(EnglishGrammaticalConstants.SUBJECTIVE_PRONOUNS, lowercase, SUBJECTIVE_PRONOUN);
+		features |= getFeature(EnglishGrammaticalConstants.ADVANCED_CONJUNCTIONS, lowercase, ADVANCED_CONJUNCTION);
+		features |= getFeature(EnglishGrammaticalConstants.SIMPLE_CONJUNCTIONS, lowercase, SIMPLE_CONJUNCTION);
+		features |= getFeature(EnglishGrammaticalConstants.ING_NOUNS, lowercase, ING_NOUN);
+		if (lowercase.matches("[a-z]*"))
+			features |= ALPHABETIC_WORD;
+		if (lowercase.matches(".*\\d.*"))
+			features |= CONTAINS_DIGIT;
+
+		return new WordInfo(lowercase, features);
+	}
+
+	private static WordInfo lookupWord(String word)
+	{
+		if (word == null)
+			return NULL_WORD;
+
+		WordInfo info = WORDS.get(word);
+		if (info == null)
+		{
+			info = classifyWord(word);
+			// the vocabulary isn't bounded, so stop caching once the limit's reached
+			if (WORDS.size() < MAX_CACHED_WORDS)
+				WORDS.putIfAbsent(word, info);
+		}
+
+		return info;
+	}
+
+	private static TagInfo classifyTag(String tag)
+	{
+		String lowercase = tag.toLowerCase();
+		int features = 0;
+		if (lowercase.matches("[a-z]*"))
+			features |= ALPHABETIC_TAG;
+		if (lowercase.startsWith("v"))
+			features |= VERB_TAG;
+		if (lowercase.startsWith("vb"))
+			features |= VB_TAG;
+		if (lowercase.startsWith("w"))
+			features |= WH_TAG;
+		if (lowercase.startsWith("jj"))
+			features |= ADJECTIVE_TAG;
+		if (lowercase.startsWith("nn"))
+			features |= NOUN_TAG;
+		if (lowercase.startsWith("prp"))
+			features |= PERSONAL_PRONOUN_TAG;
+
+		return new TagInfo(lowercase, Tag.fromLowercase(lowercase), features);
+	}
+
+	private static TagInfo lookupTag(String tag)
+	{
+		if (tag == null)
+			return NULL_TAG;
+
+		// the tagset is small, no need to bound the cache
+		return TAGS.computeIfAbsent(tag, EnglishTokenView::classifyTag);
+	}
+
+	/**
+	 * Returns the lowercase form of an arbitrary word, shared with the tokens of the same form
+	 */
+	static String lowercase(String word) {
+		return lookupWord(word).lowercase;
+	}
+
+	static boolean hasFeature(String word, int feature) {
+		return (lookupWord(word).features & feature) != 0;
+	}
+
+	private List<CoreLabel>		labels;
+	private WordInfo[]			words;
+	private TagInfo[]			tags;
+	private int					size;
+
+	public EnglishTokenView()
+	{
+		this.labels = null;
+		this.words = new WordInfo[64];
+		this.tags = new TagInfo[64];
+		this.size = 0;
+	}
+
+	public void reset(List<CoreLabel> sentence)
+	{
+		labels = sentence;
+		size = sentence.size();
+		if (words.length < size)
+		{
+			int capacity = Math.max(size, words.length * 2);
+			words = new WordInfo[capacity];
+			tags = new TagInfo[capacity];
+		}
+
+		int i = 0;
+		for (CoreLabel itr : sentence)
+		{
+			words[i] = lookupWord(itr.word());
+			tags[i] = lookupTag(itr.tag());
+			i++;
+		}
+	}
+
+	/**
+	 * Returns true if the view was last reset with the given sentence and the sentence hasn't changed in size since
+	 */
+	public boolean isViewOf(List<CoreLabel> sentence) {
+		return labels == sentence && size == sentence.size();
+	}
+
+	public void clear()
+	{
+		labels = null;
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public CoreLabel label(int token) {
+		return labels.get(token);
+	}
+
+	// lowercase form, null if the token has no word
+	public String word(int token) {
+		return words[token].lowercase;
+	}
+
+	public Tag tag(int token) {
+		return tags[token].tag;
+	}
+
+	// lowercase tag, null if the token has no tag
+	public String tagString(int token) {
+		return tags[token].lowercase;
+	}
+
+	public boolean has(int token, int feature) {
+		return ((words[token].features | tags[token].features) & feature) != 0;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton that finds all occurrences of a set of keywords in a single pass over the text
+ * Immutable once built, can be shared between threads
+ * 
+ * @author shadeMe
+ */
+final class KeywordAutomaton
+{
+	/*
+	 * Receives the matches in the order of their end offsets
+	 */
+	interface MatchHandler {
+		public void handle(int keyword, int start, int end);
+	}
+
+	private static final int[]	NO_OUTPUT = new int[0];
+
+	private final List<String>	keywords;			// indexed by the handler's keyword argument
+	private final char[][]		edgeChars;			// sorted, per state
+	private final int[][]		edgeTargets;
+	private final int[]			failure;
+	private final int[][]		outputs;			// keywords that end at each state, including those of its failure chain
+
+	public KeywordAutomaton(List<String> keywords)
+	{
+		this.keywords = new ArrayList<>(keywords);
+
+		// build the trie
+		List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+		List<List<Integer>> ends = new ArrayList<>();
+		trie.add(new TreeMap<>());
+		ends.add(new ArrayList<>());
+
+		for (int i = 0; i < this.keywords.size(); i++)
+		{
+			String keyword = this.keywords.get(i);
+			if (keyword.isEmpty())
+				continue;
+
+			int state = 0;
+			for (int j = 0; j < keyword.length(); j++)
+			{
+				Integer next = trie.get(state).get(keyword.charAt(j));
+				if (next == null)
+				{
+					next = trie.size();
+					trie.add(new TreeMap<>());
+					ends.add(new ArrayList<>());
+					trie.get(state).put(keyword.charAt(j), next);
+				}
+
+				state = next;
+			}
+
+			ends.get(state).add(i);
+		}
+
+		int numStates = trie.size();
+		edgeChars = new char[numStates][];
+		edgeTargets = new int[numStates][];
+		for (int i = 0; i < numStates; i++)
+		{
+			TreeMap<Character, Integer> edges = trie.get(i);
+			edgeChars[i] = new char[edges.size()];
+			edgeTargets[i] = new int[edges.size()];
+
+			int j = 0;
+			for (Map.Entry<Character, Integer> itr : edges.entrySet())
+			{
+				edgeChars[i][j] = itr.getKey();
+				edgeTargets[i][j] = itr.getValue();
+				j++;
+			}
+		}
+
+		// breadth-first computation of the failure links, parents are always complete before their children
+		failure = new int[numStates];
+		outputs = new int[numStates][];
+		outputs[0] = toArray(ends.get(0), NO_OUTPUT);
+
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		for (int child : edgeTargets[0])
+		{
+			failure[child] = 0;
+			outputs[child] = toArray(ends.get(child), NO_OUTPUT);
+			queue.add(child);
+		}
+
+		while (queue.isEmpty() == false)
+		{
+			int state = queue.poll();
+			for (int j = 0; j < edgeChars[state].length; j++)
+			{
+				char c = edgeChars[state][j];
+				int child = edgeTargets[state][j];
+
+				int fallback = failure[state];
+				int next;
+				while ((next = transition(fallback, c)) == -1 && fallback != 0)
+					fallback = failure[fallback];
+
+				failure[child] = next == -1 ? 0 : next;
+				outputs[child] = toArray(ends.get(child), outputs[failure[child]]);
+				queue.add(child);
+			}
+		}
+	}
+
+	private static int[] toArray(List<Integer> own, int[] inherited)
+	{
+		if (own.isEmpty())
+			return inherited;
+
+		int[] out = Arrays.copyOf(inherited, inherited.length + own.size());
+		for (int i = 0; i < own.size(); i++)
+			out[inherited.length + i] = own.get(i);
+
+		return out;
+	}
+
+	private int transition(int state, char c)
+	{
+		int idx = Arrays.binarySearch(edgeChars[state], c);
+		return idx < 0 ? -1 : edgeTargets[state][idx];
+	}
+
+	public List<String> getKeywords() {
+		return keywords;
+	}
+
+	public int getStateCount() {
+		return failure.length;
+	}
+
+	public void search(CharSequence text, MatchHandler handler)
+	{
+		int state = 0;
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			int next;
+			while ((next = transition(state, c)) == -1 && state != 0)
+				state = failure[state];
+
+			state = next == -1 ? 0 : next;
+			for (int keyword : outputs[state])
+				handler.handle(keyword, i + 1 - keywords.get(keyword).length(), i + 1);
+		}
+	}
+}
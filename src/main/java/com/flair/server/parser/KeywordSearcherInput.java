@@ -15,6 +15,7 @@ public class KeywordSearcherInput implements Iterable<String>
 {
     private final List<String>		    keywords;
     private final boolean		    	debugMode;	    // prints debug output
+    private volatile KeywordAutomaton	automaton;		// compiled on demand, shared by all searches with this input
 
     public KeywordSearcherInput() 
     {
@@ -43,7 +44,26 @@ public class KeywordSearcherInput implements Iterable<String>
     	// force to lowercase
     	keyword = keyword.toLowerCase();
     	if (keywords.contains(keyword) == false)
+    	{
     		keywords.add(keyword);
+    		automaton = null;
+    	}
+    }
+
+    KeywordAutomaton getAutomaton()
+    {
+    	KeywordAutomaton compiled = automaton;
+    	if (compiled == null)
+    	{
+    		synchronized (this)
+    		{
+    			compiled = automaton;
+    			if (compiled == null)
+    				automaton = compiled = new KeywordAutomaton(keywords);
+    		}
+    	}
+
+    	return compiled;
     }
     
     @Override
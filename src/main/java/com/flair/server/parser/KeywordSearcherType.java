@@ -10,5 +10,6 @@ package com.flair.server.parser;
 public enum KeywordSearcherType
 {
     NAIVE_SUBSTRING,
+    AHO_CORASICK,			// single pass over the text, same results as NAIVE_SUBSTRING
     TEST
 }
@@ -15,15 +15,30 @@ public final class MasterParsingFactoryGenerator
 {	//here we can handle a case for a different parsing strategy
     private MasterParsingFactoryGenerator() {}
 
-    public static AbstractDocumentParserFactory createParser(ParserType type, Language lang)
+    public static AbstractDocumentParserFactory createParser(ParserType type, Language lang) {
+	return createParser(type, lang, false);
+    }
+
+    /**
+     * @param sharedModels If true and supported by the parser type, all parsers created by the factory share a single set of models
+     */
+    public static AbstractDocumentParserFactory createParser(ParserType type, Language lang, boolean sharedModels) {
+	return createParser(type, lang, sharedModels, null);
+    }
+
+    /**
+     * @param sharedModels If true and supported by the parser type, all parsers created by the factory share a single set of models
+     * @param sharding If not null and supported by the parser type, long documents are split into chunks that are annotated in parallel
+     */
+    public static AbstractDocumentParserFactory createParser(ParserType type, Language lang, boolean sharedModels, DocumentShardingOptions sharding)
     {
 	switch (type)
 	{
 		case STANFORD_CORENLP:
 			if(lang.toString().equals("ARABIC"))
-				return new StanfordDocumentParserFactory(new ArabicDocumentFactory(), lang);
+				return new StanfordDocumentParserFactory(new ArabicDocumentFactory(), lang, sharedModels, sharding);
 			else
-				return new StanfordDocumentParserFactory(new DocumentFactory(), lang);
+				return new StanfordDocumentParserFactory(new DocumentFactory(), lang, sharedModels, sharding);
 		case STANZA:
 			return new StanzaDocumentParserFactory(new DocumentFactory(), lang);
 		default:
@@ -50,6 +65,8 @@ public final class MasterParsingFactoryGenerator
 	{
 	    case NAIVE_SUBSTRING:
 		return new NaiveSubstringKeywordSearcherFactory();
+	    case AHO_CORASICK:
+		return new AhoCorasickKeywordSearcherFactory();
 	    default:
 		throw new IllegalArgumentException("Couldn't create keyword searcher of type " + type);
 	}
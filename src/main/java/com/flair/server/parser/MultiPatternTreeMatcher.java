@@ -0,0 +1,248 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TregexPattern;
+
+/**
+ * Evaluates a set of Tregex patterns in a single walk over a parse tree
+ * The label of each pattern's root node is used to skip nodes that can't possibly match. These checks are cached per label and shared by all patterns.
+ * Results are identical to running the patterns' own matchers one after another. Immutable once built, can be shared between threads
+ *
+ * @author shadeMe
+ */
+final class MultiPatternTreeMatcher
+{
+	/*
+	 * Receives every match of a pattern, in the same order as TregexMatcher.find() for that pattern
+	 * The matcher's named nodes belong to the current match
+	 */
+	interface MatchHandler {
+		public void handle(TregexPattern pattern, Tree node, TregexMatcher matcher);
+	}
+
+	/*
+	 * Accepts the labels of the nodes at which the pattern's root node can match
+	 */
+	private static abstract class RootLabelFilter
+	{
+		public abstract boolean accept(String label);
+
+		// returns null if the pattern's root node can't be filtered by its label alone
+		public static RootLabelFilter create(String pattern)
+		{
+			// multiple root patterns are separated by newlines
+			if (pattern.indexOf('\n') != -1)
+				return null;
+
+			int i = 0;
+			while (i < pattern.length() && (pattern.charAt(i) == '(' || Character.isWhitespace(pattern.charAt(i))))
+				i++;
+			if (i == pattern.length())
+				return null;
+
+			int descEnd;
+			RootLabelFilter filter;
+			char first = pattern.charAt(i);
+			if (first == '/')
+			{
+				descEnd = i + 1;
+				while (descEnd < pattern.length() && pattern.charAt(descEnd) != '/')
+				{
+					if (pattern.charAt(descEnd) == '\\')
+						descEnd++;
+					descEnd++;
+				}
+				if (descEnd >= pattern.length())
+					return null;
+
+				String regex = pattern.substring(i + 1, descEnd);
+				if (regex.contains("\\/"))
+					return null;
+
+				Pattern compiled = Pattern.compile(regex);
+				filter = new RootLabelFilter() {
+					@Override
+					public boolean accept(String label) {
+						return compiled.matcher(label).find();
+					}
+				};
+				descEnd++;
+			}
+			else if (Character.isLetterOrDigit(first))
+			{
+				// bare node names match the label exactly
+				descEnd = i;
+				while (descEnd < pattern.length() && (Character.isLetterOrDigit(pattern.charAt(descEnd)) || pattern.charAt(descEnd) == '_'))
+					descEnd++;
+
+				String name = pattern.substring(i, descEnd);
+				filter = new RootLabelFilter() {
+					@Override
+					public boolean accept(String label) {
+						return label.equals(name);
+					}
+				};
+			}
+			else
+			{
+				// negations, basic categories (@), wildcards (__), disjunctions, etc.
+				return null;
+			}
+
+			// anything but a relation, a name binding or the end of the group might modify the description
+			if (descEnd < pattern.length())
+			{
+				char next = pattern.charAt(descEnd);
+				if (Character.isWhitespace(next) == false && next != ')' && next != '=')
+					return null;
+			}
+
+			return filter;
+		}
+	}
+
+	private static final int		MAX_CACHED_LABELS = 8192;
+	private static final int[]		NO_CANDIDATES = new int[0];
+
+	private final TregexPattern[]					patterns;
+	private final RootLabelFilter[]					filters;			// null entries are evaluated at every node
+	private final int[]								allPatterns;
+	private final Map<TregexPattern, Integer>		indices;
+	private final ConcurrentHashMap<String, int[]>	labelCandidates;	// label -> indices of the patterns that can match at a node with that label
+
+	public MultiPatternTreeMatcher(TregexPattern... patterns)
+	{
+		this.patterns = patterns.clone();
+		this.filters = new RootLabelFilter[patterns.length];
+		this.allPatterns = new int[patterns.length];
+		this.indices = new IdentityHashMap<>();
+		this.labelCandidates = new ConcurrentHashMap<>();
+
+		for (int i = 0; i < patterns.length; i++)
+		{
+			if (indices.put(patterns[i], i) != null)
+				throw new IllegalArgumentException("Duplicate pattern " + patterns[i].pattern());
+
+			filters[i] = RootLabelFilter.create(patterns[i].pattern());
+			allPatterns[i] = i;
+		}
+	}
+
+	public int size() {
+		return patterns.length;
+	}
+
+	public int indexOf(TregexPattern pattern)
+	{
+		Integer index = indices.get(pattern);
+		if (index == null)
+			throw new IllegalArgumentException("Unknown pattern " + pattern.pattern());
+
+		return index;
+	}
+
+	private int[] getCandidates(String label)
+	{
+		int[] candidates = labelCandidates.get(label);
+		if (candidates != null)
+			return candidates;
+
+		List<Integer> accepted = new ArrayList<>();
+		for (int i = 0; i < patterns.length; i++)
+		{
+			if (filters[i] == null || filters[i].accept(label))
+				accepted.add(i);
+		}
+
+		if (accepted.isEmpty())
+			candidates = NO_CANDIDATES;
+		else
+		{
+			candidates = new int[accepted.size()];
+			for (int i = 0; i < candidates.length; i++)
+				candidates[i] = accepted.get(i);
+		}
+
+		// leaves are words, so the number of distinct labels isn't bounded
+		if (labelCandidates.size() < MAX_CACHED_LABELS)
+			labelCandidates.putIfAbsent(label, candidates);
+		return candidates;
+	}
+
+	private int[] getCandidates(Tree node)
+	{
+		String label = node.value();
+		if (label == null)
+			return allPatterns;		// let the patterns decide
+
+		return getCandidates(label);
+	}
+
+	private TregexMatcher getMatcher(TregexMatcher[] matchers, int pattern, Tree tree)
+	{
+		TregexMatcher matcher = matchers[pattern];
+		if (matcher == null)
+		{
+			matcher = patterns[pattern].matcher(tree);
+			matchers[pattern] = matcher;
+		}
+
+		return matcher;
+	}
+
+	/**
+	 * Counts the number of nodes at which each pattern matches
+	 * @param tree Parse tree
+	 * @return Counts indexed by the patterns' positions, equivalent to looping over TregexMatcher.findNextMatchingNode()
+	 */
+	public int[] countMatchingNodes(Tree tree)
+	{
+		int[] counts = new int[patterns.length];
+		TregexMatcher[] matchers = new TregexMatcher[patterns.length];
+
+		for (Tree node : tree)
+		{
+			for (int pattern : getCandidates(node))
+			{
+				if (getMatcher(matchers, pattern, tree).matchesAt(node))
+					counts[pattern]++;
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Passes every match of every pattern to the handler
+	 */
+	public void forEachMatch(Tree tree, MatchHandler handler)
+	{
+		TregexMatcher[] matchers = new TregexMatcher[patterns.length];
+
+		for (Tree node : tree)
+		{
+			for (int pattern : getCandidates(node))
+			{
+				TregexMatcher matcher = getMatcher(matchers, pattern, tree);
+				if (matcher.matchesAt(node) == false)
+					continue;
+
+				// successive calls to matches() backtrack to the next match at the same node
+				do
+					handler.handle(patterns[pattern], node, matcher);
+				while (matcher.matches());
+			}
+		}
+	}
+}
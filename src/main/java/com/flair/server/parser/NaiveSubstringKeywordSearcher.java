@@ -25,10 +25,7 @@ public class NaiveSubstringKeywordSearcher implements AbstractDocumentKeywordSea
 	// force to lowercase
 	String sourceText = source.getText().toLowerCase();
 	
-	for(String word : input.getKeywords())
-	{
-		ServerLogger.get().info(word);
-	}
+	ServerLogger.get().trace("Keywords: {}", input.getKeywords());
 	long startTime = System.currentTimeMillis();
 	for (String keyword : input)
 	{
@@ -70,7 +67,7 @@ public class NaiveSubstringKeywordSearcher implements AbstractDocumentKeywordSea
 	long endTime = System.currentTimeMillis();
 	if (input.isDebuggable())
 	{
-	    ServerLogger.get().trace("Naive keyword search for document " + source.getDescription() + " completed in " + (endTime - startTime) + " ms: Total hits=" + output.getTotalHitCount());
+	    ServerLogger.get().trace("Naive keyword search for document {} completed in {} ms: Total hits={}", source.getDescription(), endTime - startTime, output.getTotalHitCount());
 	}
 	
 	return output;
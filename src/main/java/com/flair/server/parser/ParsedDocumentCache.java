@@ -0,0 +1,308 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.flair.server.utilities.DiskLRUStore;
+import com.flair.server.utilities.ServerLogger;
+import com.flair.shared.grammar.Language;
+
+/**
+ * Content-addressed cache of parsed documents, shared by all sessions
+ * Entries are keyed by the hash of the document text, its language, the parsing strategy (and its version) and the server build.
+ * Results are kept in a size-bounded LRU memory tier and, optionally, in an on-disk tier that persists between restarts of the same build
+ *
+ * @author shadeMe
+ */
+public final class ParsedDocumentCache
+{
+	private static final String		FILE_EXTENSION = ".parse";
+	private static final String		BUILD_ID_FILE = "build-id";
+	private static final String		BUILD_PROPERTIES = "flair-build.properties";
+
+	/**
+	 * Identifies the server build, so that results of older parser code are never reused
+	 */
+	static final String				BUILD_ID = loadBuildId();
+
+	private final String									buildId;
+	private final long										maxMemoryBytes;
+	private final DiskLRUStore								diskTier;			// null if disabled
+	private final LinkedHashMap<String, ParsedDocumentSnapshot>	memoryTier;			// access-ordered
+	private long											memoryBytes;
+
+	private final AtomicLong								memoryHits;
+	private final AtomicLong								diskHits;
+	private final AtomicLong								misses;
+	private final AtomicLong								stores;
+	private final AtomicLong								evictions;
+
+	/**
+	 * @param maxMemoryBytes Size of the memory tier
+	 * @param diskDirectory Directory of the disk tier, null to disable it
+	 * @param maxDiskBytes Size of the disk tier
+	 */
+	public ParsedDocumentCache(long maxMemoryBytes, Path diskDirectory, long maxDiskBytes) {
+		this(maxMemoryBytes, diskDirectory, maxDiskBytes, BUILD_ID);
+	}
+
+	ParsedDocumentCache(long maxMemoryBytes, Path diskDirectory, long maxDiskBytes, String buildId)
+	{
+		this.buildId = buildId;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.memoryTier = new LinkedHashMap<>(16, 0.75f, true);
+		this.memoryBytes = 0;
+		this.memoryHits = new AtomicLong(0);
+		this.diskHits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.stores = new AtomicLong(0);
+		this.evictions = new AtomicLong(0);
+
+		DiskLRUStore store = null;
+		if (diskDirectory != null)
+		{
+			try
+			{
+				store = new DiskLRUStore("parsed document cache", diskDirectory, FILE_EXTENSION, maxDiskBytes);
+				checkDiskBuildId(store, buildId);
+				ServerLogger.get().info("Parsed document cache directory: " + diskDirectory + " (" + store.getBytes() / (1024 * 1024) + " MB in use)");
+			} catch (IOException ex)
+			{
+				ServerLogger.get().error(ex, "Couldn't open parsed document cache directory " + diskDirectory + ". Exception: " + ex.toString());
+				store = null;
+			}
+		}
+		this.diskTier = store;
+	}
+
+	private static String loadBuildId()
+	{
+		try (InputStream in = ParsedDocumentCache.class.getClassLoader().getResourceAsStream(BUILD_PROPERTIES))
+		{
+			if (in != null)
+			{
+				Properties props = new Properties();
+				props.load(in);
+				String id = props.getProperty("build.version", "") + "-" + props.getProperty("build.timestamp", "");
+
+				// unfiltered if the resources weren't processed by Maven
+				if (id.contains("${") == false && id.length() > 1)
+					return id;
+			}
+		} catch (IOException ex) {}
+
+		// unknown build, disk entries are only reused within the same process
+		String id = "unversioned-" + ManagementFactory.getRuntimeMXBean().getStartTime();
+		ServerLogger.get().warn("Couldn't read " + BUILD_PROPERTIES + ", using build id " + id + " for the parsed document cache");
+		return id;
+	}
+
+	// entries of other builds are never hit, so they're deleted right away instead of waiting to be trimmed
+	private static void checkDiskBuildId(DiskLRUStore store, String buildId) throws IOException
+	{
+		Path file = store.getDirectory().resolve(BUILD_ID_FILE);
+		String existing = Files.exists(file) ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim() : null;
+		if (buildId.equals(existing))
+			return;
+
+		List<Path> stale = store.listEntries();
+		for (Path itr : stale)
+			store.delete(itr);
+		if (stale.isEmpty() == false)
+			ServerLogger.get().info("Deleted " + stale.size() + " parsed document cache entries of build " + existing);
+
+		Files.write(file, buildId.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns true if documents of the given language can be cached
+	 */
+	public static boolean isCacheable(Language lang) {
+		// Arabic documents compute their readability with a separate model when they're created
+		return lang != Language.ARABIC;
+	}
+
+	String getKey(String text, Language lang, AbstractParsingStrategy strategy) {
+		return DiskLRUStore.hashKey(buildId + "/" + strategy.getClass().getName() + "/" + strategy.getVersion() + "/" + lang + "\n", text);
+	}
+
+	private synchronized ParsedDocumentSnapshot getFromMemory(String key) {
+		return memoryTier.get(key);
+	}
+
+	private synchronized void putInMemory(String key, ParsedDocumentSnapshot snapshot)
+	{
+		if (maxMemoryBytes <= 0)
+			return;
+
+		ParsedDocumentSnapshot existing = memoryTier.put(key, snapshot);
+		if (existing != null)
+			memoryBytes -= existing.getEstimatedSize();
+		memoryBytes += snapshot.getEstimatedSize();
+
+		Iterator<ParsedDocumentSnapshot> itr = memoryTier.values().iterator();
+		while (memoryBytes > maxMemoryBytes && itr.hasNext())
+		{
+			memoryBytes -= itr.next().getEstimatedSize();
+			itr.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	private ParsedDocumentSnapshot getFromDisk(String key)
+	{
+		if (diskTier == null)
+			return null;
+
+		Path file = diskTier.getPath(key);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			ParsedDocumentSnapshot snapshot = ParsedDocumentSnapshot.read(in);
+			// keep recently used entries from being trimmed
+			diskTier.touch(file);
+			return snapshot;
+		} catch (NoSuchFileException ex)
+		{
+			return null;
+		} catch (IOException | RuntimeException ex)
+		{
+			ServerLogger.get().warn("Discarding unreadable parsed document cache entry " + file + ". Exception: " + ex.toString());
+			diskTier.delete(file);
+			return null;
+		}
+	}
+
+	private void putOnDisk(String key, ParsedDocumentSnapshot snapshot)
+	{
+		if (diskTier == null)
+			return;
+
+		Path file = diskTier.getPath(key);
+		Path temp = diskTier.getTempPath(key);
+		try
+		{
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+			{
+				snapshot.write(out);
+			}
+
+			diskTier.commit(temp, file);
+		} catch (IOException ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't write parsed document cache entry " + file + ". Exception: " + ex.toString());
+			diskTier.discard(temp);
+		}
+	}
+
+	/**
+	 * Looks up the parse results of the given source's text
+	 * @param source Document source
+	 * @param strategy Strategy that would be used to parse the source
+	 * @return A new parsed document for the source, or null if the results aren't cached
+	 */
+	public AbstractDocument get(AbstractDocumentSource source, AbstractParsingStrategy strategy)
+	{
+		if (isCacheable(source.getLanguage()) == false)
+			return null;
+
+		String key = getKey(source.getSourceText(), source.getLanguage(), strategy);
+		ParsedDocumentSnapshot snapshot = getFromMemory(key);
+		if (snapshot != null)
+			memoryHits.incrementAndGet();
+		else
+		{
+			snapshot = getFromDisk(key);
+			if (snapshot != null)
+			{
+				diskHits.incrementAndGet();
+				putInMemory(key, snapshot);
+			}
+			else
+			{
+				misses.incrementAndGet();
+				return null;
+			}
+		}
+
+		return snapshot.restore(source);
+	}
+
+	/**
+	 * Caches the parse results of the given document
+	 * @param doc Parsed document
+	 * @param strategy Strategy that was used to parse the document
+	 */
+	public void put(AbstractDocument doc, AbstractParsingStrategy strategy)
+	{
+		if (isCacheable(doc.getLanguage()) == false)
+			return;
+
+		String key = getKey(doc.getText(), doc.getLanguage(), strategy);
+		ParsedDocumentSnapshot snapshot = ParsedDocumentSnapshot.capture(doc);
+		putInMemory(key, snapshot);
+		putOnDisk(key, snapshot);
+		stores.incrementAndGet();
+	}
+
+	public long getMemoryHitCount() {
+		return memoryHits.get();
+	}
+
+	public long getDiskHitCount() {
+		return diskHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getStoreCount() {
+		return stores.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get() + (diskTier != null ? diskTier.getEvictionCount() : 0);
+	}
+
+	public synchronized int getMemoryEntryCount() {
+		return memoryTier.size();
+	}
+
+	public synchronized long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public long getDiskBytes() {
+		return diskTier != null ? diskTier.getBytes() : 0;
+	}
+
+	public boolean isDiskTierEnabled() {
+		return diskTier != null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ParsedDocumentCache[memory=" + getMemoryEntryCount() + " entries/" + getMemoryBytes() / 1024 + " KB"
+				+ ", disk=" + (isDiskTierEnabled() ? getDiskBytes() / 1024 + " KB" : "disabled")
+				+ ", hits=" + getMemoryHitCount() + "+" + getDiskHitCount() + ", misses=" + getMissCount()
+				+ ", stores=" + getStoreCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+}
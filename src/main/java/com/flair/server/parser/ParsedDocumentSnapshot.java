@@ -0,0 +1,197 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.flair.shared.grammar.GrammaticalConstruction;
+import com.flair.shared.parser.DocumentReadabilityLevel;
+
+/**
+ * Immutable copy of the results of a document parse, i.e., everything but the document source and the keyword data
+ *
+ * @author shadeMe
+ */
+final class ParsedDocumentSnapshot
+{
+	private static final int	FORMAT_VERSION = 1;
+
+	private final double								readabilityScore;
+	private final DocumentReadabilityLevel				readabilityLevel;
+
+	private final int									numCharacters;
+	private final int									numSentences;
+	private final int									numDependencies;
+	private final int									numWords;
+	private final int									numTokens;
+	private final int									length;
+
+	private final double								avgWordLength;
+	private final double								avgSentenceLength;
+	private final double								avgTreeDepth;
+
+	// start and end offsets of the occurrences, interleaved
+	private final Map<GrammaticalConstruction, int[]>	occurrences;
+
+	private ParsedDocumentSnapshot(double readabilityScore, DocumentReadabilityLevel readabilityLevel,
+									int numCharacters, int numSentences, int numDependencies, int numWords, int numTokens, int length,
+									double avgWordLength, double avgSentenceLength, double avgTreeDepth,
+									Map<GrammaticalConstruction, int[]> occurrences)
+	{
+		this.readabilityScore = readabilityScore;
+		this.readabilityLevel = readabilityLevel;
+		this.numCharacters = numCharacters;
+		this.numSentences = numSentences;
+		this.numDependencies = numDependencies;
+		this.numWords = numWords;
+		this.numTokens = numTokens;
+		this.length = length;
+		this.avgWordLength = avgWordLength;
+		this.avgSentenceLength = avgSentenceLength;
+		this.avgTreeDepth = avgTreeDepth;
+		this.occurrences = occurrences;
+	}
+
+	public static ParsedDocumentSnapshot capture(AbstractDocument doc)
+	{
+		if (doc.isParsed() == false)
+			throw new IllegalArgumentException("Document hasn't been parsed");
+
+		Map<GrammaticalConstruction, int[]> occurrences = new EnumMap<>(GrammaticalConstruction.class);
+		for (GrammaticalConstruction itr : doc.getSupportedConstructions())
+		{
+			DocumentConstructionData data = doc.getConstructionData(itr);
+			if (data.hasConstruction() == false)
+				continue;
+
+			int[] offsets = new int[data.getFrequency() * 2];
+			for (int i = 0; i < data.getFrequency(); i++)
+			{
+				offsets[i * 2] = data.getStart(i);
+				offsets[i * 2 + 1] = data.getEnd(i);
+			}
+			occurrences.put(itr, offsets);
+		}
+
+		return new ParsedDocumentSnapshot(doc.getReadabilityScore(), doc.getReadabilityLevel(),
+										doc.getNumCharacters(), doc.getNumSentences(), doc.getNumDependencies(),
+										doc.getNumWords(), doc.getNumTokens(), doc.getLength(),
+										doc.getAvgWordLength(), doc.getAvgSentenceLength(), doc.getAvgTreeDepth(),
+										occurrences);
+	}
+
+	/**
+	 * Creates a parsed document for the given source from the snapshot. The source's text must be the one that the snapshot was captured from
+	 */
+	public AbstractDocument restore(AbstractDocumentSource source)
+	{
+		Document doc = new Document(source, readabilityScore, readabilityLevel);
+		doc.setNumCharacters(numCharacters);
+		doc.setNumSentences(numSentences);
+		doc.setNumDependencies(numDependencies);
+		doc.setNumWords(numWords);
+		doc.setNumTokens(numTokens);
+		doc.setLength(length);
+		doc.setAvgWordLength(avgWordLength);
+		doc.setAvgSentenceLength(avgSentenceLength);
+		doc.setAvgTreeDepth(avgTreeDepth);
+
+		for (Map.Entry<GrammaticalConstruction, int[]> itr : occurrences.entrySet())
+		{
+			DocumentConstructionData data = doc.getConstructionData(itr.getKey());
+			int[] offsets = itr.getValue();
+			for (int i = 0; i < offsets.length; i += 2)
+				data.addOccurrence(offsets[i], offsets[i + 1]);
+		}
+
+		doc.flagAsParsed();
+		return doc;
+	}
+
+	/**
+	 * Returns the approximate heap footprint of the snapshot in bytes
+	 */
+	public long getEstimatedSize()
+	{
+		long size = 128;
+		for (int[] itr : occurrences.values())
+			size += 32 + itr.length * 4;
+
+		return size;
+	}
+
+	public void write(DataOutputStream out) throws IOException
+	{
+		out.writeInt(FORMAT_VERSION);
+		out.writeDouble(readabilityScore);
+		out.writeUTF(readabilityLevel != null ? readabilityLevel.name() : "");
+		out.writeInt(numCharacters);
+		out.writeInt(numSentences);
+		out.writeInt(numDependencies);
+		out.writeInt(numWords);
+		out.writeInt(numTokens);
+		out.writeInt(length);
+		out.writeDouble(avgWordLength);
+		out.writeDouble(avgSentenceLength);
+		out.writeDouble(avgTreeDepth);
+
+		out.writeInt(occurrences.size());
+		for (Map.Entry<GrammaticalConstruction, int[]> itr : occurrences.entrySet())
+		{
+			out.writeUTF(itr.getKey().name());
+			out.writeInt(itr.getValue().length);
+			for (int offset : itr.getValue())
+				out.writeInt(offset);
+		}
+	}
+
+	public static ParsedDocumentSnapshot read(DataInputStream in) throws IOException
+	{
+		int version = in.readInt();
+		if (version != FORMAT_VERSION)
+			throw new IOException("Unsupported snapshot format version " + version);
+
+		double readabilityScore = in.readDouble();
+		String level = in.readUTF();
+		DocumentReadabilityLevel readabilityLevel = level.isEmpty() ? null : DocumentReadabilityLevel.valueOf(level);
+		int numCharacters = in.readInt();
+		int numSentences = in.readInt();
+		int numDependencies = in.readInt();
+		int numWords = in.readInt();
+		int numTokens = in.readInt();
+		int length = in.readInt();
+		double avgWordLength = in.readDouble();
+		double avgSentenceLength = in.readDouble();
+		double avgTreeDepth = in.readDouble();
+
+		Map<GrammaticalConstruction, int[]> occurrences = new EnumMap<>(GrammaticalConstruction.class);
+		int numConstructions = in.readInt();
+		for (int i = 0; i < numConstructions; i++)
+		{
+			GrammaticalConstruction construction;
+			try
+			{
+				construction = GrammaticalConstruction.valueOf(in.readUTF());
+			} catch (IllegalArgumentException ex)
+			{
+				throw new IOException("Unknown construction", ex);
+			}
+
+			int[] offsets = new int[in.readInt()];
+			for (int j = 0; j < offsets.length; j++)
+				offsets[j] = in.readInt();
+
+			occurrences.put(construction, offsets);
+		}
+
+		return new ParsedDocumentSnapshot(readabilityScore, readabilityLevel,
+										numCharacters, numSentences, numDependencies, numWords, numTokens, length,
+										avgWordLength, avgSentenceLength, avgTreeDepth,
+										occurrences);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.RuntimeInterruptedException;
+
+/**
+ * Annotates long documents in parallel by splitting them into chunks of whole sentences
+ * The document is tokenized and sentence-split as a whole, after which the remaining (sentence-level) annotators
+ * run on the chunks concurrently. Sentences retain their document-wide offsets and indices, so the result is
+ * identical to that of a serial annotation
+ *
+ * @author shadeMe
+ */
+final class ShardedAnnotator
+{
+	private static final List<String>	SPLITTER_ANNOTATORS = Arrays.asList("tokenize", "ssplit");
+
+	/*
+	 * The two halves of an annotation pipeline. Both reuse the pipeline's annotator instances through CoreNLP's annotator cache
+	 */
+	static final class SplitPipeline
+	{
+		final StanfordCoreNLP	splitter;			// tokenize, ssplit
+		final StanfordCoreNLP	sentenceAnnotator;	// everything else, null if the pipeline can't be split
+
+		SplitPipeline(StanfordCoreNLP pipeline)
+		{
+			List<String> annotators = Arrays.stream(pipeline.getProperties().getProperty("annotators", "").split(","))
+											.map(String::trim)
+											.filter(e -> e.isEmpty() == false)
+											.collect(Collectors.toList());
+
+			if (annotators.size() > SPLITTER_ANNOTATORS.size() && annotators.subList(0, SPLITTER_ANNOTATORS.size()).equals(SPLITTER_ANNOTATORS))
+			{
+				splitter = create(pipeline, SPLITTER_ANNOTATORS, true);
+				sentenceAnnotator = create(pipeline, annotators.subList(SPLITTER_ANNOTATORS.size(), annotators.size()), false);
+			}
+			else
+			{
+				splitter = null;
+				sentenceAnnotator = null;
+			}
+		}
+
+		private static StanfordCoreNLP create(StanfordCoreNLP pipeline, List<String> annotators, boolean enforceRequirements)
+		{
+			Properties props = new Properties();
+			props.putAll(pipeline.getProperties());
+			props.setProperty("annotators", String.join(", ", annotators));
+			return new StanfordCoreNLP(props, enforceRequirements);
+		}
+
+		boolean isValid() {
+			return splitter != null;
+		}
+	}
+
+	private final StanfordCoreNLP			pipeline;
+	private final DocumentShardingOptions	options;
+	private SplitPipeline					splitPipeline;		// lazily initialized
+
+	/**
+	 * @param pipeline Pipeline to annotate with. Must be safe to use concurrently
+	 * @param options Sharding options
+	 */
+	ShardedAnnotator(StanfordCoreNLP pipeline, DocumentShardingOptions options)
+	{
+		if (pipeline == null || options == null)
+			throw new IllegalArgumentException("Invalid pipeline or sharding options");
+
+		this.pipeline = pipeline;
+		this.options = options;
+		this.splitPipeline = null;
+	}
+
+	synchronized SplitPipeline getSplitPipeline()
+	{
+		if (splitPipeline == null)
+			splitPipeline = new SplitPipeline(pipeline);
+
+		return splitPipeline;
+	}
+
+	/**
+	 * Partitions the sentences of the document into chunks of consecutive sentences that span at least the given number of characters
+	 * The last chunk can be shorter
+	 */
+	static List<List<CoreMap>> getShards(List<CoreMap> sentences, int shardLength)
+	{
+		List<List<CoreMap>> shards = new ArrayList<>();
+		int shardStart = 0;
+		for (int i = 0; i < sentences.size(); i++)
+		{
+			int begin = sentences.get(shardStart).get(CoreAnnotations.CharacterOffsetBeginAnnotation.class);
+			int end = sentences.get(i).get(CoreAnnotations.CharacterOffsetEndAnnotation.class);
+			if (end - begin >= shardLength || i == sentences.size() - 1)
+			{
+				shards.add(sentences.subList(shardStart, i + 1));
+				shardStart = i + 1;
+			}
+		}
+
+		return shards;
+	}
+
+	private static Annotation createShard(Annotation doc, List<CoreMap> sentences)
+	{
+		List<CoreLabel> tokens = doc.get(CoreAnnotations.TokensAnnotation.class);
+		int tokenBegin = sentences.get(0).get(CoreAnnotations.TokenBeginAnnotation.class);
+		int tokenEnd = sentences.get(sentences.size() - 1).get(CoreAnnotations.TokenEndAnnotation.class);
+
+		Annotation shard = new Annotation(doc.get(CoreAnnotations.TextAnnotation.class));
+		shard.set(CoreAnnotations.TokensAnnotation.class, new ArrayList<>(tokens.subList(tokenBegin, tokenEnd)));
+		shard.set(CoreAnnotations.SentencesAnnotation.class, new ArrayList<>(sentences));
+		return shard;
+	}
+
+	/**
+	 * Annotates the document, in parallel if it's long enough
+	 */
+	void annotate(Annotation doc)
+	{
+		int length = doc.get(CoreAnnotations.TextAnnotation.class).length();
+		if (options.isApplicable(length) == false)
+		{
+			pipeline.annotate(doc);
+			return;
+		}
+
+		SplitPipeline split = getSplitPipeline();
+		if (split.isValid() == false)
+		{
+			pipeline.annotate(doc);
+			return;
+		}
+
+		split.splitter.annotate(doc);
+		List<List<CoreMap>> shards = getShards(doc.get(CoreAnnotations.SentencesAnnotation.class), options.getShardLength(length));
+		if (shards.size() < 2)
+		{
+			split.sentenceAnnotator.annotate(doc);
+			return;
+		}
+
+		// the sentences are annotated in-place, so there's nothing to merge afterwards
+		List<Future<?>> pending = new ArrayList<>();
+		try
+		{
+			for (List<CoreMap> itr : shards.subList(1, shards.size()))
+			{
+				Annotation shard = createShard(doc, itr);
+				pending.add(options.getExecutor().submit(() -> split.sentenceAnnotator.annotate(shard)));
+			}
+
+			// the calling thread annotates the first chunk itself
+			split.sentenceAnnotator.annotate(createShard(doc, shards.get(0)));
+			for (Future<?> itr : pending)
+				itr.get();
+		} catch (InterruptedException ex)
+		{
+			throw new RuntimeInterruptedException(ex);
+		} catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof RuntimeException)
+				throw (RuntimeException)ex.getCause();
+			else if (ex.getCause() instanceof Error)
+				throw (Error)ex.getCause();
+			else
+				throw new IllegalStateException("Couldn't annotate document chunk", ex.getCause());
+		} finally
+		{
+			// no-op for completed chunks
+			for (Future<?> itr : pending)
+				itr.cancel(true);
+		}
+	}
+}
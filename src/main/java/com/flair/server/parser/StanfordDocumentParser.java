@@ -38,22 +38,55 @@ class StanfordDocumentParser extends AbstractDocumentParser
 
 	private final StanfordCoreNLP				pipeline;
 	private final Language						modelLanguage;
+	private final ShardedAnnotator				shardedAnnotator;		// null if documents are always annotated serially
 
 	/**
 	 * Constructor that generates a stanford parser
 	 * @param factory Interface used to create parsed documents
 	 * @param modelLang Parsing model language
 	 */
-	public StanfordDocumentParser(AbstractDocumentFactory factory, Language modelLang)
+	public StanfordDocumentParser(AbstractDocumentFactory factory, Language modelLang) {
+		this(factory, modelLang, createPipeline(modelLang));
+	}
+
+	/**
+	 * Constructor that generates a stanford parser around an existing pipeline
+	 * @param factory Interface used to create parsed documents
+	 * @param modelLang Parsing model language
+	 * @param pipeline CoreNLP pipeline for the model language. Can be shared between parsers as annotation is thread-safe
+	 */
+	public StanfordDocumentParser(AbstractDocumentFactory factory, Language modelLang, StanfordCoreNLP pipeline) {
+		this(factory, modelLang, pipeline, null);
+	}
+
+	/**
+	 * Constructor that generates a stanford parser around an existing pipeline
+	 * @param factory Interface used to create parsed documents
+	 * @param modelLang Parsing model language
+	 * @param pipeline CoreNLP pipeline for the model language. Can be shared between parsers as annotation is thread-safe
+	 * @param sharding Options for the parallel annotation of long documents, null to disable
+	 */
+	public StanfordDocumentParser(AbstractDocumentFactory factory, Language modelLang, StanfordCoreNLP pipeline, DocumentShardingOptions sharding)
 	{
 		super(factory);
-		ServerLogger.get().info("After super(factory)");
+		ServerLogger.get().trace("After super(factory)");
 
 		docSource = null;
 		outputDoc = null;
 		parsingStrategy = null;
 		modelLanguage = modelLang;
+		this.pipeline = pipeline;
+		this.shardedAnnotator = sharding != null ? new ShardedAnnotator(pipeline, sharding) : null;
+		ServerLogger.get().trace("Successful construction of StanfordDocumentParser");
+	}
 
+	/**
+	 * Loads the models of the given language into a new CoreNLP pipeline
+	 * @param modelLanguage Parsing model language
+	 * @return Pipeline instance
+	 */
+	static StanfordCoreNLP createPipeline(Language modelLanguage)
+	{
 		Properties pipelineProps = new Properties();
 		switch (modelLanguage)
 		{
@@ -89,9 +122,8 @@ class StanfordDocumentParser extends AbstractDocumentParser
 		default:
 			throw new IllegalArgumentException("Invalid model language: " + modelLanguage + "");
 		}
-			pipeline = new StanfordCoreNLP(pipelineProps);
-			ServerLogger.get().info("Successful construction of StanfordDocumentParser");
 
+		return new StanfordCoreNLP(pipelineProps);
 	}
 
 	/**
@@ -122,8 +154,8 @@ class StanfordDocumentParser extends AbstractDocumentParser
 	{
 		if (isBusy())
 		{
-			// this could be the case if the previous task timed-out
-			ServerLogger.get().warn("Parser did complete its previous task. Resetting...");
+			// parsers that don't stop after a timeout are quarantined, so this shouldn't happen
+			throw new IllegalStateException("Parser is still busy with its previous task");
 		}
 		else if (strategy instanceof BasicStanfordDocumentParserStrategy == false) {
 			throw new IllegalArgumentException(
@@ -147,16 +179,17 @@ class StanfordDocumentParser extends AbstractDocumentParser
 		AbstractDocument result = null;
 		try
 		{	//here is where we parse a document
-			ServerLogger.get().info("trying to parse document");
+			ServerLogger.get().trace("trying to parse document");
 
 			result = initializeState(source, strategy);
-			ServerLogger.get().info("state initialized");
+			ServerLogger.get().trace("state initialized");
 
 			parsingStrategy.setPipeline(pipeline);
-			ServerLogger.get().info("pipeline set");
+			parsingStrategy.setShardedAnnotator(shardedAnnotator);
+			ServerLogger.get().trace("pipeline set");
 
 			parsingStrategy.apply(outputDoc);
-			ServerLogger.get().info("applying analysis to document");
+			ServerLogger.get().trace("applying analysis to document");
 
 		} catch (Throwable e) {
 			throw e;
@@ -182,16 +215,57 @@ class StanfordDocumentParserFactory implements AbstractDocumentParserFactory
 {
 	private final AbstractDocumentFactory	docFactory;
 	private final Language					language;
+	private final boolean					sharedPipeline;
+	private final DocumentShardingOptions	sharding;
+	private StanfordCoreNLP					pipeline;		// lazily initialized if shared
+
+	public StanfordDocumentParserFactory(AbstractDocumentFactory factory, Language lang) {
+		this(factory, lang, false);
+	}
+
+	/**
+	 * @param sharedPipeline If true, all parsers created by the factory share a single pipeline (and its models)
+	 */
+	public StanfordDocumentParserFactory(AbstractDocumentFactory factory, Language lang, boolean sharedPipeline) {
+		this(factory, lang, sharedPipeline, null);
+	}
 
-	public StanfordDocumentParserFactory(AbstractDocumentFactory factory, Language lang)
+	/**
+	 * @param sharedPipeline If true, all parsers created by the factory share a single pipeline (and its models)
+	 * @param sharding Options for the parallel annotation of long documents, null to disable
+	 */
+	public StanfordDocumentParserFactory(AbstractDocumentFactory factory, Language lang, boolean sharedPipeline, DocumentShardingOptions sharding)
 	{
-		ServerLogger.get().info("Creating StanfordDocumentParserFactory, docfactory is " + factory.toString());
+		ServerLogger.get().info("Creating StanfordDocumentParserFactory, docfactory is {}", factory);
 		docFactory = factory;
 		language = lang;
+		this.sharedPipeline = sharedPipeline;
+		this.sharding = sharding;
+		pipeline = null;
+	}
+
+	private synchronized StanfordCoreNLP getSharedPipeline()
+	{
+		if (pipeline == null)
+		{
+			ServerLogger.get().info("Loading shared CoreNLP pipeline for {}", language);
+			pipeline = StanfordDocumentParser.createPipeline(language);
+		}
+
+		return pipeline;
+	}
+
+	@Override
+	public AbstractDocumentParser create()
+	{
+		if (sharedPipeline)
+			return new StanfordDocumentParser(docFactory, language, getSharedPipeline(), sharding);
+		else
+			return new StanfordDocumentParser(docFactory, language, StanfordDocumentParser.createPipeline(language), sharding);
 	}
 
 	@Override
-	public AbstractDocumentParser create() {
-		return new StanfordDocumentParser(docFactory, language);
+	public boolean sharesModels() {
+		return sharedPipeline;
 	}
 }
@@ -9,6 +9,7 @@ import java.util.Collection;
 import java.util.List;
 
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.shared.grammar.Language;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
@@ -85,11 +86,15 @@ class StanfordDocumentParserArabicStrategy extends BasicStanfordDocumentParserSt
 			initializeState(docToParse);
 
 			Annotation docAnnotation = new Annotation(workingDoc.getText());
+			long annotationStart = System.nanoTime();
 			pipeline.annotate(docAnnotation);
+			ServerMetrics.get().recordSince(ServerMetrics.Stage.ANNOTATE, annotationStart);
 
 			List<CoreMap> sentences = docAnnotation.get(CoreAnnotations.SentencesAnnotation.class);
 			for (CoreMap itr : sentences)
 			{
+				checkInterrupted();
+
 				/*if(attempts % 20 == 0){
 					ServerLogger.get().info("Parsing " + docToParse.getDescription() + "...");
 				}*/
@@ -7,9 +7,9 @@ package com.flair.server.parser;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.regex.Pattern;
 
 import com.flair.server.grammar.EnglishGrammaticalConstants;
+import com.flair.server.parser.EnglishTokenView.Tag;
 import com.flair.shared.grammar.GrammaticalConstruction;
 import com.flair.shared.grammar.Language;
 
@@ -21,7 +21,6 @@ import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.TreeCoreAnnotations;
 import edu.stanford.nlp.trees.TypedDependency;
-import edu.stanford.nlp.trees.tregex.TregexMatcher;
 import edu.stanford.nlp.trees.tregex.TregexPattern;
 import edu.stanford.nlp.util.CoreMap;
 
@@ -51,10 +50,16 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 	private Tree						treeOutput;		// syntax tree: output from parser (Stanford CoreNLP)
 	private List<CoreLabel>				wordsOutput;	// annotated words: output from parser (Stanford CoreNLP)
 	private Collection<TypedDependency>	depsOutput;		// dependencies: output from parser (Stanford CoreNLP)
+	private final EnglishTokenView		tokens;			// classified wordsOutput, reset for every sentence
+
+	// a sentence that has a vp that is NOT preceded by a sister NP
+	private static final TregexPattern				IMPERATIVE_PATTERN = TregexPattern.compile("/^S.*/ !$ /NP$/ < (VP=imperativeVerb !$-- /^N.*/)");
+	private static final MultiPatternTreeMatcher	TREE_PATTERNS = new MultiPatternTreeMatcher(IMPERATIVE_PATTERN);
 
 	public StanfordDocumentParserEnglishStrategy()
 	{
 		workingDoc = null;
+		tokens = new EnglishTokenView();
 		// treeOutput = null;
 		// wordsOutput = null;
 		// depsOutput = null;
@@ -83,6 +88,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		treeOutput = null;
 		wordsOutput = null;
 		depsOutput = null;
+		tokens.clear();
 		conditionalFound = false;
 		usedFound = false;
 		comparativeMoreFound = false;
@@ -92,10 +98,11 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 	}
 
 	private int countSubstr(String substr, String str) {
-		// ###TODO can be made faster?
-		// the result of split() will contain one more element than the delimiter
-		// the "-1" second argument makes it not discard trailing empty strings
-		return str.split(Pattern.quote(substr), -1).length - 1;
+		// number of non-overlapping occurrences
+		int count = 0;
+		for (int i = str.indexOf(substr); i != -1; i = str.indexOf(substr, i + substr.length()))
+			count++;
+		return count;
 	}
 
 	private void addConstructionOccurrence(GrammaticalConstruction type, int start, int end, String expr) {
@@ -111,6 +118,9 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		this.treeOutput = tree;
 		this.wordsOutput = words;
 		this.depsOutput = deps;
+		// apply() has usually classified the sentence already
+		if (tokens.isViewOf(words) == false)
+			tokens.reset(words);
 
 		conditionalFound = false; // to find a conditional clause (the order can be inverted)
 
@@ -141,23 +151,24 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 		// independent of type of sentence
 		////// go through the wordsOutput (CoreLabels) for POS tags
-		for (CoreLabel label : wordsOutput)
+		for (int token = 0; token < tokens.size(); token++)
 		{
-			String labelTag = label.tag().toLowerCase();
-			String labelWord = label.word().toLowerCase();
-			if (labelTag != null && labelWord != null
-					&& (!(labelTag.equalsIgnoreCase(".") || labelTag.equalsIgnoreCase(","))))
+			CoreLabel label = tokens.label(token);
+			String labelTag = tokens.tagString(token);
+			String labelWord = tokens.word(token);
+			Tag tag = tokens.tag(token);
+			if (labelTag != null && labelWord != null && tag != Tag.PERIOD && tag != Tag.COMMA)
 			{
 
 				// >>> negation (first part; the other part in TypedDependency itr
 				// words that won't occur in a dependency "neg":
 				// "neither", "nobody", "none", "nothing", "nor", "nowhere"
 				// "hardly", "scarcely", "rarely", "seldom", "barely"
-				if (EnglishGrammaticalConstants.NEGATION.contains(labelWord.toLowerCase()))
+				if (tokens.has(token, EnglishTokenView.NEGATION))
 				{
 					addConstructionOccurrence(GrammaticalConstruction.NEGATION_ALL, label.beginPosition(),
 							label.endPosition(), labelWord);
-				} else if (EnglishGrammaticalConstants.PARTIAL_NEGATION.contains(labelWord.toLowerCase()))
+				} else if (tokens.has(token, EnglishTokenView.PARTIAL_NEGATION))
 				{
 					addConstructionOccurrence(GrammaticalConstruction.NEGATION_PARTIAL, label.beginPosition(),
 							label.endPosition(), labelWord);
@@ -166,17 +177,17 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				// >>> "used to"
 				if (usedFound)
 				{
-					findUsedTo(label, labelWord, labelTag);
+					findUsedTo(token);
 				}
 
 				// >>> "going to"
 				if (goingToFound > 0)
 				{
-					findGoingTo(label, labelWord, labelTag);
+					findGoingTo(token);
 				}
 
 				// >>> "a lot of" quantifier
-				if (labelWord.equalsIgnoreCase("lot"))
+				if (labelWord.equals("lot"))
 				{
 					int lotInd = label.index() - 1; // indices start at 1 !!!
 					// conditions:
@@ -184,8 +195,8 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 					// 2. it is preceded by "a"
 					// 3. it is followed by "of"
 					if (lotInd > 0 && lotInd < wordsOutput.size() - 1
-							&& wordsOutput.get(lotInd - 1).word().equalsIgnoreCase("a")
-							&& wordsOutput.get(lotInd + 1).word().equalsIgnoreCase("of"))
+							&& "a".equals(tokens.word(lotInd - 1))
+							&& "of".equals(tokens.word(lotInd + 1)))
 					{
 						addConstructionOccurrence(GrammaticalConstruction.DETERMINER_A_LOT_OF,
 								wordsOutput.get(label.index() - 1).beginPosition(),
@@ -194,35 +205,35 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				}
 
 				//// >>> degrees of comparison of LONG adjectives and adverbs: "more/RBR beautiful/JJ", "most/RBS beautiful/JJ" (PROBLEM ???)
-				if (comparativeMoreFound && (labelTag.equalsIgnoreCase("jj") || labelTag.equalsIgnoreCase("rb")))
+				if (comparativeMoreFound && (tag == Tag.JJ || tag == Tag.RB))
 				{
-					addLongComparative(label, labelWord, labelTag);
-				} else if (superlativeMostFound && (labelTag.equalsIgnoreCase("jj") || labelTag.equalsIgnoreCase("rb")))
+					addLongComparative(token);
+				} else if (superlativeMostFound && (tag == Tag.JJ || tag == Tag.RB))
 				{
-					addLongSuperlative(label, labelWord, labelTag);
+					addLongSuperlative(token);
 				}
 				//// >>> degrees of comparison of SHORT adverbs
-				else if (labelTag.equalsIgnoreCase("rbr"))
+				else if (tag == Tag.RBR)
 				{
-					addShortComparativeAdv(label, labelWord);
-				} else if (labelTag.equalsIgnoreCase("rbs"))
+					addShortComparativeAdv(token);
+				} else if (tag == Tag.RBS)
 				{
-					addShortSuperlativeAdv(label, labelWord);
+					addShortSuperlativeAdv(token);
 				}
 				//// >>> forms of adjectives (except for long comparative and superlative forms
-				else if (labelTag.startsWith("jj"))
+				else if (tokens.has(token, EnglishTokenView.ADJECTIVE_TAG))
 				{
-					addAdjectiveForms(label, labelWord, labelTag);
+					addAdjectiveForms(token);
 				}
 
 				//// >>> pronouns (reflexive or possessive)
-				else if (labelTag.toLowerCase().startsWith("prp"))
+				else if (tokens.has(token, EnglishTokenView.PERSONAL_PRONOUN_TAG))
 				{
-					addReflexiveAndPossessivePronouns(label, labelWord, labelTag);
+					addReflexiveAndPossessivePronouns(token);
 				}
 				// Stanford sometimes parses such sentences incorrectly (as PRP$: his, yours, its; as NN: mine, hers; as JJ: theirs): "This is mine/hers."
 				// Therefore, there might be false positives in PRONOUNS ("This is mine." vs. "This is a mine." will both be added)
-				else if (EnglishGrammaticalConstants.POSSESSIVE_ABSOLUTE_PRONOUNS.contains(labelWord))
+				else if (tokens.has(token, EnglishTokenView.POSSESSIVE_ABSOLUTE_PRONOUN))
 				{
 					addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_POSSESSIVE_ABSOLUTE,
 							label.beginPosition(), label.endPosition(), labelWord);
@@ -231,37 +242,36 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				}
 
 				//// >>> conjunctions (all or simple)
-				else if (labelTag.equalsIgnoreCase("in") || labelTag.equalsIgnoreCase("cc")
-						|| labelTag.equalsIgnoreCase("rb") || labelTag.equalsIgnoreCase("wrb"))
+				else if (tag == Tag.IN || tag == Tag.CC || tag == Tag.RB || tag == Tag.WRB)
 				{
-					addConjunctions(label, labelWord, labelTag);
+					addConjunctions(token);
 				}
 
 				//// NOT HERE : determiners (some, any) - see dependencies
 				//// HERE: >>> articles (a, an, the)
-				else if (labelTag.equalsIgnoreCase("dt"))
+				else if (tag == Tag.DT)
 				{
-					addArticles(label, labelWord);
+					addArticles(token);
 				}
 
 				//// >>> ing noun forms
-				else if (labelTag.startsWith("nn"))
+				else if (tokens.has(token, EnglishTokenView.NOUN_TAG))
 				{
-					findIngNounForms(label, labelWord, labelTag);
+					findIngNounForms(token);
 				}
 
 				//// >>> modals
-				else if (labelTag.equalsIgnoreCase("md"))
+				else if (tag == Tag.MD)
 				{
 					// includes "will"
-					addModalVerb(label, labelWord);
+					addModalVerb(token);
 				}
 
 				//// >>> verb forms
-				else if (labelTag.startsWith("v") || labelTag.equalsIgnoreCase("md"))
+				else if (tokens.has(token, EnglishTokenView.VERB_TAG) || tag == Tag.MD)
 				{
 					// already in lower case // include modals "will" and "would" ++
-					findVerbFormsPOS(label, labelWord, labelTag);
+					findVerbFormsPOS(token);
 				}
 			}
 		}
@@ -321,13 +331,13 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			}
 
 			//// >>> there is / there are: expl( is-3 , there-2 )
-			else if (rel.toLowerCase().equalsIgnoreCase("expl") && dep.word().equalsIgnoreCase("there"))
+			else if (rel.equalsIgnoreCase("expl") && dep.word().equalsIgnoreCase("there"))
 			{
 				addExistentialThere(dependency, start, end, gov);
 			}
 
 			//// >>> prepositions (incl. simple)
-			else if (rel.toLowerCase().startsWith("prep"))
+			else if (rel.regionMatches(true, 0, "prep", 0, 4))
 			{
 				findPrepositions(dependency, depBegin, depEnd, rel, dep, gov);
 			}
@@ -388,8 +398,9 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				addConstructionOccurrence(GrammaticalConstruction.CLAUSE_SUBORDINATE, startInd, endInd, treeStr); // highlight the whole sentence
 			}
 
-			int withCC = countSubstr("(sbar (whnp ", treeStr.toLowerCase()); // with a conjunction // TODO: can be an indirect question: "She asked me what I like" -> check for reporting wordsOutput in dependency?
-			int withoutCC = countSubstr("(sbar (s ", treeStr.toLowerCase()); // reduced relative clauses "The man I saw" // TODO: check
+			String treeStrLower = treeStr.toLowerCase();
+			int withCC = countSubstr("(sbar (whnp ", treeStrLower); // with a conjunction // TODO: can be an indirect question: "She asked me what I like" -> check for reporting wordsOutput in dependency?
+			int withoutCC = countSubstr("(sbar (s ", treeStrLower); // reduced relative clauses "The man I saw" // TODO: check
 			for (int i = 0; i < withCC; i++)
 			{
 				addConstructionOccurrence(GrammaticalConstruction.CLAUSE_RELATIVE, startInd, endInd, treeStr); // highlight the whole sentence
@@ -399,13 +410,13 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				addConstructionOccurrence(GrammaticalConstruction.CLAUSE_RELATIVE_REDUCED, startInd, endInd, treeStr); // highlight the whole sentence
 			}
 
-			int numOfAdvCl = countSubstr("(sbar (in", treeStr.toLowerCase());
-			int numOfAdvClWhether = countSubstr("(sbar (in whether", treeStr.toLowerCase()); // indirect questions
+			int numOfAdvCl = countSubstr("(sbar (in", treeStrLower);
+			int numOfAdvClWhether = countSubstr("(sbar (in whether", treeStrLower); // indirect questions
 
 			int numOfRelClThat = countSubstr("(sbar (in that", treeStr); // indirect questions
 
-			int numOfAdvClIF = countSubstr("(sbar (in if", treeStr.toLowerCase()); // TODO check: "if" is also IN! -> an indirect question or conditional
-			int numOfAdvUnless = countSubstr("(sbar (in unless", treeStr.toLowerCase());
+			int numOfAdvClIF = countSubstr("(sbar (in if", treeStrLower); // TODO check: "if" is also IN! -> an indirect question or conditional
+			int numOfAdvUnless = countSubstr("(sbar (in unless", treeStrLower);
 
 			for (int i = 0; i < numOfAdvCl - numOfRelClThat - numOfAdvClIF - numOfAdvUnless; i++) // don't include the indirect questions and conditionals
 			{
@@ -586,12 +597,12 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 					{
 						// no modals!
 						// NOT incl. emphatic do
-						List<ConstructionOccurrence> imperativeOccs = workingDoc
-								.getConstructionData(GrammaticalConstruction.IMPERATIVES).getOccurrences();
+						DocumentConstructionData imperativeOccs = workingDoc
+								.getConstructionData(GrammaticalConstruction.IMPERATIVES);
 						boolean imperativeFound = false;
-						for (ConstructionOccurrence occ : imperativeOccs)
+						for (int i = 0; i < imperativeOccs.getFrequency(); i++)
 						{
-							if (occ.getStart() == depBegin)
+							if (imperativeOccs.getStart(i) == depBegin)
 							{
 								imperativeFound = true;
 								break;
@@ -1196,38 +1207,38 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 	private void findQuestionOrImperative(int startInd, int endInd) {
 		// find the first and the last word (skip bullets, quotes, etc.)
-		CoreLabel firstWord = null;
-		for (CoreLabel w : wordsOutput)
+		int firstWord = -1;
+		for (int i = 0; i < tokens.size(); i++)
 		{
-			if (w.word() != null && w.word().toLowerCase().matches("[a-z]*"))
+			if (tokens.has(i, EnglishTokenView.ALPHABETIC_WORD))
 			{
 				// first real word
-				firstWord = w;
+				firstWord = i;
 				break;
 			}
 		}
 
-		if (firstWord == null)
+		if (firstWord == -1)
 		{
 			return;
 		}
 
 		// find the last token (punctuation mark) (don't take quotes into account)
-		CoreLabel lastWord = null;
-		for (int i = wordsOutput.size() - 1; i > 0; i--)
+		int lastWord = -1;
+		for (int i = tokens.size() - 1; i > 0; i--)
 		{
-			if (wordsOutput.get(i).tag() != null && wordsOutput.get(i).tag().equalsIgnoreCase("."))
+			if (tokens.tag(i) == Tag.PERIOD)
 			{
-				lastWord = wordsOutput.get(i);
+				lastWord = i;
 				break;
 			}
 		}
 
 		//// find questions and imperatives
-		if (lastWord != null && lastWord.word() != null)
+		if (lastWord != -1 && tokens.word(lastWord) != null)
 		{
 			// questions
-			if (lastWord.word().toLowerCase().endsWith("?"))
+			if (tokens.word(lastWord).endsWith("?"))
 			{
 				// question (not indirect!)
 				// indirectQuestions - ??? not here!
@@ -1235,11 +1246,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			} else
 			{
 				// use tregex to find imperatives within the sentence
-				// a sentence that has a vp that is NOT preceded by a sister NP
-				String pattern = "/^S.*/ !$ /NP$/ < (VP=imperativeVerb !$-- /^N.*/)";
-				TregexPattern impPattern = TregexPattern.compile(pattern);
-				TregexMatcher tregexImperative = impPattern.matcher(treeOutput);
-				while (tregexImperative.find())
+				TREE_PATTERNS.forEachMatch(treeOutput, (pattern, node, tregexImperative) ->
 				{
 					Tree imperativeVerb = tregexImperative.getNode("imperativeVerb");
 					CoreLabel impFirstWord = imperativeVerb.taggedLabeledYield().get(0);
@@ -1251,39 +1258,38 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 						addConstructionOccurrence(GrammaticalConstruction.IMPERATIVES, impStart, impEnd,
 								wordsOutput.toString());
 					}
-				}
+				});
 			}
 		}
 	}
 
-	private void inspectQuestion(CoreLabel firstWord) {
+	private void inspectQuestion(int firstWord) {
 		int startInd = wordsOutput.get(0).beginPosition();
 		int endInd = wordsOutput.get(wordsOutput.size() - 1).endPosition();
 
 		//// direct question
 		addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_DIRECT, startInd, endInd, wordsOutput.toString());
 
-		if (firstWord == null)
+		if (firstWord == -1)
 		{
 			return;
 		}
 
-		String firstWordTag = firstWord.tag();
-		String firstWordWord = firstWord.word().toLowerCase();
+		String firstWordWord = tokens.word(firstWord);
 
 		//// tag questions
 		findTagQuestion(endInd);
 
 		//// wh-question
-		if (firstWordTag.toLowerCase().startsWith("w"))
+		if (tokens.has(firstWord, EnglishTokenView.WH_TAG))
 		{
 			findWhQuestion(firstWordWord, startInd, endInd);
 		} //// yesNoQuestions (starts with a verb (or modal))
-		else if (firstWordTag.toLowerCase().startsWith("vb"))
+		else if (tokens.has(firstWord, EnglishTokenView.VB_TAG))
 		{
-			findYesNoQuestion(firstWord, startInd, endInd);
+			findYesNoQuestion(tokens.label(firstWord), startInd, endInd);
 		} // modal question
-		else if (firstWordTag.toLowerCase().contains("md"))
+		else if (tokens.tagString(firstWord).contains("md"))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_YESNO, startInd, endInd,
 					wordsOutput.toString());
@@ -1303,25 +1309,25 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		CoreLabel lastWord = null;
 		CoreLabel qMark = null; // it must be there
 		int count = 0; // count the words between ? and ,
-		for (int i = wordsOutput.size() - 1; i > 0; i--)
+		for (int i = tokens.size() - 1; i > 0; i--)
 		{
-			CoreLabel label = wordsOutput.get(i);
-			String tag = label.tag();
-			String word = label.word().toLowerCase();
+			CoreLabel label = tokens.label(i);
+			Tag tag = tokens.tag(i);
+			String word = tokens.word(i);
 
-			if (qMark == null && tag.equalsIgnoreCase(".") && word.contains("?"))
+			if (qMark == null && tag == Tag.PERIOD && word.contains("?"))
 			{
 				qMark = label;
 				count++;
-			} else if (qMark != null && (tag.equalsIgnoreCase("prp") || word.equalsIgnoreCase("not")))
+			} else if (qMark != null && (tag == Tag.PRP || word.equals("not")))
 			{
 				// check for the pronoun or the negation (do they not?)
 				lastWord = label;
 				count++;
-			} else if (lastWord != null && (!tag.equalsIgnoreCase(","))) // check for the negation or for the verb
+			} else if (lastWord != null && tag != Tag.COMMA) // check for the negation or for the verb
 			{
 				count++;
-			} else if (lastWord != null && tag.equalsIgnoreCase(","))
+			} else if (lastWord != null && tag == Tag.COMMA)
 			{
 				if (count < 5)
 				{
@@ -1386,7 +1392,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 	private void addWhQuestion(String qWord, int startInd, int endInd) {
 		addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_WH, startInd, endInd, qWord);
-		switch (qWord.toLowerCase())
+		switch (qWord)
 		{
 		case "what":
 			addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_WHAT, startInd, endInd, qWord);
@@ -1448,43 +1454,44 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 	}
 
 	private void findInlineQuestion(int startInd, int endInd) {
-		CoreLabel questionWord = null;
-		for (CoreLabel aWord : wordsOutput)
+		String questionWord = null;
+		for (int i = 0; i < tokens.size(); i++)
 		{
+			CoreLabel aWord = tokens.label(i);
 			// look for a question word
-			if ((questionWord == null) && (aWord.tag().toLowerCase().startsWith("w")))
+			if ((questionWord == null) && tokens.has(i, EnglishTokenView.WH_TAG))
 			{
-				questionWord = aWord;
+				questionWord = tokens.word(i);
 			} else if (questionWord != null)
 			{
 				// if question word found
-				if (aWord.tag().toLowerCase().startsWith("vb"))
+				if (tokens.has(i, EnglishTokenView.VB_TAG))
 				{
 					if (aWord.lemma().equalsIgnoreCase("be"))
 					{
 						// toBeQuestions;
-						addWhQuestion(questionWord.word().toLowerCase(), startInd, endInd);
+						addWhQuestion(questionWord, startInd, endInd);
 						addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_TO_BE, startInd, endInd,
 								wordsOutput.toString());
 						break;
 					} else if (aWord.lemma().equalsIgnoreCase("do"))
 					{
 						// simple
-						addWhQuestion(questionWord.word().toLowerCase(), startInd, endInd);
+						addWhQuestion(questionWord, startInd, endInd);
 						addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_TO_DO, startInd, endInd,
 								wordsOutput.toString());
 						break;
 					} else if (aWord.lemma().equalsIgnoreCase("have"))
 					{
 						// perfect
-						addWhQuestion(questionWord.word().toLowerCase(), startInd, endInd);
+						addWhQuestion(questionWord, startInd, endInd);
 						addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_TO_HAVE, startInd, endInd,
 								wordsOutput.toString());
 						break;
 					}
-				} else if (aWord.tag().toLowerCase().startsWith("md"))
+				} else if (tokens.tagString(i).startsWith("md"))
 				{
-					addWhQuestion(questionWord.word().toLowerCase(), startInd, endInd);
+					addWhQuestion(questionWord, startInd, endInd);
 					addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_MODAL, startInd, endInd,
 							wordsOutput.toString());
 				}
@@ -1492,8 +1499,10 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void findUsedTo(CoreLabel label, String labelWord, String labelTag) {
-		if (labelTag.equalsIgnoreCase("to")) // allows for elliptical structures, e.g., "yes, I used to."
+	private void findUsedTo(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		if (tokens.tag(token) == Tag.TO) // allows for elliptical structures, e.g., "yes, I used to."
 		{
 			addConstructionOccurrence(GrammaticalConstruction.VERBCONST_USED_TO,
 					wordsOutput.get(label.index() - 2).beginPosition(), label.endPosition(), "used " + labelWord);
@@ -1501,12 +1510,15 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		usedFound = false;
 	}
 
-	private void findGoingTo(CoreLabel label, String labelWord, String labelTag) {
+	private void findGoingTo(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		Tag labelTag = tokens.tag(token);
 		switch (goingToFound)
 		{
 		case 1:
 			// only "going" found
-			if (labelTag.equalsIgnoreCase("to"))
+			if (labelTag == Tag.TO)
 			{
 				goingToFound++;
 				// indices start at 1 !!! : wordsOutput.get(label.index()) will be the word following the current "label" word
@@ -1526,7 +1538,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			break;
 		case 2:
 			// "going to" found
-			if (labelTag.equalsIgnoreCase("vb"))
+			if (labelTag == Tag.VB)
 			{
 				// can tell it from "I'm going to France" // can't catch "I'm going to _slowly_ start packing" - use Tregex?
 				// indices start at 1 !!!
@@ -1543,15 +1555,17 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void findIngNounForms(CoreLabel label, String labelWord, String labelTag) {
+	private void findIngNounForms(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
 		if (labelWord.endsWith("ing") && labelWord.length() > 4
-				&& (!EnglishGrammaticalConstants.ING_NOUNS.contains(labelWord)))
+				&& (!tokens.has(token, EnglishTokenView.ING_NOUN)))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.NOUNFORMS_ING, label.beginPosition(), label.endPosition(),
 					labelWord);
 		}
 		// plural noun forms
-		if (labelTag.equalsIgnoreCase("nns"))
+		if (tokens.tag(token) == Tag.NNS)
 		{
 			if (labelWord.endsWith("s"))
 			{
@@ -1565,7 +1579,9 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void addModalVerb(CoreLabel label, String labelWord) {
+	private void addModalVerb(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
 		addConstructionOccurrence(GrammaticalConstruction.MODALS, label.beginPosition(), label.endPosition(),
 				labelWord);
 		switch (labelWord)
@@ -1614,8 +1630,8 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 					labelWord);
 			break;
 		default:
-			if (!(labelWord.equalsIgnoreCase("will") || labelWord.equalsIgnoreCase("shall")
-					|| labelWord.equalsIgnoreCase("wo") || labelWord.equalsIgnoreCase("sha")))
+			if (!(labelWord.equals("will") || labelWord.equals("shall")
+					|| labelWord.equals("wo") || labelWord.equals("sha")))
 			{
 				addConstructionOccurrence(GrammaticalConstruction.MODALS_ADVANCED, label.beginPosition(),
 						label.endPosition(), labelWord);
@@ -1624,7 +1640,10 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void findVerbFormsPOS(CoreLabel label, String labelWord, String labelTag) {
+	private void findVerbFormsPOS(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		Tag labelTag = tokens.tag(token);
 		if (labelWord.startsWith("'"))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.VERBFORM_SHORT, label.beginPosition(),
@@ -1650,7 +1669,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				int thisInd = label.index() - 1;
 				if (wordsOutput.size() > thisInd + 1)
 				{
-					if (wordsOutput.get(thisInd + 1).tag().equalsIgnoreCase("to"))
+					if (tokens.tag(thisInd + 1) == Tag.TO)
 					{
 						// catch the elliptical "I have to." BUT not "I will give everything I have to John"
 						addConstructionOccurrence(GrammaticalConstruction.MODALS, label.beginPosition(),
@@ -1664,21 +1683,21 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 				break;
 			case "used":
-				if (labelTag.equalsIgnoreCase("vbd")) // excludes passive "it is used to"
+				if (labelTag == Tag.VBD) // excludes passive "it is used to"
 				{
 					usedFound = true;
 				}
 			}
 
-			if (labelTag.equalsIgnoreCase("vbg"))
+			if (labelTag == Tag.VBG)
 			{
 				addConstructionOccurrence(GrammaticalConstruction.VERBFORM_ING, label.beginPosition(),
 						label.endPosition(), labelWord);
-				if (labelWord.equalsIgnoreCase("going") || labelWord.equalsIgnoreCase("gon"))
+				if (labelWord.equals("going") || labelWord.equals("gon"))
 				{
 					goingToFound++;
 				}
-			} else if (labelTag.equalsIgnoreCase("vbd") || labelTag.equalsIgnoreCase("vbn"))
+			} else if (labelTag == Tag.VBD || labelTag == Tag.VBN)
 			{
 				if (!labelWord.endsWith("ed"))
 				{
@@ -1724,7 +1743,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				// indices start at 1 !!!
 				int toInd = dep.index() - 1;
 				int govInd = gov.index();
-				if (govInd - toInd > 1 && wordsOutput.get(toInd + 1).word().equalsIgnoreCase("be"))
+				if (govInd - toInd > 1 && "be".equals(tokens.word(toInd + 1)))
 				{
 					addConstructionOccurrence(GrammaticalConstruction.VERBFORM_TO_INFINITIVE, dep.beginPosition(),
 							wordsOutput.get(toInd + 1).endPosition(), dependency.toString());
@@ -1748,15 +1767,16 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				String prep = rel.substring(rel.indexOf("_") + 1).toLowerCase();
 
 				// go through wordsOutput to find the indices
-				for (CoreLabel l : wordsOutput)
+				for (int i = 0; i < tokens.size(); i++)
 				{
-					if (l.word().equalsIgnoreCase(prep))
+					if (prep.equals(tokens.word(i)))
 					{
+						CoreLabel l = tokens.label(i);
 						startPrep = l.beginPosition();
 						endPrep = l.endPosition();
 
 						// add constructions here: in case of a duplicate, it'll not be added anyway
-						if (l.tag().equalsIgnoreCase("in")
+						if (tokens.tag(i) == Tag.IN
 								&& EnglishGrammaticalConstants.SIMPLE_PREPOSITIONS.contains(prep))
 						{
 							addConstructionOccurrence(GrammaticalConstruction.PREPOSITIONS, startPrep, endPrep,
@@ -1781,13 +1801,14 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				String prep1 = rel.substring(rel.indexOf("_") + 1, rel.indexOf("_", rel.indexOf("_") + 1));
 				String prep2 = rel.substring(rel.lastIndexOf("_") + 1);
 
-				for (CoreLabel l : wordsOutput)
+				for (int i = 0; i < tokens.size(); i++)
 				{
-					if (l.word().equalsIgnoreCase(prep1))
+					CoreLabel l = tokens.label(i);
+					if (tokens.word(i).equalsIgnoreCase(prep1))
 					{
 						// at first find the first prep - don't add constructions yet
 						startPrep = l.beginPosition();
-					} else if (l.tag().equalsIgnoreCase("in") && l.word().equalsIgnoreCase(prep2))
+					} else if (tokens.tag(i) == Tag.IN && tokens.word(i).equalsIgnoreCase(prep2))
 					{
 						endPrep = l.endPosition();
 						if (startPrep > -1 && endPrep > -1 && endPrep > startPrep)
@@ -1810,7 +1831,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 		/// objective pronouns after a preposition
 		if (dep.tag().equalsIgnoreCase("prp")
-				&& EnglishGrammaticalConstants.OBJECTIVE_PRONOUNS.contains(dep.word().toLowerCase()))
+				&& EnglishTokenView.hasFeature(dep.word(), EnglishTokenView.OBJECTIVE_PRONOUN))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.PRONOUNS, depBegin, depEnd, dep.word());
 			addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_OBJECTIVE, depBegin, depEnd, dep.word());
@@ -1851,7 +1872,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			addConstructionOccurrence(GrammaticalConstruction.OBJECT_INDIRECT, start, end, dependency.toString());
 
 			if (dep.tag().equalsIgnoreCase("prp")
-					&& EnglishGrammaticalConstants.OBJECTIVE_PRONOUNS.contains(dep.word().toLowerCase()))
+					&& EnglishTokenView.hasFeature(dep.word(), EnglishTokenView.OBJECTIVE_PRONOUN))
 			{
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS, depBegin, depEnd, dependency.toString());
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_OBJECTIVE, depBegin, depEnd,
@@ -1863,7 +1884,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			addConstructionOccurrence(GrammaticalConstruction.OBJECT_DIRECT, start, end, dependency.toString());
 
 			if (dep.tag().equalsIgnoreCase("prp")
-					&& EnglishGrammaticalConstants.OBJECTIVE_PRONOUNS.contains(dep.word().toLowerCase()))
+					&& EnglishTokenView.hasFeature(dep.word(), EnglishTokenView.OBJECTIVE_PRONOUN))
 			{
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS, depBegin, depEnd, dependency.toString());
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_OBJECTIVE, depBegin, depEnd,
@@ -1873,7 +1894,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		{
 			// subjective pronouns
 			if (dep.tag().equalsIgnoreCase("prp")
-					&& EnglishGrammaticalConstants.SUBJECTIVE_PRONOUNS.contains(dep.word().toLowerCase()))
+					&& EnglishTokenView.hasFeature(dep.word(), EnglishTokenView.SUBJECTIVE_PRONOUN))
 			{
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS, depBegin, depEnd, dep.word());
 				addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_SUBJECTIVE, depBegin, depEnd, dep.word());
@@ -1907,20 +1928,21 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void addAdjectiveForms(CoreLabel label, String labelWord, String labelTag) {
-		// already in lower case
-		switch (labelTag)
+	private void addAdjectiveForms(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		switch (tokens.tag(token))
 		{
-		case "jj":
-			if (labelWord.equalsIgnoreCase("much") || labelWord.equalsIgnoreCase("many"))
+		case JJ:
+			if (labelWord.equals("much") || labelWord.equals("many"))
 			{
 				break;
-			} else if (labelWord.equalsIgnoreCase("able") || labelWord.equalsIgnoreCase("unable"))
+			} else if (labelWord.equals("able") || labelWord.equals("unable"))
 			{
 				int ableInd = label.index() - 1;
 
 				if (wordsOutput.size() >= ableInd && wordsOutput.size() > (ableInd + 1)
-						&& wordsOutput.get(ableInd + 1).tag().equalsIgnoreCase("to"))
+						&& tokens.tag(ableInd + 1) == Tag.TO)
 				{
 					addConstructionOccurrence(GrammaticalConstruction.MODALS_ADVANCED, label.beginPosition(),
 							label.endPosition(), labelWord);
@@ -1933,7 +1955,7 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			} else
 			{
 				// if it doesn't contain numbers
-				if (!labelWord.matches(".*\\d.*"))
+				if (!tokens.has(token, EnglishTokenView.CONTAINS_DIGIT))
 				{
 					addConstructionOccurrence(GrammaticalConstruction.ADJECTIVE_POSITIVE, label.beginPosition(),
 							label.endPosition(), labelWord);
@@ -1941,23 +1963,28 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			}
 
 			break;
-		case "jjr": // "more" is covered above -> not included here
+		case JJR: // "more" is covered above -> not included here
 			addConstructionOccurrence(GrammaticalConstruction.ADJECTIVE_COMPARATIVE_SHORT, label.beginPosition(),
 					label.endPosition(), labelWord);
 			break;
-		case "jjs": // "most" is covered above -> not included here
+		case JJS: // "most" is covered above -> not included here
 			addConstructionOccurrence(GrammaticalConstruction.ADJECTIVE_SUPERLATIVE_SHORT, label.beginPosition(),
 					label.endPosition(), labelWord);
 			break;
+		default:
+			break;
 		}
 	}
 
-	private void addLongComparative(CoreLabel label, String labelWord, String labelTag) {
-		if (labelTag.equalsIgnoreCase("jj") && labelWord.length() > 5) // add comparativeAdjLong
+	private void addLongComparative(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		Tag labelTag = tokens.tag(token);
+		if (labelTag == Tag.JJ && labelWord.length() > 5) // add comparativeAdjLong
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ADJECTIVE_COMPARATIVE_LONG,
 					wordsOutput.get(label.index() - 2).beginPosition(), label.endPosition(), "more " + labelWord);
-		} else if (labelTag.equalsIgnoreCase("rb") && labelWord.length() > 5) // add comparativeAdvLong
+		} else if (labelTag == Tag.RB && labelWord.length() > 5) // add comparativeAdvLong
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ADVERB_COMPARATIVE_LONG,
 					wordsOutput.get(label.index() - 2).beginPosition(), label.endPosition(), "more " + labelWord);
@@ -1965,12 +1992,15 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		comparativeMoreFound = false;
 	}
 
-	private void addLongSuperlative(CoreLabel label, String labelWord, String labelTag) {
-		if (labelTag.equalsIgnoreCase("jj") && labelWord.length() > 5) // add superlativeAdjLong
+	private void addLongSuperlative(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		Tag labelTag = tokens.tag(token);
+		if (labelTag == Tag.JJ && labelWord.length() > 5) // add superlativeAdjLong
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ADJECTIVE_SUPERLATIVE_LONG,
 					wordsOutput.get(label.index() - 2).beginPosition(), label.endPosition(), "more " + labelWord);
-		} else if (labelTag.equalsIgnoreCase("rb") && labelWord.length() > 5) // add superlativeAdvLong
+		} else if (labelTag == Tag.RB && labelWord.length() > 5) // add superlativeAdvLong
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ADVERB_SUPERLATIVE_LONG,
 					wordsOutput.get(label.index() - 2).beginPosition(), label.endPosition(), "more " + labelWord);
@@ -1978,8 +2008,10 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		superlativeMostFound = false;
 	}
 
-	private void addShortComparativeAdv(CoreLabel label, String labelWord) {
-		if (labelWord.equalsIgnoreCase("more"))
+	private void addShortComparativeAdv(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		if (labelWord.equals("more"))
 		{
 			comparativeMoreFound = true;
 		}
@@ -1989,8 +2021,10 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 
 	}
 
-	private void addShortSuperlativeAdv(CoreLabel label, String labelWord) {
-		if (labelWord.equalsIgnoreCase("most"))
+	private void addShortSuperlativeAdv(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		if (labelWord.equals("most"))
 		{
 			superlativeMostFound = true;
 		}
@@ -1999,25 +2033,29 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 				label.endPosition(), labelWord); // "most" is counted here
 	}
 
-	private void addConjunctions(CoreLabel label, String labelWord, String labelTag) {
-		if (EnglishGrammaticalConstants.ADVANCED_CONJUNCTIONS.contains(labelWord))
+	private void addConjunctions(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		if (tokens.has(token, EnglishTokenView.ADVANCED_CONJUNCTION))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.CONJUNCTIONS_ADVANCED, label.beginPosition(),
 					label.endPosition(), labelWord);
-		} else if (EnglishGrammaticalConstants.SIMPLE_CONJUNCTIONS.contains(labelWord))
+		} else if (tokens.has(token, EnglishTokenView.SIMPLE_CONJUNCTION))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.CONJUNCTIONS_SIMPLE, label.beginPosition(),
 					label.endPosition(), labelWord);
 		}
 
-		if (labelTag.equalsIgnoreCase("rb"))
+		if (tokens.tag(token) == Tag.RB)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ADVERB_POSITIVE, label.beginPosition(),
 					label.endPosition(), labelWord);
 		}
 	}
 
-	private void addArticles(CoreLabel label, String labelWord) {
+	private void addArticles(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
 		switch (labelWord)
 		{
 		case "a":
@@ -2041,15 +2079,17 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 		}
 	}
 
-	private void addReflexiveAndPossessivePronouns(CoreLabel label, String labelWord, String labelTag) {
-		if (labelTag.equalsIgnoreCase("prp") && EnglishGrammaticalConstants.REFLEXIVE_PRONOUNS.contains(labelWord))
+	private void addReflexiveAndPossessivePronouns(int token) {
+		CoreLabel label = tokens.label(token);
+		String labelWord = tokens.word(token);
+		if (tokens.tag(token) == Tag.PRP && tokens.has(token, EnglishTokenView.REFLEXIVE_PRONOUN))
 		{
 			addConstructionOccurrence(GrammaticalConstruction.PRONOUNS_REFLEXIVE, label.beginPosition(),
 					label.endPosition(), labelWord);
 			addConstructionOccurrence(GrammaticalConstruction.PRONOUNS, label.beginPosition(), label.endPosition(),
 					labelWord);
-		} else if (labelTag.equalsIgnoreCase("prp$")
-				&& EnglishGrammaticalConstants.POSSESSIVE_PRONOUNS.contains(labelWord))
+		} else if (tokens.tag(token) == Tag.PRP_POSSESSIVE
+				&& tokens.has(token, EnglishTokenView.POSSESSIVE_PRONOUN))
 		{
 			// it can actually be either possessive or objective (stanford parser crashes on that!), or absolute possessive (his)
 			// TODO check if it is followed by a noun or an adj?
@@ -2074,11 +2114,12 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 			initializeState(docToParse);
 
 			Annotation docAnnotation = new Annotation(workingDoc.getText());
-			pipeline.annotate(docAnnotation);
+			annotate(docAnnotation);
 
 			List<CoreMap> sentences = docAnnotation.get(CoreAnnotations.SentencesAnnotation.class);
 			for (CoreMap itr : sentences)
 			{
+				checkInterrupted();
 
 				if (itr.size() > 0)
 				{
@@ -2093,13 +2134,14 @@ class StanfordDocumentParserEnglishStrategy extends BasicStanfordDocumentParserS
 					depthCount += tree.depth();
 
 					// changed: only count words (no punctuation)
-					for (CoreLabel cl : words)
+					tokens.reset(words);
+					for (int i = 0; i < tokens.size(); i++)
 					{
 						tokenCount++;
-						if (cl.tag().toLowerCase().matches("[a-z]*"))
+						if (tokens.has(i, EnglishTokenView.ALPHABETIC_TAG))
 						{
 							wordCount++;
-							characterCount += cl.word().length();
+							characterCount += tokens.label(i).word().length();
 						}
 					}
 
@@ -18,7 +18,6 @@ import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.TreeCoreAnnotations;
-import edu.stanford.nlp.trees.tregex.TregexMatcher;
 import edu.stanford.nlp.trees.tregex.TregexPattern;
 import edu.stanford.nlp.util.CoreMap;
 
@@ -41,6 +40,38 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 
 	private static final String WORD_PATTERN = "[a-z\\u00e4\\u00f6\\u00fc\\u00df]+";	//identifies if a word is german
 
+	// all construction patterns are evaluated together in a single walk over each sentence's tree
+	private static final MultiPatternTreeMatcher SENTENCE_PATTERNS = new MultiPatternTreeMatcher(
+			GermanGrammaticalTreePatterns.patternVerb,
+			GermanGrammaticalTreePatterns.patternNounOrPronounOrAnswerParticle,
+			GermanGrammaticalTreePatterns.patternClausesPerSentence,
+			GermanGrammaticalTreePatterns.patternDPronounRelativeClauses,
+			GermanGrammaticalTreePatterns.patternWPronounRelativeClauses,
+			GermanGrammaticalTreePatterns.patternAdverbialClauses,
+			GermanGrammaticalTreePatterns.patternDassClauses,
+			GermanGrammaticalTreePatterns.patternClausalSubordination,
+			GermanGrammaticalTreePatterns.patternCoordinatedSubordinateClauses,
+			GermanGrammaticalTreePatterns.patternCoordinatedMainClauses,
+			GermanGrammaticalTreePatterns.patternPerfectHaben,
+			GermanGrammaticalTreePatterns.patternPerfectSein,
+			GermanGrammaticalTreePatterns.patternPlusquamperfectHaben,
+			GermanGrammaticalTreePatterns.patternPlusquamperfectSein,
+			GermanGrammaticalTreePatterns.patternFuture1,
+			GermanGrammaticalTreePatterns.patternFuture2,
+			GermanGrammaticalTreePatterns.patternPassiveWerden,
+			GermanGrammaticalTreePatterns.patternPassiveSein,
+			GermanGrammaticalTreePatterns.patternVerbBracket,
+			GermanGrammaticalTreePatterns.patternParticiple1AttributeA,
+			GermanGrammaticalTreePatterns.patternParticiple1AttributeB,
+			GermanGrammaticalTreePatterns.patternParticiple2Attribute_A,
+			GermanGrammaticalTreePatterns.patternParticiple2Attribute_B,
+			GermanGrammaticalTreePatterns.patternAdjectiveAttributes_A,
+			GermanGrammaticalTreePatterns.patternAdjectiveAttributes_B,
+			GermanGrammaticalTreePatterns.patternPrepositionalAttributes,
+			GermanGrammaticalTreePatterns.patternQuestionMark,
+			GermanGrammaticalTreePatterns.patternObClauses,
+			GermanGrammaticalTreePatterns.patternTagQuestion);
+
 	public StanfordDocumentParserGermanStrategy()
 	{
 		workingDoc = null;
@@ -74,19 +105,13 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 	}
 
 	/**
-	 * Counts the number of matches to a specific TregexPattern within a parse tree
-	 * @param pattern TregexPattern to be matched against the Tree
-	 * @param tree Dependency tree
+	 * Looks up the number of matches to a specific TregexPattern within a parse tree
+	 * @param pattern TregexPattern that was matched against the Tree
+	 * @param matches Per-pattern match counts of the tree, as returned by SENTENCE_PATTERNS
 	 * @return number of matches to the tregex pattern 
 	 */
-	private int countMatches(TregexPattern pattern, Tree tree) {
-		int matches = 0;
-		TregexMatcher matcher = pattern.matcher(tree);
-		while (matcher.findNextMatchingNode())	//while the matcher can find the next match to the pattern, increment the number of matches
-		{
-			matches++;
-		}
-		return matches;
+	private int countMatches(TregexPattern pattern, int[] matches) {
+		return matches[SENTENCE_PATTERNS.indexOf(pattern)];
 	}
 
 	private void addConstructionOccurrence(GrammaticalConstruction type, int start, int end, String expr) {
@@ -100,14 +125,15 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 		}
 
 		String treeStr = tree.toString(); // don't use toLowerCase() here
+		int[] matches = SENTENCE_PATTERNS.countMatchingNodes(tree);
 		int startInd = words.get(0).beginPosition();
 		int endInd = words.get(words.size() - 1).endPosition();
 
 		// get sentential counts ************************************************************************************************
 		// check if it is an incomplete sentence
-		int numVPs = countMatches(GermanGrammaticalTreePatterns.patternVerb, tree);
+		int numVPs = countMatches(GermanGrammaticalTreePatterns.patternVerb, matches);
 		int numNounsPronounsAnswerParticles = countMatches(
-				GermanGrammaticalTreePatterns.patternNounOrPronounOrAnswerParticle, tree);
+				GermanGrammaticalTreePatterns.patternNounOrPronounOrAnswerParticle, matches);
 		if (numVPs < 1)
 		{
 			// an incomplete sentence contains no verb, but some sort of noun, pronoun or answering particle
@@ -119,7 +145,7 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 		else
 		{
 			// calculate number of clauses in a tree
-			int numClausesPerSentence = countMatches(GermanGrammaticalTreePatterns.patternClausesPerSentence, tree);
+			int numClausesPerSentence = countMatches(GermanGrammaticalTreePatterns.patternClausesPerSentence, matches);
 
 			// complex sentences contain more than one clause
 			if (numClausesPerSentence > 1)
@@ -128,9 +154,9 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 
 				// relative clauses
 				int numDPronounRelativeClauses = countMatches(
-						GermanGrammaticalTreePatterns.patternDPronounRelativeClauses, tree);
+						GermanGrammaticalTreePatterns.patternDPronounRelativeClauses, matches);
 				int numWPronounRelativeClauses = countMatches(
-						GermanGrammaticalTreePatterns.patternWPronounRelativeClauses, tree);
+						GermanGrammaticalTreePatterns.patternWPronounRelativeClauses, matches);
 				int numRelativeClauses = numDPronounRelativeClauses + numWPronounRelativeClauses;
 				for (int i = 0; i < numRelativeClauses; i++)
 				{
@@ -141,14 +167,14 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 				// ***************************************************************************************************************
 
 				// adverbial clauses, i.e. clauses with subordinating conjunctions disregarding 'dass' and 'ob'
-				int numAdverbialClauses = countMatches(GermanGrammaticalTreePatterns.patternAdverbialClauses, tree);
+				int numAdverbialClauses = countMatches(GermanGrammaticalTreePatterns.patternAdverbialClauses, matches);
 				for (int i = 0; i < numAdverbialClauses; i++)
 				{
 					addConstructionOccurrence(GrammaticalConstruction.CLAUSE_ADVERBIAL, startInd, endInd, treeStr); // highlight the whole sentence
 				}
 
 				// dass clauses
-				int numDassClauses = countMatches(GermanGrammaticalTreePatterns.patternDassClauses, tree);
+				int numDassClauses = countMatches(GermanGrammaticalTreePatterns.patternDassClauses, matches);
 				for (int i = 0; i < numDassClauses; i++)
 				{
 					addConstructionOccurrence(GrammaticalConstruction.CLAUSE_THAT, startInd, endInd, treeStr); // highlight the whole sentence
@@ -156,7 +182,7 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 
 				// general subordinate clauses, i.e. relative clauses and adverbial clauses + 'dass'/'ob' clauses
 				int numClausalSubordination = numRelativeClauses
-						+ countMatches(GermanGrammaticalTreePatterns.patternClausalSubordination, tree);
+						+ countMatches(GermanGrammaticalTreePatterns.patternClausalSubordination, matches);
 				for (int i = 0; i < numClausalSubordination; i++)
 				{
 					addConstructionOccurrence(GrammaticalConstruction.CLAUSE_SUBORDINATE, startInd, endInd, treeStr); // highlight the whole sentence
@@ -167,9 +193,9 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 
 				// clausal coordination
 				int numCoordinationSubClauses = countMatches(
-						GermanGrammaticalTreePatterns.patternCoordinatedSubordinateClauses, tree);
+						GermanGrammaticalTreePatterns.patternCoordinatedSubordinateClauses, matches);
 				int numCoordinationMainClauses = countMatches(
-						GermanGrammaticalTreePatterns.patternCoordinatedMainClauses, tree);
+						GermanGrammaticalTreePatterns.patternCoordinatedMainClauses, matches);
 				for (int i = 0; i < (numCoordinationSubClauses + numCoordinationMainClauses); i++)
 				{
 					addConstructionOccurrence(GrammaticalConstruction.SENTENCE_COMPOUND, startInd, endInd, treeStr); // highlight the whole sentence
@@ -185,55 +211,55 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 		 * Periphrastic constructions
 		 */
 		// perfect tense
-		int numPerfectHaben = countMatches(GermanGrammaticalTreePatterns.patternPerfectHaben, tree);
+		int numPerfectHaben = countMatches(GermanGrammaticalTreePatterns.patternPerfectHaben, matches);
 		for (int i = 0; i < numPerfectHaben; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_PRESENT_PERFECT_HABEN, startInd, endInd, treeStr);
 		}
-		int numPerfectSein = countMatches(GermanGrammaticalTreePatterns.patternPerfectSein, tree);
+		int numPerfectSein = countMatches(GermanGrammaticalTreePatterns.patternPerfectSein, matches);
 		for (int i = 0; i < numPerfectSein; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_PRESENT_PERFECT_SEIN, startInd, endInd, treeStr);
 		}
 
 		// plusquamperfect
-		int numPlsqmHaben = countMatches(GermanGrammaticalTreePatterns.patternPlusquamperfectHaben, tree);
+		int numPlsqmHaben = countMatches(GermanGrammaticalTreePatterns.patternPlusquamperfectHaben, matches);
 		for (int i = 0; i < numPlsqmHaben; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_PAST_PERFECT_HABEN, startInd, endInd, treeStr);
 		}
-		int numPlsqmSein = countMatches(GermanGrammaticalTreePatterns.patternPlusquamperfectSein, tree);
+		int numPlsqmSein = countMatches(GermanGrammaticalTreePatterns.patternPlusquamperfectSein, matches);
 		for (int i = 0; i < numPlsqmSein; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_PAST_PERFECT_SEIN, startInd, endInd, treeStr);
 		}
 
 		// futur
-		int numFuture1 = countMatches(GermanGrammaticalTreePatterns.patternFuture1, tree);
+		int numFuture1 = countMatches(GermanGrammaticalTreePatterns.patternFuture1, matches);
 		for (int i = 0; i < numFuture1; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_FUTURE_SIMPLE, startInd, endInd, treeStr);
 		}
-		int numFuture2 = countMatches(GermanGrammaticalTreePatterns.patternFuture2, tree);
+		int numFuture2 = countMatches(GermanGrammaticalTreePatterns.patternFuture2, matches);
 		for (int i = 0; i < numFuture2; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.TENSE_FUTURE_PERFECT, startInd, endInd, treeStr);
 		}
 
 		// passive
-		int numPassiveWerden = countMatches(GermanGrammaticalTreePatterns.patternPassiveWerden, tree);
+		int numPassiveWerden = countMatches(GermanGrammaticalTreePatterns.patternPassiveWerden, matches);
 		for (int i = 0; i < numPassiveWerden; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.PASSIVE_VOICE_WERDEN, startInd, endInd, treeStr);
 		}
-		int numPassiveSein = countMatches(GermanGrammaticalTreePatterns.patternPassiveSein, tree);
+		int numPassiveSein = countMatches(GermanGrammaticalTreePatterns.patternPassiveSein, matches);
 		for (int i = 0; i < numPassiveSein; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.PASSIVE_VOICE_SEIN, startInd, endInd, treeStr);
 		}
 
 		// verb brackets
-		int numVerbBrackets = countMatches(GermanGrammaticalTreePatterns.patternVerbBracket, tree);
+		int numVerbBrackets = countMatches(GermanGrammaticalTreePatterns.patternVerbBracket, matches);
 		for (int i = 0; i < numVerbBrackets; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.VERB_BRACKETS, startInd, endInd, treeStr);
@@ -244,29 +270,29 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 		 */
 
 		// participle attributes
-		int numParticiple1Attributes = countMatches(GermanGrammaticalTreePatterns.patternParticiple1AttributeA, tree)
-				+ countMatches(GermanGrammaticalTreePatterns.patternParticiple1AttributeB, tree);
+		int numParticiple1Attributes = countMatches(GermanGrammaticalTreePatterns.patternParticiple1AttributeA, matches)
+				+ countMatches(GermanGrammaticalTreePatterns.patternParticiple1AttributeB, matches);
 		for (int i = 0; i < numParticiple1Attributes; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ATTRIBUTES_PARTICIPLE_1, startInd, endInd, treeStr);
 		}
-		int numParticiple2Attributes = countMatches(GermanGrammaticalTreePatterns.patternParticiple2Attribute_A, tree)
-				+ countMatches(GermanGrammaticalTreePatterns.patternParticiple2Attribute_B, tree);
+		int numParticiple2Attributes = countMatches(GermanGrammaticalTreePatterns.patternParticiple2Attribute_A, matches)
+				+ countMatches(GermanGrammaticalTreePatterns.patternParticiple2Attribute_B, matches);
 		for (int i = 0; i < numParticiple2Attributes; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ATTRIBUTES_PARTICIPLE_2, startInd, endInd, treeStr);
 		}
 
 		// adjective attributes
-		int numAdjectiveAttributes = countMatches(GermanGrammaticalTreePatterns.patternAdjectiveAttributes_A, tree)
-				+ countMatches(GermanGrammaticalTreePatterns.patternAdjectiveAttributes_B, tree);
+		int numAdjectiveAttributes = countMatches(GermanGrammaticalTreePatterns.patternAdjectiveAttributes_A, matches)
+				+ countMatches(GermanGrammaticalTreePatterns.patternAdjectiveAttributes_B, matches);
 		for (int i = 0; i < numAdjectiveAttributes; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ATTRIBUTES_ADJECTIVE, startInd, endInd, treeStr);
 		}
 
 		// preposition attributes
-		int numPrepositionAttributes = countMatches(GermanGrammaticalTreePatterns.patternPrepositionalAttributes, tree);
+		int numPrepositionAttributes = countMatches(GermanGrammaticalTreePatterns.patternPrepositionalAttributes, matches);
 		for (int i = 0; i < numPrepositionAttributes; i++)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.ATTRIBUTES_PREPOSITION, startInd, endInd, treeStr);
@@ -276,13 +302,13 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 		 * Questions ********************************************************************************************************
 		 */
 		// get questions
-		int numQuestions = countMatches(GermanGrammaticalTreePatterns.patternQuestionMark, tree);
+		int numQuestions = countMatches(GermanGrammaticalTreePatterns.patternQuestionMark, matches);
 		if (numQuestions > 0)
 		{
-			inspectQuestion(words, tree);
+			inspectQuestion(words, matches);
 		} else
 		{
-			int numIndirectObQuestions = countMatches(GermanGrammaticalTreePatterns.patternObClauses, tree);
+			int numIndirectObQuestions = countMatches(GermanGrammaticalTreePatterns.patternObClauses, matches);
 			for (int i = 0; i < numIndirectObQuestions; i++)
 			{
 				addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_INDIRECT, startInd, endInd, treeStr);
@@ -612,14 +638,14 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 
 	}
 
-	private void inspectQuestion(List<CoreLabel> labeledWords, Tree tree) {
+	private void inspectQuestion(List<CoreLabel> labeledWords, int[] matches) {
 		int startInd = labeledWords.get(0).beginPosition();
 		int endInd = labeledWords.get(labeledWords.size() - 1).endPosition();
 
 		// direct question
 		addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_DIRECT, startInd, endInd, labeledWords.toString());
 		// tag questions
-		int numTagQuestions = countMatches(GermanGrammaticalTreePatterns.patternTagQuestion, tree);
+		int numTagQuestions = countMatches(GermanGrammaticalTreePatterns.patternTagQuestion, matches);
 		if (numTagQuestions > 0)
 		{
 			addConstructionOccurrence(GrammaticalConstruction.QUESTIONS_TAG, startInd, endInd, labeledWords.toString());
@@ -730,11 +756,12 @@ class StanfordDocumentParserGermanStrategy extends BasicStanfordDocumentParserSt
 			initializeState(docToParse);
 
 			Annotation docAnnotation = new Annotation(workingDoc.getText());
-			pipeline.annotate(docAnnotation);
+			annotate(docAnnotation);
 
 			List<CoreMap> sentences = docAnnotation.get(CoreAnnotations.SentencesAnnotation.class);
 			for (CoreMap itr : sentences)
 			{
+				checkInterrupted();
 				if (itr.size() > 0)
 				{
 					Tree tree = itr.get(TreeCoreAnnotations.TreeAnnotation.class);
@@ -29,7 +29,6 @@ import edu.stanford.nlp.semgraph.semgrex.SemgrexMatcher;
 import edu.stanford.nlp.semgraph.semgrex.SemgrexPattern;
 import edu.stanford.nlp.util.CoreMap;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -37,8 +36,8 @@ import static com.flair.server.grammar.RussianGrammaticalPatterns.*;
 
 class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserStrategy {
     private static final String RUSSIAN_TRANSDUCER_HFSTOL = "/analyser-gt-desc.hfstol";
-    private static HFSTAnalyser analyser;
-    private static RussianConjugationClasses conjugationClasses = new RussianConjugationClasses();
+    private final HFSTAnalyser analyser;
+    private final RussianConjugationClasses conjugationClasses;
     private AbstractDocument workingDoc;
     private int tokenCount;
     private int wordCount;
@@ -50,6 +49,11 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
     private static final String WORD_PATTERN = "[\\p{IsCyrillic}\u0300\u0301]+";
     private static final String PREPOSITION_GRAPH_LABEL = "ADP";
     private static final String VERB_GRAPH_LABEL = "VERB";
+    // hard delimiter in the disambiguation grammar, keeps batched sentences in separate windows
+    private static final String SENTENCE_BOUNDARY = "¶";
+    private static final String SENTENCE_BOUNDARY_COHORT = "<" + SENTENCE_BOUNDARY + ">";
+    // sentences are batched up to this many tokens, so that a single request to the CG tools stays reasonably small
+    private static final int MAX_BATCH_TOKENS = 2000;
 
     //TAGS
     private final String NOUN_TAG = "N";
@@ -95,22 +99,40 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
     //
 
 
-    public StanfordDocumentParserRussianStrategy() {
-        //pipeline = null;
-        //set up the HFST
-        try {
-            InputStream russianTransducerStream = this.getClass().getResourceAsStream(RUSSIAN_TRANSDUCER_HFSTOL);
-            analyser = new HFSTAnalyser(russianTransducerStream);
-        } catch (TransducerStreamException e) {
-            ServerLogger.get().error(e, "Russian Strategy could not initialize the HFSTAnalyser");
+    /**
+     * Transducer and lexicon shared by all instances of the strategy
+     * Loaded once, when the first instance is created. Neither is modified afterwards
+     */
+    private static final class SharedResources {
+        static final HFSTAnalyser ANALYSER = loadAnalyser();
+        static final RussianConjugationClasses CONJUGATION_CLASSES = loadConjugationClasses();
+
+        private static HFSTAnalyser loadAnalyser() {
+            try {
+                return HFSTAnalyser.load(StanfordDocumentParserRussianStrategy.class.getResource(RUSSIAN_TRANSDUCER_HFSTOL));
+            } catch (TransducerStreamException e) {
+                ServerLogger.get().error(e, "Russian Strategy could not initialize the HFSTAnalyser");
+                return null;
+            }
         }
-        try {
-            conjugationClasses.load();
-        } catch (IOException e) {
-            ServerLogger.get().error(e, "Russian Strategy could not load the conjugation classes");
+
+        private static RussianConjugationClasses loadConjugationClasses() {
+            RussianConjugationClasses conjugationClasses = new RussianConjugationClasses();
+            try {
+                conjugationClasses.load();
+            } catch (IOException e) {
+                ServerLogger.get().error(e, "Russian Strategy could not load the conjugation classes");
+            }
+            return conjugationClasses;
         }
     }
 
+    public StanfordDocumentParserRussianStrategy() {
+        //pipeline = null;
+        analyser = SharedResources.ANALYSER;
+        conjugationClasses = SharedResources.CONJUGATION_CLASSES;
+    }
+
     public void setPipeline(StanfordCoreNLP pipeline) {
         assert pipeline != null;
         this.pipeline = pipeline;
@@ -155,10 +177,14 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
             initializeState(docToParse);
 
             Annotation docAnnotation = new Annotation(workingDoc.getText());
-            pipeline.annotate(docAnnotation);
+            annotate(docAnnotation);
 
             List<CoreMap> sentences = docAnnotation.get(CoreAnnotations.SentencesAnnotation.class);
+            List<List<WordWithReadings>> sentenceReadings = analyseDocumentMorphology(sentences);
+            int sentenceIndex = 0;
             for (CoreMap itr : sentences) {
+                checkInterrupted();
+                List<WordWithReadings> readings = sentenceReadings.get(sentenceIndex++);
 				/*if(attempts % 20 == 0){
 					ServerLogger.get().info("Parsing " + docToParse.getDescription() + "...");
 				}*/
@@ -171,7 +197,7 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
 							.typedDependencies();
 							*/
 
-                    inspectSentence(plainSentence, graph, words);
+                    inspectSentence(plainSentence, graph, words, readings);
 
                     sentenceCount++;
                     //dependencyCount += dependencies.size();
@@ -245,26 +271,78 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
         addConstructionOccurrences(GrammaticalConstruction.PREPOSITIONS, prepositionCoreLabels);
     }
 
-    private void inspectSentence(String plainSentence, SemanticGraph graph, List<CoreLabel> words) {
-        if (words == null || words.isEmpty()) {
-            return;
+    private static boolean hasWords(CoreMap sentence) {
+        List<CoreLabel> words = sentence.get(CoreAnnotations.TokensAnnotation.class);
+        return sentence.size() > 0 && words != null && !words.isEmpty();
+    }
+
+    /**
+     * Runs the HFST -> cg-conv -> vislcg3 chain on the sentences of the document in batches of up to MAX_BATCH_TOKENS tokens
+     * Every sentence is followed by a boundary cohort that's used to split the readings afterwards
+     * @return the readings of each sentence. entries are null if the sentence has no words or if its batch failed
+     */
+    private List<List<WordWithReadings>> analyseDocumentMorphology(List<CoreMap> sentences) {
+        List<List<WordWithReadings>> out = new ArrayList<>(Collections.nCopies(sentences.size(), null));
+        List<Integer> batched = new ArrayList<>();
+        int batchTokens = 0;
+        for (int i = 0; i < sentences.size(); i++) {
+            if (!hasWords(sentences.get(i))) {
+                continue;
+            }
+            int sentenceTokens = sentences.get(i).get(CoreAnnotations.TokensAnnotation.class).size() + 1;
+            if (!batched.isEmpty() && batchTokens + sentenceTokens > MAX_BATCH_TOKENS) {
+                analyseBatchMorphology(sentences, batched, out);
+                batched.clear();
+                batchTokens = 0;
+            }
+            batched.add(i);
+            batchTokens += sentenceTokens;
+        }
+        if (!batched.isEmpty()) {
+            analyseBatchMorphology(sentences, batched, out);
+        }
+        return out;
+    }
+
+    // analyses the given sentences in a single request and stores their readings in out
+    private void analyseBatchMorphology(List<CoreMap> sentences, List<Integer> batched, List<List<WordWithReadings>> out) {
+        checkInterrupted();
+        List<String> tokens = new ArrayList<>();
+        int[] sentenceLengths = new int[batched.size()];
+        for (int i = 0; i < batched.size(); i++) {
+            List<CoreLabel> words = sentences.get(batched.get(i)).get(CoreAnnotations.TokensAnnotation.class);
+            tokens.addAll(indexedWordsToStrings(words));
+            tokens.add(SENTENCE_BOUNDARY);
+            sentenceLengths[i] = words.size();
+        }
+        try {
+            String finalReadings = VislCg3.runVislCg3(CgConv.hfstToCg(analyser.runTransducer(tokens)));
+            List<List<WordWithReadings>> readings = null;
+            if (!finalReadings.isEmpty()) {
+                readings = new Cg3Parser(finalReadings).parseSegments(SENTENCE_BOUNDARY_COHORT, sentenceLengths);
+            }
+            if (readings == null) {
+                ServerLogger.get().warn("Couldn't split the batched readings of " + workingDoc.getDescription() + ", analysing the sentences individually");
+                return;
+            }
+            for (int i = 0; i < batched.size(); i++) {
+                out.set(batched.get(i), readings.get(i));
+            }
+        } catch (IOException e) {
+            checkInterrupted();
+            ServerLogger.get().error(e, "Batched morphological analysis failed for " + workingDoc.getDescription());
         }
+    }
+
+    // runs the HFST -> cg-conv -> vislcg3 chain for a single sentence, returns null on failure
+    private List<WordWithReadings> analyseSentenceMorphology(List<CoreLabel> words) {
         String wordsWithLemmas = analyser.runTransducer(indexedWordsToStrings(words));
-        //ServerLogger.get().info("Transducer results received");
-        String cgForm;
         try {
-            cgForm = CgConv.hfstToCg(wordsWithLemmas);
-            //ServerLogger.get().info("Transducer results converted to cg3 format");
-            //System.out.println("cgForm:\n" + cgForm);
+            String cgForm = CgConv.hfstToCg(wordsWithLemmas);
             String finalReadings = VislCg3.runVislCg3(cgForm);
             if(!finalReadings.isEmpty()) {
-                //ServerLogger.get().info("Readings have been reduced by the constraint grammar");
-                //System.out.println("readings:\n" + finalReadings);
                 Cg3Parser parser = new Cg3Parser(finalReadings);
-                List<WordWithReadings> readingsList = parser.parse();
-                //use the reduced readings to count constructions
-                Map<GrammaticalConstruction, List<WordWithReadings>> constructionCounts = countGrammaticalConstructions(readingsList, words, graph);
-                saveGrammaticalConstructionsToDocument(constructionCounts, words);
+                return parser.parse();
             }
             else {
                 ServerLogger.get().info("There was an error using the constraint grammar");
@@ -272,6 +350,21 @@ class StanfordDocumentParserRussianStrategy extends BasicStanfordDocumentParserS
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return null;
+    }
+
+    private void inspectSentence(String plainSentence, SemanticGraph graph, List<CoreLabel> words, List<WordWithReadings> readingsList) {
+        if (words == null || words.isEmpty()) {
+            return;
+        }
+        if (readingsList == null) {
+            readingsList = analyseSentenceMorphology(words);
+        }
+        if (readingsList != null) {
+            //use the reduced readings to count constructions
+            Map<GrammaticalConstruction, List<WordWithReadings>> constructionCounts = countGrammaticalConstructions(readingsList, words, graph);
+            saveGrammaticalConstructionsToDocument(constructionCounts, words);
+        }
 
         //count things based purely on surface forms, not readings
 
@@ -14,6 +14,7 @@ import com.flair.shared.grammar.Language;
 import com.flair.server.grammar.PersianGrammaticalPatterns;
 import com.flair.server.stanza.StanzaToken;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 
 /**
  * Implementation of Persian language parsing logic for the Stanza parser
@@ -364,7 +365,9 @@ class StanzaDocumentParserPersianStrategy extends BasicStanzaDocumentParserStrat
 		try {
 			initializeState(docToParse);
 
+			long annotationStart = System.nanoTime();
 			List<List<StanzaToken>> sentences = pipeline.process(docToParse, "fa");
+			ServerMetrics.get().recordSince(ServerMetrics.Stage.ANNOTATE, annotationStart);
 
 			for (List<StanzaToken> sent : sentences) {
 
@@ -23,7 +23,10 @@ public class StanzaPipeline {
 
   public List<List<StanzaToken>> process(AbstractDocument doc, String stanzaLang) {  // lang is the Stanza language identifier
     String stringURL = "http://stanza-api:80/analyze"; // TODO make this configurable
-		ServerLogger.get().info("StanzaPipeline: (" + stanzaLang + "): " + doc.getText().trim().substring(0,50) + "...");
+    if (ServerLogger.get().isTraceEnabled()) {
+      String text = doc.getText().trim();
+      ServerLogger.get().trace("StanzaPipeline: ({}): {}...", stanzaLang, text.substring(0, Math.min(50, text.length())));
+    }
     try {
       URL url = new URL(stringURL);
       HttpURLConnection con = (HttpURLConnection) url.openConnection();
@@ -44,7 +47,7 @@ public class StanzaPipeline {
         response.append(output);
       }
       in.close();
-      ServerLogger.get().info("StanzaPipeline: (response): " + response);
+      ServerLogger.get().trace("StanzaPipeline: (response): {}", response);
 
       // Parse JSON response into Java object
       Gson gson = new Gson();
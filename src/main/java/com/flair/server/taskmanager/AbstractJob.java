@@ -1,18 +1,25 @@
 /*
  * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
  * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
- 
+
  */
 package com.flair.server.taskmanager;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.flair.server.utilities.ServerLogger;
 
 /**
  * Represents an executable job, which is basically a collection of tasks
- * 
+ * Tasks queue their successors through continuations (search -> crawl -> parse), which forms the job's task graph.
+ * The job completes when the graph has been exhausted. Events are delivered to listeners asynchronously and in order
+ *
  * @author shadeMe
  */
 abstract class AbstractJob<R, E extends AbstractJobEvent<R>>
@@ -20,133 +27,175 @@ abstract class AbstractJob<R, E extends AbstractJobEvent<R>>
 	interface EventHandler<E> {
 		public void	handle(E event);
 	}
-	
-	private final List<AbstractTask<?>>	registeredTasks;	// tasks that are either running or have been queued for execution
-	private final List<EventHandler<E>>	listeners;
-	private boolean						cancelled;
-	private boolean						started;
+
+	private final Set<AbstractTask<?>>			registeredTasks;	// tasks that are either running or have been queued for execution
+	private final List<EventHandler<E>>			listeners;
+	private final JobEventDispatcher.Channel	events;
+	private final CompletableFuture<Void>		completion;			// completes after the listeners have handled the completion event, or on cancellation
+	private volatile boolean					cancelled;
+	private volatile boolean					started;
 
 	public AbstractJob()
 	{
-		registeredTasks = new ArrayList<>();
+		registeredTasks = Collections.newSetFromMap(new IdentityHashMap<>());
 		cancelled = false;
-		listeners = new ArrayList<>();
+		listeners = new CopyOnWriteArrayList<>();
+		events = JobEventDispatcher.createChannel();
+		completion = new CompletableFuture<>();
 		started = false;
 	}
 
-	protected final synchronized boolean isStarted() {
+	protected final boolean isStarted() {
 		return started;
 	}
 
-	protected final synchronized void flagStarted()
+	protected final void flagStarted()
 	{
-		started = true;
-		
+		boolean completed;
+		synchronized (registeredTasks)
+		{
+			started = true;
+			completed = registeredTasks.isEmpty();
+		}
+
 		// if there are no queued tasks, signal completion immediately
-		if (registeredTasks.isEmpty())
-			notifyListeners(createCompletionEvent());
+		if (completed)
+			signalCompletion();
 	}
 
-	protected final synchronized boolean isTaskRegistered(AbstractTask<?> task)
+	protected final boolean isTaskRegistered(AbstractTask<?> task)
 	{
-		for (AbstractTask<?> itr : registeredTasks)
-		{
-			if (itr == task)
-				return true;
+		synchronized (registeredTasks) {
+			return registeredTasks.contains(task);
 		}
-
-		return false;
 	}
 
-	private final synchronized AbstractTask<?> getFirstTask()
+	private void signalCompletion()
 	{
-		if (registeredTasks.isEmpty())
-			return null;
-		else
-			return registeredTasks.get(0);
+		if (isCancelled())
+			return;
+
+		E event;
+		synchronized (this) {
+			// serialized with the handling of task results as the event can access the job's output
+			event = createCompletionEvent();
+		}
+
+		events.post(() -> {
+			try {
+				dispatch(event);
+			} finally {
+				completion.complete(null);
+			}
+		});
 	}
 
-	protected final synchronized void notifyListeners(E event)
+	private void dispatch(E event)
 	{
-		if (listeners.isEmpty())
-			return;
-		
-		// we execute the handlers in the calling thread's context
-		// ### TODO will this deadlock?
 		for (EventHandler<E> itr : listeners)
-			itr.handle(event);
+		{
+			try {
+				itr.handle(event);
+			} catch (Throwable ex) {
+				ServerLogger.get().error(ex, "Job event handler threw an exception: " + ex.toString());
+			}
+		}
 	}
 
-	protected final synchronized boolean isCompleted() {
-		return started == true && (cancelled == true || registeredTasks.isEmpty());
+	protected final void notifyListeners(E event)
+	{
+		// the handlers are executed on the dispatcher's threads, never while holding the job's locks
+		events.post(() -> dispatch(event));
 	}
 
-	protected final void waitForCompletion()
+	protected final boolean isCompleted()
 	{
-		if (isStarted() == false)
-			throw new IllegalStateException("Job has not started yet");
+		if (started == false)
+			return false;
+		else if (cancelled)
+			return true;
 
-		while (isCompleted() == false)
-		{
-			AbstractTask<?> first = getFirstTask();
-			if (first == null)
-				return;
+		synchronized (registeredTasks) {
+			return registeredTasks.isEmpty();
+		}
+	}
 
-			try
-			{
-				first.getFutureTask().get();
-			} catch (Throwable ex)
-			{
-				ServerLogger.get().error(ex, "Job encounted an exception while waiting. Exception: " + ex.toString());
-			}
+	/**
+	 * Returns a future that completes once the job's completion event has been handled, or the job was cancelled
+	 */
+	protected final CompletableFuture<Void> getCompletionFuture() {
+		return completion;
+	}
+
+	/**
+	 * Blocks until the job completes or is cancelled. Jobs that are still waiting to be admitted haven't begun yet, so
+	 * this also waits for them to start
+	 */
+	protected final void waitForCompletion()
+	{
+		try {
+			completion.join();
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Job encounted an exception while waiting. Exception: " + ex.toString());
 		}
 	}
 
-	protected final synchronized void registerTask(AbstractTask<?> task)
+	protected final void registerTask(AbstractTask<?> task)
 	{
-		if (isTaskRegistered(task))
-			throw new IllegalStateException("Task already registered");
+		synchronized (registeredTasks)
+		{
+			if (registeredTasks.contains(task))
+				throw new IllegalStateException("Task already registered");
 
-		if (cancelled == false)
-			registeredTasks.add(task);
+			if (cancelled == false)
+				registeredTasks.add(task);
+		}
 	}
 
-	protected final synchronized void unregisterTask(AbstractTask<?> task)
+	protected final void unregisterTask(AbstractTask<?> task)
 	{
-		if (isTaskRegistered(task))
-			registeredTasks.remove(task);
-		
-		if (registeredTasks.isEmpty() && isCancelled() == false)
-			notifyListeners(createCompletionEvent());
+		boolean completed;
+		synchronized (registeredTasks) {
+			completed = registeredTasks.remove(task) && registeredTasks.isEmpty() && started;
+		}
+
+		if (completed)
+			signalCompletion();
 	}
 
 	protected final synchronized void linkTask(AbstractTaskResult<?> result) {
 		handleTaskCompletion(result);
 	}
-	
-	public final synchronized void cancel()
-	{
-		if (isCompleted())
-			return;
 
-		cancelled = true;
-		List<AbstractTask<?>> nonexec = new ArrayList<>();
-		for (AbstractTask<?> itr : registeredTasks)
+	public final void cancel()
+	{
+		List<AbstractTask<?>> tasks;
+		synchronized (registeredTasks)
 		{
+			if (isCompleted())
+				return;
+
+			cancelled = true;
+			tasks = new ArrayList<>(registeredTasks);
+		}
+
+		// cancelled tasks can complete and unregister themselves right away, so this happens outside of the lock
+		for (AbstractTask<?> itr : tasks)
 			itr.cancel();
-			if (itr.isExecuting() == false)
-				nonexec.add(itr);
+
+		synchronized (registeredTasks) {
+			// just remove those tasks that were never executed
+			registeredTasks.removeIf(itr -> itr.isExecuting() == false);
 		}
 
-		// just remove those tasks that were never executed
-		registeredTasks.removeAll(nonexec);
+		completion.complete(null);
 	}
 
-	public final synchronized boolean isCancelled() {
+	public final boolean isCancelled() {
 		return cancelled;
 	}
 
-	public final synchronized void addListener(EventHandler<E> callback) {
+	public final void addListener(EventHandler<E> callback) {
 		listeners.add(callback);
 	}
 
@@ -154,4 +203,4 @@ abstract class AbstractJob<R, E extends AbstractJobEvent<R>>
 	public abstract void 						begin();
 	protected abstract void						handleTaskCompletion(AbstractTaskResult<?> result);
 	public abstract R 							getOutput();
-}
\ No newline at end of file
+}
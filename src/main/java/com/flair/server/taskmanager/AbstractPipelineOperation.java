@@ -11,6 +11,13 @@ package com.flair.server.taskmanager;
  */	
 public interface AbstractPipelineOperation
 {
+    /**
+     * abstraction of a change in the operation's position in the job queue
+     */
+    public interface QueuePositionChanged {
+        public void handle(int position);
+    }
+
     /** 
      * Returns the type of pipeline operation
      * @return PipelineOperationType, either search crawl parse or custon operation
@@ -18,7 +25,8 @@ public interface AbstractPipelineOperation
     public PipelineOperationType	getType();
     
     /**
-     * Initiates pipeline operation
+     * Initiates pipeline operation. The operation is queued if the server is at capacity
+     * @throws JobRejectedException If the operation can't be queued either
      */
     public void						begin();
     /**
@@ -39,4 +47,9 @@ public interface AbstractPipelineOperation
      * Waits for operation to finish
      */
     public void						waitForCompletion();
+    /**
+     * Sets the handler for changes in the operation's position in the job queue, invoked until the operation starts executing
+     * @param handler Queue position handler
+     */
+    public void						setQueuePositionHandler(QueuePositionChanged handler);
 }
@@ -52,6 +52,8 @@ abstract class AbstractTask<R> implements Callable<R>
 	private final FutureTask<R>						wrapper;
 	private boolean									cancelled;
 	private boolean									executing;
+	private boolean									finished;		// the result has been handed to the job
+	private boolean									abandoned;		// ...before performTask() returned
 	private Result<R>								output;
 
 	public AbstractTask(TaskType type, AbstractJob<?,?> job, Continuation<R> continuation)
@@ -61,7 +63,7 @@ abstract class AbstractTask<R> implements Callable<R>
 		this.continuation = continuation;
 		this.wrapper = new FutureTask<>(this);
 		this.output = null;
-		cancelled = executing = false;
+		cancelled = executing = finished = abandoned = false;
 	}
 	
 	public final TaskType getType() {
@@ -92,9 +94,60 @@ abstract class AbstractTask<R> implements Callable<R>
 		{
 			cancelled = true;
 			wrapper.cancel(false);
+			onCancelled();
 		}
 	}
 
+	/*
+	 * Invoked when the task is cancelled, possibly while it's executing. Tasks can override it to stop their work early
+	 */
+	protected void onCancelled() {}
+
+	private synchronized boolean flagFinished(boolean abandon)
+	{
+		if (finished)
+			return false;
+
+		finished = true;
+		abandoned = abandon;
+		return true;
+	}
+
+	private void complete(R result)
+	{
+		try
+		{
+			output = new Result<>(type, result);
+			if (isCancelled() == false && continuation != null)
+				continuation.run(output);
+		} finally {
+			parentJob.unregisterTask(this);
+		}
+	}
+
+	/*
+	 * Completes the task with the given result while its worker thread is still inside performTask(), e.g., when the
+	 * worker is stuck in a call that ignores interrupts. Whatever the worker returns afterwards is discarded
+	 * Returns false if the task had already completed
+	 */
+	protected final boolean abandon(R result)
+	{
+		if (flagFinished(true) == false)
+			return false;
+
+		try {
+			complete(result);
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Uncaught exception in AbstractTask: " + ex.toString());
+		}
+
+		return true;
+	}
+
+	public final synchronized boolean isAbandoned() {
+		return abandoned;
+	}
+
 	@Override
 	public R call() 
 	{
@@ -108,16 +161,17 @@ abstract class AbstractTask<R> implements Callable<R>
 			setExecuting(true);
 			if (isCancelled() == false)
 			{
-				output = new Result<>(type, performTask());
-				if (isCancelled() == false && continuation != null)
-					continuation.run(output);
+				R result = performTask();
+				if (flagFinished(false))
+					complete(result);
 			}
 		} catch (Throwable ex) 
 		{
 			ServerLogger.get().error(ex, "Uncaught exception in AbstractTask: " + ex.toString());
 		} finally
 		{
-			parentJob.unregisterTask(this);
+			if (flagFinished(false))
+				parentJob.unregisterTask(this);
 			setExecuting(false);
 		}
 
@@ -27,6 +27,14 @@ abstract class AbstractTaskExecutor
 		threadPool = Executors.newFixedThreadPool(numThreads, createPoolThreadFactory(poolName));
 	}
 
+	protected AbstractTaskExecutor(ExecutorService threadPool) {
+		this.threadPool = threadPool;
+	}
+
+	protected ExecutorService getThreadPool() {
+		return threadPool;
+	}
+
 	protected void queue(List<AbstractTask<?>> tasks)
 	{
 		for (AbstractTask<?> itr : tasks)
@@ -10,16 +10,52 @@ abstract class BasicPipelineOperation implements AbstractPipelineOperation
 {
 	protected final AbstractJob<?,?>			job;
 	protected final PipelineOperationType		type;
+	private final JobAdmissionController		admission;		// null if unlimited
+	private JobAdmissionController.Ticket		ticket;
+	private QueuePositionChanged				queueC;
 
-	public BasicPipelineOperation(AbstractJob<?,?> job, PipelineOperationType type)
+	public BasicPipelineOperation(AbstractJob<?,?> job, PipelineOperationType type, JobAdmissionController admission)
 	{
 		this.job = job;
 		this.type = type;
+		this.admission = admission;
+		this.ticket = null;
+		this.queueC = null;
+	}
+
+	/**
+	 * Runs the starter once the job has been admitted
+	 */
+	protected final void admit(Runnable starter)
+	{
+		if (admission == null)
+		{
+			starter.run();
+			return;
+		}
+
+		JobAdmissionController.Ticket t;
+		synchronized (this)
+		{
+			if (ticket != null)
+				throw new IllegalStateException("Operation has already begun");
+
+			t = ticket = new JobAdmissionController.Ticket(starter, queueC);
+		}
+
+		// the slot is freed when the job completes or is cancelled, which can happen during the call to the starter
+		job.getCompletionFuture().thenRun(() -> admission.release(t));
+		admission.submit(t);
 	}
 
 	@Override
 	public void begin() {
-		job.begin();
+		admit(job::begin);
+	}
+
+	@Override
+	public synchronized void setQueuePositionHandler(QueuePositionChanged handler) {
+		queueC = handler;
 	}
 
 	@Override
@@ -29,6 +65,15 @@ abstract class BasicPipelineOperation implements AbstractPipelineOperation
 
 	@Override
 	public void cancel() {
+		JobAdmissionController.Ticket t;
+		synchronized (this) {
+			t = ticket;
+		}
+
+		// withdraw from the queue before cancelling so that the job isn't started in the meantime
+		if (t != null)
+			admission.release(t);
+
 		if (isCompleted() == false)
 		{
 			job.cancel();
@@ -5,6 +5,9 @@
  */
 package com.flair.server.taskmanager;
 
+import com.flair.server.utilities.ServerLogger;
+import com.flair.shared.grammar.Language;
+
 /**
  * Task manager specific constants
  * @author shadeMe
@@ -12,7 +15,91 @@ package com.flair.server.taskmanager;
 public class Constants
 {
     public static final int			PARSER_THREADPOOL_SIZE = Runtime.getRuntime().availableProcessors() + 1;
-    public static final int			PARSER_INSTANCEPOOL_SIZE = PARSER_THREADPOOL_SIZE;
+    public static final int			PARSER_INSTANCEPOOL_SIZE = PARSER_THREADPOOL_SIZE;		// upper bound, pools grow on demand
+    public static final int			PARSER_INSTANCEPOOL_MIN_SIZE = 1;						// instances retained when idle
+    // parse tasks are scheduled round-robin between sessions, interactive sessions get a larger share
+    public static final int			PARSER_QUEUE_WEIGHT_INTERACTIVE = (int)Math.max(1, getEnvLong("FLAIR_PARSER_QUEUE_WEIGHT_INTERACTIVE", 4));
+    public static final int			PARSER_QUEUE_WEIGHT_BULK = (int)Math.max(1, getEnvLong("FLAIR_PARSER_QUEUE_WEIGHT_BULK", 1));
+    
+    // overridable through environment variables
+    public static final long		PARSER_HEAP_BUDGET_MB = getEnvLong("FLAIR_PARSER_HEAP_BUDGET_MB",
+    															Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4);
+    public static final long		PARSER_IDLE_TIMEOUT_SECONDS = getEnvLong("FLAIR_PARSER_IDLE_TIMEOUT_SECONDS", 10 * 60);
+    // parsers of the same language share a single set of models (where supported)
+    public static final boolean		PARSER_SHARED_MODELS = getEnvLong("FLAIR_PARSER_SHARED_MODELS", 1) != 0;
+    public static final long		PARSER_SHARED_INSTANCE_HEAP_MB = 32;					// per-parse working memory of a parser with shared models
+    // long documents are split at sentence boundaries and annotated in parallel, 0 disables sharding
+    public static final int			PARSER_SHARDING_MIN_CHARS = (int)getEnvLong("FLAIR_PARSER_SHARDING_MIN_CHARS", 30000);
+    public static final int			PARSER_SHARDING_CHUNK_CHARS = (int)getEnvLong("FLAIR_PARSER_SHARDING_CHUNK_CHARS", 8000);
+    public static final int			PARSER_SHARDING_THREADPOOL_SIZE = Runtime.getRuntime().availableProcessors();
+    // parse results are cached across sessions, the disk tier is disabled if no directory is set
+    public static final long		PARSE_CACHE_MEMORY_MB = getEnvLong("FLAIR_PARSE_CACHE_MEMORY_MB", 64);
+    public static final String		PARSE_CACHE_DIR = System.getenv("FLAIR_PARSE_CACHE_DIR");
+    public static final long		PARSE_CACHE_DISK_MB = getEnvLong("FLAIR_PARSE_CACHE_DISK_MB", 1024);
+    
+    // pipeline operations beyond the concurrency limit wait in a queue. new operations are rejected when the queue is full
+    // or when too many parse tasks are waiting for a parser thread (0 for no limit)
+    public static final int			MAX_CONCURRENT_JOBS = (int)Math.max(1, getEnvLong("FLAIR_MAX_CONCURRENT_JOBS", 16));
+    public static final int			MAX_QUEUED_JOBS = (int)Math.max(0, getEnvLong("FLAIR_MAX_QUEUED_JOBS", 64));
+    public static final int			MAX_QUEUED_PARSE_TASKS = (int)Math.max(0, getEnvLong("FLAIR_MAX_QUEUED_PARSE_TASKS", 2000));
     
     public static final int			TEXTFETCHER_THREADPOOL_SIZE = 10;
+    // uploaded files are extracted in parallel, each is queued for parsing as soon as its text is ready
+    public static final int			TEXTEXTRACTOR_THREADPOOL_SIZE = (int)Math.max(1, getEnvLong("FLAIR_TEXTEXTRACTOR_THREADS",
+    															Runtime.getRuntime().availableProcessors()));
+    // concurrent page fetches across all sessions, and from a single host
+    public static final int			CRAWL_MAX_FETCHES = (int)getEnvLong("FLAIR_CRAWL_MAX_FETCHES", 64);
+    public static final int			CRAWL_MAX_FETCHES_PER_HOST = (int)getEnvLong("FLAIR_CRAWL_MAX_FETCHES_PER_HOST", 4);
+    // crawled pages are cached on disk if a directory is set
+    public static final String		FETCH_CACHE_DIR = System.getenv("FLAIR_FETCH_CACHE_DIR");
+    public static final long		FETCH_CACHE_DISK_MB = getEnvLong("FLAIR_FETCH_CACHE_DISK_MB", 512);
+    public static final long		FETCH_CACHE_TTL_SECONDS = getEnvLong("FLAIR_FETCH_CACHE_TTL_SECONDS", 60 * 60);		// if the server doesn't specify one
+    public static final long		FETCH_CACHE_MAX_ENTRY_MB = 8;
+
+    static long getEnvLong(String name, long defaultValue)
+    {
+    	String value = System.getenv(name);
+    	if (value == null || value.trim().isEmpty())
+    		return defaultValue;
+
+    	try
+    	{
+    		return Long.parseLong(value.trim());
+    	} catch (NumberFormatException ex)
+    	{
+    		ServerLogger.get().warn("Invalid value '" + value + "' for " + name + ", using default " + defaultValue);
+    		return defaultValue;
+    	}
+    }
+
+    /**
+     * Returns the estimated heap footprint of a single parser instance (or the shared models) for the given language
+     * Can be overridden with FLAIR_PARSER_HEAP_ESTIMATE_MB_<LANGUAGE>
+     */
+    public static long getParserHeapEstimateMB(Language lang)
+    {
+    	long estimate;
+    	switch (lang)
+    	{
+    	case ARABIC:
+    		estimate = 900;		// segmenter + SR parser
+    		break;
+    	case ENGLISH:
+    		estimate = 700;
+    		break;
+    	case GERMAN:
+    		estimate = 800;
+    		break;
+    	case RUSSIAN:
+    		estimate = 500;		// HFST transducer + NN dependency parser
+    		break;
+    	case PERSIAN:
+    		estimate = 16;		// annotation happens in the Stanza service
+    		break;
+    	default:
+    		estimate = 1024;
+    	}
+
+    	return getEnvLong("FLAIR_PARSER_HEAP_ESTIMATE_MB_" + lang.name(), estimate);
+    }
 }
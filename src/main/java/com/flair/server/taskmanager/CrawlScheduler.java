@@ -0,0 +1,152 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.flair.server.utilities.ServerLogger;
+
+/**
+ * Dispatches fetch operations to an (unbounded) executor while enforcing global and per-host concurrency limits
+ * Operations that can't be started right away are queued without occupying a thread, and are started in submission order
+ * as soon as their host and the global limit permit it
+ *
+ * @author shadeMe
+ */
+final class CrawlScheduler
+{
+	private static final class Fetch
+	{
+		final String	host;
+		final Runnable	operation;
+
+		Fetch(String host, Runnable operation)
+		{
+			this.host = host;
+			this.operation = operation;
+		}
+	}
+
+	private final Executor					executor;
+	private final int						maxActive;
+	private final int						maxActivePerHost;
+	private final ArrayDeque<Fetch>			pending;
+	private final Map<String, Integer>		activePerHost;
+	private int								active;
+
+	/**
+	 * @param executor Runs the fetch operations. Must not reject operations or run them on the calling thread
+	 * @param maxActive Maximum number of concurrent fetches
+	 * @param maxActivePerHost Maximum number of concurrent fetches from the same host
+	 */
+	public CrawlScheduler(Executor executor, int maxActive, int maxActivePerHost)
+	{
+		if (maxActive < 1 || maxActivePerHost < 1)
+			throw new IllegalArgumentException("Invalid concurrency limits " + maxActive + "/" + maxActivePerHost);
+
+		this.executor = executor;
+		this.maxActive = maxActive;
+		this.maxActivePerHost = maxActivePerHost;
+		this.pending = new ArrayDeque<>();
+		this.activePerHost = new HashMap<>();
+		this.active = 0;
+	}
+
+	private boolean canStart(String host) {
+		return active < maxActive && activePerHost.getOrDefault(host, 0) < maxActivePerHost;
+	}
+
+	private void start(Fetch fetch)
+	{
+		active++;
+		activePerHost.merge(fetch.host, 1, Integer::sum);
+		try
+		{
+			executor.execute(() -> {
+				try
+				{
+					fetch.operation.run();
+				} catch (Throwable ex)
+				{
+					ServerLogger.get().error(ex, "Fetch operation for host " + fetch.host + " encountered an exception. Exception: " + ex.toString());
+				} finally
+				{
+					finish(fetch);
+				}
+			});
+		} catch (RejectedExecutionException ex)
+		{
+			// the executor has been shutdown
+			release(fetch);
+			ServerLogger.get().warn("Fetch operation for host " + fetch.host + " was rejected by the executor");
+		}
+	}
+
+	private void release(Fetch fetch)
+	{
+		active--;
+		if (activePerHost.merge(fetch.host, -1, Integer::sum) == 0)
+			activePerHost.remove(fetch.host);
+	}
+
+	private synchronized void finish(Fetch fetch)
+	{
+		release(fetch);
+
+		// start the oldest queued fetches that are no longer blocked
+		Iterator<Fetch> itr = pending.iterator();
+		while (active < maxActive && itr.hasNext())
+		{
+			Fetch next = itr.next();
+			if (canStart(next.host))
+			{
+				itr.remove();
+				start(next);
+			}
+		}
+	}
+
+	/**
+	 * Queues a fetch operation
+	 * @param host Host that the operation connects to
+	 * @param operation Fetch operation
+	 */
+	public synchronized void submit(String host, Runnable operation)
+	{
+		// queued fetches can only be blocked by their own hosts if the global limit hasn't been reached yet
+		Fetch fetch = new Fetch(host, operation);
+		if (canStart(host))
+			start(fetch);
+		else
+			pending.addLast(fetch);
+	}
+
+	public synchronized int getActiveCount() {
+		return active;
+	}
+
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	public int getMaxActivePerHost() {
+		return maxActivePerHost;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CrawlScheduler[active=" + active + "/" + maxActive + ", pending=" + pending.size() + ", hosts=" + activePerHost.size() + "]";
+	}
+}
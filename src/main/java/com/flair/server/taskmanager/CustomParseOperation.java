@@ -2,6 +2,7 @@ package com.flair.server.taskmanager;
 
 import com.flair.server.parser.AbstractDocument;
 import com.flair.server.parser.AbstractDocumentSource;
+import com.flair.server.parser.DeferredDocumentSource;
 import com.flair.server.parser.DocumentCollection;
 
 public interface CustomParseOperation extends AbstractPipelineOperation
@@ -9,6 +10,16 @@ public interface CustomParseOperation extends AbstractPipelineOperation
 	public interface JobBegin {
 		public void handle(Iterable<AbstractDocumentSource> sources);
 	}
+
+	// raised when the text of a deferred source has been extracted, before it's parsed
+	public interface SourceReady {
+		public void handle(AbstractDocumentSource source);
+	}
+
+	// raised when the text of a deferred source couldn't be extracted, the source won't be parsed
+	public interface SourceFailed {
+		public void handle(DeferredDocumentSource source);
+	}
 	
 	public interface ParseComplete {
 		public void handle(AbstractDocument result);
@@ -19,6 +30,8 @@ public interface CustomParseOperation extends AbstractPipelineOperation
 	}
 
 	public void			setJobBeginHandler(JobBegin handler);
+	public void			setSourceReadyHandler(SourceReady handler);
+	public void			setSourceFailedHandler(SourceFailed handler);
 	public void			setParseCompleteHandler(ParseComplete handler);
 	public void			setJobCompleteHandler(JobComplete handler);
 }
@@ -28,15 +41,19 @@ class CustomParseOperationImpl extends BasicPipelineOperation implements CustomP
 {
 	private ParseJobInput		input;
 	private JobBegin			jobB;
+	private SourceReady			sourceR;
+	private SourceFailed		sourceF;
 	private ParseComplete		parseC;
 	private JobComplete			jobC;
 	
-	public CustomParseOperationImpl(ParseJobInput input) 
+	public CustomParseOperationImpl(ParseJobInput input, JobAdmissionController admission) 
 	{
-		super(new ParseJob(input), PipelineOperationType.CUSTOM_PARSE);
+		super(new ParseJob(input), PipelineOperationType.CUSTOM_PARSE, admission);
 
 		this.input = input;
 		jobB = null;
+		sourceR = null;
+		sourceF = null;
 		parseC = null;
 		jobC = null;
 	}
@@ -58,15 +75,27 @@ class CustomParseOperationImpl extends BasicPipelineOperation implements CustomP
 				if (parseC != null)
 					parseC.handle(e.parsedDoc);
 				
+				break;
+			case SOURCE_READY:
+				if (sourceR != null)
+					sourceR.handle(e.readySource);
+
+				break;
+			case SOURCE_FAILED:
+				if (sourceF != null)
+					sourceF.handle(e.failedSource);
+
 				break;
 			}
 		});;
 		
-		// trigger the job begin event
-		if (jobB != null)
-			jobB.handle(input.sourceDocs);
-			
-		super.begin();
+		admit(() -> {
+			// trigger the job begin event
+			if (jobB != null)
+				jobB.handle(input.sourceDocs);
+
+			job.begin();
+		});
 	}
 
 	@Override
@@ -83,4 +112,14 @@ class CustomParseOperationImpl extends BasicPipelineOperation implements CustomP
 	public void setJobBeginHandler(JobBegin handler) {
 		jobB = handler;
 	}
+
+	@Override
+	public void setSourceReadyHandler(SourceReady handler) {
+		sourceR = handler;
+	}
+
+	@Override
+	public void setSourceFailedHandler(SourceFailed handler) {
+		sourceF = handler;
+	}
 }
\ No newline at end of file
@@ -5,12 +5,13 @@
  */
 package com.flair.server.taskmanager;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import com.flair.server.parser.AbstractDocument;
 import com.flair.server.parser.AbstractDocumentKeywordSearcher;
@@ -19,7 +20,9 @@ import com.flair.server.parser.AbstractDocumentSource;
 import com.flair.server.parser.AbstractParsingStrategy;
 import com.flair.server.parser.KeywordSearcherInput;
 import com.flair.server.parser.KeywordSearcherOutput;
+import com.flair.server.parser.ParsedDocumentCache;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.server.utilities.SimpleObjectPoolResource;
 
 /**
@@ -31,24 +34,115 @@ class DocumentParseTask extends AbstractTask<DocumentParseTaskResult>
 {
 	static final class Executor extends AbstractTaskExecutor
 	{
-		private final ExecutorService auxThreadPool; // to allow timeouts
+		private final TaskWatchdog watchdog; // to allow timeouts
+		private final ParsedDocumentCache cache; // null if disabled
+		private final FairTaskScheduler scheduler; // shares the parser threads between sessions
+		private final long timeoutMs;
+		private final long stopGraceMs; // after which a parser that ignores interrupts is quarantined
+		private final Set<DocumentParseTask> detached; // tasks whose stuck workers were replaced by extra threads
 
-		private Executor()
+		private Executor() {
+			this(Constants.PARSER_THREADPOOL_SIZE, TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS), TimeUnit.SECONDS.toMillis(STOP_GRACE_SECONDS));
+		}
+
+		Executor(int numThreads, long timeoutMs, long stopGraceMs)
+		{
+			super("DocParse", numThreads);
+			this.timeoutMs = timeoutMs;
+			this.stopGraceMs = stopGraceMs;
+			this.detached = Collections.newSetFromMap(new IdentityHashMap<>());
+			watchdog = new TaskWatchdog("DocParse");
+			scheduler = new FairTaskScheduler(getThreadPool(), numThreads);
+
+			if (Constants.PARSE_CACHE_MEMORY_MB > 0 || Constants.PARSE_CACHE_DIR != null)
+			{
+				cache = new ParsedDocumentCache(Constants.PARSE_CACHE_MEMORY_MB * 1024 * 1024,
+												Constants.PARSE_CACHE_DIR != null ? Paths.get(Constants.PARSE_CACHE_DIR) : null,
+												Constants.PARSE_CACHE_DISK_MB * 1024 * 1024);
+			}
+			else
+				cache = null;
+		}
+
+		/**
+		 * Queues a parse task
+		 * @param task Task to queue
+		 * @param session Session that the task belongs to
+		 * @param weight Share of the parser threads that the session receives while other sessions are waiting
+		 */
+		public void parse(DocumentParseTask task, String session, int weight)
 		{
-			super("DocParse", Constants.PARSER_THREADPOOL_SIZE);
-			auxThreadPool = Executors.newFixedThreadPool(Constants.PARSER_THREADPOOL_SIZE, createPoolThreadFactory("DocParseAux"));
+			task.setExecutor(this);
+			scheduler.submit(session, weight, task.getFutureTask());
 		}
 
-		public void parse(DocumentParseTask task)
+		private void resizeThreadPool(int delta)
 		{
-			task.setParseExecutor(auxThreadPool);
-			queue(task);
+			ThreadPoolExecutor pool = (ThreadPoolExecutor)getThreadPool();
+			int size = pool.getCorePoolSize() + delta;
+			if (delta > 0)
+			{
+				pool.setMaximumPoolSize(size);
+				pool.setCorePoolSize(size);
+			}
+			else
+			{
+				pool.setCorePoolSize(size);
+				pool.setMaximumPoolSize(size);
+			}
+		}
+
+		/**
+		 * Frees the scheduler slot of a task whose worker is stuck and adds a thread to the pool until the worker returns
+		 */
+		synchronized void detach(DocumentParseTask task)
+		{
+			if (task.workerReturned == false && scheduler.detach(task.getFutureTask()))
+			{
+				detached.add(task);
+				resizeThreadPool(1);
+				ServerLogger.get().warn("Added a parser thread to make up for a stuck one. " + scheduler);
+			}
+		}
+
+		/**
+		 * Removes the extra thread of a detached task once its worker has returned
+		 */
+		synchronized void reattach(DocumentParseTask task)
+		{
+			task.workerReturned = true;
+			if (detached.remove(task))
+				resizeThreadPool(-1);
+		}
+
+		public int getThreadCount() {
+			return ((ThreadPoolExecutor)getThreadPool()).getCorePoolSize();
+		}
+
+		public int getQueuedTaskCount(String session) {
+			return scheduler.getPendingCount(session);
+		}
+
+		public Map<String, Integer> getQueuedTaskCounts() {
+			return scheduler.getPendingCounts();
+		}
+
+		public int getQueuedTaskCount() {
+			return scheduler.getPendingCount();
+		}
+
+		public int getActiveTaskCount() {
+			return scheduler.getActiveCount();
+		}
+
+		public ParsedDocumentCache getCache() {
+			return cache;
 		}
 		
 		@Override
 		public void shutdown(boolean force) {
 			super.shutdown(force);
-			shutdown(auxThreadPool, force);
+			watchdog.shutdown();
 		}
 	}
 	
@@ -57,6 +151,7 @@ class DocumentParseTask extends AbstractTask<DocumentParseTaskResult>
 	}
 	
 	private static final int 						TIMEOUT_SECONDS = 5 * 60;
+	private static final int 						STOP_GRACE_SECONDS = 30;		// after which a parser that ignores interrupts is quarantined
 	
 	
 	private final AbstractDocumentSource			input;
@@ -64,28 +159,9 @@ class DocumentParseTask extends AbstractTask<DocumentParseTaskResult>
 	private final DocumentParserPool				parserPool;
 	private final AbstractDocumentKeywordSearcher	keywordSearcher;
 	private final KeywordSearcherInput				keywordSearcherInput;
-	private ExecutorService							parseExecutor;
-
-	final class ParseRunnable implements Callable<AbstractDocument>		//checks to see if the document we attempted to parse was parsed
-	{
-		private final AbstractDocumentParser			parser;
-		
-		public ParseRunnable(AbstractDocumentParser parser) {
-			this.parser = parser;
-		}
-
-		@Override
-		public AbstractDocument call()
-		{
-			AbstractDocument output = parser.parse(input, strategy);		//calls abstract document parser, document gets parsed by the stanford document parser
-			if (output.isParsed() == false)
-				throw new IllegalStateException("Parser didn't set the document's parsed flag");
-
-			KeywordSearcherOutput keywordData = keywordSearcher.search(output, keywordSearcherInput);
-			output.setKeywordData(keywordData);
-			return output;
-		}
-	}
+	private volatile Executor						executor;
+	private boolean									workerReturned;		// guarded by the executor
+	private volatile TaskWatchdog.Timer				activeTimer;		// null when no parse is in progress
 
 	public DocumentParseTask(AbstractJob<?, ?> job,
 							AbstractDocumentSource source,
@@ -101,48 +177,188 @@ class DocumentParseTask extends AbstractTask<DocumentParseTaskResult>
 		this.parserPool = parserPool;
 		this.keywordSearcher = keywordSearcher;
 		this.keywordSearcherInput = keywordSearcherInput;
-		this.parseExecutor = null;
+		this.executor = null;
+		this.workerReturned = false;
+		this.activeTimer = null;
+	}
+
+	protected void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	private AbstractDocument parse(AbstractDocumentParser parser)		//checks to see if the document we attempted to parse was parsed
+	{
+		ServerMetrics metrics = ServerMetrics.get();
+		long annotationTime = metrics.getThreadTotalNanos(ServerMetrics.Stage.ANNOTATE);
+		long startTime = System.nanoTime();
+
+		AbstractDocument output = parser.parse(input, strategy);		//calls abstract document parser, document gets parsed by the stanford document parser
+		if (output.isParsed() == false)
+			throw new IllegalStateException("Parser didn't set the document's parsed flag");
+
+		// the strategy records the time spent in the NLP pipeline, the rest is spent detecting constructions
+		long parseTime = System.nanoTime() - startTime;
+		annotationTime = metrics.getThreadTotalNanos(ServerMetrics.Stage.ANNOTATE) - annotationTime;
+		metrics.record(ServerMetrics.Stage.PARSE, parseTime);
+		metrics.record(ServerMetrics.Stage.CONSTRUCTION_DETECTION, parseTime - annotationTime);
+		return output;
 	}
 
-	protected void setParseExecutor(ExecutorService executor) {
-		this.parseExecutor = executor;
+	private void searchKeywords(AbstractDocument output)
+	{
+		// keywords are session-specific, so they aren't cached with the parse results
+		long startTime = System.nanoTime();
+		KeywordSearcherOutput keywordData = keywordSearcher.search(output, keywordSearcherInput);
+		output.setKeywordData(keywordData);
+		ServerMetrics.get().recordSince(ServerMetrics.Stage.KEYWORD_SEARCH, startTime);
+	}
+
+	@Override
+	protected void onCancelled()
+	{
+		// interrupt the parse, the parser's strategy checks for interrupts between sentences
+		TaskWatchdog.Timer timer = activeTimer;
+		if (timer != null)
+			timer.trip();
+		else if (executor != null)
+			executor.scheduler.notifyCancelled();		// the task might still be queued
+	}
+
+	private void quarantineIfStuck(SimpleObjectPoolResource<AbstractDocumentParser> parser)
+	{
+		// the parser has been interrupted, give it some time to stop before replacing it
+		executor.watchdog.schedule(() -> {
+			if (parserPool.quarantine(parser))
+			{
+				ServerLogger.get().error("Parser didn't stop within " + executor.stopGraceMs + " ms of being interrupted while parsing " + input.getDescription());
+				// the worker thread stays with the parser, so release its slot and end the task if that hasn't happened yet
+				abandon(new DocumentParseTaskResult(null));
+				executor.detach(this);
+			}
+		}, executor.stopGraceMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void stopParse(SimpleObjectPoolResource<AbstractDocumentParser> parser)
+	{
+		// called on the watchdog thread. the job moves on without waiting for the parser to respond to the interrupt
+		if (abandon(new DocumentParseTaskResult(null)))
+		{
+			if (isCancelled())
+				ServerLogger.get().info("Document parsing task was cancelled for " + input.getDescription());
+			else
+			{
+				ServerLogger.get().error("Document parsing task timed-out for " + input.getDescription());
+				ServerMetrics.get().recordError(ServerMetrics.Stage.PARSE);
+			}
+		}
+
+		quarantineIfStuck(parser);
+	}
+
+	private void cacheParse(AbstractDocument output)
+	{
+		ParsedDocumentCache cache = executor.cache;
+		if (cache == null)
+			return;
+
+		// the disk tier can be slow, so this happens after the parser is returned and outside of the watchdog's timer
+		try
+		{
+			cache.put(output, strategy);
+		} catch (Throwable ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't cache parse results for " + input.getDescription() + ". Exception: " + ex.toString());
+		}
+	}
+
+	private AbstractDocument getCachedParse()
+	{
+		ParsedDocumentCache cache = executor.cache;
+		if (cache == null)
+			return null;
+
+		try
+		{
+			return cache.get(input, strategy);
+		} catch (Throwable ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't retrieve cached parse results for " + input.getDescription() + ". Exception: " + ex.toString());
+			return null;
+		}
 	}
 
 	@Override
 	protected DocumentParseTaskResult performTask()		//here is where the document parsing task occurs, seems like here we are queing documents to be parsed
 	{
-		if (parseExecutor == null)
-			throw new IllegalStateException("Auxiliary threadpool not set");
+		if (executor == null)
+			throw new IllegalStateException("Executor not set");
 		else if (parserPool == null)
 			throw new IllegalStateException("Parser pool not set");
 		else if (keywordSearcher == null)
 			throw new IllegalStateException("Keyword searcher not set");
 
 		AbstractDocument output = null;
-		long startTime = 0;
+		long startTime = System.currentTimeMillis();
 		boolean error = false;
 
+		AbstractDocument cached = getCachedParse();
+		if (cached != null)
+		{
+			searchKeywords(cached);
+			ServerLogger.get().trace("Document " + cached.getDescription() + " retrieved from the parse cache in " + (System.currentTimeMillis() - startTime) + " ms");
+			return new DocumentParseTaskResult(cached);
+		}
+
+		long waitStartTime = System.nanoTime();
 		try (SimpleObjectPoolResource<AbstractDocumentParser> parserPoolData = parserPool.get())
 		{
-			FutureTask<AbstractDocument> wrapper = new FutureTask<>(new ParseRunnable(parserPoolData.get()));		//parserunnable parses all the documents, the futureTask keeps track of all our documents as they are being parsed
+			ServerMetrics.get().recordSince(ServerMetrics.Stage.PARSER_WAIT, waitStartTime);
+
+			// the parse runs in the worker thread itself, the watchdog interrupts it if it runs over or if the task is cancelled
+			// and completes the task in its stead
 			startTime = System.currentTimeMillis();
-			parseExecutor.submit(wrapper).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-			output = wrapper.get();
-		} catch (TimeoutException ex)
-		{
-			ServerLogger.get().error("Document parsing task timed-out for " + input.getDescription());
-			output = null;
-			error = true;
+			TaskWatchdog.Timer timer = executor.watchdog.arm(executor.timeoutMs, TimeUnit.MILLISECONDS, () -> stopParse(parserPoolData));
+			activeTimer = timer;
+			if (isCancelled())
+				timer.trip();
+
+			try
+			{
+				output = parse(parserPoolData.get());
+				searchKeywords(output);
+			} catch (Throwable ex)
+			{
+				if (timer.hasExpired() == false)
+					throw ex;
+			} finally
+			{
+				activeTimer = null;
+				if (timer.disarm())
+				{
+					output = null;
+					error = true;
+				}
+			}
 		} catch (Throwable ex)
 		{
 			ServerLogger.get().error(ex, "Document parsing task encountered an error. Exception: " + ex.toString());
 			output = null;
 			error = true;
 		}
+
+		executor.reattach(this);
+		if (isAbandoned())
+			return new DocumentParseTaskResult(null);		// the watchdog has already completed the task
+
+		if (error && isCancelled() == false)
+			ServerMetrics.get().recordError(ServerMetrics.Stage.PARSE);
 		
 		long endTime = System.currentTimeMillis();
 		if (false == error)
+		{
 			ServerLogger.get().trace("Document " + output.getDescription() + " parsed in " + (endTime - startTime) + " ms");
+			cacheParse(output);
+		}
 
 		DocumentParseTaskResult result = new DocumentParseTaskResult(output);
 		return result;
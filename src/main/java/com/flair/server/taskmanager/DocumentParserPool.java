@@ -5,34 +5,218 @@
  */
 package com.flair.server.taskmanager;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.flair.server.parser.AbstractDocumentParser;
 import com.flair.server.parser.AbstractDocumentParserFactory;
+import com.flair.server.utilities.LatencyHistogram;
+import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 import com.flair.server.utilities.SimpleObjectPool;
 import com.flair.server.utilities.SimpleObjectPoolResource;
+import com.flair.shared.grammar.Language;
 
 /**
  * Provides a pool of document parsers for executing parsing tasks
+ * Parsers are instantiated on demand as long as the heap budget allows it and are evicted once they've been idle for long enough
+ * If the parsers share their models, the models are accounted for once and each parser only claims its working memory
+ * Parsers that are stuck in a parse that can't be stopped are quarantined and replaced in the background
  * 
  * @author shadeMe
  */
 class DocumentParserPool
 {
 	private final AbstractDocumentParserFactory				parserFactory;
+	private final Language									language;
+	private final ParserHeapBudget							heapBudget;
+	private final long										modelHeapEstimateMB;		// shared by all instances
+	private final long										instanceHeapEstimateMB;
+	private boolean											modelsReserved;
 	private final SimpleObjectPool<AbstractDocumentParser>	resourcePool;
+	private final Executor									maintenance;				// creates replacements for quarantined parsers
+	private final AtomicLong								numQuarantined;
+
+	public DocumentParserPool(AbstractDocumentParserFactory factory, Language language, ParserHeapBudget heapBudget, Executor maintenance)
+	{
+		this.parserFactory = factory;
+		this.maintenance = maintenance;
+		this.numQuarantined = new AtomicLong(0);
+		this.language = language;
+		this.heapBudget = heapBudget;
+		if (factory.sharesModels())
+		{
+			this.modelHeapEstimateMB = Constants.getParserHeapEstimateMB(language);
+			this.instanceHeapEstimateMB = Constants.PARSER_SHARED_INSTANCE_HEAP_MB;
+		}
+		else
+		{
+			this.modelHeapEstimateMB = 0;
+			this.instanceHeapEstimateMB = Constants.getParserHeapEstimateMB(language);
+		}
+		this.modelsReserved = false;
+
+		int maxSize = Math.min(Constants.PARSER_INSTANCEPOOL_SIZE,
+							heapBudget.getCeiling(modelHeapEstimateMB, instanceHeapEstimateMB));
+		resourcePool = new SimpleObjectPool<>(maxSize, this::createParser);
+
+		ServerLogger.get().info("Parser pool for " + language + " can hold up to " + maxSize + " instances (~"
+				+ modelHeapEstimateMB + " MB shared, ~" + instanceHeapEstimateMB + " MB each, " + heapBudget + ")");
+
+		registerMetrics();
+	}
+
+	private void registerMetrics()
+	{
+		ServerMetrics metrics = ServerMetrics.get();
+		String lang = language.toString();
+
+		metrics.registerGauge("flair_parser_pool_size", "Number of parser instances", this::getSize, "language", lang);
+		metrics.registerGauge("flair_parser_pool_max_size", "Maximum number of parser instances", this::getMaxSize, "language", lang);
+		metrics.registerGauge("flair_parser_pool_in_use", "Number of parser instances in use", this::getInUseCount, "language", lang);
+		metrics.registerGauge("flair_parser_pool_waiting", "Number of threads waiting for a parser instance", this::getWaitingCount, "language", lang);
+		metrics.registerCounter("flair_parser_pool_evictions_total", "Number of idle parser instances evicted", this::getEvictionCount, "language", lang);
+		metrics.registerCounter("flair_parser_pool_quarantines_total", "Number of parser instances quarantined", this::getQuarantineCount, "language", lang);
+	}
+
+	private synchronized void reserveModels()
+	{
+		// the models stay loaded for as long as the factory lives, so they are never released
+		if (modelsReserved == false)
+		{
+			heapBudget.forceReserve(modelHeapEstimateMB);
+			modelsReserved = true;
+		}
+	}
 
-	public DocumentParserPool(AbstractDocumentParserFactory factory)
+	private AbstractDocumentParser createParser()
 	{
-		parserFactory = factory;
-		assert Constants.PARSER_INSTANCEPOOL_SIZE >= Constants.PARSER_THREADPOOL_SIZE;
+		reserveModels();
+		if (heapBudget.tryReserve(instanceHeapEstimateMB) == false)
+		{
+			// wait for an existing instance unless there are none
+			if (resourcePool.getSize() > 0)
+				return null;
 
-		AbstractDocumentParser[] parsers = new AbstractDocumentParser[Constants.PARSER_INSTANCEPOOL_SIZE];
-		for (int i = 0; i < Constants.PARSER_INSTANCEPOOL_SIZE; i++)
-			parsers[i] = parserFactory.create();
+			ServerLogger.get().warn("Parser heap budget exceeded by " + language + " parser pool. " + heapBudget);
+			heapBudget.forceReserve(instanceHeapEstimateMB);
+		}
 
-		resourcePool = new SimpleObjectPool<>(Constants.PARSER_INSTANCEPOOL_SIZE, parsers);
+		try
+		{
+			AbstractDocumentParser parser = parserFactory.create();
+			ServerLogger.get().info("Parser pool for " + language + " grew to " + (resourcePool.getSize() + 1) + " instances");
+			return parser;
+		} catch (Throwable ex)
+		{
+			heapBudget.release(instanceHeapEstimateMB);
+			throw ex;
+		}
 	}
 
 	public SimpleObjectPoolResource<AbstractDocumentParser> get() throws InterruptedException {
 		return resourcePool.get();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Removes a parser that's still busy with a parse that can't be stopped, and creates a replacement in the background
+	 * The parser's heap reservation is handed to the replacement, so the budget can be overdrawn until the stuck parse returns
+	 * @param parser Parser acquired from this pool. Closing it afterwards is a no-op
+	 * @return False if the parser had already been returned to the pool
+	 */
+	public boolean quarantine(SimpleObjectPoolResource<AbstractDocumentParser> parser)
+	{
+		if (parser.discard() == false)
+			return false;
+
+		heapBudget.release(instanceHeapEstimateMB);
+		numQuarantined.incrementAndGet();
+		ServerLogger.get().warn("Quarantined a stuck parser in the " + language + " pool. " + this);
+
+		try
+		{
+			maintenance.execute(this::replaceQuarantined);
+		} catch (RejectedExecutionException ex) {
+			ServerLogger.get().warn("Couldn't schedule the replacement of a quarantined " + language + " parser");
+		}
+
+		return true;
+	}
+
+	private void replaceQuarantined()
+	{
+		try
+		{
+			if (resourcePool.grow())
+				ServerLogger.get().info("Replaced a quarantined parser in the " + language + " pool. " + this);
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Couldn't replace a quarantined " + language + " parser. Exception: " + ex.toString());
+		}
+	}
+
+	/**
+	 * Releases parsers that have been idle for longer than the idle timeout
+	 * @return Number of evicted parsers
+	 */
+	public int evictIdle()
+	{
+		int evicted = resourcePool.evictIdle(Constants.PARSER_IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+											Constants.PARSER_INSTANCEPOOL_MIN_SIZE,
+											e -> heapBudget.release(instanceHeapEstimateMB));
+		if (evicted > 0)
+			ServerLogger.get().info("Evicted " + evicted + " idle parser(s) from the " + language + " pool. " + this);
+
+		return evicted;
+	}
+
+	public Language getLanguage() {
+		return language;
+	}
+
+	public int getSize() {
+		return resourcePool.getSize();
+	}
+
+	public int getMaxSize() {
+		return resourcePool.getPoolSize();
+	}
+
+	public long getEvictionCount() {
+		return resourcePool.getEvictionCount();
+	}
+
+	public long getQuarantineCount() {
+		return numQuarantined.get();
+	}
+
+	public long getInstanceHeapEstimateMB() {
+		return instanceHeapEstimateMB;
+	}
+
+	public long getModelHeapEstimateMB() {
+		return modelHeapEstimateMB;
+	}
+
+	public synchronized long getHeapEstimateMB() {
+		return (modelsReserved ? modelHeapEstimateMB : 0) + getSize() * instanceHeapEstimateMB;
+	}
+
+	public int getInUseCount() {
+		return resourcePool.getInUseCount();
+	}
+
+	public int getWaitingCount() {
+		return resourcePool.getWaitingCount();
+	}
+
+	public LatencyHistogram getAcquireLatency() {
+		return resourcePool.getAcquireLatency();
+	}
+
+	@Override
+	public String toString() {
+		return language + " " + resourcePool.toString() + " ~" + getHeapEstimateMB() + " MB";
+	}
+}
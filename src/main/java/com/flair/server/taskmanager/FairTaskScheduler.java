@@ -0,0 +1,255 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.flair.server.utilities.ServerLogger;
+
+/**
+ * Dispatches operations to an executor in weighted round-robin order across sessions
+ * Each session has its own FIFO queue; in every round, a session can start as many operations as its weight permits
+ * before the next session gets its turn. This keeps a session with a large backlog from starving the others
+ * Operations that are cancelled futures are dropped from the queues and aren't counted as pending
+ *
+ * @author shadeMe
+ */
+final class FairTaskScheduler
+{
+	private static final class SessionQueue
+	{
+		final String				session;
+		final ArrayDeque<Runnable>	operations;
+		int							weight;
+		int							credits;		// operations that can be started in the current round
+
+		SessionQueue(String session, int weight)
+		{
+			this.session = session;
+			this.operations = new ArrayDeque<>();
+			this.weight = weight;
+			this.credits = weight;
+		}
+	}
+
+	private final Executor						executor;
+	private final int							maxActive;
+	private final Map<String, SessionQueue>		queues;			// sessions with pending operations
+	private final ArrayDeque<SessionQueue>		rotation;		// the head's turn is next
+	private final Set<Runnable>					running;		// operations that occupy a slot
+	private int									active;
+	private int									pending;
+	private boolean								purgeNeeded;	// some queued operations might have been cancelled
+
+	/**
+	 * @param executor Runs the operations. Must not reject operations or run them on the calling thread
+	 * @param maxActive Maximum number of concurrent operations, usually the executor's thread count
+	 */
+	public FairTaskScheduler(Executor executor, int maxActive)
+	{
+		if (maxActive < 1)
+			throw new IllegalArgumentException("Invalid concurrency limit " + maxActive);
+
+		this.executor = executor;
+		this.maxActive = maxActive;
+		this.queues = new HashMap<>();
+		this.rotation = new ArrayDeque<>();
+		this.running = Collections.newSetFromMap(new IdentityHashMap<>());
+		this.active = 0;
+		this.pending = 0;
+		this.purgeNeeded = false;
+	}
+
+	private static boolean isCancelled(Runnable operation) {
+		return operation instanceof Future && ((Future<?>)operation).isCancelled();
+	}
+
+	private void purgeCancelled()
+	{
+		if (purgeNeeded == false)
+			return;
+
+		purgeNeeded = false;
+		for (Iterator<SessionQueue> itr = rotation.iterator(); itr.hasNext();)
+		{
+			SessionQueue queue = itr.next();
+			int size = queue.operations.size();
+			queue.operations.removeIf(FairTaskScheduler::isCancelled);
+			pending -= size - queue.operations.size();
+
+			if (queue.operations.isEmpty())
+			{
+				itr.remove();
+				queues.remove(queue.session);
+			}
+		}
+	}
+
+	/**
+	 * Notifies the scheduler that some of its queued operations have been cancelled, so that they're dropped
+	 * before the pending operations are counted next
+	 */
+	public synchronized void notifyCancelled() {
+		purgeNeeded = true;
+	}
+
+	private Runnable next()
+	{
+		SessionQueue queue = rotation.peekFirst();
+		Runnable operation = queue.operations.pollFirst();
+		pending--;
+
+		if (queue.operations.isEmpty())
+		{
+			rotation.pollFirst();
+			queues.remove(queue.session);
+		}
+		else if (--queue.credits == 0)
+		{
+			// end of the session's turn
+			queue.credits = queue.weight;
+			rotation.addLast(rotation.pollFirst());
+		}
+
+		return operation;
+	}
+
+	private void dispatch()
+	{
+		while (active < maxActive && rotation.isEmpty() == false)
+		{
+			Runnable operation = next();
+			running.add(operation);
+			active++;
+			try
+			{
+				executor.execute(() -> {
+					try
+					{
+						operation.run();
+					} catch (Throwable ex)
+					{
+						ServerLogger.get().error(ex, "Scheduled operation encountered an exception. Exception: " + ex.toString());
+					} finally
+					{
+						finish(operation);
+					}
+				});
+			} catch (RejectedExecutionException ex)
+			{
+				// the executor has been shutdown
+				running.remove(operation);
+				active--;
+				ServerLogger.get().warn("Scheduled operation was rejected by the executor");
+			}
+		}
+	}
+
+	private synchronized void finish(Runnable operation)
+	{
+		if (running.remove(operation))
+			active--;
+		dispatch();
+	}
+
+	/**
+	 * Frees the slot of a running operation, e.g., if it's stuck and the executor has been given an extra thread to make up for it
+	 * @return False if the operation isn't running or has already been detached
+	 */
+	public synchronized boolean detach(Runnable operation)
+	{
+		if (running.remove(operation) == false)
+			return false;
+
+		active--;
+		dispatch();
+		return true;
+	}
+
+	/**
+	 * Queues an operation
+	 * @param session Session that the operation belongs to
+	 * @param weight Number of operations the session can start per round, at least 1
+	 * @param operation Operation to run
+	 */
+	public synchronized void submit(String session, int weight, Runnable operation)
+	{
+		if (weight < 1)
+			throw new IllegalArgumentException("Invalid weight " + weight);
+		else if (isCancelled(operation))
+			return;
+
+		SessionQueue queue = queues.get(session);
+		if (queue == null)
+		{
+			queue = new SessionQueue(session, weight);
+			queues.put(session, queue);
+			rotation.addLast(queue);
+		}
+		else if (weight > queue.weight)
+		{
+			queue.credits += weight - queue.weight;
+			queue.weight = weight;
+		}
+
+		queue.operations.addLast(operation);
+		pending++;
+		dispatch();
+	}
+
+	/**
+	 * Returns the number of operations of the given session that haven't been started yet
+	 */
+	public synchronized int getPendingCount(String session)
+	{
+		purgeCancelled();
+		SessionQueue queue = queues.get(session);
+		return queue != null ? queue.operations.size() : 0;
+	}
+
+	/**
+	 * Returns the number of pending operations of each session that has any
+	 */
+	public synchronized Map<String, Integer> getPendingCounts()
+	{
+		purgeCancelled();
+		Map<String, Integer> out = new HashMap<>();
+		for (SessionQueue itr : queues.values())
+			out.put(itr.session, itr.operations.size());
+
+		return out;
+	}
+
+	public synchronized int getPendingCount()
+	{
+		purgeCancelled();
+		return pending;
+	}
+
+	public synchronized int getActiveCount() {
+		return active;
+	}
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		purgeCancelled();
+		return "FairTaskScheduler[active=" + active + "/" + maxActive + ", pending=" + pending + ", sessions=" + queues.size() + "]";
+	}
+}
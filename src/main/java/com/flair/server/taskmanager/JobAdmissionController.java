@@ -0,0 +1,242 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import com.flair.server.utilities.ServerLogger;
+
+/**
+ * Limits the number of concurrently executing jobs
+ * Jobs beyond the limit wait in a FIFO queue. New jobs are rejected outright when the queue is full
+ * or when the parser backlog exceeds its limit
+ *
+ * @author shadeMe
+ */
+final class JobAdmissionController
+{
+	/**
+	 * Admission state of a single job
+	 */
+	static final class Ticket
+	{
+		final Runnable									start;
+		final AbstractPipelineOperation.QueuePositionChanged	positionHandler;		// can be null
+		boolean											admitted;
+		boolean											released;
+
+		Ticket(Runnable start, AbstractPipelineOperation.QueuePositionChanged positionHandler)
+		{
+			this.start = start;
+			this.positionHandler = positionHandler;
+			this.admitted = false;
+			this.released = false;
+		}
+	}
+
+	private static final class PositionUpdate
+	{
+		final Ticket	ticket;
+		final int		position;
+
+		PositionUpdate(Ticket ticket, int position)
+		{
+			this.ticket = ticket;
+			this.position = position;
+		}
+	}
+
+	private final int					maxActive;
+	private final int					maxWaiting;
+	private final int					maxQueuedParseTasks;	// 0 if unlimited
+	private final IntSupplier			queuedParseTasks;
+	private final LinkedList<Ticket>	waiting;
+	private int							active;
+
+	/**
+	 * @param maxActive Maximum number of concurrently executing jobs
+	 * @param maxWaiting Maximum number of jobs waiting for admission
+	 * @param maxQueuedParseTasks New jobs are rejected when there are at least as many parse tasks waiting for a parser thread, 0 if unlimited
+	 * @param queuedParseTasks Returns the current number of waiting parse tasks
+	 */
+	public JobAdmissionController(int maxActive, int maxWaiting, int maxQueuedParseTasks, IntSupplier queuedParseTasks)
+	{
+		if (maxActive < 1)
+			throw new IllegalArgumentException("Invalid concurrency limit " + maxActive);
+		else if (maxWaiting < 0 || maxQueuedParseTasks < 0)
+			throw new IllegalArgumentException("Invalid queue limit");
+
+		this.maxActive = maxActive;
+		this.maxWaiting = maxWaiting;
+		this.maxQueuedParseTasks = maxQueuedParseTasks;
+		this.queuedParseTasks = queuedParseTasks;
+		this.waiting = new LinkedList<>();
+		this.active = 0;
+	}
+
+	private void start(List<Ticket> admitted)
+	{
+		for (Ticket itr : admitted)
+		{
+			try
+			{
+				itr.start.run();
+			} catch (Throwable ex)
+			{
+				ServerLogger.get().error(ex, "Admitted job couldn't be started. Exception: " + ex.toString());
+				release(itr);
+			}
+		}
+	}
+
+	private static void notify(List<PositionUpdate> updates)
+	{
+		// handlers are invoked outside the lock as they call back into the session state
+		for (PositionUpdate itr : updates)
+		{
+			if (itr.ticket.positionHandler == null)
+				continue;
+
+			try
+			{
+				itr.ticket.positionHandler.handle(itr.position);
+			} catch (Throwable ex) {
+				ServerLogger.get().error(ex, "Queue position handler encountered an exception. Exception: " + ex.toString());
+			}
+		}
+	}
+
+	// admits waiting jobs while there are free slots, and collects the new positions of the rest
+	private void promote(List<Ticket> admitted, List<PositionUpdate> updates)
+	{
+		while (active < maxActive && waiting.isEmpty() == false)
+		{
+			Ticket next = waiting.pollFirst();
+			next.admitted = true;
+			active++;
+			admitted.add(next);
+		}
+
+		int position = 1;
+		for (Ticket itr : waiting)
+			updates.add(new PositionUpdate(itr, position++));
+	}
+
+	/**
+	 * Starts the job right away if there's a free slot, queues it otherwise
+	 * @throws JobRejectedException If the job can't be queued
+	 */
+	public void submit(Ticket ticket)
+	{
+		int position = 0;
+		synchronized (this)
+		{
+			if (ticket.admitted || ticket.released || waiting.contains(ticket))
+				throw new IllegalStateException("Ticket already submitted or released");
+
+			int backlog = queuedParseTasks.getAsInt();
+			if (maxQueuedParseTasks > 0 && backlog >= maxQueuedParseTasks)
+				throw new JobRejectedException("Parser backlog is full (" + backlog + " tasks)");
+			else if (active < maxActive && waiting.isEmpty())
+			{
+				ticket.admitted = true;
+				active++;
+			}
+			else if (waiting.size() >= maxWaiting)
+				throw new JobRejectedException("Job queue is full (" + waiting.size() + " jobs)");
+			else
+			{
+				waiting.addLast(ticket);
+				position = waiting.size();
+			}
+		}
+
+		if (position == 0)
+		{
+			try
+			{
+				ticket.start.run();
+			} catch (Throwable ex)
+			{
+				release(ticket);
+				throw ex;
+			}
+		}
+		else
+		{
+			ServerLogger.get().info("Job queued at position " + position + " | " + this);
+			List<PositionUpdate> updates = new ArrayList<>();
+			updates.add(new PositionUpdate(ticket, position));
+			notify(updates);
+		}
+	}
+
+	/**
+	 * Frees the job's slot or removes it from the queue. Must be called once the job has completed or was cancelled
+	 */
+	public void release(Ticket ticket)
+	{
+		List<Ticket> admitted = new ArrayList<>();
+		List<PositionUpdate> updates = new ArrayList<>();
+		synchronized (this)
+		{
+			if (ticket.released)
+				return;
+
+			ticket.released = true;
+			if (ticket.admitted)
+				active--;
+			else if (waiting.remove(ticket) == false)
+				return;		// never submitted
+
+			promote(admitted, updates);
+		}
+
+		start(admitted);
+		notify(updates);
+	}
+
+	/**
+	 * Returns the ticket's position in the queue, 0 if it's not waiting
+	 */
+	public synchronized int getPosition(Ticket ticket)
+	{
+		int position = 1;
+		for (Ticket itr : waiting)
+		{
+			if (itr == ticket)
+				return position;
+
+			position++;
+		}
+
+		return 0;
+	}
+
+	public synchronized int getActiveCount() {
+		return active;
+	}
+
+	public synchronized int getWaitingCount() {
+		return waiting.size();
+	}
+
+	public int getMaxActive() {
+		return maxActive;
+	}
+
+	public int getMaxWaiting() {
+		return maxWaiting;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "JobAdmissionController[active=" + active + "/" + maxActive + ", waiting=" + waiting.size() + "/" + maxWaiting + "]";
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.flair.server.utilities.ServerLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Delivers job events to their listeners outside of the task threads
+ * Each job gets its own channel, whose events are handled one at a time and in the order they were posted.
+ * Channels share a pool of threads that grows on demand, so a slow listener only holds up the events of its own job
+ *
+ * @author shadeMe
+ */
+final class JobEventDispatcher
+{
+	private static final ExecutorService DISPATCH_POOL = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+																.setNameFormat("FLAIR-JobEvents-%d")
+																.setDaemon(true)
+																.build());
+
+	/**
+	 * Serial queue of events for a single job
+	 */
+	static final class Channel
+	{
+		private final Queue<Runnable>	pending;
+		private final AtomicBoolean		draining;
+
+		private Channel()
+		{
+			this.pending = new ConcurrentLinkedQueue<>();
+			this.draining = new AtomicBoolean(false);
+		}
+
+		public void post(Runnable event)
+		{
+			pending.add(event);
+			schedule();
+		}
+
+		private void schedule()
+		{
+			if (draining.compareAndSet(false, true))
+				DISPATCH_POOL.execute(this::drain);
+		}
+
+		private void drain()
+		{
+			Runnable event;
+			while ((event = pending.poll()) != null)
+			{
+				try {
+					event.run();
+				} catch (Throwable ex) {
+					ServerLogger.get().error(ex, "Job event listener threw an exception: " + ex.toString());
+				}
+			}
+
+			draining.set(false);
+			// an event might have been posted after the last poll but before the flag was cleared
+			if (pending.isEmpty() == false)
+				schedule();
+		}
+	}
+
+	private JobEventDispatcher() {}
+
+	public static Channel createChannel() {
+		return new Channel();
+	}
+}
@@ -0,0 +1,20 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+/**
+ * Thrown when a pipeline operation can't be started or queued because the server is at capacity
+ *
+ * @author shadeMe
+ */
+public class JobRejectedException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+
+	public JobRejectedException(String message) {
+		super(message);
+	}
+}
@@ -5,17 +5,32 @@
  */
 package com.flair.server.taskmanager;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.flair.server.parser.AbstractDocumentKeywordSearcherFactory;
 import com.flair.server.parser.AbstractDocumentSource;
 import com.flair.server.parser.AbstractParsingStrategyFactory;
+import com.flair.server.parser.DeferredDocumentSource;
+import com.flair.server.parser.DocumentShardingOptions;
 import com.flair.server.parser.KeywordSearcherInput;
 import com.flair.server.parser.KeywordSearcherType;
 import com.flair.server.parser.MasterParsingFactoryGenerator;
+import com.flair.server.parser.ParsedDocumentCache;
 import com.flair.server.parser.ParserType;
+import com.flair.server.utilities.AbstractTextExtractor;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
+import com.flair.server.utilities.URLResponseCache;
 import com.flair.shared.grammar.Language;
+import com.flair.shared.interop.ServerAuthenticationToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Job scheduler for the web crawling/local parser frameworks
@@ -53,6 +68,8 @@ public final class MasterJobPipeline
 	private final WebSearchTask.Executor		webSearchExecutor;
 	private final WebCrawlTask.Executor			webCrawlExecutor;
 	private final DocumentParseTask.Executor	docParseExecutor;
+	private final TextExtractionTask.Executor	textExtractionExecutor;
+	private final JobAdmissionController		jobAdmission;
 
 	private final AbstractParsingStrategyFactory	stanfordArabicStrategy;
 	private final AbstractParsingStrategyFactory	stanfordEnglishStrategy;
@@ -61,7 +78,7 @@ public final class MasterJobPipeline
 	private final AbstractParsingStrategyFactory	stanfordRussianStrategy;
 
 
-	private final AbstractDocumentKeywordSearcherFactory naiveSubstringSearcher;
+	private final AbstractDocumentKeywordSearcherFactory keywordSearcher;
 
 	private DocumentParserPool	stanfordParserArabicPool;
 	private DocumentParserPool	stanfordParserEnglishPool;
@@ -69,6 +86,10 @@ public final class MasterJobPipeline
 	private DocumentParserPool	stanzaParserPersianPool;
 	private DocumentParserPool	stanfordParserRussianPool;
 
+	private final ParserHeapBudget			parserHeapBudget;
+	private final ScheduledExecutorService	parserPoolEvictor;		// also replaces quarantined parsers
+	private final ExecutorService			docShardExecutor;
+	private final DocumentShardingOptions	docSharding;		// null if disabled
 
 	private MasterJobPipeline()
 	{
@@ -76,6 +97,11 @@ public final class MasterJobPipeline
 		this.webSearchExecutor = WebSearchTask.getExecutor();
 		this.webCrawlExecutor = WebCrawlTask.getExecutor();
 		this.docParseExecutor = DocumentParseTask.getExecutor();
+		this.textExtractionExecutor = TextExtractionTask.getExecutor();
+		this.jobAdmission = new JobAdmissionController(Constants.MAX_CONCURRENT_JOBS,
+														Constants.MAX_QUEUED_JOBS,
+														Constants.MAX_QUEUED_PARSE_TASKS,
+														docParseExecutor::getQueuedTaskCount);
 
 		this.stanfordArabicStrategy = MasterParsingFactoryGenerator.createParsingStrategy(ParserType.STANFORD_CORENLP,
 				Language.ARABIC);
@@ -88,8 +114,8 @@ public final class MasterJobPipeline
 		this.stanfordRussianStrategy = MasterParsingFactoryGenerator.createParsingStrategy(ParserType.STANFORD_CORENLP,
 				Language.RUSSIAN);
 
-		this.naiveSubstringSearcher = MasterParsingFactoryGenerator
-				.createKeywordSearcher(KeywordSearcherType.NAIVE_SUBSTRING);
+		this.keywordSearcher = MasterParsingFactoryGenerator
+				.createKeywordSearcher(KeywordSearcherType.AHO_CORASICK);
 
 		// lazy initilization
 		this.stanfordParserArabicPool = null;
@@ -97,13 +123,77 @@ public final class MasterJobPipeline
 		this.stanfordParserEnglishPool = null;
 		this.stanzaParserPersianPool = null;
 		this.stanfordParserRussianPool = null;
+
+		this.parserHeapBudget = new ParserHeapBudget(Constants.PARSER_HEAP_BUDGET_MB);
+		this.parserPoolEvictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+																.setNameFormat("FLAIR-ParserPoolEvictor")
+																.setDaemon(true)
+																.build());
+		long evictionInterval = Math.max(1, Constants.PARSER_IDLE_TIMEOUT_SECONDS / 4);
+		this.parserPoolEvictor.scheduleWithFixedDelay(this::evictIdleParsers, evictionInterval, evictionInterval, TimeUnit.SECONDS);
+
+		if (Constants.PARSER_SHARDING_MIN_CHARS > 0)
+		{
+			this.docShardExecutor = Executors.newFixedThreadPool(Constants.PARSER_SHARDING_THREADPOOL_SIZE, new ThreadFactoryBuilder()
+																.setNameFormat("FLAIR-DocParseShard-%d")
+																.setDaemon(true)
+																.build());
+			this.docSharding = new DocumentShardingOptions(docShardExecutor,
+															Constants.PARSER_SHARDING_MIN_CHARS,
+															Constants.PARSER_SHARDING_CHUNK_CHARS,
+															Constants.PARSER_SHARDING_THREADPOOL_SIZE * 2);
+		}
+		else
+		{
+			this.docShardExecutor = null;
+			this.docSharding = null;
+		}
+
+		registerMetrics();
+	}
+
+	private void registerMetrics()
+	{
+		ServerMetrics metrics = ServerMetrics.get();
+
+		metrics.registerGauge("flair_jobs_active", "Number of executing jobs", jobAdmission::getActiveCount);
+		metrics.registerGauge("flair_jobs_queued", "Number of jobs waiting for admission", jobAdmission::getWaitingCount);
+		metrics.registerGauge("flair_parse_tasks_active", "Number of executing parse tasks", docParseExecutor::getActiveTaskCount);
+		metrics.registerGauge("flair_parse_tasks_queued", "Number of parse tasks waiting for a parser thread", docParseExecutor::getQueuedTaskCount);
+		metrics.registerGauge("flair_crawl_tasks_active", "Number of executing fetches", webCrawlExecutor::getActiveCount);
+		metrics.registerGauge("flair_crawl_tasks_queued", "Number of fetches waiting for a slot", webCrawlExecutor::getPendingCount);
+		metrics.registerGauge("flair_parser_heap_reserved_mb", "Estimated heap reserved by parsers", parserHeapBudget::getReservedMB);
+		metrics.registerGauge("flair_parser_heap_budget_mb", "Heap budget of the parsers", parserHeapBudget::getTotalMB);
+
+		ParsedDocumentCache parseCache = docParseExecutor.getCache();
+		if (parseCache != null)
+		{
+			metrics.registerCounter("flair_parse_cache_hits_total", "Number of parse cache hits", parseCache::getMemoryHitCount, "tier", "memory");
+			metrics.registerCounter("flair_parse_cache_hits_total", "Number of parse cache hits", parseCache::getDiskHitCount, "tier", "disk");
+			metrics.registerCounter("flair_parse_cache_misses_total", "Number of parse cache misses", parseCache::getMissCount);
+			metrics.registerGauge("flair_parse_cache_bytes", "Size of the parse cache", parseCache::getMemoryBytes, "tier", "memory");
+			metrics.registerGauge("flair_parse_cache_bytes", "Size of the parse cache", parseCache::getDiskBytes, "tier", "disk");
+		}
+
+		URLResponseCache fetchCache = AbstractTextExtractor.getURLResponseCache();
+		if (fetchCache != null)
+		{
+			metrics.registerCounter("flair_fetch_cache_hits_total", "Number of fetch cache hits", fetchCache::getHitCount);
+			metrics.registerCounter("flair_fetch_cache_revalidations_total", "Number of fetch cache entries revalidated", fetchCache::getRevalidationCount);
+			metrics.registerCounter("flair_fetch_cache_misses_total", "Number of fetch cache misses", fetchCache::getMissCount);
+			metrics.registerGauge("flair_fetch_cache_bytes", "Size of the fetch cache", fetchCache::getDiskBytes);
+		}
 	}
 
 	private void shutdown()
 	{
+		parserPoolEvictor.shutdownNow();
 		webSearchExecutor.shutdown(false);
 		webCrawlExecutor.shutdown(false);
 		docParseExecutor.shutdown(false);
+		textExtractionExecutor.shutdown(false);
+		if (docShardExecutor != null)
+			docShardExecutor.shutdown();
 	}
 
 	/**
@@ -131,12 +221,46 @@ public final class MasterJobPipeline
 		}
 	}
 
+	/**
+	 * Returns the parser pools that have been initialized so far
+	 */
+	synchronized List<DocumentParserPool> getParserPools()
+	{
+		List<DocumentParserPool> out = new ArrayList<>();
+		for (DocumentParserPool itr : new DocumentParserPool[] { stanfordParserArabicPool,
+																stanfordParserEnglishPool,
+																stanfordParserGermanPool,
+																stanzaParserPersianPool,
+																stanfordParserRussianPool })
+		{
+			if (itr != null)
+				out.add(itr);
+		}
+
+		return out;
+	}
+
+	ParserHeapBudget getParserHeapBudget() {
+		return parserHeapBudget;
+	}
+
+	private void evictIdleParsers()
+	{
+		try
+		{
+			for (DocumentParserPool itr : getParserPools())
+				itr.evictIdle();
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Couldn't evict idle parsers. Exception: " + ex.toString());
+		}
+	}
+
 	/**
 	 * Checks language parameter and then creates a parser for the specific language being used
 	 * @param lang
 	 * @return Parser for specific language
 	 */
-	private DocumentParserPool getParserPoolForLanguage(Language lang)
+	private synchronized DocumentParserPool getParserPoolForLanguage(Language lang)
 	{
 		ServerLogger.get().info("getParserPoolForLanguage() " + lang);
 		switch (lang)
@@ -145,35 +269,40 @@ public final class MasterJobPipeline
 			if (stanfordParserArabicPool == null)
 			{
 				stanfordParserArabicPool = new DocumentParserPool(
-						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.ARABIC));
+						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.ARABIC, Constants.PARSER_SHARED_MODELS, docSharding),
+						Language.ARABIC, parserHeapBudget, parserPoolEvictor);
 			}
 			return stanfordParserArabicPool;
 		case ENGLISH:
 			if (stanfordParserEnglishPool == null)
 			{
 				stanfordParserEnglishPool = new DocumentParserPool(
-						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.ENGLISH));
+						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.ENGLISH, Constants.PARSER_SHARED_MODELS, docSharding),
+						Language.ENGLISH, parserHeapBudget, parserPoolEvictor);
 			}
 			return stanfordParserEnglishPool;
 		case GERMAN:
 			if (stanfordParserGermanPool == null)
 			{
 				stanfordParserGermanPool = new DocumentParserPool(
-						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.GERMAN));
+						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.GERMAN, Constants.PARSER_SHARED_MODELS, docSharding),
+						Language.GERMAN, parserHeapBudget, parserPoolEvictor);
 			}
 			return stanfordParserGermanPool;
 		case PERSIAN:
 			if (stanzaParserPersianPool == null)
 			{
 				stanzaParserPersianPool = new DocumentParserPool(
-						MasterParsingFactoryGenerator.createParser(ParserType.STANZA, Language.PERSIAN));
+						MasterParsingFactoryGenerator.createParser(ParserType.STANZA, Language.PERSIAN, Constants.PARSER_SHARED_MODELS, docSharding),
+						Language.PERSIAN, parserHeapBudget, parserPoolEvictor);
 			}
 			return stanzaParserPersianPool;
 		case RUSSIAN:
 			if (stanfordParserRussianPool == null)
 			{
 				stanfordParserRussianPool = new DocumentParserPool(
-						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.RUSSIAN));
+						MasterParsingFactoryGenerator.createParser(ParserType.STANFORD_CORENLP, Language.RUSSIAN, Constants.PARSER_SHARED_MODELS, docSharding),
+						Language.RUSSIAN, parserHeapBudget, parserPoolEvictor);
 			}
 			return stanfordParserRussianPool;
 		default:
@@ -181,16 +310,59 @@ public final class MasterJobPipeline
 		}
 	}
 
+	private static String getSessionId(ServerAuthenticationToken owner) {
+		return owner != null ? owner.getUuid() : "";
+	}
+
+	/**
+	 * Returns the number of parse tasks of the given session that are waiting for a parser thread
+	 */
+	public int getQueuedParseTaskCount(ServerAuthenticationToken owner) {
+		return docParseExecutor.getQueuedTaskCount(getSessionId(owner));
+	}
+
+	/**
+	 * Returns the number of waiting parse tasks of each session that has any
+	 */
+	public Map<String, Integer> getQueuedParseTaskCounts() {
+		return docParseExecutor.getQueuedTaskCounts();
+	}
+
+	/**
+	 * Returns the number of operations that are executing and waiting for admission respectively
+	 */
+	public int getActiveJobCount() {
+		return jobAdmission.getActiveCount();
+	}
+
+	public int getQueuedJobCount() {
+		return jobAdmission.getWaitingCount();
+	}
+
 	public SearchCrawlParseOperation doSearchCrawlParse(Language lang,
 													String query,
 													boolean useRestrictedDomains,
 													int numResults,
 													KeywordSearcherInput keywords)
+	{
+		return doSearchCrawlParse(null, lang, query, useRestrictedDomains, numResults, keywords);
+	}
+
+	/**
+	 * @param owner Session that the operation belongs to, null if anonymous
+	 */
+	public SearchCrawlParseOperation doSearchCrawlParse(ServerAuthenticationToken owner,
+													Language lang,
+													String query,
+													boolean useRestrictedDomains,
+													int numResults,
+													KeywordSearcherInput keywords)
 	{
 		ServerLogger.get().info("Start of doSearchCrawlParse()");
 		SearchCrawlParseOperationImpl newOp = null;
 		try{
-			SearchCrawlParseJobInput jobParams = new SearchCrawlParseJobInput(lang,
+			SearchCrawlParseJobInput jobParams = new SearchCrawlParseJobInput(getSessionId(owner),
+			lang,
 			query,
 			useRestrictedDomains,
 			numResults,
@@ -199,9 +371,9 @@ public final class MasterJobPipeline
 			docParseExecutor,
 			getParserPoolForLanguage(lang),
 			getStrategyForLanguage(lang),
-			naiveSubstringSearcher,
+			keywordSearcher,
 			keywords);
-			newOp = new SearchCrawlParseOperationImpl(jobParams);
+			newOp = new SearchCrawlParseOperationImpl(jobParams, jobAdmission);
 		} catch(Exception ex) {
 			ServerLogger.get().info("Failed in doSearchCrawlParse on exception " + ex.getMessage());
 			return newOp;
@@ -215,14 +387,41 @@ public final class MasterJobPipeline
 														List<AbstractDocumentSource> docsSources,
 														KeywordSearcherInput keywords)
 	{
-		ParseJobInput jobParams = new ParseJobInput(lang,
+		return doDocumentParsing(null, lang, docsSources, keywords);
+	}
+
+	/**
+	 * @param owner Session that the operation belongs to, null if anonymous
+	 */
+	public CustomParseOperation doDocumentParsing(ServerAuthenticationToken owner,
+														Language lang,
+														List<AbstractDocumentSource> docsSources,
+														KeywordSearcherInput keywords)
+	{
+		return doDocumentParsing(owner, lang, docsSources, Collections.emptyList(), keywords);
+	}
+
+	/**
+	 * @param owner Session that the operation belongs to, null if anonymous
+	 * @param deferredSources Sources whose text is yet to be extracted. Each is parsed as soon as its text is available
+	 */
+	public CustomParseOperation doDocumentParsing(ServerAuthenticationToken owner,
+														Language lang,
+														List<AbstractDocumentSource> docsSources,
+														List<DeferredDocumentSource> deferredSources,
+														KeywordSearcherInput keywords)
+	{
+		ParseJobInput jobParams = new ParseJobInput(getSessionId(owner),
+										lang,
 										docsSources,
+										deferredSources,
 										docParseExecutor,
+										textExtractionExecutor,
 										getParserPoolForLanguage(lang),
 										getStrategyForLanguage(lang),
-										naiveSubstringSearcher,
+										keywordSearcher,
 										keywords);
-		CustomParseOperationImpl newOp = new CustomParseOperationImpl(jobParams);
+		CustomParseOperationImpl newOp = new CustomParseOperationImpl(jobParams, jobAdmission);
 		return newOp;
 	}
 }
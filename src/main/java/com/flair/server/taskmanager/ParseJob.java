@@ -6,12 +6,14 @@ import com.flair.server.parser.AbstractDocument;
 import com.flair.server.parser.AbstractDocumentKeywordSearcherFactory;
 import com.flair.server.parser.AbstractDocumentSource;
 import com.flair.server.parser.AbstractParsingStrategyFactory;
+import com.flair.server.parser.DeferredDocumentSource;
 import com.flair.server.parser.DocumentCollection;
 import com.flair.server.parser.KeywordSearcherInput;
 import com.flair.shared.grammar.Language;
 
 /*
  * Parses a set of documents
+ * Deferred sources are extracted in parallel and each is parsed as soon as its text is available
  */
 public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 {
@@ -24,6 +26,26 @@ public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 		this.output = new ParseJobOutput(input.sourceLanguage);
 	}
 	
+	private void queueDocParseTask(AbstractDocumentSource source)
+	{
+		DocumentParseTask newTask = new DocumentParseTask(this,
+														source,
+														input.docParsingStrategy.create(),
+														input.docParserPool,
+														input.keywordSearcher.create(),
+														input.keywordSearcherInput);
+
+		registerTask(newTask);
+		input.docParseExecutor.parse(newTask, input.sessionId, Constants.PARSER_QUEUE_WEIGHT_BULK);
+	}
+
+	private void queueTextExtractionTask(DeferredDocumentSource source)
+	{
+		TextExtractionTask newTask = new TextExtractionTask(this, source);
+		registerTask(newTask);
+		input.textExtractionExecutor.extract(newTask);
+	}
+
 	@Override
 	public void begin()
 	{
@@ -31,17 +53,10 @@ public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 			throw new IllegalStateException("Job has already begun");
 
 		for (AbstractDocumentSource itr : input.sourceDocs)
-		{
-			DocumentParseTask newTask = new DocumentParseTask(this,
-															itr,
-															input.docParsingStrategy.create(),
-															input.docParserPool,
-															input.keywordSearcher.create(),
-															input.keywordSearcherInput);
-	
-			registerTask(newTask);
-			input.docParseExecutor.parse(newTask);
-		}
+			queueDocParseTask(itr);
+
+		for (DeferredDocumentSource itr : input.deferredSourceDocs)
+			queueTextExtractionTask(itr);
 
 		flagStarted();
 	}
@@ -51,6 +66,20 @@ public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 	{
 		switch (completionResult.getType())
 		{
+		case EXTRACT_TEXT:
+			{
+				TextExtractionTaskResult result = (TextExtractionTaskResult) completionResult.getResult();
+
+				if (result.getOutput() != null)
+				{
+					notifyListeners(new ParseJobEvent(result.getOutput()));
+					queueDocParseTask(result.getOutput());
+				}
+				else
+					notifyListeners(new ParseJobEvent(result.getInput()));
+
+				break;
+			}
 		case PARSE_DOCUMENT:
 			{
 				// add the result to the doc collection
@@ -87,7 +116,7 @@ public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 			return "ParseJob was cancelled";
 		else
 			return "ParseJob Output:\nInput:\n\tLanguage: " + input.sourceLanguage + "\n\tSource Docs:"
-					+ input.sourceDocs.size() + "\nOutput\n\t\n\tParsed Docs: " + output.parsedDocs.size();
+					+ (input.sourceDocs.size() + input.deferredSourceDocs.size()) + "\nOutput\n\t\n\tParsed Docs: " + output.parsedDocs.size();
 	}
 	
 	@Override
@@ -99,27 +128,36 @@ public class ParseJob extends AbstractJob<ParseJobOutput, ParseJobEvent>
 
 final class ParseJobInput
 {
+	public final String									sessionId;			// for the fair scheduling of parse tasks
 	public final Language								sourceLanguage;
 	public final List<AbstractDocumentSource>			sourceDocs;
+	public final List<DeferredDocumentSource>			deferredSourceDocs;
 	
 	public final DocumentParseTask.Executor				docParseExecutor;
+	public final TextExtractionTask.Executor			textExtractionExecutor;
 	
     public final DocumentParserPool			   			docParserPool;
     public final AbstractParsingStrategyFactory		    docParsingStrategy;
     public final AbstractDocumentKeywordSearcherFactory	keywordSearcher;
     public final KeywordSearcherInput			    	keywordSearcherInput;
 
-	public ParseJobInput(Language sourceLanguage,
+	public ParseJobInput(String sessionId,
+									Language sourceLanguage,
 									List<AbstractDocumentSource> sourceDocs,
+									List<DeferredDocumentSource> deferredSourceDocs,
 									DocumentParseTask.Executor docParseExecutor,
+									TextExtractionTask.Executor textExtractionExecutor,
 									DocumentParserPool parserPool,
 								    AbstractParsingStrategyFactory strategy,
 								    AbstractDocumentKeywordSearcherFactory keywordSearcher,
 								    KeywordSearcherInput keywordSearcherInput)
 	{
+		this.sessionId = sessionId;
 		this.sourceLanguage = sourceLanguage;
 		this.sourceDocs = sourceDocs;
+		this.deferredSourceDocs = deferredSourceDocs;
 		this.docParseExecutor = docParseExecutor;
+		this.textExtractionExecutor = textExtractionExecutor;
 		
 		this.docParserPool = parserPool;
 		this.docParsingStrategy = strategy;
@@ -141,18 +179,42 @@ final class ParseJobEvent implements AbstractJobEvent<ParseJobOutput>
 {
 	enum Type
 	{
+		SOURCE_READY,
+		SOURCE_FAILED,
 		PARSE_COMPLETE,
 		JOB_COMPLETE
 	}
 	
 	public final Type					type;
+	public final AbstractDocumentSource	readySource;
+	public final DeferredDocumentSource	failedSource;
 	public final AbstractDocument		parsedDoc;
 	public final ParseJobOutput			jobOutput;
 	
 	
+	public ParseJobEvent(AbstractDocumentSource s)
+	{
+		type = Type.SOURCE_READY;
+		readySource = s;
+		failedSource = null;
+		parsedDoc = null;
+		jobOutput = null;
+	}
+
+	public ParseJobEvent(DeferredDocumentSource s)
+	{
+		type = Type.SOURCE_FAILED;
+		readySource = null;
+		failedSource = s;
+		parsedDoc = null;
+		jobOutput = null;
+	}
+
 	public ParseJobEvent(AbstractDocument d)
 	{
 		type = Type.PARSE_COMPLETE;
+		readySource = null;
+		failedSource = null;
 		parsedDoc = d;
 		jobOutput = null;
 	}
@@ -160,6 +222,8 @@ final class ParseJobEvent implements AbstractJobEvent<ParseJobOutput>
 	public ParseJobEvent(ParseJobOutput o)
 	{
 		type = Type.JOB_COMPLETE;
+		readySource = null;
+		failedSource = null;
 		parsedDoc = null;
 		jobOutput = o;
 	}
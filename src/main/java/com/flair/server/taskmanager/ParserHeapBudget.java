@@ -0,0 +1,80 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the (estimated) heap memory claimed by the parser instances of all document parser pools
+ *
+ * @author shadeMe
+ */
+final class ParserHeapBudget
+{
+	private final long			totalMB;
+	private final AtomicLong	reservedMB;
+
+	public ParserHeapBudget(long totalMB)
+	{
+		if (totalMB <= 0)
+			throw new IllegalArgumentException("Invalid parser heap budget " + totalMB + " MB");
+
+		this.totalMB = totalMB;
+		this.reservedMB = new AtomicLong(0);
+	}
+
+	/**
+	 * Reserves memory if the budget allows it
+	 * @param sizeMB Amount of memory to reserve
+	 * @return True if the memory was reserved, false otherwise
+	 */
+	public boolean tryReserve(long sizeMB)
+	{
+		while (true)
+		{
+			long current = reservedMB.get();
+			if (current + sizeMB > totalMB)
+				return false;
+			else if (reservedMB.compareAndSet(current, current + sizeMB))
+				return true;
+		}
+	}
+
+	/**
+	 * Reserves memory regardless of the remaining budget
+	 */
+	public void forceReserve(long sizeMB) {
+		reservedMB.addAndGet(sizeMB);
+	}
+
+	public void release(long sizeMB) {
+		reservedMB.addAndGet(-sizeMB);
+	}
+
+	/**
+	 * Returns the number of instances of the given size that fit into the entire budget, at least one
+	 * @param sharedSizeMB Memory shared by all instances
+	 * @param instanceSizeMB Memory claimed by each instance
+	 */
+	public int getCeiling(long sharedSizeMB, long instanceSizeMB)
+	{
+		long available = Math.max(0, totalMB - sharedSizeMB);
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, available / Math.max(1, instanceSizeMB)));
+	}
+
+	public long getTotalMB() {
+		return totalMB;
+	}
+
+	public long getReservedMB() {
+		return reservedMB.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ParserHeapBudget[reserved=" + getReservedMB() + "/" + totalMB + " MB]";
+	}
+}
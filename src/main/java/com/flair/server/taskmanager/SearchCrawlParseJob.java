@@ -70,7 +70,7 @@ public final class SearchCrawlParseJob extends AbstractJob<SearchCrawlParseJobOu
 											input.keywordSearcher.create(),
 											input.keywordSearcherInput);
 		registerTask(newTask);
-		input.docParseExecutor.parse(newTask);
+		input.docParseExecutor.parse(newTask, input.sessionId, Constants.PARSER_QUEUE_WEIGHT_INTERACTIVE);
 	}
 
 	@Override
@@ -209,6 +209,7 @@ public final class SearchCrawlParseJob extends AbstractJob<SearchCrawlParseJobOu
 
 final class SearchCrawlParseJobInput
 {
+	public final String							sessionId;			// for the fair scheduling of parse tasks
 	public final Language						sourceLanguage;
 	public final String							query;
 	public final Boolean                        useRestrictedDomains;
@@ -223,7 +224,8 @@ final class SearchCrawlParseJobInput
     public final AbstractDocumentKeywordSearcherFactory	keywordSearcher;
     public final KeywordSearcherInput			    	keywordSearcherInput;
 
-	public SearchCrawlParseJobInput(Language sourceLanguage,
+	public SearchCrawlParseJobInput(String sessionId,
+									Language sourceLanguage,
 									String query,
 									boolean useRestrictedDomains,
 									int numResults,
@@ -236,6 +238,7 @@ final class SearchCrawlParseJobInput
 								    KeywordSearcherInput keywordSearcherInput)
 	{
 		ServerLogger.get().info("Start of SearchCrawlParseJobInput()");
+		this.sessionId = sessionId;
 		this.sourceLanguage = sourceLanguage;
 		this.query = query;
 		this.useRestrictedDomains = useRestrictedDomains;
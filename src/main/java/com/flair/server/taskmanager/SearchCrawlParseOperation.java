@@ -58,9 +58,9 @@ class SearchCrawlParseOperationImpl extends BasicPipelineOperation implements Se
 	private ParseComplete		parseC;
 	private JobComplete			jobC;
 	
-	public SearchCrawlParseOperationImpl(SearchCrawlParseJobInput input) 
+	public SearchCrawlParseOperationImpl(SearchCrawlParseJobInput input, JobAdmissionController admission) 
 	{
-		super(new SearchCrawlParseJob(input), PipelineOperationType.SEARCH_CRAWL_PARSE);
+		super(new SearchCrawlParseJob(input), PipelineOperationType.SEARCH_CRAWL_PARSE, admission);
 		
 		crawlC = null;
 		parseC = null;
@@ -127,7 +127,7 @@ class SearchCrawlParseOperationImpl extends BasicPipelineOperation implements Se
 			}
 		});;
 
-		j.beginFromPreviousSCPJob(previousJob);
+		admit(() -> j.beginFromPreviousSCPJob(previousJob));
 	}
 
 	@Override
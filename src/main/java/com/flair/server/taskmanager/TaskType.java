@@ -14,4 +14,5 @@ public enum TaskType
     WEB_SEARCH,
     WEB_CRAWL,
     PARSE_DOCUMENT,
+    EXTRACT_TEXT,
 }
@@ -0,0 +1,150 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.flair.server.utilities.ServerLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Shared timer that enforces execution timeouts on tasks running in worker threads
+ * Expired tasks are interrupted in-place, so that a single pool thread suffices per task
+ *
+ * @author shadeMe
+ */
+final class TaskWatchdog
+{
+	/*
+	 * Represents a single timeout that's currently being tracked
+	 */
+	static final class Timer
+	{
+		private final Thread				worker;
+		private final Runnable				onExpiry;
+		private ScheduledFuture<?>			expiry;
+		private boolean						armed;
+		private boolean						expired;
+
+		private Timer(Thread worker, Runnable onExpiry)
+		{
+			this.worker = worker;
+			this.onExpiry = onExpiry;
+			this.expiry = null;
+			this.armed = true;
+			this.expired = false;
+		}
+
+		private synchronized void expire()
+		{
+			if (armed == false)
+				return;
+
+			armed = false;
+			expired = true;
+			if (onExpiry != null)
+			{
+				try
+				{
+					onExpiry.run();
+				} catch (Throwable ex)
+				{
+					ServerLogger.get().error(ex, "Timer expiry handler encountered an exception. Exception: " + ex.toString());
+				}
+			}
+			worker.interrupt();
+		}
+
+		/**
+		 * Stops tracking the timeout. Must be called from the worker thread that armed the timer
+		 * @return True if the timeout had already elapsed, false otherwise
+		 */
+		public synchronized boolean disarm()
+		{
+			if (armed)
+			{
+				armed = false;
+				expiry.cancel(false);
+			}
+			else if (expired)
+			{
+				// clear the worker's interrupt status before it's returned to its pool
+				Thread.interrupted();
+			}
+
+			return expired;
+		}
+
+		/**
+		 * Expires the timer ahead of time, e.g., if the guarded operation was cancelled
+		 */
+		public void trip() {
+			expire();
+		}
+
+		public synchronized boolean hasExpired() {
+			return expired;
+		}
+	}
+
+	private final ScheduledExecutorService	timerThread;
+
+	public TaskWatchdog(String name)
+	{
+		timerThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+												.setNameFormat("FLAIR-Watchdog-" + name)
+												.setDaemon(true)
+												.build());
+	}
+
+	/**
+	 * Starts tracking a timeout for the calling thread. The thread is interrupted if the timer isn't disarmed before it expires
+	 * @param timeout Duration of the timeout
+	 * @param unit Unit of the duration
+	 * @return Timer object that must be disarmed once the guarded operation completes
+	 */
+	public Timer arm(long timeout, TimeUnit unit) {
+		return arm(timeout, unit, null);
+	}
+
+	/**
+	 * Starts tracking a timeout for the calling thread. The thread is interrupted if the timer isn't disarmed before it expires
+	 * @param timeout Duration of the timeout
+	 * @param unit Unit of the duration
+	 * @param onExpiry Invoked on the watchdog thread before the worker is interrupted, e.g., to unblock I/O that ignores interrupts. Can be null
+	 * @return Timer object that must be disarmed once the guarded operation completes
+	 */
+	public Timer arm(long timeout, TimeUnit unit, Runnable onExpiry)
+	{
+		Timer timer = new Timer(Thread.currentThread(), onExpiry);
+		synchronized (timer) {
+			timer.expiry = timerThread.schedule(timer::expire, timeout, unit);
+		}
+		return timer;
+	}
+
+	/**
+	 * Runs an action on the watchdog thread after the given delay
+	 */
+	public void schedule(Runnable action, long delay, TimeUnit unit)
+	{
+		timerThread.schedule(() -> {
+			try
+			{
+				action.run();
+			} catch (Throwable ex) {
+				ServerLogger.get().error(ex, "Scheduled watchdog action encountered an exception. Exception: " + ex.toString());
+			}
+		}, delay, unit);
+	}
+
+	public void shutdown() {
+		timerThread.shutdownNow();
+	}
+}
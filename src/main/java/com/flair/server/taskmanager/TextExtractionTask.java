@@ -0,0 +1,87 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.taskmanager;
+
+import com.flair.server.parser.AbstractDocumentSource;
+import com.flair.server.parser.DeferredDocumentSource;
+import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
+
+/**
+ * Extracts the text of a deferred document source
+ *
+ * @author shadeMe
+ */
+class TextExtractionTask extends AbstractTask<TextExtractionTaskResult>
+{
+	static final class Executor extends AbstractTaskExecutor
+	{
+		private Executor() {
+			super("TextExtraction", Constants.TEXTEXTRACTOR_THREADPOOL_SIZE);
+		}
+
+		public void extract(TextExtractionTask task) {
+			queue(task);
+		}
+	}
+
+	public static final Executor getExecutor() {
+		return new Executor();
+	}
+
+	private final DeferredDocumentSource	input;
+
+	public TextExtractionTask(AbstractJob<?, ?> job, DeferredDocumentSource source)
+	{
+		super(TaskType.EXTRACT_TEXT, job, new BasicTaskLinker<TextExtractionTaskResult>(job));
+		this.input = source;
+	}
+
+	@Override
+	protected void onCancelled() {
+		input.discard();
+	}
+
+	@Override
+	protected TextExtractionTaskResult performTask()
+	{
+		AbstractDocumentSource output = null;
+		long startTime = System.nanoTime();
+		try
+		{
+			output = input.load();
+			ServerMetrics.get().recordSince(ServerMetrics.Stage.TEXT_EXTRACTION, startTime);
+		} catch (Throwable ex)
+		{
+			ServerMetrics.get().recordError(ServerMetrics.Stage.TEXT_EXTRACTION);
+			ServerLogger.get().error(ex, "Couldn't extract the text of " + input.getDescription() + ". Exception: " + ex.toString());
+		} finally {
+			input.discard();
+		}
+
+		return new TextExtractionTaskResult(input, output);
+	}
+}
+
+class TextExtractionTaskResult
+{
+	private final DeferredDocumentSource	input;
+	private final AbstractDocumentSource	output;		// null if the extraction failed
+
+	public TextExtractionTaskResult(DeferredDocumentSource input, AbstractDocumentSource output)
+	{
+		this.input = input;
+		this.output = output;
+	}
+
+	public DeferredDocumentSource getInput() {
+		return input;
+	}
+
+	public AbstractDocumentSource getOutput() {
+		return output;
+	}
+}
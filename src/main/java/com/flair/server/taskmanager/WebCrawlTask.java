@@ -5,15 +5,17 @@
  */
 package com.flair.server.taskmanager;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Locale;
 import java.util.concurrent.Executors;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import com.flair.server.crawler.SearchResult;
+import com.flair.server.utilities.AbstractTextExtractor;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.URLResponseCache;
 
 /**
  * Fetches a SearchResult's text
@@ -24,25 +26,49 @@ class WebCrawlTask extends AbstractTask<WebCrawlTaskResult>
 {
 	static final class Executor extends AbstractTaskExecutor
 	{
-		// silly workaround to prevent the I/O op from blocking perpetually
-		private final ExecutorService 		auxThreadPool;
-		
+		// each fetch gets its own thread, the scheduler bounds the number of concurrent fetches
+		private final CrawlScheduler		scheduler;
+		private final TaskWatchdog			watchdog;		// to allow timeouts
+
 		private Executor()
 		{
-			super("WebCrawl", Constants.TEXTFETCHER_THREADPOOL_SIZE);
-			auxThreadPool = Executors.newFixedThreadPool(Constants.TEXTFETCHER_THREADPOOL_SIZE, createPoolThreadFactory("WebCrawlAux"));
+			super(Executors.newCachedThreadPool(createPoolThreadFactory("WebCrawl")));
+			scheduler = new CrawlScheduler(getThreadPool(), Constants.CRAWL_MAX_FETCHES, Constants.CRAWL_MAX_FETCHES_PER_HOST);
+			watchdog = new TaskWatchdog("WebCrawl");
+
+			if (Constants.FETCH_CACHE_DIR != null && AbstractTextExtractor.getURLResponseCache() == null)
+			{
+				try
+				{
+					AbstractTextExtractor.setURLResponseCache(new URLResponseCache(Paths.get(Constants.FETCH_CACHE_DIR),
+																				Constants.FETCH_CACHE_DISK_MB * 1024 * 1024,
+																				Constants.FETCH_CACHE_MAX_ENTRY_MB * 1024 * 1024,
+																				Constants.FETCH_CACHE_TTL_SECONDS * 1000));
+				} catch (IOException ex)
+				{
+					ServerLogger.get().error(ex, "Couldn't open URL response cache directory " + Constants.FETCH_CACHE_DIR + ". Exception: " + ex.toString());
+				}
+			}
 		}
 
 		public void crawl(WebCrawlTask task)
 		{
-			task.setFetchExecutor(auxThreadPool);
-			queue(task);
+			task.setWatchdog(watchdog);
+			scheduler.submit(task.getHost(), task.getFutureTask());
+		}
+
+		public int getActiveCount() {
+			return scheduler.getActiveCount();
 		}
-		
+
+		public int getPendingCount() {
+			return scheduler.getPendingCount();
+		}
+
 		@Override
 		public void shutdown(boolean force) {
 			super.shutdown(force);
-			shutdown(auxThreadPool, force);
+			watchdog.shutdown();
 		}
 	}
 
@@ -51,58 +77,66 @@ class WebCrawlTask extends AbstractTask<WebCrawlTaskResult>
 	}
 
 	private final SearchResult			input;
-	private ExecutorService				fetchExecutor;
+	private TaskWatchdog				watchdog;
 
 	private static final int 			TIMEOUT_SECONDS = 30;
 
-	final class FetchRunnable implements Callable<Boolean>
-	{
-		private final SearchResult source;
-
-		public FetchRunnable(SearchResult source) {
-			this.source = source;
-		}
-
-		@Override
-		public Boolean call()
-		{
-			if (source.isTextFetched() == false)
-				return input.fetchPageText(false);
-			else
-				return true;
-		}
-	}
-
 	public WebCrawlTask(AbstractJob<?,?> job, SearchResult source)
 	{
 		super(TaskType.WEB_CRAWL, job, new BasicTaskLinker<WebCrawlTaskResult>(job));
 
 		this.input = source;
-		this.fetchExecutor = null;
+		this.watchdog = null;
+	}
+
+	protected void setWatchdog(TaskWatchdog watchdog) {
+		this.watchdog = watchdog;
 	}
 
-	public void setFetchExecutor(ExecutorService executor) {
-		fetchExecutor = executor;
+	/**
+	 * Returns the (lowercase) host name of the result's URL, or the URL itself if it can't be parsed
+	 */
+	public String getHost()
+	{
+		try
+		{
+			String host = new URI(input.getURL()).getHost();
+			if (host != null)
+				return host.toLowerCase(Locale.ROOT);
+		} catch (Throwable ex) {}
+
+		return input.getURL();
 	}
 
 	@Override
 	protected WebCrawlTaskResult performTask()
 	{
-		if (fetchExecutor == null)
-			throw new IllegalStateException("Auxiliary threadpool not set");
+		if (watchdog == null)
+			throw new IllegalStateException("Watchdog not set");
 
 		WebCrawlTaskResult result = new WebCrawlTaskResult(input);
-		FutureTask<Boolean> fetchWrapper = new FutureTask<>(new FetchRunnable(input));
+		if (input.isTextFetched())
+			return result;
+
+		// blocking socket reads ignore interrupts, so the pending request is aborted when the timeout elapses
+		Thread worker = Thread.currentThread();
+		TaskWatchdog.Timer timer = watchdog.arm(TIMEOUT_SECONDS, TimeUnit.SECONDS, () -> AbstractTextExtractor.abortURLRequest(worker));
 		try
 		{
-			fetchExecutor.submit(fetchWrapper).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-		} catch (TimeoutException ex)
-		{
-			ServerLogger.get().error("Fetch text timed out for URL: " + input.getDisplayURL());
+			input.fetchPageText(false);
 		} catch (Throwable ex)
 		{
-			ServerLogger.get().error(ex, "Fetch text encountered an exception for URL: " + input.getDisplayURL()
-					+ ". Exception: " + ex.toString());
+			if (timer.hasExpired() == false)
+			{
+				ServerLogger.get().error(ex, "Fetch text encountered an exception for URL: " + input.getDisplayURL()
+						+ ". Exception: " + ex.toString());
+			}
+		} finally
+		{
+			if (timer.disarm())
+				ServerLogger.get().error("Fetch text timed out for URL: " + input.getDisplayURL());
+
+			AbstractTextExtractor.releaseURLRequest();
 		}
 
 		ServerLogger.get().trace("Search Result (" + input.getDisplayURL() + ") text fetched: " + result.wasSuccessful());
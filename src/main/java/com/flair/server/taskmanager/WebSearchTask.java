@@ -10,6 +10,7 @@ import java.util.List;
 import com.flair.server.crawler.SearchResult;
 import com.flair.server.crawler.WebSearchAgent;
 import com.flair.server.utilities.ServerLogger;
+import com.flair.server.utilities.ServerMetrics;
 
 /**
  * Fetches search results for a given query
@@ -48,7 +49,10 @@ class WebSearchTask extends AbstractTask<WebSearchTaskResult>
 	@Override
 	protected WebSearchTaskResult performTask()
 	{
+		long startTime = System.nanoTime();
 		List<SearchResult> hits = input.getNext(numResults);
+		ServerMetrics.get().recordSince(ServerMetrics.Stage.WEB_SEARCH, startTime);
+
 		WebSearchTaskResult result = new WebSearchTaskResult(hits, input);
 		ServerLogger.get().trace("Web Search for '" + input.getQuery() + "' fetched " + hits.size() + " results");
 		return result;
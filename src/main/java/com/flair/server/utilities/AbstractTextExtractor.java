@@ -5,13 +5,19 @@
  */
 package com.flair.server.utilities;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 
 import com.flair.shared.grammar.Language;
 
@@ -22,6 +28,13 @@ import com.flair.shared.grammar.Language;
  */
 public abstract class AbstractTextExtractor
 {
+	// the URL request that each thread is currently reading from
+	private static final Map<Thread, HttpGet>	PENDING_URL_REQUESTS = new ConcurrentHashMap<>();
+	// responses with larger bodies are rejected
+	public static final long					MAX_URL_BODY_BYTES = 16 * 1024 * 1024;
+	// shared by all extractors, null if disabled
+	private static volatile URLResponseCache	URL_RESPONSE_CACHE = null;
+
 	private final TextExtractorType type;
 
 	public AbstractTextExtractor(TextExtractorType type) {
@@ -34,6 +47,17 @@ public abstract class AbstractTextExtractor
 
 	public abstract Output extractText(Input input);
 
+	/**
+	 * Sets the cache that URL responses are served from and stored in, null to disable caching
+	 */
+	public static void setURLResponseCache(URLResponseCache cache) {
+		URL_RESPONSE_CACHE = cache;
+	}
+
+	public static URLResponseCache getURLResponseCache() {
+		return URL_RESPONSE_CACHE;
+	}
+
 	protected static InputStream openURLStream(String url, Language lang) throws IOException, URISyntaxException
 	{
 		String langStr = "en-US,en;q=0.8";
@@ -59,14 +83,154 @@ public abstract class AbstractTextExtractor
 			throw new IllegalArgumentException("Language " + lang + " not supported");
 	}
 
+		URLResponseCache cache = URL_RESPONSE_CACHE;
+		URLResponseCache.Entry cached = cache != null ? cache.lookup(url, langStr) : null;
+		if (cached != null && cached.isFresh())
+		{
+			InputStream body = cache.open(cached);
+			if (body != null)
+				return body;
+
+			cached = null;
+		}
+
 		URI uri = new URI(url);
 		HttpGet get = new HttpGet(uri);
 		get.setHeader("Accept-Language", langStr);
 		get.setHeader("User-Agent", "Mozilla/4.76");
 		get.setHeader("Referer", "google.com");
 
+		if (cached != null)
+		{
+			// stale, ask the server if our copy is still valid
+			if (cached.getETag().isEmpty() == false)
+				get.setHeader("If-None-Match", cached.getETag());
+			if (cached.getLastModified().isEmpty() == false)
+				get.setHeader("If-Modified-Since", cached.getLastModified());
+		}
+
+		Thread caller = Thread.currentThread();
+		PENDING_URL_REQUESTS.put(caller, get);
+
 		HttpClient client = HttpClientFactory.get().create();
-		return client.execute(get).getEntity().getContent();
+		try
+		{
+			HttpResponse response = client.execute(get);
+			if (cached != null && cached.hasValidators() && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED)
+			{
+				EntityUtils.consumeQuietly(response.getEntity());
+				PENDING_URL_REQUESTS.remove(caller, get);
+
+				InputStream body = cache.open(cache.revalidate(cached, response));
+				if (body != null)
+					return body;
+
+				// evicted in the meantime, fetch it again without the validators
+				get.removeHeaders("If-None-Match");
+				get.removeHeaders("If-Modified-Since");
+				get.reset();
+				PENDING_URL_REQUESTS.put(caller, get);
+				response = client.execute(get);
+			}
+
+			long contentLength = response.getEntity().getContentLength();
+			if (contentLength > MAX_URL_BODY_BYTES)
+			{
+				get.abort();
+				throw new IOException("Response body of " + url + " is too large (" + contentLength + " bytes)");
+			}
+
+			InputStream content = new SizeLimitedInputStream(response.getEntity().getContent(), MAX_URL_BODY_BYTES);
+			if (cache != null)
+				content = cache.store(url, langStr, response, content);
+
+			return new FilterInputStream(content) {
+				@Override
+				public void close() throws IOException
+				{
+					PENDING_URL_REQUESTS.remove(caller, get);
+					super.close();
+				}
+			};
+		} catch (IOException | RuntimeException ex)
+		{
+			PENDING_URL_REQUESTS.remove(caller, get);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Fails reads once more than a given number of bytes have been read
+	 */
+	private static final class SizeLimitedInputStream extends FilterInputStream
+	{
+		private final long	limit;
+		private long		count;
+
+		SizeLimitedInputStream(InputStream in, long limit)
+		{
+			super(in);
+			this.limit = limit;
+			this.count = 0;
+		}
+
+		private void advance(long read) throws IOException
+		{
+			if (read > 0 && (count += read) > limit)
+				throw new IOException("Stream exceeds the maximum size of " + limit + " bytes");
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b != -1)
+				advance(1);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int read = super.read(b, off, len);
+			advance(read);
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			long skipped = super.skip(n);
+			advance(skipped);
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * Aborts the URL request that the given thread is currently connecting to or reading from, if any
+	 * Unlike interrupts, this unblocks socket I/O. Can be called from any thread
+	 * @return True if a request was aborted, false otherwise
+	 */
+	public static boolean abortURLRequest(Thread thread)
+	{
+		HttpGet request = PENDING_URL_REQUESTS.remove(thread);
+		if (request == null)
+			return false;
+
+		request.abort();
+		return true;
+	}
+
+	/**
+	 * Stops tracking the calling thread's URL request, in case its stream wasn't closed
+	 */
+	public static void releaseURLRequest() {
+		PENDING_URL_REQUESTS.remove(Thread.currentThread());
 	}
 
 	public static class Input
@@ -89,10 +253,19 @@ public abstract class AbstractTextExtractor
 			this.lang = lang;
 		}
 
-		public Input(InputStream stream, Language lang)
+		public Input(InputStream stream, Language lang) {
+			this(stream, null, lang);
+		}
+
+		/**
+		 * @param stream Stream to read from
+		 * @param url URL that the stream was opened from, null if it isn't a web resource
+		 * @param lang Language of the content
+		 */
+		public Input(InputStream stream, String url, Language lang)
 		{
 			this.sourceType = SourceType.STREAM;
-			this.url = null;
+			this.url = url;
 			this.stream = stream;
 			this.lang = lang;
 		}
@@ -5,6 +5,10 @@
  */
 package com.flair.server.utilities;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Auto-detects the target content type and picks an applicable implementation
  * 
@@ -19,22 +23,60 @@ class AutoDetectTextExtractor extends AbstractTextExtractor
 	@Override
 	public AbstractTextExtractor.Output extractText(AbstractTextExtractor.Input input)
 	{
+		InputStream source = null;
+		long extractionStart = 0;
 		try
 		{
+			// the content is fetched once, its (buffered) prefix is used to detect the media type
+			// and the same stream is then handed over to the chosen extractor
+			switch (input.sourceType)
+			{
+			case URL:
+				long fetchStart = System.nanoTime();
+				source = openURLStream(input.url, input.lang);
+				ServerMetrics.get().recordSince(ServerMetrics.Stage.FETCH, fetchStart);
+				break;
+			case STREAM:
+				source = input.stream;
+				break;
+			}
+
+			extractionStart = System.nanoTime();
+			BufferedInputStream stream = new BufferedInputStream(source);
+			AbstractTextExtractor.Input buffered = new AbstractTextExtractor.Input(stream, input.url, input.lang);
+			AbstractTextExtractor.Output output;
+
 			// Boilerpipe for regular webpages, Tika for everything else
-			if (TikaTextExtractor.isContentHTMLPlainText(input.url, input.lang))
+			if (TikaTextExtractor.isContentHTMLPlainText(stream, input.url))
 			{
 	//			ServerLogger.get().trace("Plain Text MIME @ '" + input.url + "' - Using BoilerpipeTextExtractor");
-				return new BoilerpipeTextExtractor().extractText(input);
+				output = new BoilerpipeTextExtractor().extractText(buffered);
 			} else
 			{
 	//			ServerLogger.get().trace("Non-Text MIME @ '" + input.url + "' - Using TikaTextExtractor");
-				return new TikaTextExtractor().extractText(input);
+				output = new TikaTextExtractor().extractText(buffered);
 			}
+
+			if (output.success)
+				ServerMetrics.get().recordSince(ServerMetrics.Stage.TEXT_EXTRACTION, extractionStart);
+			else
+				ServerMetrics.get().recordError(ServerMetrics.Stage.TEXT_EXTRACTION);
+
+			return new AbstractTextExtractor.Output(input, output.success, output.extractedText, output.isHTML);
 		} catch (Throwable ex)
 		{
 			ServerLogger.get().error(ex, "Couldn't extract text. Exception: " + ex.toString());
+			ServerMetrics.get().recordError(extractionStart == 0 ? ServerMetrics.Stage.FETCH : ServerMetrics.Stage.TEXT_EXTRACTION);
 			return new AbstractTextExtractor.Output(input, true, "", false);
+		} finally
+		{
+			if (source != null && input.sourceType == AbstractTextExtractor.Input.SourceType.URL)
+			{
+				try
+				{
+					source.close();
+				} catch (IOException ex) {}
+			}
 		}
 	}
 }
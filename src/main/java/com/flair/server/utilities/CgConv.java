@@ -1,52 +1,44 @@
 package com.flair.server.utilities;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+
+import com.flair.server.taskmanager.Constants;
 
 /**
  * Class to convert HFST output to CG input
+ * Conversions are handled by long-lived cg-conv processes, each request is delimited with a flush stream command
  */
 public class CgConv {
     //constants
     private static final String CG_CONV = "cg-conv";
     private static final int TIMEOUT_MS = 10*1000;
+    private static final int TIMEOUT_PER_LINE_MS = 1;
+    private static final String FLUSH_COMMAND = "<STREAMCMD:FLUSH>";
+    private static final StreamingCoProcessPool PROCESSES = new StreamingCoProcessPool(CG_CONV,
+            Constants.PARSER_THREADPOOL_SIZE,
+            () -> new StreamingCoProcess(CG_CONV, FLUSH_COMMAND, FLUSH_COMMAND, CG_CONV, "-f"));
 
     //functions
 
     public static String hfstToCg(String hfstString) throws IOException {
-        //set up arguments
-        ProcessBuilder pb = new ProcessBuilder(CG_CONV, "-f");
-        Process process;
+        return PROCESSES.process(hfstString, timeoutFor(hfstString), CgConv::runOnce);
+    }
+
+    // larger inputs get more time
+    private static long timeoutFor(String input) {
+        return StreamingCoProcessPool.scaleTimeout(input, TIMEOUT_MS, TIMEOUT_PER_LINE_MS);
+    }
+
+    // stops the pooled processes
+    public static void shutdown() {
+        PROCESSES.shutdown();
+    }
+
+    // starts a new process for the conversion
+    private static String runOnce(String hfstString) throws IOException {
         try {
-            //start the executable
-            process = pb.start();
-            //grab the streams
-            BufferedOutputStream converterInput = new BufferedOutputStream(process.getOutputStream());
-            BufferedInputStream converterOutput = new BufferedInputStream(process.getInputStream());
-            BufferedInputStream errorOutput = new BufferedInputStream(process.getErrorStream());
-            //put data in
-            byte[] stringBytes = hfstString.getBytes(StandardCharsets.UTF_8);
-            //System.out.println("stringBytes.length = " + stringBytes.length);
-            converterInput.write(stringBytes);
-            converterInput.flush();
-            converterInput.close();
-            //set timeout
-            ProcessWithTimeout processWithTimeout = new ProcessWithTimeout(process);
-            int exitCode = processWithTimeout.waitForProcess(TIMEOUT_MS);
-            if(exitCode == Integer.MIN_VALUE) { //timeout!
-                process.destroyForcibly();
-                throw new InterruptedException("cg-conv timed out after " + TIMEOUT_MS + " milliseconds");
-            }
-            //forward output data
-            String outputString = StreamToString.convertStreamToString(converterOutput);
-            converterOutput.close();
-            String errorString = StreamToString.convertStreamToString(errorOutput);
-            if(!errorString.isEmpty()) {
-                ServerLogger.get().error("cg-conv error: " + errorString);
-            }
-            errorOutput.close();
-            return outputString;
-        } catch (IOException | InterruptedException e) {
+            return ProcessWithTimeout.run(hfstString, timeoutFor(hfstString), CG_CONV, "-f");
+        } catch (IOException e) {
             ServerLogger.get().error(e.toString());
             throw new IOException("cg-conv failed. See log for details");
         }
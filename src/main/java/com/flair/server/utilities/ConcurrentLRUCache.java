@@ -0,0 +1,149 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.utilities;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread-safe, size-bounded cache that evicts the least recently used entries
+ * Entries are spread over independently locked segments, each with its own LRU order, so concurrent lookups rarely contend
+ *
+ * @author shadeMe
+ */
+public final class ConcurrentLRUCache<K, V>
+{
+	private static final class Segment<K, V> extends LinkedHashMap<K, V>
+	{
+		private final int capacity;
+
+		Segment(int capacity)
+		{
+			super(16, 0.75f, true);		// access-ordered
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private final Segment<K, V>[]	segments;
+	private final AtomicLong		hits;
+	private final AtomicLong		misses;
+
+	/**
+	 * @param maxSize Maximum number of entries
+	 * @param concurrency Number of segments
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLRUCache(int maxSize, int concurrency)
+	{
+		if (maxSize < 1)
+			throw new IllegalArgumentException("Invalid cache size " + maxSize);
+		else if (concurrency < 1)
+			throw new IllegalArgumentException("Invalid concurrency level " + concurrency);
+
+		int numSegments = Math.min(maxSize, concurrency);
+		this.segments = new Segment[numSegments];
+		for (int i = 0; i < numSegments; i++)
+			segments[i] = new Segment<>(maxSize / numSegments + (i < maxSize % numSegments ? 1 : 0));
+
+		this.hits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+	}
+
+	private Segment<K, V> getSegment(Object key)
+	{
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[(hash & Integer.MAX_VALUE) % segments.length];
+	}
+
+	/**
+	 * Returns the cached value, or null if there is none
+	 */
+	public V get(K key)
+	{
+		Segment<K, V> segment = getSegment(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+
+		if (value != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+
+		return value;
+	}
+
+	public void put(K key, V value)
+	{
+		if (value == null)
+			throw new IllegalArgumentException("Invalid value");
+
+		Segment<K, V> segment = getSegment(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Returns the cached value, computing and caching it if there is none
+	 * The value is computed outside of the cache's locks, so concurrent misses for the same key can compute it more than once
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader)
+	{
+		V value = get(key);
+		if (value == null)
+		{
+			value = loader.apply(key);
+			if (value != null)
+				put(key, value);
+		}
+
+		return value;
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for (Segment<K, V> itr : segments)
+		{
+			synchronized (itr) {
+				size += itr.size();
+			}
+		}
+
+		return size;
+	}
+
+	public void clear()
+	{
+		for (Segment<K, V> itr : segments)
+		{
+			synchronized (itr) {
+				itr.clear();
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentLRUCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+}
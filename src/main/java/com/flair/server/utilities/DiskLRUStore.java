@@ -0,0 +1,184 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.utilities;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded directory of cache entries, one file per entry
+ * Entries are written to temporary files and atomically moved into place. When the directory grows too large, the least
+ * recently used entries are deleted, as determined by their modification time
+ *
+ * @author shadeMe
+ */
+public final class DiskLRUStore
+{
+	private final String			name;			// used in log messages
+	private final Path				directory;
+	private final String			extension;
+	private final long				maxBytes;
+	private final AtomicLong		bytes;
+	private final AtomicLong		evictions;
+
+	/**
+	 * Opens the directory, creating it if necessary
+	 * @param name Description of the store
+	 * @param directory Directory that holds the entries
+	 * @param extension File extension of the entries, including the dot
+	 * @param maxBytes Size of the store
+	 */
+	public DiskLRUStore(String name, Path directory, String extension, long maxBytes) throws IOException
+	{
+		this.name = name;
+		this.directory = directory;
+		this.extension = extension;
+		this.maxBytes = maxBytes;
+		this.bytes = new AtomicLong(0);
+		this.evictions = new AtomicLong(0);
+
+		Files.createDirectories(directory);
+		for (Path itr : listEntries())
+			bytes.addAndGet(Files.size(itr));
+	}
+
+	/**
+	 * Returns the hex-encoded SHA-256 hash of the given strings, which can be used as a key
+	 */
+	public static String hashKey(String... parts)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			for (String itr : parts)
+				digest.update(itr.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder sb = new StringBuilder();
+			for (byte itr : digest.digest())
+				sb.append(String.format("%02x", itr));
+
+			return sb.toString();
+		} catch (NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException("SHA-256 unavailable", ex);
+		}
+	}
+
+	public List<Path> listEntries() throws IOException
+	{
+		List<Path> out = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + extension))
+		{
+			for (Path itr : stream)
+				out.add(itr);
+		}
+
+		return out;
+	}
+
+	public Path getPath(String key) {
+		return directory.resolve(key + extension);
+	}
+
+	/**
+	 * Returns the file that a new version of the entry is written to before it's committed
+	 */
+	public Path getTempPath(String key) {
+		return directory.resolve(key + "." + Thread.currentThread().getId() + ".tmp");
+	}
+
+	/**
+	 * Marks an entry as recently used
+	 */
+	public void touch(Path file) throws IOException {
+		Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	public void delete(Path file)
+	{
+		try
+		{
+			long size = Files.size(file);
+			if (Files.deleteIfExists(file))
+				bytes.addAndGet(-size);
+		} catch (IOException ex) {}
+	}
+
+	/**
+	 * Deletes a temporary file that won't be committed
+	 */
+	public void discard(Path temp)
+	{
+		try
+		{
+			Files.deleteIfExists(temp);
+		} catch (IOException ex) {}
+	}
+
+	/**
+	 * Replaces an entry with its temporary file, trimming the store if it's grown too large
+	 */
+	public void commit(Path temp, Path file) throws IOException
+	{
+		long size = Files.size(temp);
+		long replaced = Files.exists(file) ? Files.size(file) : 0;
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if (bytes.addAndGet(size - replaced) > maxBytes)
+			trim();
+	}
+
+	private synchronized void trim()
+	{
+		if (bytes.get() <= maxBytes)
+			return;
+
+		try
+		{
+			// remove the least recently used entries until we're comfortably below the limit
+			List<Path> files = listEntries();
+			files.sort(Comparator.comparingLong(e -> e.toFile().lastModified()));
+			for (Path itr : files)
+			{
+				if (bytes.get() <= maxBytes * 9 / 10)
+					break;
+
+				delete(itr);
+				evictions.incrementAndGet();
+			}
+		} catch (IOException ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't trim " + name + " directory. Exception: " + ex.toString());
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "DiskLRUStore[" + name + ", " + getBytes() / 1024 + " KB, evictions=" + getEvictionCount() + "]";
+	}
+}
@@ -2,16 +2,31 @@ package com.flair.server.utilities;
 
 import com.drew.lang.annotations.NotNull;
 import fi.seco.hfst.*;
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
 import java.util.stream.Collectors;
 import static com.flair.server.utilities.HFSTAnalysis.analyseWordForm;
 
+/**
+ * Analyses word forms with an HFST transducer. Instances are thread-safe and meant to be shared
+ * The transducer keeps its lookup state in instance fields, so lookups are serialized. Analyses are cached per word form
+ * so that most lookups don't reach the transducer
+ */
 public class HFSTAnalyser {
     private static final String NEWLINE = System.lineSeparator();
-    private Transducer transducer;
+    private static final int DEFAULT_CACHE_SIZE = 50000;
+    private final Transducer transducer;
+    private final ConcurrentLRUCache<String, String> analyses;
 
     /**
      * constructor that also builds a Transducer on the provided {@code InputStream}
@@ -19,6 +34,17 @@ public class HFSTAnalyser {
      * @throws TransducerStreamException the provided InputStream could not be used to construct a Transducer
      */
     public HFSTAnalyser(@NotNull InputStream iStream) throws TransducerStreamException{
+        this(iStream, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * constructor that also builds a Transducer on the provided {@code InputStream}
+     * @param iStream data used to construct a Transducer
+     * @param cacheSize maximum number of cached word form analyses
+     * @throws TransducerStreamException the provided InputStream could not be used to construct a Transducer
+     */
+    public HFSTAnalyser(@NotNull InputStream iStream, int cacheSize) throws TransducerStreamException{
+        this.analyses = new ConcurrentLRUCache<>(cacheSize, Runtime.getRuntime().availableProcessors() * 4);
         if(iStream == null){
             throw new TransducerStreamException("No data provided for Transducer construction");
         }
@@ -48,6 +74,40 @@ public class HFSTAnalyser {
         }
     }
 
+    /**
+     * Builds a transducer from a resource. Resources that are plain files are memory-mapped instead of being read through a stream
+     * @param resource location of the transducer, can be null
+     * @throws TransducerStreamException the resource is missing or could not be used to construct a Transducer
+     */
+    public static HFSTAnalyser load(URL resource) throws TransducerStreamException {
+        if(resource == null){
+            throw new TransducerStreamException("No data provided for Transducer construction");
+        }
+        try {
+            if(resource.getProtocol().equals("file")) {
+                try (RandomAccessFile file = new RandomAccessFile(new File(resource.toURI()), "r");
+                     FileChannel channel = file.getChannel()) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    return new HFSTAnalyser(new ByteBufferInputStream(buffer));
+                }
+            }
+            // packaged in a jar, the transducer reads it a few bytes at a time
+            return new HFSTAnalyser(new BufferedInputStream(resource.openStream(), 1 << 16));
+        } catch (IOException | URISyntaxException e) {
+            throw new TransducerStreamException(e);
+        }
+    }
+
+    private String analyse(String wordForm) {
+        return analyses.get(wordForm, this::lookup);
+    }
+
+    private String lookup(String wordForm) {
+        synchronized (transducer) {
+            return analyseWordForm(this.transducer, wordForm);
+        }
+    }
+
     /**
      * Run the transducer meant for multiple elements.
      *
@@ -58,7 +118,7 @@ public class HFSTAnalyser {
      */
     public String runTransducer(Collection<String> wordFormList) {
         return wordFormList.stream()
-                .map(token -> analyseWordForm(this.transducer, token))
+                .map(this::analyse)
                 .collect(Collectors.joining(NEWLINE));
     }
 
@@ -70,7 +130,41 @@ public class HFSTAnalyser {
      * with "+" delimited string of features for each reading per line
      */
     public String runTransducer(String wordForm) {
-        return analyseWordForm(this.transducer, wordForm);
+        return analyse(wordForm);
+    }
+
+    public ConcurrentLRUCache<String, String> getCache() {
+        return analyses;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            } else if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 
     public static class TransducerStreamException extends Exception{
@@ -0,0 +1,120 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.utilities;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe, fixed-bucket histogram of durations
+ *
+ * @author shadeMe
+ */
+public final class LatencyHistogram
+{
+	// upper bounds of the buckets in milliseconds, the last bucket is unbounded
+	private static final long[]		BUCKET_BOUNDS_MS = { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 30000, 60000, 300000 };
+
+	private final AtomicLongArray	buckets;
+	private final AtomicLong		count;
+	private final AtomicLong		totalNanos;
+	private final AtomicLong		maxNanos;
+
+	public LatencyHistogram()
+	{
+		this.buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+		this.count = new AtomicLong(0);
+		this.totalNanos = new AtomicLong(0);
+		this.maxNanos = new AtomicLong(0);
+	}
+
+	private static int getBucketIndex(long nanos)
+	{
+		for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++)
+		{
+			if (nanos <= TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MS[i]))
+				return i;
+		}
+
+		return BUCKET_BOUNDS_MS.length;
+	}
+
+	public void record(long nanos)
+	{
+		if (nanos < 0)
+			nanos = 0;
+
+		buckets.incrementAndGet(getBucketIndex(nanos));
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+
+		long max = maxNanos.get();
+		while (nanos > max && maxNanos.compareAndSet(max, nanos) == false)
+			max = maxNanos.get();
+	}
+
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getTotal(TimeUnit unit) {
+		return unit.convert(totalNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public long getMax(TimeUnit unit) {
+		return unit.convert(maxNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	public double getMeanMillis()
+	{
+		long samples = count.get();
+		if (samples == 0)
+			return 0;
+
+		return (double)totalNanos.get() / samples / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Returns the (inclusive) upper bounds of the histogram's buckets in milliseconds. The last bucket holds all samples above the final bound
+	 */
+	public static long[] getBucketBounds() {
+		return BUCKET_BOUNDS_MS.clone();
+	}
+
+	/**
+	 * Returns a snapshot of the non-cumulative sample count of each bucket
+	 */
+	public long[] getBucketCounts()
+	{
+		long[] out = new long[buckets.length()];
+		for (int i = 0; i < out.length; i++)
+			out[i] = buckets.get(i);
+
+		return out;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("count=").append(getCount())
+		  .append(", mean=").append(String.format("%.2f", getMeanMillis())).append("ms")
+		  .append(", max=").append(getMax(TimeUnit.MILLISECONDS)).append("ms, buckets={");
+
+		long[] counts = getBucketCounts();
+		for (int i = 0; i < counts.length; i++)
+		{
+			if (i > 0)
+				sb.append(", ");
+			sb.append(i < BUCKET_BOUNDS_MS.length ? "<=" + BUCKET_BOUNDS_MS[i] + "ms" : "inf").append(":").append(counts[i]);
+		}
+
+		return sb.append("}").toString();
+	}
+}
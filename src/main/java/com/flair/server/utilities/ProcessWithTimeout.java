@@ -1,5 +1,12 @@
 package com.flair.server.utilities;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
 public class ProcessWithTimeout extends Thread
 {
     private Process m_process;
@@ -10,6 +17,73 @@ public class ProcessWithTimeout extends Thread
         m_process = p_process;
     }
 
+    /**
+     * Runs a command on the given input and returns its output
+     * The output is read while the input is written, so the process never blocks on a full pipe
+     * @throws IOException If the process couldn't be started, didn't exit in time or the calling thread was interrupted.
+     * The process is killed in the latter cases
+     */
+    public static String run(String p_input, long p_timeoutMilliseconds, String... p_command) throws IOException
+    {
+        Process process = new ProcessBuilder(p_command).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Thread outputReader = startCopying(process.getInputStream(), output, p_command[0] + "-stdout");
+        Thread errorReader = startCopying(process.getErrorStream(), errors, p_command[0] + "-stderr");
+
+        try
+        {
+            try (OutputStream input = process.getOutputStream())
+            {
+                input.write(p_input.getBytes(StandardCharsets.UTF_8));
+            }
+
+            if (!process.waitFor(p_timeoutMilliseconds, TimeUnit.MILLISECONDS))
+                throw new IOException(p_command[0] + " timed out after " + p_timeoutMilliseconds + " milliseconds");
+
+            // the streams are closed once the process has exited
+            outputReader.join(p_timeoutMilliseconds);
+            errorReader.join(p_timeoutMilliseconds);
+        }
+        catch (InterruptedException e)
+        {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException(p_command[0] + " was interrupted", e);
+        }
+        catch (IOException e)
+        {
+            process.destroyForcibly();
+            throw e;
+        }
+
+        String errorString = new String(errors.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (!errorString.isEmpty())
+            ServerLogger.get().error(p_command[0] + " error: " + errorString);
+
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Thread startCopying(InputStream p_source, ByteArrayOutputStream p_sink, String p_name)
+    {
+        Thread thread = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try (InputStream source = p_source)
+            {
+                int read;
+                while ((read = source.read(buffer)) != -1)
+                    p_sink.write(buffer, 0, read);
+            }
+            catch (IOException ignore)
+            {
+                // the process was killed
+            }
+        }, "FLAIR-" + p_name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
     public int waitForProcess(int p_timeoutMilliseconds)
     {
         this.start();
@@ -1,15 +1,17 @@
 /*
  * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
  * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
- 
+
  */
 package com.flair.server.utilities;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.lang.invoke.MethodHandles;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,69 +20,274 @@ import com.flair.shared.utilities.AbstractDebugLogger;
 
 /**
  * Thread-safe logger for server code
- * 
+ * Messages are only built if their channel is enabled and are written to the backend by a background thread
+ * Can be configured with the FLAIR_LOG_ASYNC, FLAIR_LOG_QUEUE_SIZE and FLAIR_LOG_CALLER environment variables
+ * The background thread must be stopped with shutdown() when the server is undeployed
+ *
  * @author shadeMe
  */
 public final class ServerLogger extends AbstractDebugLogger
 {
 	private static final ServerLogger SINGLETON = new ServerLogger();
 
-	private final Logger	pipeline;
+	private static final class LogRecord
+	{
+		final Channel	channel;
+		final String	message;
+
+		LogRecord(Channel channel, String message)
+		{
+			this.channel = channel;
+			this.message = message;
+		}
+	}
+
+	private final Logger						pipeline;
+	private final boolean						captureCaller;
+	private final BlockingQueue<LogRecord>		queue;			// null if messages are written synchronously
+	private final Thread						writer;
+	private final Thread						shutdownHook;
+	private final AtomicInteger					pending;		// messages that were queued but not yet written
+	private volatile boolean					stopped;
 
 	private ServerLogger()
 	{
 		super("FLAIR-ServerLogger");
 		this.pipeline = LoggerFactory.getLogger(loggerName);
-		//this.pipeline = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+		this.captureCaller = getEnvLong("FLAIR_LOG_CALLER", 0) != 0;
+
+		this.pending = new AtomicInteger(0);
+		this.stopped = false;
+
+		if (getEnvLong("FLAIR_LOG_ASYNC", 1) != 0)
+		{
+			this.queue = new ArrayBlockingQueue<>((int)Math.max(16, getEnvLong("FLAIR_LOG_QUEUE_SIZE", 8192)));
+			this.writer = new Thread(this::drainQueue, "FLAIR-LogWriter");
+			this.writer.setDaemon(true);
+			this.writer.start();
+
+			this.shutdownHook = new Thread(this::flush, "FLAIR-LogFlush");
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+		}
+		else
+		{
+			this.queue = null;
+			this.writer = null;
+			this.shutdownHook = null;
+		}
 	}
 
 	public static ServerLogger get() {
 		return SINGLETON;
 	}
-	
-	private String prettyPrintCaller() 
+
+	private static long getEnvLong(String name, long defaultValue)
 	{
-		StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+		String value = System.getenv(name);
+		if (value == null || value.trim().isEmpty())
+			return defaultValue;
 
-		// the calling method would be the fifth element in the array (the first would be the call to getStackTrace())
-		StackTraceElement caller = stackTrace[4];
-		return "{" + caller.getClassName().substring(10) + "." + caller.getMethodName() + "()}";
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
 	}
 
-	@Override
-	protected void print(Channel channel, String message)
+	private String prettyPrintCaller()
 	{
-		StringBuilder builder = new StringBuilder();
-		for (int i = 0; i < indentLevel; i++)
-			builder.append("\t");
+		// skip the frames of the logger itself
+		for (StackTraceElement caller : new Throwable().getStackTrace())
+		{
+			String className = caller.getClassName();
+			if (className.equals(ServerLogger.class.getName()) || className.equals(AbstractDebugLogger.class.getName()))
+				continue;
 
-		builder.append(prettyPrintCaller());
-		builder.append(" ");
-		builder.append(message);
+			// strip the "com.flair." prefix
+			if (className.startsWith("com.flair."))
+				className = className.substring(10);
+			return "{" + className + "." + caller.getMethodName() + "()}";
+		}
 
+		return "{?}";
+	}
+
+	private void write(Channel channel, String message)
+	{
 		switch (channel)
 		{
 		case TRACE:
-			pipeline.trace(builder.toString());
+			pipeline.trace(message);
 			break;
 		case ERROR:
-			pipeline.error(builder.toString());
+			pipeline.error(message);
 			break;
 		case WARN:
-			pipeline.warn(builder.toString());
+			pipeline.warn(message);
 			break;
 		case INFO:
 		default:
-			pipeline.info(builder.toString());
+			pipeline.info(message);
+		}
+	}
+
+	private void drainQueue()
+	{
+		ArrayList<LogRecord> batch = new ArrayList<>();
+		while (true)
+		{
+			try
+			{
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (LogRecord record : batch)
+				{
+					try {
+						write(record.channel, record.message);
+					} finally {
+						pending.decrementAndGet();
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (Throwable ex) {
+				// keep the writer alive, there's nowhere else to report this
+			}
+			finally {
+				batch.clear();
+			}
 		}
 	}
-	
+
+	private void writeQueued()
+	{
+		LogRecord record;
+		while ((record = queue.poll()) != null)
+		{
+			try {
+				write(record.channel, record.message);
+			} finally {
+				pending.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Blocks until all queued messages have been handed to the backend (or a few seconds have passed)
+	 * This includes the messages the background thread has already dequeued but is still writing
+	 */
+	public void flush()
+	{
+		if (queue == null)
+			return;
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (pending.get() > 0 && writer.isAlive() && System.nanoTime() < deadline)
+		{
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		// write out whatever's left on the calling thread
+		writeQueued();
+	}
+
+	/**
+	 * Flushes all queued messages and stops the background thread
+	 * Messages logged afterwards are written synchronously
+	 */
+	public synchronized void shutdown()
+	{
+		if (queue == null || stopped)
+			return;
+
+		stopped = true;
+		flush();
+
+		writer.interrupt();
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException ex) {
+			// the JVM is already shutting down
+		}
+
+		// messages queued while the writer was stopping
+		writeQueued();
+	}
+
+	@Override
+	protected boolean isEnabled(Channel channel)
+	{
+		switch (channel)
+		{
+		case TRACE:
+			return pipeline.isTraceEnabled();
+		case ERROR:
+			return pipeline.isErrorEnabled();
+		case WARN:
+			return pipeline.isWarnEnabled();
+		case INFO:
+		default:
+			return pipeline.isInfoEnabled();
+		}
+	}
+
+	@Override
+	protected void print(Channel channel, String message)
+	{
+		if (!isEnabled(channel))
+			return;
+
+		StringBuilder builder = new StringBuilder(message.length() + 64);
+		for (int i = 0; i < indentLevel; i++)
+			builder.append("\t");
+
+		if (queue != null)
+			builder.append("[").append(Thread.currentThread().getName()).append("] ");
+		if (captureCaller)
+			builder.append(prettyPrintCaller()).append(" ");
+		builder.append(message);
+
+		if (queue == null || stopped)
+		{
+			write(channel, builder.toString());
+			return;
+		}
+
+		LogRecord record = new LogRecord(channel, builder.toString());
+		pending.incrementAndGet();
+		try {
+			// block when the writer falls behind rather than dropping messages
+			queue.put(record);
+		} catch (InterruptedException ex) {
+			pending.decrementAndGet();
+			Thread.currentThread().interrupt();
+			write(channel, record.message);
+		}
+	}
+
 	@Override
-	public void error(Throwable ex, String message) 
+	public void error(Throwable ex, String message)
 	{
+		if (!isEnabled(Channel.ERROR))
+			return;
+
 		StringWriter sw = new StringWriter();
 		ex.printStackTrace(new PrintWriter(sw));
-		error(message);
-		error("Stacktrace: " + sw.toString());
+		print(Channel.ERROR, message);
+		print(Channel.ERROR, "Stacktrace: " + sw.toString());
 	}
 }
@@ -0,0 +1,357 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Thread-safe registry of the server's operational metrics
+ * Every stage of the pipeline has a latency histogram (whose sample count doubles as its throughput counter) and an error counter.
+ * Gauges and counters of queue depths, pool occupancy, etc. are sampled when the metrics are exported, either in the
+ * Prometheus text format or over JMX
+ *
+ * @author shadeMe
+ */
+public final class ServerMetrics implements ServerMetricsMXBean
+{
+	public enum Stage
+	{
+		WEB_SEARCH("web_search"),
+		FETCH("fetch"),								// until the response headers are received
+		TEXT_EXTRACTION("text_extraction"),			// includes reading the response body
+		PARSER_WAIT("parser_wait"),
+		PARSE("parse"),								// annotation + construction detection
+		ANNOTATE("annotate"),
+		CONSTRUCTION_DETECTION("construction_detection"),
+		KEYWORD_SEARCH("keyword_search"),
+		RANKABLE_DOCUMENT("rankable_document"),
+		;
+
+		private final String	id;
+
+		Stage(String id) {
+			this.id = id;
+		}
+
+		public String getId() {
+			return id;
+		}
+	}
+
+	private static final class Family
+	{
+		final String					type;
+		final String					help;
+		final Map<String, LongSupplier>	samplers;		// keyed by the formatted labels
+
+		Family(String type, String help)
+		{
+			this.type = type;
+			this.help = help;
+			this.samplers = new LinkedHashMap<>();
+		}
+	}
+
+	public static final String			OBJECT_NAME = "com.flair.server:type=ServerMetrics";
+
+	private static final ServerMetrics	SINGLETON = new ServerMetrics();
+
+	public static ServerMetrics get() {
+		return SINGLETON;
+	}
+
+	private final EnumMap<Stage, LatencyHistogram>	latencies;
+	private final EnumMap<Stage, AtomicLong>		errors;
+	private final ThreadLocal<long[]>				threadTotals;		// nanoseconds recorded by the current thread, per stage
+	private final Map<String, Family>				families;
+
+	private ServerMetrics()
+	{
+		this.latencies = new EnumMap<>(Stage.class);
+		this.errors = new EnumMap<>(Stage.class);
+		for (Stage itr : Stage.values())
+		{
+			latencies.put(itr, new LatencyHistogram());
+			errors.put(itr, new AtomicLong(0));
+		}
+
+		this.threadTotals = ThreadLocal.withInitial(() -> new long[Stage.values().length]);
+		this.families = new TreeMap<>();
+	}
+
+	public void record(Stage stage, long nanos)
+	{
+		latencies.get(stage).record(nanos);
+		threadTotals.get()[stage.ordinal()] += nanos;
+	}
+
+	public void recordSince(Stage stage, long startNanos) {
+		record(stage, System.nanoTime() - startNanos);
+	}
+
+	public void recordError(Stage stage) {
+		errors.get(stage).incrementAndGet();
+	}
+
+	public LatencyHistogram getLatency(Stage stage) {
+		return latencies.get(stage);
+	}
+
+	public long getErrorCount(Stage stage) {
+		return errors.get(stage).get();
+	}
+
+	/**
+	 * Returns the total duration of the stage recorded by the calling thread so far
+	 * Used to separate the time spent in a nested stage from that of the enclosing stage
+	 */
+	public long getThreadTotalNanos(Stage stage) {
+		return threadTotals.get()[stage.ordinal()];
+	}
+
+	private static String formatLabels(String... labels)
+	{
+		if (labels.length % 2 != 0)
+			throw new IllegalArgumentException("Labels must be name-value pairs");
+		else if (labels.length == 0)
+			return "";
+
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < labels.length; i += 2)
+		{
+			if (i > 0)
+				sb.append(",");
+
+			sb.append(labels[i]).append("=\"")
+			  .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+			  .append("\"");
+		}
+
+		return sb.append("}").toString();
+	}
+
+	private synchronized void register(String type, String name, String help, LongSupplier value, String... labels)
+	{
+		Family family = families.get(name);
+		if (family == null)
+		{
+			family = new Family(type, help);
+			families.put(name, family);
+		}
+		else if (family.type.equals(type) == false)
+			throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+
+		// replaces the existing sampler, if any
+		family.samplers.put(formatLabels(labels), value);
+	}
+
+	/**
+	 * Registers a value that can go up and down, e.g., a queue's depth
+	 * @param labels Label name-value pairs
+	 */
+	public void registerGauge(String name, String help, LongSupplier value, String... labels) {
+		register("gauge", name, help, value, labels);
+	}
+
+	/**
+	 * Registers a value that only increases, e.g., the number of cache hits
+	 * @param labels Label name-value pairs
+	 */
+	public void registerCounter(String name, String help, LongSupplier value, String... labels) {
+		register("counter", name, help, value, labels);
+	}
+
+	public synchronized void unregister(String name, String... labels)
+	{
+		Family family = families.get(name);
+		if (family == null)
+			return;
+
+		family.samplers.remove(formatLabels(labels));
+		if (family.samplers.isEmpty())
+			families.remove(name);
+	}
+
+	// samplers are invoked outside the lock as they can acquire the locks of the objects they sample
+	private synchronized Map<String, Family> snapshotFamilies()
+	{
+		Map<String, Family> out = new TreeMap<>();
+		for (Map.Entry<String, Family> itr : families.entrySet())
+		{
+			Family copy = new Family(itr.getValue().type, itr.getValue().help);
+			copy.samplers.putAll(itr.getValue().samplers);
+			out.put(itr.getKey(), copy);
+		}
+
+		return out;
+	}
+
+	private static long sample(LongSupplier sampler)
+	{
+		try
+		{
+			return sampler.getAsLong();
+		} catch (Throwable ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't sample metric. Exception: " + ex.toString());
+			return 0;
+		}
+	}
+
+	private static String formatSeconds(double seconds)
+	{
+		// the decimal separator must not depend on the default locale
+		return String.format(Locale.ROOT, "%.6f", seconds);
+	}
+
+	/**
+	 * Returns the metrics in the Prometheus text exposition format (version 0.0.4)
+	 */
+	public String toPrometheusText()
+	{
+		StringBuilder sb = new StringBuilder();
+		long[] bounds = LatencyHistogram.getBucketBounds();
+
+		sb.append("# HELP flair_stage_duration_seconds Duration of each pipeline stage\n");
+		sb.append("# TYPE flair_stage_duration_seconds histogram\n");
+		for (Stage stage : Stage.values())
+		{
+			LatencyHistogram histogram = latencies.get(stage);
+			long[] counts = histogram.getBucketCounts();
+			long cumulative = 0;
+			for (int i = 0; i < counts.length; i++)
+			{
+				cumulative += counts[i];
+				String bound = i < bounds.length ? formatSeconds(bounds[i] / 1000.0) : "+Inf";
+				sb.append("flair_stage_duration_seconds_bucket")
+				  .append(formatLabels("stage", stage.getId(), "le", bound))
+				  .append(" ").append(cumulative).append("\n");
+			}
+
+			// the count is derived from the buckets to keep the snapshot consistent
+			String labels = formatLabels("stage", stage.getId());
+			sb.append("flair_stage_duration_seconds_sum").append(labels).append(" ")
+			  .append(formatSeconds(histogram.getTotal(TimeUnit.MICROSECONDS) / 1000000.0)).append("\n");
+			sb.append("flair_stage_duration_seconds_count").append(labels).append(" ").append(cumulative).append("\n");
+		}
+
+		sb.append("# HELP flair_stage_errors_total Number of failed executions of each pipeline stage\n");
+		sb.append("# TYPE flair_stage_errors_total counter\n");
+		for (Stage stage : Stage.values())
+		{
+			sb.append("flair_stage_errors_total").append(formatLabels("stage", stage.getId()))
+			  .append(" ").append(errors.get(stage).get()).append("\n");
+		}
+
+		for (Map.Entry<String, Family> family : snapshotFamilies().entrySet())
+		{
+			sb.append("# HELP ").append(family.getKey()).append(" ").append(family.getValue().help).append("\n");
+			sb.append("# TYPE ").append(family.getKey()).append(" ").append(family.getValue().type).append("\n");
+			for (Map.Entry<String, LongSupplier> itr : family.getValue().samplers.entrySet())
+			{
+				sb.append(family.getKey()).append(itr.getKey())
+				  .append(" ").append(sample(itr.getValue())).append("\n");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	@Override
+	public Map<String, Long> getStageCounts()
+	{
+		Map<String, Long> out = new LinkedHashMap<>();
+		for (Stage itr : Stage.values())
+			out.put(itr.getId(), latencies.get(itr).getCount());
+
+		return out;
+	}
+
+	@Override
+	public Map<String, Long> getStageErrorCounts()
+	{
+		Map<String, Long> out = new LinkedHashMap<>();
+		for (Stage itr : Stage.values())
+			out.put(itr.getId(), errors.get(itr).get());
+
+		return out;
+	}
+
+	@Override
+	public Map<String, Double> getStageMeanMillis()
+	{
+		Map<String, Double> out = new LinkedHashMap<>();
+		for (Stage itr : Stage.values())
+			out.put(itr.getId(), latencies.get(itr).getMeanMillis());
+
+		return out;
+	}
+
+	@Override
+	public Map<String, Long> getStageMaxMillis()
+	{
+		Map<String, Long> out = new LinkedHashMap<>();
+		for (Stage itr : Stage.values())
+			out.put(itr.getId(), latencies.get(itr).getMax(TimeUnit.MILLISECONDS));
+
+		return out;
+	}
+
+	@Override
+	public Map<String, Long> getGauges()
+	{
+		Map<String, Long> out = new LinkedHashMap<>();
+		for (Map.Entry<String, Family> family : snapshotFamilies().entrySet())
+		{
+			for (Map.Entry<String, LongSupplier> itr : family.getValue().samplers.entrySet())
+				out.put(family.getKey() + itr.getKey(), sample(itr.getValue()));
+		}
+
+		return out;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server
+	 */
+	public static void registerMBean()
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+
+			server.registerMBean(SINGLETON, name);
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Couldn't register metrics MBean. Exception: " + ex.toString());
+		}
+	}
+
+	public static void unregisterMBean()
+	{
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+		} catch (Throwable ex) {
+			ServerLogger.get().error(ex, "Couldn't unregister metrics MBean. Exception: " + ex.toString());
+		}
+	}
+}
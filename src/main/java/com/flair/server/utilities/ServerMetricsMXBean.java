@@ -0,0 +1,23 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.utilities;
+
+import java.util.Map;
+
+/**
+ * JMX view of the server metrics
+ * Stage metrics are keyed by the stage's name, gauges and counters by their Prometheus name and labels
+ *
+ * @author shadeMe
+ */
+public interface ServerMetricsMXBean
+{
+	Map<String, Long>	getStageCounts();
+	Map<String, Long>	getStageErrorCounts();
+	Map<String, Double>	getStageMeanMillis();
+	Map<String, Long>	getStageMaxMillis();
+	Map<String, Long>	getGauges();
+}
@@ -3,51 +3,33 @@
  */
 package com.flair.server.utilities;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * A basic implementation of a blocking object pool
- * 
+ * Free resources are kept in a queue, so both lending and reclaiming are constant-time
+ * Pools can either be fixed-size or elastic, in which case resources are created on demand and evicted when idle
+ *
  * @author shadeMe
  */
 public class SimpleObjectPool<T>
 {
-	private final class ResourceUsageData
-	{
-		private boolean inUse;
-
-		public ResourceUsageData() {
-			this.inUse = false;
-		}
-
-		public boolean isFree() {
-			return inUse == false;
-		}
-
-		public void acquire()
-		{
-			if (inUse)
-				throw new IllegalStateException("Resource is already in use");
-
-			inUse = true;
-		}
-
-		public void release()
-		{
-			if (inUse == false)
-				throw new IllegalStateException("Resource is not in use");
-
-			inUse = false;
-		}
-	}
-
 	private final class AcquiredResource implements SimpleObjectPoolResource<T>
 	{
-		private final T	resource;
-		private boolean	valid;
+		private static final int	IN_USE = 0;
+		private static final int	RELEASED = 1;
+		private static final int	DISCARDED = 2;
+
+		private final T				resource;
+		private final AtomicInteger	state;
 
 		public AcquiredResource(T resource)
 		{
@@ -55,13 +37,13 @@ public class SimpleObjectPool<T>
 				throw new IllegalArgumentException("Invalid resource object");
 
 			this.resource = resource;
-			this.valid = true;
+			this.state = new AtomicInteger(IN_USE);
 		}
 
 		@Override
 		public T get()
 		{
-			if (valid == false)
+			if (state.get() == RELEASED)
 				throw new IllegalStateException("Resource already released");
 
 			return resource;
@@ -70,48 +52,135 @@ public class SimpleObjectPool<T>
 		@Override
 		public void close() throws Exception
 		{
-			put(resource);
-			valid = false;
+			if (state.compareAndSet(IN_USE, RELEASED))
+				put(resource);
+			else if (state.get() != DISCARDED)
+				throw new IllegalStateException("Resource is not in use");
 		}
 
+		@Override
+		public boolean discard()
+		{
+			if (factory == null)
+				throw new IllegalStateException("Fixed-size pools cannot discard resources");
+			else if (state.compareAndSet(IN_USE, DISCARDED) == false)
+				return false;
+
+			remove(resource);
+			return true;
+		}
 	}
 
-	private final Semaphore					synchronizer;
-	private final Map<T, ResourceUsageData>	resourceTable;
+	private static final class IdleResource<T>
+	{
+		final T		resource;
+		final long	idleSince;
 
-	public SimpleObjectPool(int poolSize, T[] resources)
+		IdleResource(T resource)
+		{
+			this.resource = resource;
+			this.idleSince = System.nanoTime();
+		}
+	}
+
+	private final int								poolSize;
+	private final Supplier<T>						factory;			// null for fixed-size pools
+	private final Semaphore							synchronizer;
+	private final Set<T>							members;
+	private final LinkedBlockingDeque<IdleResource<T>>	freeList;			// most recently used first
+	private final AtomicInteger						numInUse;
+	private final AtomicInteger						numWaiting;
+	private final AtomicLong						numEvictions;
+	private final AtomicLong						numDiscards;
+	private final LatencyHistogram					acquireLatency;
+
+	private SimpleObjectPool(int poolSize, Supplier<T> factory, T[] resources)
 	{
+		this.poolSize = poolSize;
+		this.factory = factory;
 		this.synchronizer = new Semaphore(poolSize, true);
-		this.resourceTable = new HashMap<>();
+		this.members = ConcurrentHashMap.newKeySet();
+		this.freeList = new LinkedBlockingDeque<>();
+		this.numInUse = new AtomicInteger(0);
+		this.numWaiting = new AtomicInteger(0);
+		this.numEvictions = new AtomicLong(0);
+		this.numDiscards = new AtomicLong(0);
+		this.acquireLatency = new LatencyHistogram();
 
-		if (resources.length != poolSize)
+		if (resources == null)
+			return;
+		else if (resources.length != poolSize)
 			throw new IllegalArgumentException("Initial resource count not equal to pool size. Expected " + poolSize
 					+ ", received " + resources.length);
 
 		for (int i = 0; i < poolSize; i++)
-			resourceTable.put(resources[i], new ResourceUsageData());
+		{
+			if (members.add(resources[i]) == false)
+				throw new IllegalArgumentException("Duplicate resource in pool");
+
+			freeList.addLast(new IdleResource<>(resources[i]));
+		}
+	}
+
+	/**
+	 * Creates a fixed-size pool
+	 * @param poolSize Number of resources in the pool
+	 * @param resources Initial resources
+	 */
+	public SimpleObjectPool(int poolSize, T[] resources)
+	{
+		this(poolSize, null, resources);
 	}
 
-	private synchronized T lend()
+	/**
+	 * Creates an elastic pool that starts out empty and grows on demand
+	 * @param maxSize Maximum number of resources in the pool
+	 * @param factory Creates new resources when no idle resources are available. Can return null to make the caller wait
+	 * for a resource to be returned to the pool, provided that the pool isn't empty
+	 */
+	public SimpleObjectPool(int maxSize, Supplier<T> factory)
 	{
-		for (Entry<T, ResourceUsageData> itr : resourceTable.entrySet())
+		this(maxSize, factory, null);
+
+		if (maxSize < 1)
+			throw new IllegalArgumentException("Invalid pool size " + maxSize);
+		else if (factory == null)
+			throw new IllegalArgumentException("Invalid resource factory");
+	}
+
+	private T lend() throws InterruptedException
+	{
+		IdleResource<T> idle = freeList.pollFirst();
+		if (idle == null && factory != null)
 		{
-			if (itr.getValue().isFree())
+			T created = factory.get();
+			if (created != null)
 			{
-				itr.getValue().acquire();
-				return itr.getKey();
+				if (members.add(created) == false)
+					throw new IllegalStateException("Resource factory returned a pooled resource");
+
+				numInUse.incrementAndGet();
+				return created;
 			}
+			else if (members.isEmpty())
+				throw new IllegalStateException("Resource factory failed to create the pool's first resource");
 		}
 
-		return null;
+		// a permit guarantees that a resource will eventually be available
+		if (idle == null)
+			idle = freeList.takeFirst();
+
+		numInUse.incrementAndGet();
+		return idle.resource;
 	}
 
-	private synchronized void reclaim(T resource)
+	private void reclaim(T resource)
 	{
-		if (resourceTable.containsKey(resource) == false)
+		if (members.contains(resource) == false)
 			throw new IllegalArgumentException("Resource does not belong to the pool");
 
-		resourceTable.get(resource).release();
+		numInUse.decrementAndGet();
+		freeList.addFirst(new IdleResource<>(resource));
 	}
 
 	private void put(T resource) {
@@ -119,9 +188,145 @@ public class SimpleObjectPool<T>
 		synchronizer.release();
 	}
 
+	private void remove(T resource)
+	{
+		if (members.remove(resource) == false)
+			throw new IllegalArgumentException("Resource does not belong to the pool");
+
+		numInUse.decrementAndGet();
+		numDiscards.incrementAndGet();
+		synchronizer.release();
+	}
+
 	public final SimpleObjectPoolResource<T> get() throws InterruptedException
 	{
-		synchronizer.acquire();
-		return new AcquiredResource(lend());
+		long start = System.nanoTime();
+		numWaiting.incrementAndGet();
+		try
+		{
+			synchronizer.acquire();
+		} finally
+		{
+			numWaiting.decrementAndGet();
+		}
+
+		try
+		{
+			AcquiredResource acquired = new AcquiredResource(lend());
+			acquireLatency.recordSince(start);
+			return acquired;
+		} catch (Throwable ex)
+		{
+			synchronizer.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Removes resources that have been idle for longer than the given duration, least recently used first
+	 * @param maxIdleTime Idle duration after which resources are evicted
+	 * @param unit Unit of the duration
+	 * @param minSize Number of resources that are retained regardless of their idle time
+	 * @param disposer Invoked for each evicted resource, can be null
+	 * @return Number of evicted resources
+	 */
+	public final int evictIdle(long maxIdleTime, TimeUnit unit, int minSize, Consumer<T> disposer)
+	{
+		if (factory == null)
+			throw new IllegalStateException("Fixed-size pools cannot be shrunk");
+
+		int evicted = 0;
+		long maxIdleNanos = unit.toNanos(maxIdleTime);
+		while (members.size() > minSize)
+		{
+			IdleResource<T> oldest = freeList.peekLast();
+			if (oldest == null || System.nanoTime() - oldest.idleSince < maxIdleNanos)
+				break;
+			else if (freeList.removeLastOccurrence(oldest) == false)
+				continue;		// lent out in the meantime
+
+			members.remove(oldest.resource);
+			numEvictions.incrementAndGet();
+			evicted++;
+
+			if (disposer != null)
+				disposer.accept(oldest.resource);
+		}
+
+		return evicted;
+	}
+
+	/**
+	 * Creates an idle resource ahead of time, unless there already is one or the pool is full
+	 * @return True if a resource was added
+	 */
+	public final boolean grow()
+	{
+		if (factory == null)
+			throw new IllegalStateException("Fixed-size pools cannot grow");
+		else if (synchronizer.tryAcquire() == false)
+			return false;
+
+		// equivalent to lending a new resource and returning it right away
+		try
+		{
+			if (freeList.isEmpty() == false)
+				return false;
+
+			T created = factory.get();
+			if (created == null)
+				return false;
+			else if (members.add(created) == false)
+				throw new IllegalStateException("Resource factory returned a pooled resource");
+
+			freeList.addFirst(new IdleResource<>(created));
+			return true;
+		} finally
+		{
+			synchronizer.release();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of resources in the pool
+	 */
+	public final int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Returns the number of resources currently owned by the pool, both idle and in use
+	 */
+	public final int getSize() {
+		return members.size();
+	}
+
+	public final long getEvictionCount() {
+		return numEvictions.get();
+	}
+
+	public final long getDiscardCount() {
+		return numDiscards.get();
+	}
+
+	public final int getInUseCount() {
+		return numInUse.get();
+	}
+
+	public final int getWaitingCount() {
+		return numWaiting.get();
+	}
+
+	/**
+	 * Returns the distribution of the time spent by callers in get()
+	 */
+	public final LatencyHistogram getAcquireLatency() {
+		return acquireLatency;
+	}
+
+	@Override
+	public String toString() {
+		return "SimpleObjectPool[size=" + getSize() + "/" + poolSize + ", inUse=" + getInUseCount() + ", waiting=" + getWaitingCount()
+				+ ", evictions=" + getEvictionCount() + ", discards=" + getDiscardCount() + ", acquireLatency={" + acquireLatency + "}]";
 	}
 }
@@ -10,4 +10,10 @@ package com.flair.server.utilities;
 public interface SimpleObjectPoolResource<T extends Object> extends AutoCloseable
 {
     public T		get();
+    /**
+     * Removes the resource from its pool instead of returning it, e.g., if it's stuck in an unusable state
+     * The resource's slot is freed right away. Closing the resource afterwards is a no-op
+     * @return False if the resource had already been returned to the pool
+     */
+    public boolean	discard();
 }
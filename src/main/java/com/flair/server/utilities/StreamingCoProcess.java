@@ -0,0 +1,167 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.utilities;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived external process that handles one request at a time over its standard streams
+ * Every request is followed by a terminator that makes the process flush its output. The response ends at the line that echoes it.
+ * A process that times out, exits or is interrupted mid-request is killed, after which it's no longer healthy
+ *
+ * @author shadeMe
+ */
+public final class StreamingCoProcess
+{
+	/**
+	 * Thrown when a response doesn't arrive in time
+	 */
+	public static final class TimeoutException extends IOException
+	{
+		public TimeoutException(String message) {
+			super(message);
+		}
+	}
+
+	private static final String		END_OF_STREAM = new String("<EOF>");		// compared by reference
+
+	private final String							name;
+	private final String							terminator;
+	private final String							responseEnd;
+	private final Process							process;
+	private final BufferedWriter					input;
+	private final LinkedBlockingQueue<String>		output;
+	private volatile boolean						healthy;
+
+	/**
+	 * Starts the process
+	 * @param name Used in log messages and thread names
+	 * @param terminator Appended to every request on a line of its own
+	 * @param responseEnd Output line that marks the end of a response
+	 * @param command Executable and its arguments
+	 */
+	public StreamingCoProcess(String name, String terminator, String responseEnd, String... command) throws IOException
+	{
+		this.name = name;
+		this.terminator = terminator;
+		this.responseEnd = responseEnd;
+		this.process = new ProcessBuilder(command).start();
+		this.input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+		this.output = new LinkedBlockingQueue<>();
+		this.healthy = true;
+
+		startDaemon(name + "-stdout", () -> readOutput(process.getInputStream()));
+		startDaemon(name + "-stderr", () -> logErrors(process.getErrorStream()));
+	}
+
+	private static void startDaemon(String name, Runnable task)
+	{
+		Thread thread = new Thread(task, "FLAIR-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void readOutput(InputStream stream)
+	{
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+				output.add(line);
+		} catch (IOException ex) {
+			// the process was killed
+		} finally {
+			output.add(END_OF_STREAM);
+		}
+	}
+
+	private void logErrors(InputStream stream)
+	{
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.isEmpty() == false)
+					ServerLogger.get().error(name + " error: " + line);
+			}
+		} catch (IOException ex) {
+			// the process was killed
+		}
+	}
+
+	/**
+	 * Returns true if the process is running and in sync with its requests
+	 */
+	public boolean isHealthy() {
+		return healthy && process.isAlive();
+	}
+
+	/**
+	 * Sends a request and waits for its response
+	 * @param request Input data. A trailing newline is added if missing
+	 * @param timeoutMs Time allotted to the response
+	 * @return Output lines, each terminated by a newline
+	 * @throws IOException If the process has exited, or a TimeoutException if it didn't respond in time. The process is killed in either case
+	 */
+	public String process(String request, long timeoutMs) throws IOException
+	{
+		if (isHealthy() == false)
+			throw new IOException(name + " is not running");
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		try
+		{
+			input.write(request);
+			if (request.isEmpty() == false && request.charAt(request.length() - 1) != '\n')
+				input.write('\n');
+			input.write(terminator);
+			input.write('\n');
+			input.flush();
+
+			StringBuilder response = new StringBuilder();
+			while (true)
+			{
+				String line = output.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (line == null)
+					throw new TimeoutException(name + " timed out after " + timeoutMs + " milliseconds");
+				else if (line == END_OF_STREAM)
+					throw new IOException(name + " exited unexpectedly");
+				else if (line.equals(responseEnd))
+					break;
+
+				response.append(line).append('\n');
+			}
+
+			return response.toString();
+		} catch (IOException ex) {
+			kill();
+			throw ex;
+		} catch (InterruptedException ex) {
+			// the rest of the response is still pending, so the process can't be reused
+			kill();
+			Thread.currentThread().interrupt();
+			throw new IOException(name + " was interrupted", ex);
+		}
+	}
+
+	public void kill()
+	{
+		healthy = false;
+		process.destroyForcibly();
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingCoProcess[" + name + ", healthy=" + isHealthy() + "]";
+	}
+}
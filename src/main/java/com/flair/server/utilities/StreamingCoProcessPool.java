@@ -0,0 +1,234 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License. To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+ */
+package com.flair.server.utilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Elastic pool of streaming co-processes for a single external tool
+ * Processes are started on demand and reused across requests. Dead or stuck processes are discarded and replaced by the next request.
+ * Requests that fail are handed to a fallback. If the tool keeps failing, streaming is suspended and every request goes to the fallback
+ * until a backoff period has passed, after which the next request tries to start a co-process again
+ *
+ * @author shadeMe
+ */
+public final class StreamingCoProcessPool
+{
+	public interface Launcher {
+		public StreamingCoProcess launch() throws IOException;
+	}
+
+	public interface Fallback {
+		public String run(String request) throws IOException;
+	}
+
+	private static final int		MAX_CONSECUTIVE_FAILURES = 3;
+	private static final long		DEFAULT_MIN_BACKOFF_MS = 5 * 1000;
+	private static final long		DEFAULT_MAX_BACKOFF_MS = 10 * 60 * 1000;
+	private static final int		LARGE_REQUEST_LENGTH = 256 * 1024;		// timeouts of larger requests don't count as failures
+
+	private final String								name;
+	private final Launcher								launcher;
+	private final SimpleObjectPool<StreamingCoProcess>	pool;
+	private final AtomicInteger							consecutiveFailures;
+	private final long									minBackoffMs;
+	private final long									maxBackoffMs;
+	private long										backoffMs;			// guarded by this
+	private volatile long								suspendedUntil;		// System.nanoTime(), 0 if not suspended
+	private volatile boolean							shutDown;
+
+	/**
+	 * @param name Name of the tool
+	 * @param maxSize Maximum number of co-processes
+	 * @param launcher Starts new co-processes
+	 * @param minBackoffMs Duration of the first suspension after repeated failures, doubled with each subsequent one
+	 * @param maxBackoffMs Upper bound of the suspension
+	 */
+	public StreamingCoProcessPool(String name, int maxSize, Launcher launcher, long minBackoffMs, long maxBackoffMs)
+	{
+		if (minBackoffMs < 0 || maxBackoffMs < minBackoffMs)
+			throw new IllegalArgumentException("Invalid backoff " + minBackoffMs + "-" + maxBackoffMs);
+
+		this.name = name;
+		this.launcher = launcher;
+		this.pool = new SimpleObjectPool<>(maxSize, this::launch);
+		this.consecutiveFailures = new AtomicInteger(0);
+		this.minBackoffMs = minBackoffMs;
+		this.maxBackoffMs = maxBackoffMs;
+		this.backoffMs = minBackoffMs;
+		this.suspendedUntil = 0;
+		this.shutDown = false;
+	}
+
+	public StreamingCoProcessPool(String name, int maxSize, Launcher launcher) {
+		this(name, maxSize, launcher, DEFAULT_MIN_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+	}
+
+	private StreamingCoProcess launch()
+	{
+		try
+		{
+			StreamingCoProcess process = launcher.launch();
+			ServerLogger.get().info("Started a " + name + " co-process (" + (pool.getSize() + 1) + "/" + pool.getPoolSize() + ")");
+			return process;
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void recordFailure(Exception ex, String request)
+	{
+		if (ex instanceof UncheckedIOException)
+			ex = ((UncheckedIOException)ex).getCause();
+
+		if (ex instanceof StreamingCoProcess.TimeoutException && request.length() > LARGE_REQUEST_LENGTH)
+		{
+			// the tool is most likely just slow with this much input
+			ServerLogger.get().warn(name + " co-process failed on a request of " + request.length() + " characters: " + ex.getMessage());
+			return;
+		}
+
+		ServerLogger.get().warn(name + " co-process failed: " + ex.getMessage());
+		if (consecutiveFailures.incrementAndGet() < MAX_CONSECUTIVE_FAILURES)
+			return;
+
+		synchronized (this)
+		{
+			if (isSuspended())
+				return;		// concurrent failures of the same streak
+
+			suspendedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+			ServerLogger.get().warn("Suspended " + name + " co-processes for " + backoffMs + " milliseconds after "
+									+ consecutiveFailures.get() + " consecutive failures, falling back to one process per request");
+			backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+		}
+	}
+
+	private void recordSuccess()
+	{
+		if (consecutiveFailures.getAndSet(0) < MAX_CONSECUTIVE_FAILURES)
+			return;
+
+		synchronized (this)
+		{
+			backoffMs = minBackoffMs;
+			ServerLogger.get().info("Resumed " + name + " co-processes");
+		}
+	}
+
+	private SimpleObjectPoolResource<StreamingCoProcess> acquire() throws Exception
+	{
+		// health check, processes might have exited while they were idle
+		for (int i = 0; i <= pool.getPoolSize(); i++)
+		{
+			SimpleObjectPoolResource<StreamingCoProcess> process = pool.get();
+			if (process.get().isHealthy())
+				return process;
+
+			process.discard();
+			ServerLogger.get().warn("Discarded a dead " + name + " co-process");
+		}
+
+		throw new IOException(name + " keeps exiting right after it starts");
+	}
+
+	// returns null if the co-process failed
+	private String tryProcess(String request, long timeoutMs) throws InterruptedException
+	{
+		try (SimpleObjectPoolResource<StreamingCoProcess> process = acquire())
+		{
+			try
+			{
+				String response = process.get().process(request, timeoutMs);
+				recordSuccess();
+				return response;
+			} catch (IOException ex) {
+				process.discard();
+				throw ex;
+			} finally {
+				// processes that were busy during shutdown
+				if (shutDown && process.discard())
+					process.get().kill();
+			}
+		} catch (InterruptedException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			if (Thread.currentThread().isInterrupted())
+				throw new InterruptedException(ex.getMessage());
+
+			recordFailure(ex, request);
+			return null;
+		}
+	}
+
+	/**
+	 * Processes a request with a pooled co-process, or the fallback if that fails
+	 * @param request Input data
+	 * @param timeoutMs Time allotted to the co-process' response
+	 * @param fallback Processes the request if the co-process can't
+	 */
+	public String process(String request, long timeoutMs, Fallback fallback) throws IOException
+	{
+		if (shutDown == false && isSuspended() == false)
+		{
+			try
+			{
+				String response = tryProcess(request, timeoutMs);
+				if (response != null)
+					return response;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException(name + " was interrupted", ex);
+			}
+		}
+
+		return fallback.run(request);
+	}
+
+	/**
+	 * Returns a timeout that grows with the number of lines in the request
+	 */
+	public static long scaleTimeout(String request, long baseTimeoutMs, long perLineTimeoutMs)
+	{
+		int lines = 0;
+		for (int i = 0; i < request.length(); i++)
+		{
+			if (request.charAt(i) == '\n')
+				lines++;
+		}
+
+		return baseTimeoutMs + lines * perLineTimeoutMs;
+	}
+
+	/**
+	 * Stops all co-processes. Subsequent requests are handed to the fallback
+	 */
+	public void shutdown()
+	{
+		shutDown = true;
+		int stopped = pool.evictIdle(0, TimeUnit.MILLISECONDS, 0, StreamingCoProcess::kill);
+		ServerLogger.get().info("Stopped " + stopped + " " + name + " co-process(es)");
+	}
+
+	/**
+	 * Returns true if requests are currently handed to the fallback due to repeated failures
+	 */
+	public boolean isSuspended()
+	{
+		long until = suspendedUntil;
+		return until != 0 && System.nanoTime() - until < 0;
+	}
+
+	public int getSize() {
+		return pool.getSize();
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingCoProcessPool[" + name + ", suspended=" + isSuspended() + ", shutDown=" + shutDown + ", pool={" + pool + "}]";
+	}
+}
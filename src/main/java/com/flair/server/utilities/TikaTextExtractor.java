@@ -6,7 +6,6 @@ package com.flair.server.utilities;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URISyntaxException;
 
 import org.apache.tika.Tika;
 import org.apache.tika.io.TikaInputStream;
@@ -18,8 +17,6 @@ import org.apache.tika.sax.BodyContentHandler;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-import com.flair.shared.grammar.Language;
-
 /**
  * Apache Tika implementation of a text extractor
  * 
@@ -69,10 +66,10 @@ class TikaTextExtractor extends AbstractTextExtractor
 			new AutoDetectParser().parse(stream, handler, metadata, new ParseContext());
 			pageText = handler.toString();
 
-			// if the source is HTML, run it through boilerpipe to get the relevant text (only for URLs)
+			// if the source is HTML, run it through boilerpipe to get the relevant text (only for web resources)
 			// some HTML pages are detected as plain text by Tika, so allow plain text to count as HTML
 			isHtml = streamType == MediaType.TEXT_HTML || streamType == MediaType.TEXT_PLAIN;
-			if (isHtml && input.sourceType == Input.SourceType.URL)
+			if (isHtml && input.url != null)
 			{
 				// the boilerpipe pass can potentially fail/return an empty string
 				// if it does, fallback to the original extract
@@ -91,14 +88,19 @@ class TikaTextExtractor extends AbstractTextExtractor
 		return new Output(input, error == false, pageText, isHtml);
 	}
 
-	public static boolean isContentHTMLPlainText(String url, Language lang) throws IOException, URISyntaxException
+	/**
+	 * Detects if a stream's content is (X)HTML or plain text
+	 * Only reads a bounded prefix of the stream, which is reset to its original position afterwards
+	 * @param stream Stream to inspect, must support mark/reset
+	 * @param url Source of the stream, for logging
+	 */
+	public static boolean isContentHTMLPlainText(InputStream stream, String url) throws IOException
 	{
+		if (stream.markSupported() == false)
+			throw new IllegalArgumentException("Stream doesn't support mark/reset");
+
 		Tika pipeline = new Tika();
-		MediaType type;
-		try (TikaInputStream in = TikaInputStream.get(openURLStream(url, lang)))
-		{
-			type = pipeline.getDetector().detect(in, new Metadata());
-		}
+		MediaType type = pipeline.getDetector().detect(stream, new Metadata());
 
 		if (type == MediaType.TEXT_HTML || type == MediaType.TEXT_PLAIN || type == MediaType.APPLICATION_XML)
 			return true;
@@ -0,0 +1,517 @@
+/*
+ * This work is licensed under the Creative Commons Attribution-ShareAlike 4.0 International License.
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-sa/4.0/.
+
+ */
+package com.flair.server.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+
+/**
+ * Size-bounded on-disk cache of HTTP responses
+ * Fresh entries are served without touching the network, stale entries are revalidated with conditional requests
+ * using their validators (ETag/Last-Modified). Each entry is stored in a single file that holds its metadata followed by the body
+ *
+ * @author shadeMe
+ */
+public final class URLResponseCache
+{
+	private static final String		FILE_EXTENSION = ".http";
+	private static final int		FORMAT_VERSION = 1;
+
+	/**
+	 * Metadata of a cached response
+	 */
+	public static final class Entry
+	{
+		private final String	key;
+		private final String	url;
+		private final String	contentType;	// empty if unknown
+		private final String	etag;			// empty if unknown
+		private final String	lastModified;	// empty if unknown
+		private final long		fetchedAt;
+		private final long		expiresAt;
+
+		Entry(String key, String url, String contentType, String etag, String lastModified, long fetchedAt, long expiresAt)
+		{
+			this.key = key;
+			this.url = url;
+			this.contentType = contentType;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.fetchedAt = fetchedAt;
+			this.expiresAt = expiresAt;
+		}
+
+		public String getURL() {
+			return url;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public long getFetchedAt() {
+			return fetchedAt;
+		}
+
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		public boolean isFresh() {
+			return System.currentTimeMillis() < expiresAt;
+		}
+
+		public boolean hasValidators() {
+			return etag.isEmpty() == false || lastModified.isEmpty() == false;
+		}
+
+		private void write(DataOutputStream out) throws IOException
+		{
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(url);
+			out.writeUTF(contentType);
+			out.writeUTF(etag);
+			out.writeUTF(lastModified);
+			out.writeLong(fetchedAt);
+			out.writeLong(expiresAt);
+		}
+
+		private static Entry read(String key, DataInputStream in) throws IOException
+		{
+			int version = in.readInt();
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported entry format version " + version);
+
+			return new Entry(key, in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readLong(), in.readLong());
+		}
+	}
+
+	private final DiskLRUStore		store;
+	private final long				maxEntryBytes;
+	private final long				defaultTtl;			// in ms, for responses without explicit freshness information
+
+	private final AtomicLong		hits;
+	private final AtomicLong		revalidations;
+	private final AtomicLong		misses;
+	private final AtomicLong		stores;
+
+	/**
+	 * @param directory Directory that holds the entries
+	 * @param maxBytes Size of the cache
+	 * @param maxEntryBytes Bodies larger than this aren't cached
+	 * @param defaultTtl Freshness lifetime (in ms) of responses that don't specify one
+	 */
+	public URLResponseCache(Path directory, long maxBytes, long maxEntryBytes, long defaultTtl) throws IOException
+	{
+		this.store = new DiskLRUStore("URL response cache", directory, FILE_EXTENSION, maxBytes);
+		this.maxEntryBytes = maxEntryBytes;
+		this.defaultTtl = defaultTtl;
+		this.hits = new AtomicLong(0);
+		this.revalidations = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.stores = new AtomicLong(0);
+
+		ServerLogger.get().info("URL response cache directory: " + directory + " (" + store.getBytes() / (1024 * 1024) + " MB in use)");
+	}
+
+	static String getKey(String url, String acceptLanguage) {
+		return DiskLRUStore.hashKey(acceptLanguage + "\n" + url);
+	}
+
+	private static String getHeader(HttpResponse response, String name)
+	{
+		Header header = response.getFirstHeader(name);
+		return header != null && header.getValue() != null ? header.getValue().trim() : "";
+	}
+
+	/**
+	 * Returns the expiry time of the response, or a negative value if it mustn't be stored
+	 */
+	private long getExpiry(HttpResponse response, long now)
+	{
+		String cacheControl = getHeader(response, "Cache-Control").toLowerCase(Locale.ROOT);
+		for (String itr : cacheControl.split(","))
+		{
+			String directive = itr.trim();
+			if (directive.equals("no-store"))
+				return -1;
+			else if (directive.equals("no-cache"))
+				return now;
+			else if (directive.startsWith("max-age="))
+			{
+				try
+				{
+					return now + Math.max(0, Long.parseLong(directive.substring("max-age=".length()).trim())) * 1000;
+				} catch (NumberFormatException ex) {}
+			}
+		}
+
+		String expires = getHeader(response, "Expires");
+		if (expires.isEmpty() == false)
+		{
+			// invalid dates (such as "0") mean that the response has already expired
+			Date expiry = DateUtils.parseDate(expires);
+			Date date = DateUtils.parseDate(getHeader(response, "Date"));
+			if (expiry == null)
+				return now;
+			else if (date != null)
+				return now + Math.max(0, expiry.getTime() - date.getTime());
+			else
+				return Math.max(now, expiry.getTime());
+		}
+
+		return now + defaultTtl;
+	}
+
+	/**
+	 * Looks up the cached response of a URL
+	 * @param url Request URL
+	 * @param acceptLanguage Value of the request's Accept-Language header
+	 * @return The cached response's metadata, null if there's none
+	 */
+	public Entry lookup(String url, String acceptLanguage)
+	{
+		String key = getKey(url, acceptLanguage);
+		Path file = store.getPath(key);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			Entry entry = Entry.read(key, in);
+			if (entry.url.equals(url))
+				return entry;
+		} catch (NoSuchFileException ex)
+		{
+			return null;
+		} catch (IOException | RuntimeException ex)
+		{
+			ServerLogger.get().warn("Discarding unreadable URL response cache entry " + file + ". Exception: " + ex.toString());
+			store.delete(file);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Opens the body of a cached response. The returned stream must be closed by the caller
+	 * @return The body's stream, or null if the entry was evicted in the meantime
+	 */
+	public InputStream open(Entry entry)
+	{
+		Path file = store.getPath(entry.key);
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+			try
+			{
+				// the entry might have been replaced by a concurrent fetch in the meantime, which is just as good
+				Entry.read(entry.key, in);
+			} catch (IOException | RuntimeException ex)
+			{
+				in.close();
+				throw ex;
+			}
+
+			// keep recently used entries from being trimmed
+			store.touch(file);
+			hits.incrementAndGet();
+			return in;
+		} catch (IOException | RuntimeException ex)
+		{
+			if (ex instanceof NoSuchFileException == false)
+				ServerLogger.get().warn("Couldn't open URL response cache entry " + file + ". Exception: " + ex.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Updates a stale entry after its revalidation request returned 304 Not Modified
+	 * @return The updated entry
+	 */
+	public Entry revalidate(Entry entry, HttpResponse notModified)
+	{
+		long now = System.currentTimeMillis();
+		long expiry = getExpiry(notModified, now);
+		String etag = getHeader(notModified, "ETag");
+		String lastModified = getHeader(notModified, "Last-Modified");
+		Entry updated = new Entry(entry.key, entry.url, entry.contentType,
+								etag.isEmpty() ? entry.etag : etag,
+								lastModified.isEmpty() ? entry.lastModified : lastModified,
+								now, Math.max(now, expiry));
+		revalidations.incrementAndGet();
+
+		Path file = store.getPath(entry.key);
+		Path temp = store.getTempPath(entry.key);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+		{
+			Entry.read(entry.key, in);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+			{
+				updated.write(out);
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					out.write(buffer, 0, read);
+			}
+		} catch (IOException | RuntimeException ex)
+		{
+			ServerLogger.get().warn("Couldn't update URL response cache entry " + file + ". Exception: " + ex.toString());
+			store.discard(temp);
+			return entry;
+		}
+
+		try
+		{
+			store.commit(temp, file);
+		} catch (IOException ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't write URL response cache entry " + file + ". Exception: " + ex.toString());
+			store.discard(temp);
+		}
+
+		return updated;
+	}
+
+	/**
+	 * Wraps the body of a network response so that it's cached as it's read
+	 * The entry is only written once the body has been read to its end; bodies that are too large or responses that
+	 * mustn't be stored are passed through as-is
+	 * @param url Request URL
+	 * @param acceptLanguage Value of the request's Accept-Language header
+	 * @param response Response whose body is being read
+	 * @param body The response's body
+	 * @return Stream that must be read instead of the body
+	 */
+	public InputStream store(String url, String acceptLanguage, HttpResponse response, InputStream body)
+	{
+		misses.incrementAndGet();
+		if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK || response.getEntity() == null)
+			return body;
+
+		long now = System.currentTimeMillis();
+		long expiry = getExpiry(response, now);
+		if (expiry < 0)
+			return body;
+
+		long contentLength = response.getEntity().getContentLength();
+		if (contentLength > maxEntryBytes)
+			return body;
+
+		Header contentType = response.getEntity().getContentType();
+		String key = getKey(url, acceptLanguage);
+		Entry entry = new Entry(key, url,
+								contentType != null && contentType.getValue() != null ? contentType.getValue() : "",
+								getHeader(response, "ETag"), getHeader(response, "Last-Modified"),
+								now, expiry);
+
+		Path temp = store.getTempPath(key);
+		DataOutputStream out;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+			entry.write(out);
+		} catch (IOException ex)
+		{
+			ServerLogger.get().error(ex, "Couldn't create URL response cache entry for " + url + ". Exception: " + ex.toString());
+			return body;
+		}
+
+		return new TeeInputStream(body, out, temp, store.getPath(key));
+	}
+
+	/**
+	 * Copies the bytes that are read from a response body into a pending cache entry
+	 */
+	private final class TeeInputStream extends FilterInputStream
+	{
+		private final Path		temp;
+		private final Path		file;
+		private OutputStream	copy;		// null once the entry has been committed or abandoned
+		private long			copied;
+
+		TeeInputStream(InputStream in, OutputStream copy, Path temp, Path file)
+		{
+			super(in);
+			this.copy = copy;
+			this.temp = temp;
+			this.file = file;
+			this.copied = 0;
+		}
+
+		private void abandon()
+		{
+			if (copy == null)
+				return;
+
+			try
+			{
+				copy.close();
+			} catch (IOException ex) {}
+
+			store.discard(temp);
+			copy = null;
+		}
+
+		private void finish()
+		{
+			if (copy == null)
+				return;
+
+			try
+			{
+				copy.close();
+				copy = null;
+				store.commit(temp, file);
+				stores.incrementAndGet();
+			} catch (IOException ex)
+			{
+				ServerLogger.get().error(ex, "Couldn't write URL response cache entry " + file + ". Exception: " + ex.toString());
+				abandon();
+			}
+		}
+
+		private void append(byte[] b, int off, int len)
+		{
+			if (copy == null)
+				return;
+			else if (copied + len > maxEntryBytes)
+			{
+				abandon();
+				return;
+			}
+
+			try
+			{
+				copy.write(b, off, len);
+				copied += len;
+			} catch (IOException ex)
+			{
+				ServerLogger.get().error(ex, "Couldn't write URL response cache entry " + file + ". Exception: " + ex.toString());
+				abandon();
+			}
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b == -1)
+				finish();
+			else
+				append(new byte[] { (byte)b }, 0, 1);
+
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int read;
+			try
+			{
+				read = super.read(b, off, len);
+			} catch (IOException ex)
+			{
+				abandon();
+				throw ex;
+			}
+
+			if (read == -1)
+				finish();
+			else
+				append(b, off, read);
+
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			// skipped bytes can't be copied, so read them instead
+			byte[] buffer = new byte[(int)Math.min(Math.max(n, 0), 8192)];
+			long skipped = 0;
+			while (skipped < n)
+			{
+				int read = read(buffer, 0, (int)Math.min(buffer.length, n - skipped));
+				if (read == -1)
+					break;
+				skipped += read;
+			}
+
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			// partially read bodies aren't cached
+			abandon();
+			super.close();
+		}
+	}
+
+	/**
+	 * Returns the number of responses that were served from the cache, including revalidated ones
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getRevalidationCount() {
+		return revalidations.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getStoreCount() {
+		return stores.get();
+	}
+
+	public long getEvictionCount() {
+		return store.getEvictionCount();
+	}
+
+	public long getDiskBytes() {
+		return store.getBytes();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "URLResponseCache[" + getDiskBytes() / 1024 + " KB, hits=" + getHitCount() + ", revalidations=" + getRevalidationCount()
+				+ ", misses=" + getMissCount() + ", stores=" + getStoreCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+}
@@ -1,42 +1,46 @@
 package com.flair.server.utilities;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 
+import com.flair.server.taskmanager.Constants;
+
+/**
+ * Runs the Russian disambiguation grammar on CG readings
+ * Long-lived vislcg3 processes compile the grammar once and handle one request at a time, delimited with a flush stream command
+ */
 public class VislCg3 {
     //constants
     private static final String VISLCG3 = "vislcg3";
     private static final String DISAMBIGUATOR_RELATIVE = "disambiguator-ru.cg3";
     private static final File DISAMBIGUATOR_FILE = new File(VislCg3.class.getClassLoader().getResource(DISAMBIGUATOR_RELATIVE).getPath());
+    private static final int TIMEOUT_MS = 30*1000;
+    private static final int TIMEOUT_PER_LINE_MS = 5;
+    private static final String FLUSH_COMMAND = "<STREAMCMD:FLUSH>";
+    private static final StreamingCoProcessPool PROCESSES = new StreamingCoProcessPool(VISLCG3,
+            Constants.PARSER_THREADPOOL_SIZE,
+            () -> new StreamingCoProcess(VISLCG3, FLUSH_COMMAND, FLUSH_COMMAND, VISLCG3, "-g", DISAMBIGUATOR_FILE.getAbsolutePath()));
 
     //functions
 
     public static String runVislCg3(String cgReadings) throws IOException {
-        //set up arguments
-        ProcessBuilder pb = new ProcessBuilder(VISLCG3, "-g", DISAMBIGUATOR_FILE.getAbsolutePath());
-        Process process;
+        return PROCESSES.process(cgReadings, timeoutFor(cgReadings), VislCg3::runOnce);
+    }
+
+    // larger inputs get more time
+    private static long timeoutFor(String input) {
+        return StreamingCoProcessPool.scaleTimeout(input, TIMEOUT_MS, TIMEOUT_PER_LINE_MS);
+    }
+
+    // stops the pooled processes
+    public static void shutdown() {
+        PROCESSES.shutdown();
+    }
+
+    // starts a new process that compiles the grammar for a single request
+    private static String runOnce(String cgReadings) throws IOException {
         try {
-            //start the executable
-            process = pb.start();
-            //grab the streams
-            BufferedOutputStream grammarInput = new BufferedOutputStream(process.getOutputStream());
-            BufferedInputStream grammarOutput = new BufferedInputStream(process.getInputStream());
-            BufferedInputStream errorOutput = new BufferedInputStream(process.getErrorStream());
-            //put data in
-            grammarInput.write(cgReadings.getBytes(StandardCharsets.UTF_8));
-            grammarInput.flush();
-            grammarInput.close();
-            process.waitFor();
-            //forward output data
-            String outputString = StreamToString.convertStreamToString(grammarOutput);
-            grammarOutput.close();
-            String errorString = StreamToString.convertStreamToString(errorOutput);
-            if(!errorString.isEmpty()) {
-                ServerLogger.get().error("vislcg3 error: " + errorString);
-            }
-            errorOutput.close();
-            return outputString;
-        } catch (IOException | InterruptedException e) {
+            return ProcessWithTimeout.run(cgReadings, timeoutFor(cgReadings), VISLCG3, "-g", DISAMBIGUATOR_FILE.getAbsolutePath());
+        } catch (IOException e) {
             ServerLogger.get().error(e.toString());
             throw new IOException("vislcg3 failed. See log for details");
         }
@@ -5,6 +5,7 @@ import com.flair.server.utilities.ServerLogger;
 import com.flair.server.utilities.cg3parser.model.CgReading;
 import com.flair.server.utilities.cg3parser.model.SurfaceFormLine;
 import com.flair.server.utilities.cg3parser.model.WordWithReadings;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -54,6 +55,46 @@ public class Cg3Parser {
         return allReadings;
     }
 
+    /**
+     * Parses the readings of several segments that were analysed in a single batch, each followed by a boundary cohort
+     * Word indices start at zero in every segment and the boundary cohorts are dropped
+     * @param boundary surface form of the boundary cohorts, e.g. {@code <¶>}
+     * @param segmentLengths number of words in each segment
+     * @return one list of readings per segment, or null if the source can't be parsed or doesn't line up with the segments
+     */
+    public @Nullable List<List<WordWithReadings>> parseSegments(String boundary, int[] segmentLengths) {
+        CgTokenizer tokenizer = new CgTokenizer(source);
+        tokenList = tokenizer.tokenize();
+        tokenIndex = 0;
+        parsed = true;
+        if(tokenList == null) {
+            ServerLogger.get().error("Token list not created");
+            return null;
+        }
+        String boundaryForm = "\"" + boundary + "\"";
+        List<List<WordWithReadings>> segments = new ArrayList<>(segmentLengths.length);
+        try {
+            for(int length : segmentLengths) {
+                nextWordIndex = 0;
+                List<WordWithReadings> segment = new ArrayList<>(length);
+                for(int i = 0; i < length; i++) {
+                    segment.add(parseWordWithReadings());
+                }
+                //the boundary has to follow the segment's last word, otherwise the cohorts don't match the words
+                WordWithReadings marker = parseWordWithReadings();
+                if(!marker.getSurfaceForm().equals(boundaryForm)) {
+                    ServerLogger.get().error("Cg3Parser expected a segment boundary, but found: " + marker.getSurfaceForm());
+                    return null;
+                }
+                segments.add(segment);
+            }
+        } catch (CgSyntaxError e) {
+            ServerLogger.get().error("Cg3Parser syntax error: " + e.toString());
+            return null;
+        }
+        return segments;
+    }
+
     private boolean checkTokenIndex(boolean willThrow) throws CgSyntaxError {
         if(willThrow && tokenIndex >= tokenList.size()) throw new CgSyntaxError("Expected a token, but there were no more");
         return (tokenIndex < tokenList.size());
@@ -14,38 +14,66 @@ public class ServerMessage implements IsSerializable
 	{
 		ERROR,
 		SEARCH_CRAWL_PARSE,
-		CUSTOM_CORPUS
+		CUSTOM_CORPUS,
+		QUEUED
 	}
 	
 	public static final class Error implements IsSerializable
 	{
+		public enum Code
+		{
+			GENERIC,
+			SERVER_BUSY,		// the operation was rejected as the server is at capacity
+			SOURCE_FAILED		// the text of an uploaded file couldn't be extracted, the rest of the operation continues
+		}
+		
+		Code				code;
 		String				message;
 		Throwable			exception;
 		
 		public Error()
 		{
+			code = Code.GENERIC;
 			message = "";
 			exception = null;
 		}
 		
 		public Error(String message)
 		{
+			code = Code.GENERIC;
+			this.message = message;
+			exception = null;
+		}
+		
+		public Error(Code code, String message)
+		{
+			this.code = code;
 			this.message = message;
 			exception = null;
 		}
 		
 		public Error(Throwable exception)
 		{
+			code = Code.GENERIC;
 			message = exception.toString();
 			this.exception = exception;
 		}
 		
 		public Error(String m, Throwable t)
 		{
+			code = Code.GENERIC;
 			message = m;
 			exception = t;
 		}
 
+		public Code getCode() {
+			return code;
+		}
+
+		public void setCode(Code code) {
+			this.code = code;
+		}
+
 		public String getMessage() {
 			return message;
 		}
@@ -66,7 +94,10 @@ public class ServerMessage implements IsSerializable
 		public String toString()
 		{
 			StringBuilder sb = new StringBuilder();
-			sb.append("ERROR: ").append(message);
+			sb.append("ERROR: ");
+			if (code != Code.GENERIC)
+				sb.append(code).append(" | ");
+			sb.append(message);
 			if (exception != null)
 				sb.append(" | " + exception.toString());
 			return sb.toString();
@@ -229,11 +260,41 @@ public class ServerMessage implements IsSerializable
 		}
 	}
 	
+	/*
+	 * Sent while the operation is waiting for the server to free up
+	 */
+	public static final class Queued implements IsSerializable
+	{
+		int		position;		// 1-based position in the job queue
+		
+		public Queued() {
+			position = 0;
+		}
+		
+		public Queued(int position) {
+			this.position = position;
+		}
+
+		public int getPosition() {
+			return position;
+		}
+
+		public void setPosition(int position) {
+			this.position = position;
+		}
+		
+		@Override
+		public String toString() {
+			return "QUEUED: busy, position " + position;
+		}
+	}
+	
 	AuthToken			receiverToken;
 	Type				type;
 	Error				error;
 	SearchCrawlParse	searchCrawlParse;
 	CustomCorpus		customCorpus;
+	Queued				queued;
 	
 	public ServerMessage()
 	{
@@ -242,6 +303,7 @@ public class ServerMessage implements IsSerializable
 		error = null;
 		searchCrawlParse = null;
 		customCorpus = null;
+		queued = null;
 	}
 	
 	public ServerMessage(AuthToken t)
@@ -251,6 +313,7 @@ public class ServerMessage implements IsSerializable
 		error = null;
 		searchCrawlParse = null;
 		customCorpus = null;
+		queued = null;
 	}
 	
 	public AuthToken getReceiverToken() {
@@ -292,6 +355,14 @@ public class ServerMessage implements IsSerializable
 	public void setCustomCorpus(CustomCorpus customCorpus) {
 		this.customCorpus = customCorpus;
 	}
+
+	public Queued getQueued() {
+		return queued;
+	}
+
+	public void setQueued(Queued queued) {
+		this.queued = queued;
+	}
 	
 	@Override
 	public String toString()
@@ -302,6 +373,8 @@ public class ServerMessage implements IsSerializable
 			sb.append("\t").append(error.toString());
 		else if (type == Type.SEARCH_CRAWL_PARSE)
 			sb.append("\t").append(searchCrawlParse.toString());
+		else if (type == Type.QUEUED)
+			sb.append("\t").append(queued.toString());
 		else
 			sb.append("\t").append(customCorpus.toString());
 		
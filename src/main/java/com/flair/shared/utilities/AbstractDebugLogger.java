@@ -2,6 +2,7 @@ package com.flair.shared.utilities;
 
 /*
  * Base class for the client and server loggers
+ * Messages can be parameterized with '{}' placeholders, which are only substituted if the channel is enabled
  */
 public abstract class AbstractDebugLogger
 {
@@ -21,10 +22,63 @@ public abstract class AbstractDebugLogger
 
 	protected abstract void print(Channel channel, String message);	
 	
+	// checked before formatting parameterized messages
+	protected boolean isEnabled(Channel channel) {
+		return true;
+	}
+
+	public static String formatMessage(String format, Object... args)
+	{
+		if (format == null || args == null || args.length == 0)
+			return format;
+
+		StringBuilder builder = new StringBuilder(format.length() + 16 * args.length);
+		int start = 0, next = 0;
+		while (next < args.length)
+		{
+			int placeholder = format.indexOf("{}", start);
+			if (placeholder == -1)
+				break;
+
+			builder.append(format, start, placeholder);
+			builder.append(String.valueOf(args[next++]));
+			start = placeholder + 2;
+		}
+
+		builder.append(format, start, format.length());
+		return builder.toString();
+	}
+
+	public boolean isTraceEnabled() {
+		return isEnabled(Channel.TRACE);
+	}
+
+	public boolean isInfoEnabled() {
+		return isEnabled(Channel.INFO);
+	}
+
 	public void error(String message) {
 		print(Channel.ERROR, message);
 	}
 
+	public void error(String format, Object arg)
+	{
+		if (isEnabled(Channel.ERROR))
+			print(Channel.ERROR, formatMessage(format, arg));
+	}
+
+	public void error(String format, Object arg1, Object arg2)
+	{
+		if (isEnabled(Channel.ERROR))
+			print(Channel.ERROR, formatMessage(format, arg1, arg2));
+	}
+
+	public void error(String format, Object... args)
+	{
+		if (isEnabled(Channel.ERROR))
+			print(Channel.ERROR, formatMessage(format, args));
+	}
+
 	public void error(Throwable ex, String message) {
 		error(message + ". Exception: " + ex.toString());
 	}
@@ -33,19 +87,73 @@ public abstract class AbstractDebugLogger
 		print(Channel.INFO, message);
 	}
 
+	public void info(String format, Object arg)
+	{
+		if (isEnabled(Channel.INFO))
+			print(Channel.INFO, formatMessage(format, arg));
+	}
+
+	public void info(String format, Object arg1, Object arg2)
+	{
+		if (isEnabled(Channel.INFO))
+			print(Channel.INFO, formatMessage(format, arg1, arg2));
+	}
+
+	public void info(String format, Object... args)
+	{
+		if (isEnabled(Channel.INFO))
+			print(Channel.INFO, formatMessage(format, args));
+	}
+
 	public void trace(String message) {
 		print(Channel.TRACE, message);
 	}
 
+	public void trace(String format, Object arg)
+	{
+		if (isEnabled(Channel.TRACE))
+			print(Channel.TRACE, formatMessage(format, arg));
+	}
+
+	public void trace(String format, Object arg1, Object arg2)
+	{
+		if (isEnabled(Channel.TRACE))
+			print(Channel.TRACE, formatMessage(format, arg1, arg2));
+	}
+
+	public void trace(String format, Object... args)
+	{
+		if (isEnabled(Channel.TRACE))
+			print(Channel.TRACE, formatMessage(format, args));
+	}
+
 	public void warn(String message) {
 		print(Channel.WARN, message);
 	}
 
+	public void warn(String format, Object arg)
+	{
+		if (isEnabled(Channel.WARN))
+			print(Channel.WARN, formatMessage(format, arg));
+	}
+
+	public void warn(String format, Object arg1, Object arg2)
+	{
+		if (isEnabled(Channel.WARN))
+			print(Channel.WARN, formatMessage(format, arg1, arg2));
+	}
+
+	public void warn(String format, Object... args)
+	{
+		if (isEnabled(Channel.WARN))
+			print(Channel.WARN, formatMessage(format, args));
+	}
+
 	public void indent() {
 		indentLevel++;
 	}
 
-	public void exdent() 
+	public void exdent()
 	{
 		indentLevel--;
 		if (indentLevel < 0)
@@ -0,0 +1,101 @@
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import com.flair.server.grammar.EnglishAcademicWordList;
+
+public class AhoCorasickKeywordSearcherTest
+{
+	private AbstractDocumentKeywordSearcher keywordSearcher;
+	private AbstractDocumentKeywordSearcher naiveSearcher;
+	@Mock
+	private AbstractDocument document;
+
+	@Before
+	public void setUp()
+	{
+		MockitoAnnotations.initMocks(this);
+		keywordSearcher = MasterParsingFactoryGenerator.createKeywordSearcher(KeywordSearcherType.AHO_CORASICK).create();
+		naiveSearcher = MasterParsingFactoryGenerator.createKeywordSearcher(KeywordSearcherType.NAIVE_SUBSTRING).create();
+	}
+
+	private void assertSameAsNaive(String text, KeywordSearcherInput input)
+	{
+		Mockito.when(document.getText()).thenReturn(text);
+		KeywordSearcherOutput expected = naiveSearcher.search(document, input);
+		KeywordSearcherOutput actual = keywordSearcher.search(document, input);
+
+		Assert.assertEquals(expected.getKeywords(), actual.getKeywords());
+		for (String itr : expected.getKeywords())
+		{
+			List<TextSegment> expectedHits = expected.getHits(itr), actualHits = actual.getHits(itr);
+			Assert.assertEquals("Hits for " + itr, expectedHits.size(), actualHits.size());
+			for (int i = 0; i < expectedHits.size(); i++)
+			{
+				Assert.assertEquals(expectedHits.get(i).getStart(), actualHits.get(i).getStart());
+				Assert.assertEquals(expectedHits.get(i).getEnd(), actualHits.get(i).getEnd());
+			}
+		}
+	}
+
+	@Test
+	public void testValidBoundarySearch()
+	{
+		KeywordSearcherInput input = new KeywordSearcherInput(Arrays.asList("a", "big", "potato"));
+		Mockito.when(document.getText()).thenReturn("This is\na sentence about a big potato. The big-potato is not a small potato. The potato\n is not medium sized.");
+
+		KeywordSearcherOutput output = keywordSearcher.search(document, input);
+		Assert.assertEquals(9, output.getTotalHitCount(), 0);
+		Assert.assertEquals(3, output.getHitCount("a"), 0);
+		Assert.assertEquals(2, output.getHitCount("big"), 0);
+		Assert.assertEquals(4, output.getHitCount("potato"), 0);
+	}
+
+	@Test
+	public void testInvalidBoundarySearch()
+	{
+		KeywordSearcherInput input = new KeywordSearcherInput(Arrays.asList("a", "big", "potato"));
+		Mockito.when(document.getText()).thenReturn("Thiisasentenceabouta bigpotato.Thebig-potatoisnot asmall potatoThe potatois not medium sized.");
+
+		Assert.assertEquals(0, keywordSearcher.search(document, input).getTotalHitCount(), 0);
+	}
+
+	@Test
+	public void testOverlappingKeywords()
+	{
+		// keywords that are prefixes, suffixes or repetitions of each other
+		KeywordSearcherInput input = new KeywordSearcherInput(Arrays.asList("aa", "aaa", "a", "he", "she", "hers", "his", "a b", "b"));
+		assertSameAsNaive("aaaa aa a aaa. she hers his-he ushers a b b a.b aaaaa", input);
+		assertSameAsNaive("a", input);
+		assertSameAsNaive("", input);
+	}
+
+	@Test
+	public void testAcademicWordList()
+	{
+		KeywordSearcherInput input = new KeywordSearcherInput(EnglishAcademicWordList.getKeywords());
+		assertSameAsNaive("The analysis of the data indicates a significant approach to the research. "
+						+ "Economic factors and environmental policy were assessed by the authority.\n"
+						+ "Individuals interpreted the concept differently, an established method-based process.", input);
+	}
+
+	@Test
+	public void testAutomatonRebuiltOnNewKeyword()
+	{
+		KeywordSearcherInput input = new KeywordSearcherInput(new ArrayList<>(Arrays.asList("big")));
+		Mockito.when(document.getText()).thenReturn("a big potato");
+		Assert.assertEquals(1, keywordSearcher.search(document, input).getTotalHitCount(), 0);
+
+		input.addKeyword("Potato");
+		Assert.assertEquals(2, keywordSearcher.search(document, input).getTotalHitCount(), 0);
+	}
+}
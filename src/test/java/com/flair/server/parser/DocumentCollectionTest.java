@@ -3,6 +3,8 @@ package com.flair.server.parser;
 import static org.mockito.Mockito.when;
 import static org.mockito.ArgumentMatchers.any;
 
+import java.util.Iterator;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -79,4 +81,85 @@ public class DocumentCollectionTest
 		Assert.assertEquals("documentCollection construction data is " + constructionCount, 0, constructionCount);
 	}
 	
-}
\ No newline at end of file
+	private static Document createDocument(String text, int numOccurrences)
+	{
+		Document doc = new Document(new SimpleDocumentSource(text, Language.ENGLISH));
+		for (int i = 0; i < numOccurrences; i++)
+			doc.getConstructionData(GrammaticalConstruction.ASPECT_SIMPLE).addOccurrence(i, i + 1);
+
+		return doc;
+	}
+
+	@Test
+	public void testIncrementalConstructionData()
+	{
+		Document first = createDocument("first", 3);
+		Document second = createDocument("second", 0);
+		Document third = createDocument("third", 2);
+
+		documentCollection.add(first, false);
+		documentCollection.add(second, false);
+		documentCollection.add(third, true);
+
+		DocumentCollectionConstructionData data = documentCollection.getConstructionData(GrammaticalConstruction.ASPECT_SIMPLE);
+		Assert.assertEquals(5, data.getTotalCount());
+		Assert.assertEquals(2, data.getDocFrequency());
+		Assert.assertEquals(5.0 / 3.0, data.getAverageCount(), 0.0001);
+
+		Assert.assertTrue(documentCollection.remove(first, true));
+		Assert.assertFalse(documentCollection.remove(first, true));
+		Assert.assertEquals(2, data.getTotalCount());
+		Assert.assertEquals(1, data.getDocFrequency());
+		Assert.assertEquals(1.0, data.getAverageCount(), 0.0001);
+		Assert.assertEquals(Math.log10((1 + 2) / 1), data.getInvertedDocFrequency(), 0.0001);
+	}
+
+	@Test
+	public void testSortedInsertion()
+	{
+		documentCollection.add(createDocument("delta", 0), false);
+		documentCollection.add(createDocument("bravo", 0), false);
+		documentCollection.sort();
+
+		documentCollection.add(createDocument("charlie", 0), false);
+		documentCollection.add(createDocument("alpha", 0), false);
+		documentCollection.add(createDocument("echo", 0), false);
+
+		DocumentCollection other = new DocumentCollection(Language.ENGLISH);
+		other.add(createDocument("foxtrot", 0), false);
+		other.add(createDocument("beta", 0), false);
+		documentCollection.addAll(other, true);
+
+		String[] expected = { "alpha", "beta", "bravo", "charlie", "delta", "echo", "foxtrot" };
+		Assert.assertEquals(expected.length, documentCollection.size());
+		for (int i = 0; i < expected.length; i++)
+			Assert.assertTrue(documentCollection.get(i).getText().startsWith(expected[i]));
+	}
+
+	@Test
+	public void testDocumentsAreReadOnly()
+	{
+		documentCollection.add(createDocument("alpha", 1), true);
+		DocumentCollectionConstructionData data = documentCollection.getConstructionData(GrammaticalConstruction.ASPECT_SIMPLE);
+
+		try
+		{
+			Iterator<AbstractDocument> itr = documentCollection.iterator();
+			itr.next();
+			itr.remove();
+			Assert.fail("Expected the iterator to be read-only");
+		} catch (UnsupportedOperationException ex) {}
+
+		try
+		{
+			documentCollection.getDataStore().clear();
+			Assert.fail("Expected the data store to be read-only");
+		} catch (UnsupportedOperationException ex) {}
+
+		// changes go through remove(), which keeps the totals up-to-date
+		Assert.assertEquals(1, documentCollection.size());
+		Assert.assertEquals(1, data.getTotalCount());
+		Assert.assertTrue(documentCollection.remove(documentCollection.get(0), true));
+		Assert.assertEquals(0, data.getTotalCount());
+	}
+}
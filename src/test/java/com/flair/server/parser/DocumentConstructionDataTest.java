@@ -1,5 +1,6 @@
 package com.flair.server.parser;
 
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -48,4 +49,44 @@ public class DocumentConstructionDataTest
 		documentConstructionData.addOccurrence(start, end);
 		Assert.assertEquals(expected, documentConstructionData.getFrequency());
 	}
+	
+	@Test 
+	public void testAddSwappedOccurrence()
+	{
+		Assert.assertTrue(documentConstructionData.addOccurrence(4, 0));
+		Assert.assertFalse(documentConstructionData.addOccurrence(0, 4));
+		Assert.assertEquals(0, documentConstructionData.getStart(0));
+		Assert.assertEquals(4, documentConstructionData.getEnd(0));
+	}
+	
+	@Test 
+	public void testManyOccurrences()
+	{
+		// enough to switch from the linear scan to the hash table and grow it a few times
+		for (int i = 0; i < 1000; i++)
+			Assert.assertTrue(documentConstructionData.addOccurrence(i * 3, i * 3 + (i % 7)));
+		for (int i = 999; i >= 0; i--)
+			Assert.assertFalse(documentConstructionData.addOccurrence(i * 3, i * 3 + (i % 7)));
+		Assert.assertTrue(documentConstructionData.addOccurrence(1, 2));
+		
+		Assert.assertEquals(1001, documentConstructionData.getFrequency());
+		List<ConstructionOccurrence> occurrences = documentConstructionData.getOccurrences();
+		Assert.assertEquals(1001, occurrences.size());
+		for (int i = 0; i < 1000; i++)
+		{
+			Assert.assertEquals(i * 3, documentConstructionData.getStart(i));
+			Assert.assertEquals(i * 3 + (i % 7), documentConstructionData.getEnd(i));
+			Assert.assertEquals(i * 3, occurrences.get(i).getStart());
+			Assert.assertEquals(i * 3 + (i % 7), occurrences.get(i).getEnd());
+		}
+		Assert.assertEquals(1, occurrences.get(1000).getStart());
+		Assert.assertEquals(type, occurrences.get(1000).getParentConstruction());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidOccurrenceIndex()
+	{
+		documentConstructionData.addOccurrence(0, 4);
+		documentConstructionData.getStart(1);
+	}
 }
@@ -0,0 +1,103 @@
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.server.parser.EnglishTokenView.Tag;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+public class EnglishTokenViewTest
+{
+	private static List<CoreLabel> createSentence(String... wordsAndTags)
+	{
+		List<CoreLabel> out = new ArrayList<>();
+		for (int i = 0; i < wordsAndTags.length; i += 2)
+		{
+			CoreLabel label = new CoreLabel();
+			label.setWord(wordsAndTags[i]);
+			label.setTag(wordsAndTags[i + 1]);
+			label.setIndex(i / 2 + 1);
+			out.add(label);
+		}
+		return out;
+	}
+
+	@Test
+	public void testClassification()
+	{
+		EnglishTokenView view = new EnglishTokenView();
+		view.reset(createSentence("Nobody", "NN", "saw", "VBD", "HIMSELF", "PRP", "in", "IN", "2019", "CD", "?", "."));
+
+		Assert.assertEquals(6, view.size());
+		Assert.assertEquals("nobody", view.word(0));
+		Assert.assertTrue(view.has(0, EnglishTokenView.NEGATION));
+		Assert.assertTrue(view.has(0, EnglishTokenView.NOUN_TAG));
+		Assert.assertTrue(view.has(0, EnglishTokenView.ALPHABETIC_WORD | EnglishTokenView.ALPHABETIC_TAG));
+
+		Assert.assertEquals(Tag.VBD, view.tag(1));
+		Assert.assertTrue(view.has(1, EnglishTokenView.VERB_TAG));
+		Assert.assertTrue(view.has(1, EnglishTokenView.VB_TAG));
+
+		Assert.assertEquals("himself", view.word(2));
+		Assert.assertEquals(Tag.PRP, view.tag(2));
+		Assert.assertTrue(view.has(2, EnglishTokenView.REFLEXIVE_PRONOUN));
+		Assert.assertTrue(view.has(2, EnglishTokenView.PERSONAL_PRONOUN_TAG));
+
+		Assert.assertEquals(Tag.IN, view.tag(3));
+		Assert.assertTrue(view.has(4, EnglishTokenView.CONTAINS_DIGIT));
+		Assert.assertFalse(view.has(4, EnglishTokenView.ALPHABETIC_WORD));
+
+		Assert.assertEquals(Tag.PERIOD, view.tag(5));
+		Assert.assertEquals(".", view.tagString(5));
+		Assert.assertFalse(view.has(5, EnglishTokenView.ALPHABETIC_TAG));
+	}
+
+	@Test
+	public void testSharedLowercaseForms()
+	{
+		EnglishTokenView view = new EnglishTokenView();
+		view.reset(createSentence("The", "DT", "THE", "DT", "the", "DT", "Mine", "PRP$", "-LRB-", "-LRB-"));
+
+		Assert.assertSame(view.word(0), view.word(1));
+		Assert.assertSame(view.word(0), view.word(2));
+		Assert.assertSame(view.word(0), EnglishTokenView.lowercase("tHe"));
+		Assert.assertEquals(Tag.PRP_POSSESSIVE, view.tag(3));
+		Assert.assertTrue(view.has(3, EnglishTokenView.POSSESSIVE_ABSOLUTE_PRONOUN));
+		Assert.assertEquals(Tag.OTHER, view.tag(4));
+		Assert.assertEquals("-lrb-", view.tagString(4));
+	}
+
+	@Test
+	public void testReuseAcrossSentences()
+	{
+		EnglishTokenView view = new EnglishTokenView();
+		List<CoreLabel> longSentence = new ArrayList<>();
+		for (int i = 0; i < 200; i++)
+			longSentence.addAll(createSentence("word", "NN"));
+
+		view.reset(longSentence);
+		Assert.assertEquals(200, view.size());
+		Assert.assertEquals("word", view.word(199));
+
+		List<CoreLabel> shortSentence = createSentence("Go", "VB", "!", ".");
+		Assert.assertFalse(view.isViewOf(shortSentence));
+		view.reset(shortSentence);
+		Assert.assertTrue(view.isViewOf(shortSentence));
+		Assert.assertFalse(view.isViewOf(longSentence));
+		Assert.assertEquals(2, view.size());
+		Assert.assertEquals("go", view.word(0));
+		Assert.assertEquals(Tag.VB, view.tag(0));
+
+		CoreLabel noTag = new CoreLabel();
+		noTag.setWord("x");
+		List<CoreLabel> sentence = new ArrayList<>();
+		sentence.add(noTag);
+		view.reset(sentence);
+		Assert.assertNull(view.tagString(0));
+		Assert.assertEquals(Tag.OTHER, view.tag(0));
+	}
+}
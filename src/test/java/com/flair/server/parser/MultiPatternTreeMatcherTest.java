@@ -0,0 +1,129 @@
+package com.flair.server.parser;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.server.grammar.GermanGrammaticalTreePatterns;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TregexPattern;
+
+public class MultiPatternTreeMatcherTest
+{
+	private static final String[] GERMAN_TREES = {
+		"(ROOT (S (PPER Ich) (VAFIN habe) (NP (ART das) (NN Buch)) (VP (VVPP gelesen)) ($. .)))",
+		"(ROOT (S (PPER Er) (VAFIN ist) (PP (APPR nach) (NE Berlin)) (VP (VVPP gefahren)) ($. .)))",
+		"(ROOT (S (PPER Wir) (VAFIN hatten) (VP (NP (ART den) (NN Film)) (VVPP gesehen)) ($. .)))",
+		"(ROOT (S (PPER Sie) (VAFIN wird) (VP (ADV morgen) (VVINF kommen)) ($. .)))",
+		"(ROOT (S (PPER Sie) (VAFIN wird) (VP (VP (NP (ART den) (NN Brief)) (VVPP geschrieben)) (VAINF haben)) ($. .)))",
+		"(ROOT (S (NP (ART Das) (NN Haus)) (VAFIN wurde) (VP (ADV schnell) (VVPP gebaut)) ($. .)))",
+		"(ROOT (S (NP (ART Die) (NN Tür)) (VAFIN ist) (VP (VVPP geschlossen)) ($. .)))",
+		"(ROOT (S (PPER Ich) (VVFIN weiß) ($, ,) (S (KOUS dass) (PPER du) (VP (ADV gern) (VVFIN liest))) ($. .)))",
+		"(ROOT (S (PPER Ich) (VVFIN frage) ($, ,) (S (KOUS ob) (PPER er) (VVFIN kommt)) ($. .)))",
+		"(ROOT (S (KOUS Weil) (PPER es) (VVFIN regnet) ($, ,) (VAFIN bleiben) (PPER wir) (ADV zuhause) ($. .)))",
+		"(ROOT (S (NP (ART Der) (NN Mann) ($, ,) (S (PRELS der) (ADV dort) (VVFIN steht))) ($, ,) (VAFIN ist) (ADJD alt) ($. .)))",
+		"(ROOT (CS (S (PPER Ich) (VVFIN lese)) (KON und) (S (PPER du) (VVFIN schreibst)) ($. .)))",
+		"(ROOT (S (VVFIN Kommst) (PPER du) (ADV heute) ($. ?)))",
+		"(ROOT (S (PPER Du) (VVFIN kommst) (ADV heute) ($, ,) (PTKANT ja) ($. ?)))",
+		"(ROOT (NP (ART Ein) (ADJA schönes) (NN Haus) ($. !)))",
+		"(ROOT (S (NP (ART Das) (ADJA lachende) (NN Kind) (PP (APPR mit) (NP (ART dem) (ADJA verlorenen) (NN Ball)))) (VVFIN spielt) ($. .)))",
+		"(ROOT (S (NP (ART Die) (AP (ADV sehr) (ADJA spannende)) (NN Geschichte)) (VMFIN kann) (VP (VVINF beginnen)) ($. .)))",
+		"(ROOT (S (VVIMP Komm) (ADV her) ($. !)))",
+		"(ROOT (NP (NP (ART Der) (NN Weg)) (PP (APPR zum) (NN Bahnhof)) ($. .)))",
+		"(ROOT (S (PWS Wer) (VVFIN kommt) (ADV heute) ($. ?)))",
+	};
+
+	private static final String[] ENGLISH_TREES = {
+		"(ROOT (S (VP (VB Close) (NP (DT the) (NN door))) (. .)))",
+		"(ROOT (S (NP (PRP He)) (VP (VBD closed) (NP (DT the) (NN door))) (. .)))",
+		"(ROOT (S (S (VP (VB Sit) (ADVP (RB down)))) (CC and) (S (VP (VB listen))) (. .)))",
+		"(ROOT (SINV (VP (VB Go)) (VP (VB eat)) (. .)))",
+	};
+
+	private static List<TregexPattern> getGermanPatterns() throws IllegalAccessException
+	{
+		List<TregexPattern> patterns = new ArrayList<>();
+		for (Field field : GermanGrammaticalTreePatterns.class.getFields())
+		{
+			if (Modifier.isStatic(field.getModifiers()) && field.getType() == TregexPattern.class)
+				patterns.add((TregexPattern)field.get(null));
+		}
+		return patterns;
+	}
+
+	private static int countMatchingNodes(TregexPattern pattern, Tree tree)
+	{
+		int matches = 0;
+		TregexMatcher matcher = pattern.matcher(tree);
+		while (matcher.findNextMatchingNode())
+			matches++;
+		return matches;
+	}
+
+	@Test
+	public void testCountsMatchIndividualPatterns() throws IllegalAccessException
+	{
+		List<TregexPattern> patterns = getGermanPatterns();
+		MultiPatternTreeMatcher matcher = new MultiPatternTreeMatcher(patterns.toArray(new TregexPattern[0]));
+		Assert.assertEquals(patterns.size(), matcher.size());
+
+		int totalMatches = 0;
+		// twice, so that the second pass runs off the cached label checks
+		for (int pass = 0; pass < 2; pass++)
+		{
+			for (String itr : GERMAN_TREES)
+			{
+				Tree tree = Tree.valueOf(itr);
+				int[] counts = matcher.countMatchingNodes(tree);
+				for (TregexPattern pattern : patterns)
+				{
+					int expected = countMatchingNodes(pattern, tree);
+					Assert.assertEquals(pattern.pattern() + " on " + itr, expected, counts[matcher.indexOf(pattern)]);
+					totalMatches += expected;
+				}
+			}
+		}
+
+		// make sure that the corpus actually exercises the patterns
+		Assert.assertTrue(totalMatches > 0);
+	}
+
+	@Test
+	public void testForEachMatchVisitsEveryMatch()
+	{
+		TregexPattern pattern = TregexPattern.compile("/^S.*/ !$ /NP$/ < (VP=verb !$-- /^N.*/)");
+		MultiPatternTreeMatcher matcher = new MultiPatternTreeMatcher(pattern);
+
+		for (String itr : ENGLISH_TREES)
+		{
+			Tree tree = Tree.valueOf(itr);
+			List<Tree> expected = new ArrayList<>();
+			TregexMatcher individual = pattern.matcher(tree);
+			while (individual.find())
+				expected.add(individual.getNode("verb"));
+
+			List<Tree> actual = new ArrayList<>();
+			matcher.forEachMatch(tree, (p, node, m) -> {
+				Assert.assertSame(pattern, p);
+				actual.add(m.getNode("verb"));
+			});
+
+			Assert.assertEquals(itr, expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++)
+				Assert.assertSame(itr, expected.get(i), actual.get(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPattern()
+	{
+		MultiPatternTreeMatcher matcher = new MultiPatternTreeMatcher(GermanGrammaticalTreePatterns.patternVerb);
+		matcher.indexOf(GermanGrammaticalTreePatterns.patternVerbBracket);
+	}
+}
@@ -0,0 +1,202 @@
+package com.flair.server.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flair.server.utilities.TemporaryDirectory;
+import com.flair.shared.grammar.GrammaticalConstruction;
+import com.flair.shared.grammar.Language;
+import com.flair.shared.parser.DocumentReadabilityLevel;
+
+public class ParsedDocumentCacheTest
+{
+	private static final String TEXT = "The quick brown fox jumps over the lazy dog. It didn't notice.";
+
+	private static class TestStrategy implements AbstractParsingStrategy
+	{
+		private final int version;
+
+		TestStrategy(int version) {
+			this.version = version;
+		}
+
+		@Override
+		public boolean isLanguageSupported(Language lang) {
+			return true;
+		}
+
+		@Override
+		public boolean apply(AbstractDocument docToParse) {
+			return true;
+		}
+
+		@Override
+		public int getVersion() {
+			return version;
+		}
+	}
+
+	private Path diskDirectory;
+
+	@Before
+	public void setUp() throws IOException {
+		diskDirectory = TemporaryDirectory.create("flair-parse-cache");
+	}
+
+	@After
+	public void tearDown() {
+		TemporaryDirectory.delete(diskDirectory);
+	}
+
+	private static AbstractDocument createParsedDocument(String text)
+	{
+		Document doc = new Document(new SimpleDocumentSource(text, Language.ENGLISH), 42.5, DocumentReadabilityLevel.LEVEL_B);
+		doc.setNumCharacters(50);
+		doc.setNumSentences(2);
+		doc.setNumDependencies(12);
+		doc.setNumWords(13);
+		doc.setNumTokens(15);
+		doc.setLength(13);
+		doc.setAvgWordLength(3.8);
+		doc.setAvgSentenceLength(6.5);
+		doc.setAvgTreeDepth(4.0);
+		doc.getConstructionData(GrammaticalConstruction.NEGATION_NT).addOccurrence(47, 50);
+		doc.getConstructionData(GrammaticalConstruction.CONJUNCTIONS_SIMPLE).addOccurrence(0, 3);
+		doc.getConstructionData(GrammaticalConstruction.CONJUNCTIONS_SIMPLE).addOccurrence(31, 34);
+		doc.flagAsParsed();
+		return doc;
+	}
+
+	private static void assertSameParse(AbstractDocument expected, AbstractDocument actual)
+	{
+		Assert.assertTrue(actual.isParsed());
+		Assert.assertEquals(expected.getText(), actual.getText());
+		Assert.assertEquals(expected.getReadabilityScore(), actual.getReadabilityScore(), 0);
+		Assert.assertEquals(expected.getReadabilityLevel(), actual.getReadabilityLevel());
+		Assert.assertEquals(expected.getNumSentences(), actual.getNumSentences());
+		Assert.assertEquals(expected.getNumTokens(), actual.getNumTokens());
+		Assert.assertEquals(expected.getLength(), actual.getLength());
+		Assert.assertEquals(expected.getAvgTreeDepth(), actual.getAvgTreeDepth(), 0);
+
+		for (GrammaticalConstruction itr : expected.getSupportedConstructions())
+		{
+			DocumentConstructionData lhs = expected.getConstructionData(itr);
+			DocumentConstructionData rhs = actual.getConstructionData(itr);
+			Assert.assertEquals(itr.toString(), lhs.getFrequency(), rhs.getFrequency());
+			for (int i = 0; i < lhs.getFrequency(); i++)
+			{
+				Assert.assertEquals(lhs.getOccurrences().get(i).getStart(), rhs.getOccurrences().get(i).getStart());
+				Assert.assertEquals(lhs.getOccurrences().get(i).getEnd(), rhs.getOccurrences().get(i).getEnd());
+			}
+		}
+	}
+
+	@Test
+	public void testMemoryTier()
+	{
+		ParsedDocumentCache cache = new ParsedDocumentCache(1024 * 1024, null, 0);
+		AbstractParsingStrategy strategy = new TestStrategy(1);
+		AbstractDocument doc = createParsedDocument(TEXT);
+
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy));
+		cache.put(doc, strategy);
+
+		SimpleDocumentSource source = new SimpleDocumentSource(TEXT, Language.ENGLISH);
+		AbstractDocument cached = cache.get(source, strategy);
+		Assert.assertNotNull(cached);
+		Assert.assertNotSame(doc, cached);
+		Assert.assertSame(source, cached.getDocumentSource());
+		assertSameParse(doc, cached);
+
+		Assert.assertEquals(1, cache.getMemoryHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertFalse(cache.isDiskTierEnabled());
+	}
+
+	@Test
+	public void testKeyDependsOnTextAndStrategy()
+	{
+		ParsedDocumentCache cache = new ParsedDocumentCache(1024 * 1024, null, 0);
+		cache.put(createParsedDocument(TEXT), new TestStrategy(1));
+
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT + " Again.", Language.ENGLISH), new TestStrategy(1)));
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT, Language.GERMAN), new TestStrategy(1)));
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), new TestStrategy(2)));
+		Assert.assertNotNull(cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), new TestStrategy(1)));
+	}
+
+	@Test
+	public void testMemoryEviction()
+	{
+		ParsedDocumentCache cache = new ParsedDocumentCache(1, null, 0);
+		AbstractParsingStrategy strategy = new TestStrategy(1);
+		cache.put(createParsedDocument(TEXT), strategy);
+
+		Assert.assertEquals(0, cache.getMemoryEntryCount());
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy));
+	}
+
+	@Test
+	public void testDiskTier()
+	{
+		AbstractParsingStrategy strategy = new TestStrategy(1);
+		AbstractDocument doc = createParsedDocument(TEXT);
+		new ParsedDocumentCache(0, diskDirectory, 1024 * 1024).put(doc, strategy);
+
+		// a new instance picks up the entries of the previous one
+		ParsedDocumentCache cache = new ParsedDocumentCache(1024 * 1024, diskDirectory, 1024 * 1024);
+		Assert.assertTrue(cache.isDiskTierEnabled());
+		Assert.assertTrue(cache.getDiskBytes() > 0);
+
+		AbstractDocument cached = cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy);
+		Assert.assertNotNull(cached);
+		assertSameParse(doc, cached);
+		Assert.assertEquals(1, cache.getDiskHitCount());
+
+		cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy);
+		Assert.assertEquals(1, cache.getMemoryHitCount());
+	}
+
+	@Test
+	public void testCorruptDiskEntryIsDiscarded() throws IOException
+	{
+		AbstractParsingStrategy strategy = new TestStrategy(1);
+		ParsedDocumentCache cache = new ParsedDocumentCache(0, diskDirectory, 1024 * 1024);
+		cache.put(createParsedDocument(TEXT), strategy);
+
+		Path entry = diskDirectory.resolve(cache.getKey(new SimpleDocumentSource(TEXT, Language.ENGLISH).getSourceText(), Language.ENGLISH, strategy) + ".parse");
+		Assert.assertTrue(Files.exists(entry));
+		Files.write(entry, new byte[] { 1, 2, 3 });
+
+		Assert.assertNull(cache.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy));
+		Assert.assertFalse(Files.exists(entry));
+	}
+
+	@Test
+	public void testDiskEntriesOfOtherBuildsAreDeleted()
+	{
+		AbstractParsingStrategy strategy = new TestStrategy(1);
+		new ParsedDocumentCache(0, diskDirectory, 1024 * 1024, "1.0-a").put(createParsedDocument(TEXT), strategy);
+
+		ParsedDocumentCache sameBuild = new ParsedDocumentCache(0, diskDirectory, 1024 * 1024, "1.0-a");
+		Assert.assertTrue(sameBuild.getDiskBytes() > 0);
+		Assert.assertNotNull(sameBuild.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy));
+
+		ParsedDocumentCache newBuild = new ParsedDocumentCache(0, diskDirectory, 1024 * 1024, "1.0-b");
+		Assert.assertEquals(0, newBuild.getDiskBytes());
+		Assert.assertNull(newBuild.get(new SimpleDocumentSource(TEXT, Language.ENGLISH), strategy));
+	}
+
+	@Test
+	public void testArabicIsNotCached()
+	{
+		Assert.assertFalse(ParsedDocumentCache.isCacheable(Language.ARABIC));
+		Assert.assertTrue(ParsedDocumentCache.isCacheable(Language.ENGLISH));
+	}
+}
@@ -0,0 +1,192 @@
+package com.flair.server.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.flair.server.utilities.CustomFileReader;
+import com.flair.shared.grammar.GrammaticalConstruction;
+import com.flair.shared.grammar.Language;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.semgraph.SemanticGraph;
+import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+public class ShardedAnnotatorTest
+{
+	private static final int		SHARD_LENGTH = 500;
+
+	private static ExecutorService	executor;
+	private static DocumentShardingOptions sharding;
+
+	@BeforeClass
+	public static void setUpClass()
+	{
+		executor = Executors.newFixedThreadPool(4);
+		sharding = new DocumentShardingOptions(executor, 0, SHARD_LENGTH, 64);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		executor.shutdownNow();
+	}
+
+	@After
+	public void tearDown() {
+		// release the models of the previous language
+		StanfordCoreNLP.clearAnnotatorPool();
+	}
+
+	private static String readTestFile(String name) throws Exception
+	{
+		CustomFileReader reader = new CustomFileReader();
+		return reader.readFileToString(reader.getRelativePath(), name);
+	}
+
+	private static List<String> describe(Annotation annotation)
+	{
+		List<String> out = new ArrayList<>();
+		for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class))
+		{
+			StringBuilder sb = new StringBuilder();
+			sb.append(sentence.get(CoreAnnotations.SentenceIndexAnnotation.class)).append(" ")
+			  .append(sentence.get(CoreAnnotations.CharacterOffsetBeginAnnotation.class)).append("-")
+			  .append(sentence.get(CoreAnnotations.CharacterOffsetEndAnnotation.class)).append(" ")
+			  .append(sentence.get(CoreAnnotations.TokenBeginAnnotation.class)).append(" ")
+			  .append(sentence.get(CoreAnnotations.TextAnnotation.class)).append("\n");
+
+			for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class))
+			{
+				sb.append(token.word()).append("/").append(token.tag()).append("/").append(token.lemma())
+				  .append(" ").append(token.beginPosition()).append("-").append(token.endPosition())
+				  .append(" ").append(token.sentIndex()).append("|").append(token.before()).append("|\n");
+			}
+
+			Tree tree = sentence.get(TreeCoreAnnotations.TreeAnnotation.class);
+			if (tree != null)
+				sb.append(tree.toString()).append("\n");
+
+			SemanticGraph graph = sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class);
+			if (graph != null)
+				sb.append(graph.toList()).append("\n");
+
+			out.add(sb.toString());
+		}
+
+		return out;
+	}
+
+	private static void testAnnotation(StanfordCoreNLP pipeline, String text)
+	{
+		Annotation serial = new Annotation(text);
+		pipeline.annotate(serial);
+		Annotation sharded = new Annotation(text);
+		new ShardedAnnotator(pipeline, sharding).annotate(sharded);
+
+		Assert.assertEquals(describe(serial), describe(sharded));
+		Assert.assertEquals(serial.get(CoreAnnotations.TokensAnnotation.class).size(),
+							sharded.get(CoreAnnotations.TokensAnnotation.class).size());
+	}
+
+	private static void testParse(StanfordCoreNLP pipeline, Language lang, String text)
+	{
+		StanfordDocumentParserStrategyFactory strategyFactory = new StanfordDocumentParserStrategyFactory(lang);
+		AbstractDocument serial = new StanfordDocumentParser(new DocumentFactory(), lang, pipeline, null)
+										.parse(new SimpleDocumentSource(text, lang), strategyFactory.create());
+		AbstractDocument sharded = new StanfordDocumentParser(new DocumentFactory(), lang, pipeline, sharding)
+										.parse(new SimpleDocumentSource(text, lang), strategyFactory.create());
+
+		Assert.assertEquals(serial.getNumSentences(), sharded.getNumSentences());
+		Assert.assertEquals(serial.getNumTokens(), sharded.getNumTokens());
+		Assert.assertEquals(serial.getNumWords(), sharded.getNumWords());
+		Assert.assertEquals(serial.getNumCharacters(), sharded.getNumCharacters());
+		Assert.assertEquals(serial.getNumDependencies(), sharded.getNumDependencies());
+		Assert.assertEquals(serial.getAvgTreeDepth(), sharded.getAvgTreeDepth(), 0);
+
+		for (GrammaticalConstruction itr : GrammaticalConstruction.getForLanguage(lang))
+		{
+			List<String> expected = new ArrayList<>();
+			for (ConstructionOccurrence occurrence : serial.getConstructionData(itr).getOccurrences())
+				expected.add(occurrence.getStart() + "-" + occurrence.getEnd());
+
+			List<String> actual = new ArrayList<>();
+			for (ConstructionOccurrence occurrence : sharded.getConstructionData(itr).getOccurrences())
+				actual.add(occurrence.getStart() + "-" + occurrence.getEnd());
+
+			Assert.assertEquals(itr.toString(), serial.getConstructionData(itr).getFrequency(), sharded.getConstructionData(itr).getFrequency());
+			Assert.assertEquals(itr.toString(), expected, actual);
+		}
+	}
+
+	@Test
+	public void testShards()
+	{
+		List<CoreMap> sentences = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+		{
+			CoreMap sentence = new Annotation("");
+			sentence.set(CoreAnnotations.CharacterOffsetBeginAnnotation.class, i * 100);
+			sentence.set(CoreAnnotations.CharacterOffsetEndAnnotation.class, i * 100 + 90);
+			sentences.add(sentence);
+		}
+
+		List<List<CoreMap>> shards = ShardedAnnotator.getShards(sentences, 150);
+		Assert.assertEquals(3, shards.size());
+		Assert.assertEquals(sentences.subList(0, 2), shards.get(0));
+		Assert.assertEquals(sentences.subList(2, 4), shards.get(1));
+		Assert.assertEquals(sentences.subList(4, 5), shards.get(2));
+	}
+
+	@Test
+	public void testShortDocumentIsNotSharded()
+	{
+		DocumentShardingOptions options = new DocumentShardingOptions(executor, 1000, 100, 4);
+		Assert.assertFalse(options.isApplicable(999));
+		Assert.assertTrue(options.isApplicable(1000));
+		Assert.assertEquals(250, options.getShardLength(1000));
+	}
+
+	@Test
+	public void testEnglish() throws Exception
+	{
+		StanfordCoreNLP pipeline = StanfordDocumentParser.createPipeline(Language.ENGLISH);
+		String text = readTestFile("testFiles/english/enLevel_B.txt");
+		Assert.assertTrue(new ShardedAnnotator(pipeline, sharding).getSplitPipeline().isValid());
+
+		testAnnotation(pipeline, text);
+		testParse(pipeline, Language.ENGLISH, text);
+	}
+
+	@Test
+	public void testGerman() throws Exception
+	{
+		StanfordCoreNLP pipeline = StanfordDocumentParser.createPipeline(Language.GERMAN);
+		String text = readTestFile("testFiles/german/deLevel_B.txt");
+
+		testAnnotation(pipeline, text);
+		testParse(pipeline, Language.GERMAN, text);
+	}
+
+	@Test
+	public void testRussian() throws Exception
+	{
+		StanfordCoreNLP pipeline = StanfordDocumentParser.createPipeline(Language.RUSSIAN);
+		String text = readTestFile("testFiles/russian/ruLevel_B.txt");
+
+		testAnnotation(pipeline, text);
+		testParse(pipeline, Language.RUSSIAN, text);
+	}
+}
@@ -52,6 +52,16 @@ public class StanfordDocumentParserRussianStrategyTest {
 		Assert.assertEquals(1, existentialCount);
 	}
 
+	@Test
+	public void existentialJestMultipleSentencesTest() {
+		// the sentences are analysed in a single batch, so each one's readings must line up with its own words
+		String stringToParse = "Мне хочется есть. У меня есть кот. Он хочет есть. У него есть собака.";
+		AbstractDocument parsedDocument = getParsedDocument(stringToParse);
+		int existentialCount = parsedDocument.getConstructionData(GrammaticalConstruction.EXISTENTIAL_THERE).getFrequency();
+		Assert.assertEquals(2, existentialCount);
+		Assert.assertEquals(4, parsedDocument.getNumSentences());
+	}
+
 	@Test
 	public void existentialJestSimpleNegativeTest1() {
 		String stringToParse = "Мне хочется есть.";
@@ -0,0 +1,12 @@
+package com.flair.server.parser;
+
+/**
+ * Creates plain documents for tests outside of the parser package
+ */
+public final class TestDocumentFactory implements AbstractDocumentFactory
+{
+	@Override
+	public AbstractDocument create(AbstractDocumentSource source) {
+		return new Document(source);
+	}
+}
@@ -0,0 +1,220 @@
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbstractJobTest
+{
+	private static final class CountEvent implements AbstractJobEvent<Integer>
+	{
+		final int		value;
+		final boolean	completion;
+
+		CountEvent(int value, boolean completion)
+		{
+			this.value = value;
+			this.completion = completion;
+		}
+
+		@Override
+		public boolean isCompletionEvent() {
+			return completion;
+		}
+
+		@Override
+		public Integer getOutput() {
+			return completion ? value : null;
+		}
+	}
+
+	private static final class CountTask extends AbstractTask<Integer>
+	{
+		private final int depth;
+
+		CountTask(AbstractJob<?, ?> job, int depth)
+		{
+			super(TaskType.PARSE_DOCUMENT, job, new BasicTaskLinker<Integer>(job));
+			this.depth = depth;
+		}
+
+		@Override
+		protected Integer performTask() {
+			return depth;
+		}
+	}
+
+	// each task queues two successors until the maximum depth is reached
+	private static final class CountJob extends AbstractJob<Integer, CountEvent>
+	{
+		private final ExecutorService	pool;
+		private final int				maxDepth;
+		private int						count;
+
+		CountJob(ExecutorService pool, int maxDepth)
+		{
+			this.pool = pool;
+			this.maxDepth = maxDepth;
+			this.count = 0;
+		}
+
+		private void queue(int depth)
+		{
+			CountTask task = new CountTask(this, depth);
+			registerTask(task);
+			pool.submit(task.getFutureTask());
+		}
+
+		@Override
+		public void begin()
+		{
+			queue(0);
+			flagStarted();
+		}
+
+		@Override
+		protected void handleTaskCompletion(AbstractTaskResult<?> result)
+		{
+			int depth = (Integer)result.getResult();
+			count++;
+			notifyListeners(new CountEvent(count, false));
+			if (depth < maxDepth)
+			{
+				queue(depth + 1);
+				queue(depth + 1);
+			}
+		}
+
+		@Override
+		protected CountEvent createCompletionEvent() {
+			return new CountEvent(count, true);
+		}
+
+		@Override
+		public Integer getOutput()
+		{
+			waitForCompletion();
+			return count;
+		}
+	}
+
+	@Test
+	public void testTaskGraphCompletion()
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try
+		{
+			CountJob job = new CountJob(pool, 5);
+			List<CountEvent> events = Collections.synchronizedList(new ArrayList<>());
+			job.addListener(events::add);
+			job.begin();
+
+			Assert.assertEquals(63, (int)job.getOutput());
+			Assert.assertTrue(job.isCompleted());
+			Assert.assertEquals(64, events.size());
+
+			// events arrive in the order they were raised and the completion event is the last
+			for (int i = 0; i < 63; i++)
+				Assert.assertEquals(i + 1, events.get(i).value);
+			Assert.assertTrue(events.get(63).isCompletionEvent());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSlowListenerDoesNotBlockTasks() throws Exception
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		CountDownLatch release = new CountDownLatch(1);
+		try
+		{
+			CountJob job = new CountJob(pool, 3);
+			job.addListener(e -> {
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			job.begin();
+
+			// all tasks finish while the listener is still stuck on the first event
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (job.isCompleted() == false && System.nanoTime() < deadline)
+				Thread.sleep(5);
+
+			Assert.assertTrue(job.isCompleted());
+			Assert.assertFalse(job.getCompletionFuture().isDone());
+
+			release.countDown();
+			job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(15, (int)job.getOutput());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCancellationCompletesWaiters() throws Exception
+	{
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		CountDownLatch blocker = new CountDownLatch(1);
+		try
+		{
+			// keep the only pool thread busy so that the job's tasks never run
+			pool.submit(() -> {
+				blocker.await();
+				return null;
+			});
+
+			CountJob job = new CountJob(pool, 2);
+			List<CountEvent> events = Collections.synchronizedList(new ArrayList<>());
+			job.addListener(events::add);
+			job.begin();
+			job.cancel();
+
+			Assert.assertTrue(job.isCancelled());
+			Assert.assertTrue(job.isCompleted());
+			job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+			Assert.assertTrue(events.isEmpty());
+		} finally {
+			blocker.countDown();
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWaitingBeforeBegin() throws Exception
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		ExecutorService waiters = Executors.newFixedThreadPool(2);
+		try
+		{
+			// jobs that wait for admission haven't begun yet
+			CountJob queued = new CountJob(pool, 2);
+			Future<Integer> output = waiters.submit(queued::getOutput);
+			Thread.sleep(100);
+			Assert.assertFalse(output.isDone());
+
+			queued.begin();
+			Assert.assertEquals(7, (int)output.get(10, TimeUnit.SECONDS));
+
+			CountJob cancelled = new CountJob(pool, 2);
+			Future<Integer> cancelledOutput = waiters.submit(cancelled::getOutput);
+			cancelled.cancel();
+			Assert.assertEquals(0, (int)cancelledOutput.get(10, TimeUnit.SECONDS));
+		} finally {
+			waiters.shutdownNow();
+			pool.shutdownNow();
+		}
+	}
+}
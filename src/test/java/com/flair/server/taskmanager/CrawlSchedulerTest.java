@@ -0,0 +1,104 @@
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CrawlSchedulerTest
+{
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static Runnable block(CountDownLatch started, CountDownLatch release, List<String> log, String name)
+	{
+		return () -> {
+			log.add(name);
+			started.countDown();
+			try
+			{
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {}
+		};
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLimits() {
+		new CrawlScheduler(executor, 0, 1);
+	}
+
+	@Test
+	public void testGlobalLimit() throws Exception
+	{
+		CrawlScheduler scheduler = new CrawlScheduler(executor, 2, 2);
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+
+		scheduler.submit("a.com", block(started, release, log, "a1"));
+		scheduler.submit("b.com", block(started, release, log, "b1"));
+		scheduler.submit("c.com", () -> { log.add("c1"); done.countDown(); });
+
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(2, scheduler.getActiveCount());
+		Assert.assertEquals(1, scheduler.getPendingCount());
+
+		release.countDown();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals("c1", log.get(2));
+	}
+
+	@Test
+	public void testPerHostLimit() throws Exception
+	{
+		CrawlScheduler scheduler = new CrawlScheduler(executor, 4, 1);
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch otherHost = new CountDownLatch(1);
+		CountDownLatch sameHost = new CountDownLatch(1);
+
+		scheduler.submit("a.com", block(started, release, log, "a1"));
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+		scheduler.submit("a.com", () -> { log.add("a2"); sameHost.countDown(); });
+		scheduler.submit("b.com", () -> { log.add("b1"); otherHost.countDown(); });
+
+		// fetches from other hosts aren't held up by the saturated host
+		Assert.assertTrue(otherHost.await(5, TimeUnit.SECONDS));
+		Assert.assertFalse(sameHost.await(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, scheduler.getPendingCount());
+
+		release.countDown();
+		Assert.assertTrue(sameHost.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals("a2", log.get(2));
+	}
+
+	@Test
+	public void testExceptionReleasesSlot() throws Exception
+	{
+		CrawlScheduler scheduler = new CrawlScheduler(executor, 1, 1);
+		CountDownLatch done = new CountDownLatch(1);
+
+		scheduler.submit("a.com", () -> { throw new IllegalStateException("test"); });
+		scheduler.submit("a.com", done::countDown);
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,244 @@
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.server.parser.AbstractDocument;
+import com.flair.server.parser.AbstractDocumentParser;
+import com.flair.server.parser.AbstractDocumentSource;
+import com.flair.server.parser.AbstractParsingStrategy;
+import com.flair.server.parser.DeferredDocumentSource;
+import com.flair.server.parser.KeywordSearcherInput;
+import com.flair.server.parser.KeywordSearcherOutput;
+import com.flair.server.parser.SimpleDocumentSource;
+import com.flair.server.parser.TestDocumentFactory;
+import com.flair.server.utilities.SimpleObjectPoolResource;
+import com.flair.shared.grammar.Language;
+
+public class DocumentParseTaskTest
+{
+	// blocks in every parse until released, swallowing interrupts like a parser stuck in native code would
+	private static final class StuckParser extends AbstractDocumentParser
+	{
+		final CountDownLatch	release;
+
+		StuckParser(CountDownLatch release)
+		{
+			super(new TestDocumentFactory());
+			this.release = release;
+		}
+
+		@Override
+		public boolean isLanguageSupported(Language lang) {
+			return true;
+		}
+
+		@Override
+		public AbstractDocument parse(AbstractDocumentSource source, AbstractParsingStrategy strategy)
+		{
+			while (true)
+			{
+				try
+				{
+					release.await();
+					break;
+				} catch (InterruptedException ex) {}
+			}
+
+			AbstractDocument doc = docFactory.create(source);
+			doc.flagAsParsed();
+			return doc;
+		}
+	}
+
+	private static final class NullStrategy implements AbstractParsingStrategy
+	{
+		@Override
+		public boolean isLanguageSupported(Language lang) {
+			return true;
+		}
+
+		@Override
+		public boolean apply(AbstractDocument docToParse) {
+			return true;
+		}
+	}
+
+	private final CountDownLatch		release = new CountDownLatch(1);
+	private final AtomicInteger			launches = new AtomicInteger(0);
+	private DocumentParseTask.Executor	executor;
+
+	// only the first parser gets stuck
+	private DocumentParserPool createParserPool(ParserHeapBudget budget)
+	{
+		return new DocumentParserPool(() -> new StuckParser(launches.getAndIncrement() == 0 ? release : new CountDownLatch(0)),
+									Language.ENGLISH, budget, Runnable::run);
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (condition.getAsBoolean() == false && System.nanoTime() < deadline)
+			Thread.sleep(5);
+
+		Assert.assertTrue(condition.getAsBoolean());
+	}
+
+	@After
+	public void tearDown()
+	{
+		release.countDown();
+		if (executor != null)
+			executor.shutdown(true);
+	}
+
+	private ParseJob createJob(DocumentParserPool parserPool, String... texts)
+	{
+		List<AbstractDocumentSource> sources = new ArrayList<>();
+		for (String itr : texts)
+			sources.add(new SimpleDocumentSource(itr, Language.ENGLISH));
+
+		return new ParseJob(new ParseJobInput("test",
+											Language.ENGLISH,
+											sources,
+											new ArrayList<DeferredDocumentSource>(),
+											executor,
+											null,
+											parserPool,
+											NullStrategy::new,
+											() -> (doc, input) -> new KeywordSearcherOutput(input),
+											new KeywordSearcherInput()));
+	}
+
+	@Test
+	public void testTimeoutCompletesTaskWhenParserIgnoresInterrupts() throws Exception
+	{
+		executor = new DocumentParseTask.Executor(1, 200, 60 * 1000);
+		DocumentParserPool parserPool = createParserPool(new ParserHeapBudget(4096));
+		ParseJob job = createJob(parserPool, "Five quacking zephyrs jolt my wax bed.");
+		job.begin();
+
+		// the job completes without the document while the parser is still stuck
+		job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+		Assert.assertEquals(0, job.getOutput().parsedDocs.size());
+		Assert.assertEquals(1, parserPool.getInUseCount());
+
+		// the late result is discarded
+		release.countDown();
+		Thread.sleep(200);
+		Assert.assertEquals(0, job.getOutput().parsedDocs.size());
+		Assert.assertEquals(0, parserPool.getInUseCount());
+	}
+
+	@Test
+	public void testQuarantineFreesThreadForOtherTasks() throws Exception
+	{
+		executor = new DocumentParseTask.Executor(1, 100, 100);
+		ParserHeapBudget budget = new ParserHeapBudget(4096);
+		DocumentParserPool parserPool = createParserPool(budget);
+		// the second document can only be parsed once the stuck parser's thread has been made up for
+		ParseJob job = createJob(parserPool, "Jackdaws love my big sphinx of quartz.", "How vexingly quick daft zebras jump!");
+		job.begin();
+
+		job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+		Assert.assertEquals(1, job.getOutput().parsedDocs.size());
+		Assert.assertEquals(1, parserPool.getQuarantineCount());
+		Assert.assertEquals(2, executor.getThreadCount());
+		// the stuck parser's heap reservation was handed to its replacement
+		Assert.assertEquals(parserPool.getHeapEstimateMB(), budget.getReservedMB());
+
+		// the extra thread is removed once the stuck worker returns
+		release.countDown();
+		waitFor(() -> executor.getThreadCount() == 1);
+		Assert.assertEquals(0, executor.getActiveTaskCount());
+	}
+
+	@Test
+	public void testCancellationWithStuckParser() throws Exception
+	{
+		executor = new DocumentParseTask.Executor(1, 60 * 1000, 100);
+		DocumentParserPool parserPool = createParserPool(new ParserHeapBudget(4096));
+		ParseJob stuck = createJob(parserPool, "The five boxing wizards jump quickly.");
+		stuck.begin();
+
+		waitFor(() -> parserPool.getInUseCount() == 1);
+		stuck.cancel();
+		stuck.getCompletionFuture().get(10, TimeUnit.SECONDS);
+		waitFor(() -> parserPool.getQuarantineCount() == 1);
+
+		// the only parser thread is stuck, but other jobs still get parsed
+		ParseJob next = createJob(parserPool, "Bright vixens jump; dozy fowl quack.");
+		next.begin();
+		next.getCompletionFuture().get(10, TimeUnit.SECONDS);
+		Assert.assertEquals(1, next.getOutput().parsedDocs.size());
+	}
+
+	@Test
+	public void testCancellingRunningAndQueuedTasks() throws Exception
+	{
+		executor = new DocumentParseTask.Executor(1, 60 * 1000, 60 * 1000);
+		DocumentParserPool parserPool = createParserPool(new ParserHeapBudget(4096));
+		ParseJob job = createJob(parserPool, "Waltz, bad nymph, for quick jigs vex.", "Glib jocks quiz nymph to vex dwarf.",
+								"Quick zephyrs blow, vexing daft Jim.");
+		job.begin();
+
+		// the running task completes as it's cancelled, the queued ones are dropped
+		waitFor(() -> parserPool.getInUseCount() == 1);
+		job.cancel();
+		Assert.assertTrue(job.isCancelled());
+		Assert.assertTrue(job.isCompleted());
+		job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testCancelledTasksLeaveParserBacklog() throws Exception
+	{
+		executor = new DocumentParseTask.Executor(1, 60 * 1000, 60 * 1000);
+		DocumentParserPool parserPool = createParserPool(new ParserHeapBudget(4096));
+		String[] texts = new String[50];
+		for (int i = 0; i < texts.length; i++)
+			texts[i] = "Queued document number " + i + ".";
+
+		// the first document occupies the only thread, the rest wait in the session's queue
+		ParseJob job = createJob(parserPool, texts);
+		job.begin();
+		waitFor(() -> parserPool.getInUseCount() == 1);
+		Assert.assertEquals(texts.length - 1, executor.getQueuedTaskCount());
+		Assert.assertEquals(texts.length - 1, executor.getQueuedTaskCount("test"));
+
+		job.cancel();
+		Assert.assertEquals(0, executor.getQueuedTaskCount());
+		Assert.assertEquals(0, executor.getQueuedTaskCount("test"));
+		Assert.assertTrue(executor.getQueuedTaskCounts().isEmpty());
+	}
+
+	@Test
+	public void testQuarantineReleasesHeapBudget() throws Exception
+	{
+		ParserHeapBudget budget = new ParserHeapBudget(4096);
+		// no replacements are created
+		DocumentParserPool parserPool = new DocumentParserPool(() -> new StuckParser(release), Language.ENGLISH, budget, r -> {});
+
+		SimpleObjectPoolResource<AbstractDocumentParser> returned = parserPool.get();
+		returned.close();
+		Assert.assertFalse(parserPool.quarantine(returned));
+		Assert.assertEquals(parserPool.getInstanceHeapEstimateMB(), budget.getReservedMB());
+
+		SimpleObjectPoolResource<AbstractDocumentParser> busy = parserPool.get();
+		Assert.assertTrue(parserPool.quarantine(busy));
+		Assert.assertFalse(parserPool.quarantine(busy));
+		busy.close();
+
+		Assert.assertEquals(0, parserPool.getSize());
+		Assert.assertEquals(1, parserPool.getQuarantineCount());
+		Assert.assertEquals(0, budget.getReservedMB());
+	}
+}
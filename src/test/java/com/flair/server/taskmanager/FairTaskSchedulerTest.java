@@ -0,0 +1,151 @@
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FairTaskSchedulerTest
+{
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	// occupies the scheduler's only slot until released, so that the order of the queued operations can be checked
+	private static CountDownLatch occupy(FairTaskScheduler scheduler) throws InterruptedException
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		scheduler.submit("blocker", 1, () -> {
+			started.countDown();
+			try
+			{
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {}
+		});
+
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+		return release;
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWeight() {
+		new FairTaskScheduler(executor, 1).submit("a", 0, () -> {});
+	}
+
+	@Test
+	public void testRoundRobin() throws Exception
+	{
+		FairTaskScheduler scheduler = new FairTaskScheduler(executor, 1);
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(6);
+		CountDownLatch release = occupy(scheduler);
+
+		// a large backlog from one session doesn't hold up the others
+		for (int i = 1; i <= 4; i++)
+		{
+			String name = "bulk" + i;
+			scheduler.submit("bulk", 1, () -> { log.add(name); done.countDown(); });
+		}
+		scheduler.submit("interactive", 1, () -> { log.add("interactive1"); done.countDown(); });
+		scheduler.submit("interactive", 1, () -> { log.add("interactive2"); done.countDown(); });
+
+		Assert.assertEquals(4, scheduler.getPendingCount("bulk"));
+		Assert.assertEquals(2, scheduler.getPendingCount("interactive"));
+		Assert.assertEquals(6, scheduler.getPendingCount());
+
+		release.countDown();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(Arrays.asList("bulk1", "interactive1", "bulk2", "interactive2", "bulk3", "bulk4"), log);
+		Assert.assertEquals(0, scheduler.getPendingCount("bulk"));
+	}
+
+	@Test
+	public void testWeights() throws Exception
+	{
+		FairTaskScheduler scheduler = new FairTaskScheduler(executor, 1);
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(6);
+		CountDownLatch release = occupy(scheduler);
+
+		for (int i = 1; i <= 3; i++)
+		{
+			String bulk = "b" + i, interactive = "i" + i;
+			scheduler.submit("bulk", 1, () -> { log.add(bulk); done.countDown(); });
+			scheduler.submit("interactive", 2, () -> { log.add(interactive); done.countDown(); });
+		}
+
+		release.countDown();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(Arrays.asList("b1", "i1", "i2", "b2", "i3", "b3"), log);
+	}
+
+	@Test
+	public void testExceptionReleasesSlot() throws Exception
+	{
+		FairTaskScheduler scheduler = new FairTaskScheduler(executor, 1);
+		CountDownLatch done = new CountDownLatch(1);
+
+		scheduler.submit("a", 1, () -> { throw new IllegalStateException("test"); });
+		scheduler.submit("a", 1, done::countDown);
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCancelledOperationsAreNotPending() throws Exception
+	{
+		FairTaskScheduler scheduler = new FairTaskScheduler(executor, 1);
+		AtomicInteger runs = new AtomicInteger(0);
+		CountDownLatch release = occupy(scheduler);
+
+		List<FutureTask<Void>> bulk = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			FutureTask<Void> task = new FutureTask<>(runs::incrementAndGet, null);
+			bulk.add(task);
+			scheduler.submit("bulk", 1, task);
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.submit("other", 1, done::countDown);
+		Assert.assertEquals(101, scheduler.getPendingCount());
+
+		// a cancelled job's tasks no longer count towards the backlog
+		for (FutureTask<Void> itr : bulk)
+			itr.cancel(false);
+		scheduler.notifyCancelled();
+
+		Assert.assertEquals(1, scheduler.getPendingCount());
+		Assert.assertEquals(0, scheduler.getPendingCount("bulk"));
+		Assert.assertFalse(scheduler.getPendingCounts().containsKey("bulk"));
+
+		// tasks cancelled before they're queued are dropped right away
+		FutureTask<Void> cancelled = new FutureTask<>(runs::incrementAndGet, null);
+		cancelled.cancel(false);
+		scheduler.submit("bulk", 1, cancelled);
+		Assert.assertEquals(1, scheduler.getPendingCount());
+
+		release.countDown();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(0, scheduler.getPendingCount());
+		Assert.assertEquals(0, runs.get());
+	}
+}
@@ -0,0 +1,103 @@
+package com.flair.server.taskmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JobAdmissionControllerTest
+{
+	private static JobAdmissionController.Ticket ticket(List<String> log, String name)
+	{
+		return new JobAdmissionController.Ticket(() -> log.add(name + " started"),
+												p -> log.add(name + " at " + p));
+	}
+
+	@Test
+	public void testQueueing()
+	{
+		JobAdmissionController admission = new JobAdmissionController(1, 2, 0, () -> 0);
+		List<String> log = new ArrayList<>();
+		JobAdmissionController.Ticket a = ticket(log, "a"), b = ticket(log, "b"), c = ticket(log, "c");
+
+		admission.submit(a);
+		admission.submit(b);
+		admission.submit(c);
+		Assert.assertEquals(Arrays.asList("a started", "b at 1", "c at 2"), log);
+		Assert.assertEquals(1, admission.getActiveCount());
+		Assert.assertEquals(2, admission.getPosition(c));
+
+		log.clear();
+		admission.release(a);
+		Assert.assertEquals(Arrays.asList("b started", "c at 1"), log);
+		Assert.assertEquals(0, admission.getPosition(b));
+
+		// releasing twice doesn't free another slot
+		log.clear();
+		admission.release(a);
+		Assert.assertTrue(log.isEmpty());
+		Assert.assertEquals(1, admission.getActiveCount());
+	}
+
+	@Test
+	public void testWithdrawal()
+	{
+		JobAdmissionController admission = new JobAdmissionController(1, 2, 0, () -> 0);
+		List<String> log = new ArrayList<>();
+		JobAdmissionController.Ticket a = ticket(log, "a"), b = ticket(log, "b"), c = ticket(log, "c");
+
+		admission.submit(a);
+		admission.submit(b);
+		admission.submit(c);
+
+		log.clear();
+		admission.release(b);
+		Assert.assertEquals(Arrays.asList("c at 1"), log);
+
+		log.clear();
+		admission.release(a);
+		Assert.assertEquals(Arrays.asList("c started"), log);
+		Assert.assertEquals(0, admission.getWaitingCount());
+	}
+
+	@Test
+	public void testRejection()
+	{
+		AtomicInteger backlog = new AtomicInteger(0);
+		JobAdmissionController admission = new JobAdmissionController(1, 1, 10, backlog::get);
+		List<String> log = new ArrayList<>();
+
+		admission.submit(ticket(log, "a"));
+		admission.submit(ticket(log, "b"));
+		try
+		{
+			admission.submit(ticket(log, "c"));
+			Assert.fail("Full queue accepted a job");
+		} catch (JobRejectedException ex) {}
+
+		backlog.set(10);
+		try
+		{
+			new JobAdmissionController(1, 1, 10, backlog::get).submit(ticket(log, "d"));
+			Assert.fail("Job was accepted despite the parser backlog");
+		} catch (JobRejectedException ex) {}
+
+		Assert.assertEquals(Arrays.asList("a started", "b at 1"), log);
+	}
+
+	@Test
+	public void testFailedStartReleasesSlot()
+	{
+		JobAdmissionController admission = new JobAdmissionController(1, 1, 0, () -> 0);
+		try
+		{
+			admission.submit(new JobAdmissionController.Ticket(() -> { throw new IllegalStateException("test"); }, null));
+			Assert.fail();
+		} catch (IllegalStateException ex) {}
+
+		Assert.assertEquals(0, admission.getActiveCount());
+	}
+}
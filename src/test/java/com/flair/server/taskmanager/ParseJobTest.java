@@ -0,0 +1,209 @@
+package com.flair.server.taskmanager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.flair.server.parser.AbstractDocument;
+import com.flair.server.parser.AbstractDocumentParser;
+import com.flair.server.parser.AbstractDocumentSource;
+import com.flair.server.parser.AbstractParsingStrategy;
+import com.flair.server.parser.DeferredDocumentSource;
+import com.flair.server.parser.KeywordSearcherInput;
+import com.flair.server.parser.KeywordSearcherOutput;
+import com.flair.server.parser.SimpleDocumentSource;
+import com.flair.server.parser.TestDocumentFactory;
+import com.flair.shared.grammar.Language;
+
+public class ParseJobTest
+{
+	// stands in for an uploaded file that's spooled on disk
+	private static final class SpooledSource implements DeferredDocumentSource
+	{
+		final String			text;			// null if the extraction fails
+		final CountDownLatch	release;		// load() blocks until released
+		final AtomicInteger		discards;
+
+		SpooledSource(String text, CountDownLatch release)
+		{
+			this.text = text;
+			this.release = release;
+			this.discards = new AtomicInteger(0);
+		}
+
+		@Override
+		public AbstractDocumentSource load() throws Exception
+		{
+			release.await(10, TimeUnit.SECONDS);
+			if (text == null)
+				throw new IOException("Corrupt file");
+
+			return new SimpleDocumentSource(text, Language.ENGLISH);
+		}
+
+		@Override
+		public void discard() {
+			discards.incrementAndGet();
+		}
+
+		@Override
+		public String getDescription() {
+			return "Spooled: " + text;
+		}
+	}
+
+	private static final class NullParser extends AbstractDocumentParser
+	{
+		NullParser() {
+			super(new TestDocumentFactory());
+		}
+
+		@Override
+		public boolean isLanguageSupported(Language lang) {
+			return true;
+		}
+
+		@Override
+		public AbstractDocument parse(AbstractDocumentSource source, AbstractParsingStrategy strategy)
+		{
+			AbstractDocument doc = docFactory.create(source);
+			strategy.apply(doc);
+			doc.flagAsParsed();
+			return doc;
+		}
+	}
+
+	private static final class NullStrategy implements AbstractParsingStrategy
+	{
+		@Override
+		public boolean isLanguageSupported(Language lang) {
+			return true;
+		}
+
+		@Override
+		public boolean apply(AbstractDocument docToParse) {
+			return true;
+		}
+	}
+
+	private DocumentParseTask.Executor		parseExecutor;
+	private TextExtractionTask.Executor		extractionExecutor;
+	private DocumentParserPool				parserPool;
+
+	@Before
+	public void setUp()
+	{
+		parseExecutor = DocumentParseTask.getExecutor();
+		extractionExecutor = TextExtractionTask.getExecutor();
+		parserPool = new DocumentParserPool(NullParser::new, Language.ENGLISH, new ParserHeapBudget(4096), Runnable::run);
+	}
+
+	@After
+	public void tearDown()
+	{
+		parseExecutor.shutdown(true);
+		extractionExecutor.shutdown(true);
+	}
+
+	private ParseJob createJob(List<DeferredDocumentSource> deferred)
+	{
+		// the texts are unique to each test, so the parse cache never returns results of another test
+		return new ParseJob(new ParseJobInput("test",
+											Language.ENGLISH,
+											new ArrayList<>(),
+											deferred,
+											parseExecutor,
+											extractionExecutor,
+											parserPool,
+											NullStrategy::new,
+											() -> (doc, input) -> new KeywordSearcherOutput(input),
+											new KeywordSearcherInput()));
+	}
+
+	private static List<ParseJobEvent.Type> getTypes(List<ParseJobEvent> events)
+	{
+		List<ParseJobEvent.Type> out = new ArrayList<>();
+		for (ParseJobEvent itr : events)
+			out.add(itr.type);
+
+		return out;
+	}
+
+	@Test
+	public void testDeferredSourceIsParsedOnceExtracted()
+	{
+		SpooledSource source = new SpooledSource("The quick brown fox jumps over the lazy dog.", new CountDownLatch(0));
+		ParseJob job = createJob(Arrays.asList(source));
+		List<ParseJobEvent> events = Collections.synchronizedList(new ArrayList<>());
+		job.addListener(events::add);
+		job.begin();
+
+		Assert.assertEquals(1, job.getOutput().parsedDocs.size());
+		Assert.assertEquals(Arrays.asList(ParseJobEvent.Type.SOURCE_READY, ParseJobEvent.Type.PARSE_COMPLETE, ParseJobEvent.Type.JOB_COMPLETE),
+							getTypes(events));
+		Assert.assertSame(events.get(0).readySource, events.get(1).parsedDoc.getDocumentSource());
+		Assert.assertTrue(source.discards.get() > 0);
+	}
+
+	@Test
+	public void testFailedExtractionIsReported()
+	{
+		SpooledSource broken = new SpooledSource(null, new CountDownLatch(0));
+		SpooledSource intact = new SpooledSource("Pack my box with five dozen liquor jugs.", new CountDownLatch(0));
+		ParseJob job = createJob(Arrays.asList(broken, intact));
+		List<ParseJobEvent> events = Collections.synchronizedList(new ArrayList<>());
+		job.addListener(events::add);
+		job.begin();
+
+		// the rest of the job continues
+		Assert.assertEquals(1, job.getOutput().parsedDocs.size());
+		List<ParseJobEvent.Type> types = getTypes(events);
+		Assert.assertEquals(1, Collections.frequency(types, ParseJobEvent.Type.SOURCE_FAILED));
+		Assert.assertEquals(ParseJobEvent.Type.JOB_COMPLETE, types.get(types.size() - 1));
+
+		for (ParseJobEvent itr : events)
+		{
+			if (itr.type == ParseJobEvent.Type.SOURCE_FAILED)
+				Assert.assertSame(broken, itr.failedSource);
+		}
+
+		Assert.assertTrue(broken.discards.get() > 0);
+		Assert.assertTrue(intact.discards.get() > 0);
+	}
+
+	@Test
+	public void testCancellationDiscardsSources() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		SpooledSource source = new SpooledSource("Sphinx of black quartz, judge my vow.", release);
+		ParseJob job = createJob(Arrays.asList(source));
+		List<ParseJobEvent> events = Collections.synchronizedList(new ArrayList<>());
+		job.addListener(events::add);
+		job.begin();
+
+		try
+		{
+			job.cancel();
+			// the spool is deleted right away, whether or not the extraction has started
+			Assert.assertTrue(job.isCancelled());
+			Assert.assertTrue(source.discards.get() > 0);
+			job.getCompletionFuture().get(10, TimeUnit.SECONDS);
+		} finally {
+			release.countDown();
+		}
+
+		Thread.sleep(100);
+		Assert.assertFalse(getTypes(events).contains(ParseJobEvent.Type.SOURCE_READY));
+		Assert.assertEquals(0, job.getOutput().parsedDocs.size());
+	}
+}
@@ -0,0 +1,45 @@
+package com.flair.server.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.shared.grammar.Language;
+
+public class AutoDetectTextExtractorTest
+{
+	private static final String HTML = "<html><head><title>Test</title></head><body><p>The quick brown fox jumps over the lazy dog. "
+										+ "It didn't notice the fox at all, it was far too lazy for that.</p></body></html>";
+
+	@Test
+	public void testDetectionResetsStream() throws IOException
+	{
+		byte[] bytes = HTML.getBytes(StandardCharsets.UTF_8);
+		BufferedInputStream stream = new BufferedInputStream(new ByteArrayInputStream(bytes));
+
+		Assert.assertTrue(TikaTextExtractor.isContentHTMLPlainText(stream, "test"));
+		byte[] read = new byte[bytes.length];
+		Assert.assertEquals(bytes.length, stream.read(read));
+		Assert.assertArrayEquals(bytes, read);
+	}
+
+	@Test
+	public void testSingleStreamExtraction()
+	{
+		ByteArrayInputStream source = new ByteArrayInputStream(HTML.getBytes(StandardCharsets.UTF_8));
+		AbstractTextExtractor extractor = TextExtractorFactory.create(TextExtractorType.AUTODETECT);
+		AbstractTextExtractor.Input input = new AbstractTextExtractor.Input(source, Language.ENGLISH);
+		AbstractTextExtractor.Output output = extractor.extractText(input);
+
+		Assert.assertSame(input, output.input);
+		Assert.assertTrue(output.success);
+		Assert.assertTrue(output.isHTML);
+		Assert.assertFalse(output.extractedText.contains("<p>"));
+		// detection and extraction share the same stream
+		Assert.assertEquals(0, source.available());
+	}
+}
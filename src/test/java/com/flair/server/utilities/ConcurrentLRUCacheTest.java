@@ -0,0 +1,74 @@
+package com.flair.server.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentLRUCacheTest
+{
+	@Test
+	public void testLeastRecentlyUsedIsEvicted()
+	{
+		ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(2, 1);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		Assert.assertEquals(1, (int)cache.get("a"));
+
+		cache.put("c", 3);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.get("b"));
+		Assert.assertEquals(1, (int)cache.get("a"));
+		Assert.assertEquals(3, (int)cache.get("c"));
+		Assert.assertEquals(3, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testLoader()
+	{
+		ConcurrentLRUCache<String, String> cache = new ConcurrentLRUCache<>(16, 4);
+		AtomicInteger loads = new AtomicInteger(0);
+
+		for (int i = 0; i < 3; i++)
+			Assert.assertEquals("KOT", cache.get("kot", k -> {
+				loads.incrementAndGet();
+				return k.toUpperCase();
+			}));
+
+		Assert.assertEquals(1, loads.get());
+		Assert.assertNull(cache.get("pes", k -> null));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testBoundedUnderConcurrentUse() throws InterruptedException
+	{
+		ConcurrentLRUCache<Integer, Integer> cache = new ConcurrentLRUCache<>(100, 8);
+		AtomicInteger mismatches = new AtomicInteger(0);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++)
+		{
+			int offset = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 10000; i++)
+				{
+					int key = (i * 7 + offset) % 500;
+					if (cache.get(key, k -> k * 2) != key * 2)
+						mismatches.incrementAndGet();
+				}
+			}));
+		}
+
+		for (Thread itr : threads)
+			itr.start();
+		for (Thread itr : threads)
+			itr.join();
+
+		Assert.assertEquals(0, mismatches.get());
+		Assert.assertTrue(cache.size() <= 100);
+		Assert.assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+	}
+}
@@ -0,0 +1,76 @@
+package com.flair.server.utilities;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskLRUStoreTest
+{
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = TemporaryDirectory.create("flair-disk-store");
+	}
+
+	@After
+	public void tearDown() {
+		TemporaryDirectory.delete(directory);
+	}
+
+	private static void put(DiskLRUStore store, String key, int size, long lastUsed) throws IOException
+	{
+		Path temp = store.getTempPath(key);
+		Files.write(temp, new byte[size]);
+		store.commit(temp, store.getPath(key));
+		if (lastUsed > 0)
+			Files.setLastModifiedTime(store.getPath(key), FileTime.fromMillis(lastUsed));
+	}
+
+	@Test
+	public void testHashKey()
+	{
+		Assert.assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", DiskLRUStore.hashKey());
+		Assert.assertEquals(DiskLRUStore.hashKey("ab", "c"), DiskLRUStore.hashKey("abc"));
+		Assert.assertFalse(DiskLRUStore.hashKey("abc").equals(DiskLRUStore.hashKey("abd")));
+	}
+
+	@Test
+	public void testCommitReplacesEntries() throws IOException
+	{
+		DiskLRUStore store = new DiskLRUStore("test", directory, ".entry", 1024);
+		put(store, "a", 100, 0);
+		put(store, "a", 40, 0);
+		Assert.assertEquals(40, store.getBytes());
+		Assert.assertEquals(1, store.listEntries().size());
+
+		// a new instance picks up the existing entries
+		Assert.assertEquals(40, new DiskLRUStore("test", directory, ".entry", 1024).getBytes());
+
+		store.delete(store.getPath("a"));
+		Assert.assertEquals(0, store.getBytes());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsTrimmed() throws IOException
+	{
+		DiskLRUStore store = new DiskLRUStore("test", directory, ".entry", 250);
+		long now = System.currentTimeMillis();
+		put(store, "old", 100, now - 20000);
+		put(store, "used", 100, now - 30000);
+		store.touch(store.getPath("used"));
+		put(store, "new", 100, 0);
+
+		Assert.assertFalse(Files.exists(store.getPath("old")));
+		Assert.assertTrue(Files.exists(store.getPath("used")));
+		Assert.assertTrue(Files.exists(store.getPath("new")));
+		Assert.assertEquals(200, store.getBytes());
+		Assert.assertEquals(1, store.getEvictionCount());
+	}
+}
@@ -0,0 +1,42 @@
+package com.flair.server.utilities;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessWithTimeoutTest
+{
+	@Before
+	public void setUp()
+	{
+		// the tests run standard unix tools
+		Assume.assumeTrue(new File("/bin/sh").exists());
+	}
+
+	@Test
+	public void testOutputLargerThanPipeBuffer() throws IOException
+	{
+		StringBuilder input = new StringBuilder();
+		while (input.length() < 1024 * 1024)
+			input.append("слово\n");
+
+		Assert.assertEquals(input.toString(), ProcessWithTimeout.run(input.toString(), 10000, "cat"));
+	}
+
+	@Test
+	public void testTimeout()
+	{
+		long start = System.nanoTime();
+		try
+		{
+			ProcessWithTimeout.run("", 200, "sleep", "10");
+			Assert.fail("Expected a timeout");
+		} catch (IOException ex) {
+			Assert.assertTrue(System.nanoTime() - start < 5000L * 1000 * 1000);
+		}
+	}
+}
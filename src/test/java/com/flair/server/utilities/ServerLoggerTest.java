@@ -0,0 +1,71 @@
+package com.flair.server.utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.shared.utilities.AbstractDebugLogger;
+
+public class ServerLoggerTest
+{
+	@Test
+	public void testFormatMessage()
+	{
+		Assert.assertEquals("a1b2c", AbstractDebugLogger.formatMessage("a{}b{}c", 1, 2));
+		Assert.assertEquals("a1b{}c", AbstractDebugLogger.formatMessage("a{}b{}c", 1));
+		Assert.assertEquals("a1b", AbstractDebugLogger.formatMessage("a{}b", 1, 2));
+		Assert.assertEquals("null!", AbstractDebugLogger.formatMessage("{}!", (Object)null));
+		Assert.assertEquals("plain", AbstractDebugLogger.formatMessage("plain"));
+	}
+
+	@Test
+	public void testArgumentsFormattedOnlyIfEnabled()
+	{
+		AtomicInteger formatted = new AtomicInteger(0);
+		Object arg = new Object() {
+			@Override
+			public String toString()
+			{
+				formatted.incrementAndGet();
+				return "arg";
+			}
+		};
+
+		ServerLogger logger = ServerLogger.get();
+		logger.trace("Trace {}", arg);
+		Assert.assertEquals(logger.isTraceEnabled() ? 1 : 0, formatted.get());
+
+		formatted.set(0);
+		logger.info("Info {} {}", arg, arg);
+		Assert.assertEquals(logger.isInfoEnabled() ? 2 : 0, formatted.get());
+		logger.flush();
+	}
+
+	private static boolean isWriterRunning()
+	{
+		for (Thread itr : Thread.getAllStackTraces().keySet())
+		{
+			if (itr.getName().equals("FLAIR-LogWriter") && itr.isAlive())
+				return true;
+		}
+
+		return false;
+	}
+
+	@Test
+	public void testShutdownStopsWriter()
+	{
+		ServerLogger logger = ServerLogger.get();
+		for (int i = 0; i < 100; i++)
+			logger.info("Message " + i);
+
+		logger.shutdown();
+		Assert.assertFalse(isWriterRunning());
+
+		// still usable afterwards
+		logger.info("After shutdown");
+		logger.flush();
+		logger.shutdown();
+	}
+}
@@ -0,0 +1,104 @@
+package com.flair.server.utilities;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServerMetricsTest
+{
+	private final ServerMetrics metrics = ServerMetrics.get();
+
+	@After
+	public void tearDown()
+	{
+		metrics.unregister("test_queue_depth", "queue", "a");
+		metrics.unregister("test_queue_depth", "queue", "b\"c");
+		metrics.unregister("test_hits_total");
+	}
+
+	@Test
+	public void testStageHistogram()
+	{
+		long count = metrics.getLatency(ServerMetrics.Stage.KEYWORD_SEARCH).getCount();
+		metrics.record(ServerMetrics.Stage.KEYWORD_SEARCH, TimeUnit.MILLISECONDS.toNanos(3));
+		metrics.recordError(ServerMetrics.Stage.KEYWORD_SEARCH);
+
+		Assert.assertEquals(count + 1, metrics.getLatency(ServerMetrics.Stage.KEYWORD_SEARCH).getCount());
+		Assert.assertEquals(count + 1, (long) metrics.getStageCounts().get("keyword_search"));
+
+		String text = metrics.toPrometheusText();
+		Assert.assertTrue(text.contains("# TYPE flair_stage_duration_seconds histogram\n"));
+		Assert.assertTrue(text.contains("flair_stage_duration_seconds_bucket{stage=\"keyword_search\",le=\"+Inf\"} " + (count + 1) + "\n"));
+		Assert.assertTrue(text.contains("flair_stage_duration_seconds_count{stage=\"keyword_search\"} " + (count + 1) + "\n"));
+		Assert.assertTrue(text.contains("flair_stage_duration_seconds_bucket{stage=\"keyword_search\",le=\"0.005000\"}"));
+		Assert.assertTrue(text.contains("flair_stage_errors_total{stage=\"keyword_search\"} "));
+	}
+
+	@Test
+	public void testThreadTotals() throws Exception
+	{
+		long before = metrics.getThreadTotalNanos(ServerMetrics.Stage.ANNOTATE);
+		metrics.record(ServerMetrics.Stage.ANNOTATE, 1000);
+
+		// other threads' samples aren't included
+		Thread other = new Thread(() -> metrics.record(ServerMetrics.Stage.ANNOTATE, 5000));
+		other.start();
+		other.join();
+
+		Assert.assertEquals(before + 1000, metrics.getThreadTotalNanos(ServerMetrics.Stage.ANNOTATE));
+	}
+
+	@Test
+	public void testGauges()
+	{
+		AtomicLong depth = new AtomicLong(3);
+		metrics.registerGauge("test_queue_depth", "Test queue depth", depth::get, "queue", "a");
+		metrics.registerGauge("test_queue_depth", "Test queue depth", () -> 7, "queue", "b\"c");
+		metrics.registerCounter("test_hits_total", "Test hits", () -> { throw new IllegalStateException("test"); });
+
+		depth.set(4);
+		String text = metrics.toPrometheusText();
+		Assert.assertTrue(text.contains("# TYPE test_queue_depth gauge\ntest_queue_depth{queue=\"a\"} 4\ntest_queue_depth{queue=\"b\\\"c\"} 7\n"));
+		Assert.assertTrue(text.contains("# TYPE test_hits_total counter\ntest_hits_total 0\n"));
+		Assert.assertEquals(4L, (long) metrics.getGauges().get("test_queue_depth{queue=\"a\"}"));
+
+		metrics.unregister("test_queue_depth", "queue", "a");
+		Assert.assertFalse(metrics.getGauges().containsKey("test_queue_depth{queue=\"a\"}"));
+		Assert.assertTrue(metrics.getGauges().containsKey("test_queue_depth{queue=\"b\\\"c\"}"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTypeMismatch()
+	{
+		metrics.registerCounter("test_hits_total", "Test hits", () -> 0);
+		metrics.registerGauge("test_hits_total", "Test hits", () -> 0);
+	}
+
+	@Test
+	public void testMBean() throws Exception
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(ServerMetrics.OBJECT_NAME);
+
+		ServerMetrics.registerMBean();
+		try
+		{
+			Assert.assertTrue(server.isRegistered(name));
+			TabularData counts = (TabularData) server.getAttribute(name, "StageCounts");
+			Assert.assertEquals(ServerMetrics.Stage.values().length, counts.size());
+		} finally
+		{
+			ServerMetrics.unregisterMBean();
+		}
+
+		Assert.assertFalse(server.isRegistered(name));
+	}
+}
@@ -0,0 +1,200 @@
+package com.flair.server.utilities;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimpleObjectPoolTest
+{
+	private SimpleObjectPool<String> pool;
+
+	@Before
+	public void setUp()
+	{
+		pool = new SimpleObjectPool<>(2, new String[] { "first", "second" });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMismatchedPoolSize()
+	{
+		new SimpleObjectPool<>(3, new String[] { "first", "second" });
+	}
+
+	@Test
+	public void testLendAndReclaim() throws Exception
+	{
+		SimpleObjectPoolResource<String> a = pool.get();
+		SimpleObjectPoolResource<String> b = pool.get();
+		Assert.assertFalse(a.get().equals(b.get()));
+		Assert.assertEquals(2, pool.getInUseCount());
+
+		a.close();
+		Assert.assertEquals(1, pool.getInUseCount());
+		b.close();
+		Assert.assertEquals(0, pool.getInUseCount());
+		Assert.assertEquals(2, pool.getAcquireLatency().getCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetAfterClose() throws Exception
+	{
+		SimpleObjectPoolResource<String> a = pool.get();
+		a.close();
+		a.get();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDoubleClose() throws Exception
+	{
+		SimpleObjectPoolResource<String> a = pool.get();
+		a.close();
+		a.close();
+	}
+
+	@Test
+	public void testBlocksWhenExhausted() throws Exception
+	{
+		SimpleObjectPoolResource<String> a = pool.get();
+		SimpleObjectPoolResource<String> b = pool.get();
+		CountDownLatch acquired = new CountDownLatch(1);
+
+		Thread waiter = new Thread(() -> {
+			try (SimpleObjectPoolResource<String> c = pool.get()) {
+				acquired.countDown();
+			} catch (Exception ex) {
+				Assert.fail(ex.toString());
+			}
+		});
+		waiter.start();
+
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(1, pool.getWaitingCount());
+
+		a.close();
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		waiter.join();
+		b.close();
+
+		Assert.assertEquals(0, pool.getWaitingCount());
+		Assert.assertEquals(0, pool.getInUseCount());
+	}
+
+	@Test
+	public void testElasticPoolGrowsOnDemand() throws Exception
+	{
+		AtomicInteger created = new AtomicInteger(0);
+		SimpleObjectPool<String> elastic = new SimpleObjectPool<>(3, () -> "resource" + created.incrementAndGet());
+		Assert.assertEquals(0, elastic.getSize());
+
+		SimpleObjectPoolResource<String> a = elastic.get();
+		a.close();
+		SimpleObjectPoolResource<String> b = elastic.get();
+		Assert.assertEquals(1, elastic.getSize());
+
+		SimpleObjectPoolResource<String> c = elastic.get();
+		Assert.assertEquals(2, elastic.getSize());
+		Assert.assertEquals(2, created.get());
+		b.close();
+		c.close();
+	}
+
+	@Test
+	public void testElasticPoolWaitsWhenFactoryDeclines() throws Exception
+	{
+		AtomicInteger created = new AtomicInteger(0);
+		SimpleObjectPool<String> elastic = new SimpleObjectPool<>(3, () -> created.get() == 0 ? "resource" + created.incrementAndGet() : null);
+
+		SimpleObjectPoolResource<String> a = elastic.get();
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread waiter = new Thread(() -> {
+			try (SimpleObjectPoolResource<String> b = elastic.get()) {
+				acquired.countDown();
+			} catch (Exception ex) {
+				Assert.fail(ex.toString());
+			}
+		});
+		waiter.start();
+
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		a.close();
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		waiter.join();
+		Assert.assertEquals(1, elastic.getSize());
+	}
+
+	@Test
+	public void testEvictIdle() throws Exception
+	{
+		AtomicInteger created = new AtomicInteger(0);
+		AtomicInteger disposed = new AtomicInteger(0);
+		SimpleObjectPool<String> elastic = new SimpleObjectPool<>(3, () -> "resource" + created.incrementAndGet());
+
+		SimpleObjectPoolResource<String> a = elastic.get();
+		SimpleObjectPoolResource<String> b = elastic.get();
+		SimpleObjectPoolResource<String> c = elastic.get();
+		a.close();
+		b.close();
+
+		// in-use resources are never evicted
+		Assert.assertEquals(2, elastic.evictIdle(0, TimeUnit.SECONDS, 0, r -> disposed.incrementAndGet()));
+		Assert.assertEquals(1, elastic.getSize());
+		Assert.assertEquals(2, disposed.get());
+		Assert.assertEquals(2, elastic.getEvictionCount());
+
+		c.close();
+		Assert.assertEquals(0, elastic.evictIdle(0, TimeUnit.SECONDS, 1, null));
+		Assert.assertEquals(0, elastic.evictIdle(1, TimeUnit.HOURS, 0, null));
+		Assert.assertEquals(1, elastic.getSize());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEvictFixedPool() {
+		pool.evictIdle(0, TimeUnit.SECONDS, 0, null);
+	}
+
+	@Test
+	public void testDiscardAndGrow() throws Exception
+	{
+		AtomicInteger created = new AtomicInteger(0);
+		SimpleObjectPool<String> elastic = new SimpleObjectPool<>(1, () -> "resource" + created.incrementAndGet());
+
+		SimpleObjectPoolResource<String> a = elastic.get();
+		// nothing to add while the only slot is in use
+		Assert.assertFalse(elastic.grow());
+
+		// the discarded resource's slot is freed while it's still referenced
+		Assert.assertTrue(a.discard());
+		Assert.assertFalse(a.discard());
+		Assert.assertEquals("resource1", a.get());
+		Assert.assertEquals(0, elastic.getSize());
+		Assert.assertEquals(1, elastic.getDiscardCount());
+
+		Assert.assertTrue(elastic.grow());
+		Assert.assertFalse(elastic.grow());
+		Assert.assertEquals(1, elastic.getSize());
+
+		try (SimpleObjectPoolResource<String> b = elastic.get()) {
+			Assert.assertEquals("resource2", b.get());
+		}
+
+		// closing a discarded resource doesn't return it to the pool
+		a.close();
+		Assert.assertEquals(1, elastic.getSize());
+		Assert.assertEquals(0, elastic.getInUseCount());
+	}
+
+	@Test
+	public void testDiscardAfterClose() throws Exception
+	{
+		SimpleObjectPool<String> elastic = new SimpleObjectPool<>(1, () -> "resource");
+		SimpleObjectPoolResource<String> a = elastic.get();
+		a.close();
+
+		Assert.assertFalse(a.discard());
+		Assert.assertEquals(1, elastic.getSize());
+	}
+}
@@ -0,0 +1,215 @@
+package com.flair.server.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingCoProcessPoolTest
+{
+	private static final String END = "<END>";
+	private static final String FLUSH = "<STREAMCMD:FLUSH>";
+
+	@Before
+	public void setUp()
+	{
+		// the tests run standard unix tools as the co-processes
+		Assume.assumeTrue(new File("/bin/sh").exists());
+	}
+
+	private static StreamingCoProcess echo() throws IOException {
+		return new StreamingCoProcess("cat", END, END, "cat");
+	}
+
+	private static boolean isOnPath(String executable)
+	{
+		String path = System.getenv("PATH");
+		if (path == null)
+			return false;
+
+		for (String itr : path.split(File.pathSeparator))
+		{
+			if (new File(itr, executable).canExecute())
+				return true;
+		}
+
+		return false;
+	}
+
+	@Test
+	public void testRequestsShareProcess() throws IOException
+	{
+		AtomicInteger launches = new AtomicInteger(0);
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("cat", 2, () -> {
+			launches.incrementAndGet();
+			return echo();
+		});
+
+		for (int i = 0; i < 20; i++)
+		{
+			String response = pool.process("line " + i + "\nслово", 5000, r -> {
+				throw new IOException("Unexpected fallback");
+			});
+			Assert.assertEquals("line " + i + "\nслово\n", response);
+		}
+
+		Assert.assertEquals(1, launches.get());
+		Assert.assertEquals(1, pool.getSize());
+	}
+
+	@Test
+	public void testTimeoutKillsProcess() throws IOException
+	{
+		StreamingCoProcess process = new StreamingCoProcess("sink", END, END, "sh", "-c", "cat > /dev/null");
+		Assert.assertTrue(process.isHealthy());
+		try
+		{
+			process.process("lost", 200);
+			Assert.fail("Expected a timeout");
+		} catch (IOException ex) {
+			Assert.assertFalse(process.isHealthy());
+		}
+	}
+
+	@Test
+	public void testCrashedProcessIsReplaced() throws IOException
+	{
+		List<StreamingCoProcess> launched = new ArrayList<>();
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("cat", 1, () -> {
+			StreamingCoProcess process = echo();
+			launched.add(process);
+			return process;
+		});
+
+		for (int i = 0; i < 3; i++)
+		{
+			Assert.assertEquals("x\n", pool.process("x", 5000, r -> "fallback"));
+			// simulate a crash while the process is idle
+			launched.get(launched.size() - 1).kill();
+		}
+
+		Assert.assertEquals(3, launched.size());
+		Assert.assertEquals(1, pool.getSize());
+		Assert.assertFalse(pool.isSuspended());
+	}
+
+	@Test
+	public void testFallbackAfterRepeatedFailures() throws IOException
+	{
+		AtomicInteger launches = new AtomicInteger(0);
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("missing", 2, () -> {
+			launches.incrementAndGet();
+			throw new IOException("Executable not found");
+		});
+
+		for (int i = 0; i < 5; i++)
+			Assert.assertEquals("fallback x", pool.process("x", 5000, r -> "fallback " + r));
+
+		Assert.assertTrue(pool.isSuspended());
+		Assert.assertEquals(3, launches.get());
+	}
+
+	@Test
+	public void testLargeRequestTimeoutsAreNotFailures() throws IOException
+	{
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("sink", 1,
+				() -> new StreamingCoProcess("sink", END, END, "sh", "-c", "cat > /dev/null"));
+
+		StringBuilder large = new StringBuilder();
+		while (large.length() <= 256 * 1024)
+			large.append("слово\n");
+
+		for (int i = 0; i < 4; i++)
+			Assert.assertEquals("fallback", pool.process(large.toString(), 100, r -> "fallback"));
+		Assert.assertFalse(pool.isSuspended());
+
+		for (int i = 0; i < 3; i++)
+			Assert.assertEquals("fallback", pool.process("x", 100, r -> "fallback"));
+		Assert.assertTrue(pool.isSuspended());
+	}
+
+	@Test
+	public void testScaleTimeout()
+	{
+		Assert.assertEquals(1000, StreamingCoProcessPool.scaleTimeout("", 1000, 5));
+		Assert.assertEquals(1010, StreamingCoProcessPool.scaleTimeout("a\nb\n", 1000, 5));
+	}
+
+	@Test
+	public void testRetryAfterBackoff() throws IOException, InterruptedException
+	{
+		AtomicInteger launches = new AtomicInteger(0);
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("flaky", 1, () -> {
+			if (launches.incrementAndGet() <= 3)
+				throw new IOException("Not yet");
+			return echo();
+		}, 100, 1000);
+
+		for (int i = 0; i < 5; i++)
+			Assert.assertEquals("fallback", pool.process("x", 5000, r -> "fallback"));
+		Assert.assertTrue(pool.isSuspended());
+		Assert.assertEquals(3, launches.get());
+
+		Thread.sleep(200);
+		Assert.assertFalse(pool.isSuspended());
+		Assert.assertEquals("x\n", pool.process("x", 5000, r -> "fallback"));
+		Assert.assertEquals(4, launches.get());
+	}
+
+	@Test
+	public void testShutdownStopsProcesses() throws IOException
+	{
+		List<StreamingCoProcess> launched = new ArrayList<>();
+		StreamingCoProcessPool pool = new StreamingCoProcessPool("cat", 2, () -> {
+			StreamingCoProcess process = echo();
+			launched.add(process);
+			return process;
+		});
+
+		Assert.assertEquals("x\n", pool.process("x", 5000, r -> "fallback"));
+		pool.shutdown();
+
+		Assert.assertEquals(0, pool.getSize());
+		Assert.assertFalse(launched.get(0).isHealthy());
+		Assert.assertEquals("fallback", pool.process("x", 5000, r -> "fallback"));
+		Assert.assertEquals(1, launched.size());
+	}
+
+	@Test
+	public void testCgToolsEchoFlushCommand() throws IOException
+	{
+		// the real tools must echo the flush command, otherwise every request times out
+		Assume.assumeTrue(isOnPath("cg-conv") && isOnPath("vislcg3"));
+		URL grammar = getClass().getClassLoader().getResource("disambiguator-ru.cg3");
+		Assume.assumeNotNull(grammar);
+
+		StreamingCoProcess cgConv = new StreamingCoProcess("cg-conv", FLUSH, FLUSH, "cg-conv", "-f");
+		StreamingCoProcess vislCg3 = new StreamingCoProcess("vislcg3", FLUSH, FLUSH, "vislcg3", "-g", new File(grammar.getPath()).getAbsolutePath());
+		try
+		{
+			String hfst = "кот\tкот+N+Msc+Anim+Sg+Nom\t0.000000\n\nесть\tесть+V+Impf+IV+Prs+Sg3\t0.000000\n";
+			String readings = cgConv.process(hfst, 10000);
+			Assert.assertTrue(readings, readings.contains("\"<кот>\""));
+			// consecutive requests get their own responses
+			Assert.assertEquals(readings, cgConv.process(hfst, 10000));
+
+			String disambiguated = vislCg3.process(readings, 30000);
+			Assert.assertTrue(disambiguated, disambiguated.contains("\"<кот>\""));
+			Assert.assertTrue(disambiguated, disambiguated.contains("\"<есть>\""));
+			Assert.assertEquals(disambiguated, vislCg3.process(readings, 30000));
+			Assert.assertTrue(cgConv.isHealthy() && vislCg3.isHealthy());
+		}
+		finally
+		{
+			cgConv.kill();
+			vislCg3.kill();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.flair.server.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Scratch directories for tests of on-disk caches
+ */
+public final class TemporaryDirectory
+{
+	private TemporaryDirectory() {}
+
+	public static Path create(String prefix) throws IOException {
+		return Files.createTempDirectory(prefix);
+	}
+
+	/**
+	 * Deletes the directory and everything in it, ignoring errors
+	 */
+	public static void delete(Path directory)
+	{
+		if (directory == null)
+			return;
+
+		delete(directory.toFile());
+	}
+
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File itr : children)
+				delete(itr);
+		}
+		file.delete();
+	}
+}
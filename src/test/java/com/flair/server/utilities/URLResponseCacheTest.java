@@ -0,0 +1,155 @@
+package com.flair.server.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class URLResponseCacheTest
+{
+	private static final String URL = "http://example.com/page";
+	private static final String LANG = "en-US,en;q=0.8";
+	private static final String BODY = "<html><body>Hello</body></html>";
+
+	private Path directory;
+	private URLResponseCache cache;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = TemporaryDirectory.create("flair-url-cache");
+		cache = new URLResponseCache(directory, 1024 * 1024, 1024, 60 * 1000);
+	}
+
+	@After
+	public void tearDown() {
+		TemporaryDirectory.delete(directory);
+	}
+
+	private static HttpResponse createResponse(int status, String body, String... headers)
+	{
+		BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+		if (body != null)
+			response.setEntity(new StringEntity(body, ContentType.TEXT_HTML));
+		for (int i = 0; i < headers.length; i += 2)
+			response.addHeader(headers[i], headers[i + 1]);
+
+		return response;
+	}
+
+	private static String readFully(InputStream in) throws IOException
+	{
+		try (InputStream stream = in)
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[64];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private void fetch(HttpResponse response, String body) throws IOException
+	{
+		InputStream in = cache.store(URL, LANG, response, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(body, readFully(in));
+	}
+
+	@Test
+	public void testFreshEntryIsServedFromDisk() throws IOException
+	{
+		Assert.assertNull(cache.lookup(URL, LANG));
+		fetch(createResponse(HttpStatus.SC_OK, BODY, "ETag", "\"v1\""), BODY);
+
+		URLResponseCache.Entry entry = cache.lookup(URL, LANG);
+		Assert.assertNotNull(entry);
+		Assert.assertTrue(entry.isFresh());
+		Assert.assertEquals("\"v1\"", entry.getETag());
+		Assert.assertTrue(entry.getContentType().startsWith("text/html"));
+		Assert.assertEquals(BODY, readFully(cache.open(entry)));
+
+		// keyed by the request's language as well
+		Assert.assertNull(cache.lookup(URL, "de-DE,de;q=0.8"));
+		Assert.assertEquals(1, cache.getStoreCount());
+		Assert.assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testRevalidation() throws IOException
+	{
+		fetch(createResponse(HttpStatus.SC_OK, BODY, "Cache-Control", "no-cache", "Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT"), BODY);
+
+		URLResponseCache.Entry entry = cache.lookup(URL, LANG);
+		Assert.assertFalse(entry.isFresh());
+		Assert.assertTrue(entry.hasValidators());
+
+		URLResponseCache.Entry updated = cache.revalidate(entry, createResponse(HttpStatus.SC_NOT_MODIFIED, null,
+																				"Cache-Control", "max-age=600", "ETag", "\"v2\""));
+		Assert.assertTrue(updated.isFresh());
+		Assert.assertEquals("\"v2\"", updated.getETag());
+		Assert.assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", updated.getLastModified());
+		Assert.assertEquals(BODY, readFully(cache.open(updated)));
+		Assert.assertTrue(cache.lookup(URL, LANG).isFresh());
+	}
+
+	@Test
+	public void testUncacheableResponses() throws IOException
+	{
+		fetch(createResponse(HttpStatus.SC_OK, BODY, "Cache-Control", "private, no-store"), BODY);
+		Assert.assertNull(cache.lookup(URL, LANG));
+
+		fetch(createResponse(HttpStatus.SC_NOT_FOUND, BODY), BODY);
+		Assert.assertNull(cache.lookup(URL, LANG));
+
+		// larger than the maximum entry size
+		StringBuilder large = new StringBuilder();
+		while (large.length() <= 1024)
+			large.append(BODY);
+		fetch(createResponse(HttpStatus.SC_OK, large.toString()), large.toString());
+		Assert.assertNull(cache.lookup(URL, LANG));
+		Assert.assertEquals(0, cache.getStoreCount());
+	}
+
+	@Test
+	public void testPartiallyReadBodyIsNotCached() throws IOException
+	{
+		InputStream in = cache.store(URL, LANG, createResponse(HttpStatus.SC_OK, BODY),
+									new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8)));
+		in.read(new byte[4]);
+		in.close();
+
+		Assert.assertNull(cache.lookup(URL, LANG));
+		Assert.assertEquals(0, directory.toFile().listFiles().length);
+	}
+
+	@Test
+	public void testTrim() throws IOException
+	{
+		URLResponseCache small = new URLResponseCache(directory, 200, 1024, 60 * 1000);
+		for (int i = 0; i < 10; i++)
+		{
+			String url = URL + i;
+			InputStream in = small.store(url, LANG, createResponse(HttpStatus.SC_OK, BODY),
+										new ByteArrayInputStream(BODY.getBytes(StandardCharsets.UTF_8)));
+			readFully(in);
+		}
+
+		Assert.assertTrue(small.getDiskBytes() <= 200);
+		Assert.assertTrue(small.getEvictionCount() > 0);
+	}
+}
@@ -0,0 +1,53 @@
+package com.flair.server.utilities.cg3parser;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.flair.server.utilities.cg3parser.model.WordWithReadings;
+
+public class Cg3ParserTest
+{
+	private static final String BATCH =
+			"\"<У>\"\n" +
+			"\t\"у\" Pr\n" +
+			"\"<меня>\"\n" +
+			"\t\"я\" Pron Pers Sg1 Gen\n" +
+			"\"<.>\"\n" +
+			"\t\".\" CLB\n" +
+			"\"<¶>\"\n" +
+			"\t\"¶\" ?\n" +
+			"\n" +
+			"\"<Кот>\"\n" +
+			"\t\"кот\" N Msc AnIn Sg Nom\n" +
+			"\t\"кот\" N Msc AnIn Sg Acc\n" +
+			"\"<¶>\"\n" +
+			"\t\"¶\" ?\n";
+
+	@Test
+	public void testParseSegments()
+	{
+		List<List<WordWithReadings>> segments = new Cg3Parser(BATCH).parseSegments("<¶>", new int[] { 3, 1 });
+		Assert.assertNotNull(segments);
+		Assert.assertEquals(2, segments.size());
+
+		List<WordWithReadings> first = segments.get(0);
+		Assert.assertEquals(3, first.size());
+		for (int i = 0; i < first.size(); i++)
+			Assert.assertEquals(i, first.get(i).getIndex());
+		Assert.assertEquals("\"<меня>\"", first.get(1).getSurfaceForm());
+
+		List<WordWithReadings> second = segments.get(1);
+		Assert.assertEquals(1, second.size());
+		Assert.assertEquals(0, second.get(0).getIndex());
+		Assert.assertEquals(2, second.get(0).getReadings().size());
+	}
+
+	@Test
+	public void testMisalignedSegments()
+	{
+		Assert.assertNull(new Cg3Parser(BATCH).parseSegments("<¶>", new int[] { 2, 2 }));
+		Assert.assertNull(new Cg3Parser(BATCH).parseSegments("<¶>", new int[] { 3, 1, 1 }));
+	}
+}